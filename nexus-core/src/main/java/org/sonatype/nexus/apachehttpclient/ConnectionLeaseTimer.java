@@ -0,0 +1,57 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.apachehttpclient;
+
+/**
+ * Thread bound accumulator of time spent waiting for a connection to be leased from the connection pool. As
+ * HttpClient leases connections in the thread executing the request, the caller can learn how much of request
+ * execution time was spent waiting on the pool, without any synchronization.
+ *
+ * @since 2.4
+ */
+public final class ConnectionLeaseTimer
+{
+    private static final ThreadLocal<long[]> WAIT_NANOS = new ThreadLocal<long[]>()
+    {
+        @Override
+        protected long[] initialValue()
+        {
+            return new long[1];
+        }
+    };
+
+    private ConnectionLeaseTimer()
+    {
+        // no instances
+    }
+
+    /**
+     * Records time spent waiting for a connection lease in current thread.
+     */
+    static void leased( final long waitNanos )
+    {
+        WAIT_NANOS.get()[0] += waitNanos;
+    }
+
+    /**
+     * Returns the time (in nanoseconds) current thread spent waiting for connection leases since last invocation of
+     * this method, and resets it.
+     */
+    public static long getAndResetWaitNanos()
+    {
+        final long[] wait = WAIT_NANOS.get();
+        final long result = wait[0];
+        wait[0] = 0;
+        return result;
+    }
+}
@@ -20,6 +20,10 @@ import javax.inject.Singleton;
 
 import org.apache.http.client.params.ClientPNames;
 import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
@@ -282,6 +286,37 @@ public class Hc4ProviderImpl
             {
                 return new Hc4ClientConnectionOperator( defaultSchemeRegistry, selectors );
             }
+
+            @Override
+            public ClientConnectionRequest requestConnection( final HttpRoute route, final Object state )
+            {
+                final ClientConnectionRequest request = super.requestConnection( route, state );
+
+                // measures the time spent waiting for pool, see ConnectionLeaseTimer
+                return new ClientConnectionRequest()
+                {
+                    @Override
+                    public ManagedClientConnection getConnection( final long timeout, final TimeUnit tunit )
+                        throws InterruptedException, ConnectionPoolTimeoutException
+                    {
+                        final long started = System.nanoTime();
+                        try
+                        {
+                            return request.getConnection( timeout, tunit );
+                        }
+                        finally
+                        {
+                            ConnectionLeaseTimer.leased( System.nanoTime() - started );
+                        }
+                    }
+
+                    @Override
+                    public void abortRequest()
+                    {
+                        request.abortRequest();
+                    }
+                };
+            }
         };
 
         final int maxConnectionCount = getConnectionPoolMaxSize();
@@ -23,6 +23,7 @@ import org.sonatype.nexus.ApplicationStatusSource;
 import org.sonatype.nexus.SystemStatus;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.NexusStartedEvent;
 import org.sonatype.plexus.appevents.Event;
 import org.sonatype.security.configuration.SecurityConfigurationManager;
@@ -34,6 +35,7 @@ import org.sonatype.security.model.upgrade.SecurityDataUpgrader;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
 @Component( role = EventInspector.class, hint = "SecurityUpgradeEventInspector" )
+@InspectedEvents( NexusStartedEvent.class )
 public class SecurityUpgradeEventInspector
     extends AbstractEventInspector
 {
@@ -25,6 +25,7 @@ import org.sonatype.nexus.configuration.application.GlobalHttpProxySettings;
 import org.sonatype.nexus.configuration.application.events.GlobalHttpProxySettingsChangedEvent;
 import org.sonatype.nexus.logging.AbstractLoggingComponent;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.NexusStartedEvent;
 import org.sonatype.nexus.proxy.repository.RemoteAuthenticationSettings;
 import org.sonatype.nexus.proxy.repository.UsernamePasswordRemoteAuthenticationSettings;
@@ -36,6 +37,7 @@ import org.sonatype.plexus.appevents.Event;
  */
 @Named
 @Singleton
+@InspectedEvents( { GlobalHttpProxySettingsChangedEvent.class, NexusStartedEvent.class } )
 public class SetProxyPropertiesInspector
     extends AbstractLoggingComponent
     implements EventInspector
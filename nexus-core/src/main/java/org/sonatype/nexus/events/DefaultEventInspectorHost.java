@@ -14,23 +14,36 @@ package org.sonatype.nexus.events;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.util.HashSet;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
-import org.slf4j.Logger;
+import org.sonatype.nexus.events.EventInspectorQueue.OverflowPolicy;
 import org.sonatype.nexus.logging.AbstractLoggingComponent;
+import org.sonatype.nexus.plugins.events.PluginActivatedEvent;
+import org.sonatype.nexus.plugins.events.PluginDeactivatedEvent;
 import org.sonatype.nexus.proxy.events.AsynchronousEventInspector;
+import org.sonatype.nexus.proxy.events.BatchingEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
+import org.sonatype.nexus.proxy.events.NexusInitializedEvent;
+import org.sonatype.nexus.proxy.events.NexusStartedEvent;
 import org.sonatype.nexus.threads.NexusThreadFactory;
 import org.sonatype.nexus.util.SystemPropertiesHelper;
 import org.sonatype.plexus.appevents.Event;
@@ -41,11 +54,20 @@ import com.google.common.eventbus.Subscribe;
 
 /**
  * A default implementation of EventInspectorHost, a component simply collecting all EventInspectors and re-emitting
- * events towards them in they wants to receive it. For ones implementing {@link AsynchronousEventInspector} a cached
- * thread pool is used to execute them in a separate thread. In case of pool saturation, the caller thread will execute
- * the async inspector (as if it would be non-async one). Host cannot assume and does not know which inspector is
- * "less important" (could be dropped without having data loss in case of excessive load for example), hence it applies
- * same rules to all inspectors.
+ * events towards them in they wants to receive it. For ones implementing {@link AsynchronousEventInspector} the
+ * accepted events are put into a bounded queue per inspector, drained by a small fixed set of worker threads, one batch
+ * at a time (see {@link BatchingEventInspector} for inspectors able to process batches). When queue of an inspector is
+ * full, the overflow policy applies, that is "coalesce" by default, but may be set to "drop" or "block" globally or
+ * per inspector using system properties. Callers wait for free space at most the overflow wait timeout, as they might
+ * hold item UID locks the inspectors need too, and queue the event beyond capacity after it. Host cannot assume and
+ * does not know which inspector is "less important" (could be dropped without having data loss in case of excessive
+ * load for example), hence it applies same default rules to all inspectors.
+ * <p>
+ * Events are dispatched using a table built lazily per event class, containing only the inspectors interested in
+ * given event class (see {@link InspectedEvents}). The table is replaced with an empty one when set of inspectors
+ * might have changed (Nexus boot and plugin activation/deactivation), dispatches built concurrently from the previous
+ * set of inspectors end up in the abandoned table. Host also keeps {@link EventInspectorStatistics} per inspector,
+ * exposed over JMX.
  * 
  * @author cstamas
  */
@@ -56,22 +78,50 @@ public class DefaultEventInspectorHost
     extends AbstractLoggingComponent
     implements EventInspectorHost, Disposable
 {
-    private final int HOST_THREAD_POOL_SIZE = SystemPropertiesHelper.getInteger(
-        "org.sonatype.nexus.events.DefaultEventInspectorHost.poolSize", 500 );
+    private static final String JMX_DOMAIN = "org.sonatype.nexus.events";
+
+    private static final String PROPERTY_PREFIX = "org.sonatype.nexus.events.DefaultEventInspectorHost.";
+
+    private final int HOST_THREAD_POOL_SIZE = SystemPropertiesHelper.getInteger( PROPERTY_PREFIX + "poolSize", 10 );
+
+    private final int QUEUE_SIZE = SystemPropertiesHelper.getInteger( PROPERTY_PREFIX + "queueSize", 5000 );
+
+    private final int BATCH_SIZE = SystemPropertiesHelper.getInteger( PROPERTY_PREFIX + "batchSize", 100 );
+
+    private final String OVERFLOW_POLICY = SystemPropertiesHelper.getString( PROPERTY_PREFIX + "overflowPolicy",
+        OverflowPolicy.COALESCE.name() );
+
+    private final long OVERFLOW_WAIT_TIMEOUT = SystemPropertiesHelper.getLong( PROPERTY_PREFIX + "overflowWaitTimeout",
+        500 );
 
     private final ThreadPoolExecutor hostThreadPool;
 
     private final Map<String, EventInspector> eventInspectors;
 
+    private final AtomicReference<ConcurrentMap<Class<?>, EventInspectorDispatch>> dispatchTable;
+
+    private final ConcurrentHashMap<String, EventInspectorStatistics> statistics;
+
+    private final ConcurrentHashMap<String, ObjectName> jmxNames;
+
+    private final ConcurrentHashMap<String, EventInspectorQueue> queues;
+
     @Inject
     public DefaultEventInspectorHost(final Map<String,EventInspector> eventInspectors)
     {
         this.eventInspectors = checkNotNull( eventInspectors );
+        this.dispatchTable =
+            new AtomicReference<ConcurrentMap<Class<?>, EventInspectorDispatch>>(
+                new ConcurrentHashMap<Class<?>, EventInspectorDispatch>() );
+        this.statistics = new ConcurrentHashMap<String, EventInspectorStatistics>();
+        this.jmxNames = new ConcurrentHashMap<String, ObjectName>();
+        this.queues = new ConcurrentHashMap<String, EventInspectorQueue>();
 
-        // direct hand-off used! Host pool will use caller thread to execute async inspectors when pool full!
+        // fixed set of workers, tasks are queues to drain, there is at most one task per inspector queue
         this.hostThreadPool =
-            new ThreadPoolExecutor( 0, HOST_THREAD_POOL_SIZE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
-                new NexusThreadFactory( "nxevthost", "Event Inspector Host" ), new CallerRunsPolicy() );
+            new ThreadPoolExecutor( HOST_THREAD_POOL_SIZE, HOST_THREAD_POOL_SIZE, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NexusThreadFactory( "nxevthost", "Event Inspector Host" ) );
+        this.hostThreadPool.allowCoreThreadTimeOut( true );
     }
 
     // == Disposable iface, to manage ExecutorService lifecycle
@@ -79,6 +129,23 @@ public class DefaultEventInspectorHost
     public void dispose()
     {
         shutdown();
+
+        for ( ObjectName jmxName : jmxNames.values() )
+        {
+            try
+            {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if ( server.isRegistered( jmxName ) )
+                {
+                    server.unregisterMBean( jmxName );
+                }
+            }
+            catch ( final Exception e )
+            {
+                getLogger().warn( "Problem unregistering MBean {}", jmxName, e );
+            }
+        }
+        jmxNames.clear();
     }
 
     // == EventInspectorHost iface
@@ -91,7 +158,15 @@ public class DefaultEventInspectorHost
 
     public boolean isCalmPeriod()
     {
-        // "calm period" is when we have no queued nor active threads
+        // "calm period" is when we have no queued events nor active threads
+        for ( EventInspectorQueue queue : queues.values() )
+        {
+            if ( !queue.isIdle() )
+            {
+                return false;
+            }
+        }
+
         return hostThreadPool.getQueue().isEmpty() && hostThreadPool.getActiveCount() == 0;
     }
 
@@ -101,7 +176,12 @@ public class DefaultEventInspectorHost
     {
         try
         {
-            processEvent( evt, getEventInspectors() );
+            if ( isEventInspectorsChangedEvent( evt ) )
+            {
+                dispatchTable.set( new ConcurrentHashMap<Class<?>, EventInspectorDispatch>() );
+            }
+
+            processEvent( evt, getEventInspectorDispatch( evt.getClass() ) );
         }
         catch ( IllegalStateException e )
         {
@@ -110,86 +190,299 @@ public class DefaultEventInspectorHost
         }
     }
 
+    /**
+     * Returns the statistics of event inspectors used so far, keyed by inspector name (hint).
+     * 
+     * @since 2.4
+     */
+    public Map<String, EventInspectorStatistics> getEventInspectorStatistics()
+    {
+        return Collections.unmodifiableMap( statistics );
+    }
+
     // ==
 
-    protected Set<EventInspector> getEventInspectors()
+    /**
+     * Returns true if the event signals that set of event inspectors might have been changed, as components are
+     * added/removed during boot and plugin activation/deactivation.
+     */
+    protected boolean isEventInspectorsChangedEvent( final Event<?> evt )
     {
-        return new HashSet<EventInspector>( eventInspectors.values() );
+        return evt instanceof NexusInitializedEvent || evt instanceof NexusStartedEvent
+            || evt instanceof PluginActivatedEvent || evt instanceof PluginDeactivatedEvent;
     }
 
-    protected void processEvent( final Event<?> evt, final Set<EventInspector> inspectors )
+    protected EventInspectorDispatch getEventInspectorDispatch( final Class<?> eventClass )
     {
-        // 1st pass: sync ones (without handler)
-        for ( EventInspector ei : inspectors )
+        // table is grabbed once: if it gets replaced while building, the built dispatch is discarded with it
+        final ConcurrentMap<Class<?>, EventInspectorDispatch> table = dispatchTable.get();
+
+        EventInspectorDispatch dispatch = table.get( eventClass );
+
+        if ( dispatch == null )
+        {
+            dispatch = buildEventInspectorDispatch( eventClass );
+
+            final EventInspectorDispatch existing = table.putIfAbsent( eventClass, dispatch );
+
+            if ( existing != null )
+            {
+                dispatch = existing;
+            }
+        }
+
+        return dispatch;
+    }
+
+    protected EventInspectorDispatch buildEventInspectorDispatch( final Class<?> eventClass )
+    {
+        final List<EventInspectorEntry> syncEntries = new ArrayList<EventInspectorEntry>();
+        final List<EventInspectorEntry> asyncEntries = new ArrayList<EventInspectorEntry>();
+
+        for ( Map.Entry<String, EventInspector> entry : eventInspectors.entrySet() )
         {
-            if ( !( ei instanceof AsynchronousEventInspector ) )
+            final EventInspector ei = entry.getValue();
+
+            if ( isInterestedIn( ei, eventClass ) )
             {
-                try
+                final boolean async = ei instanceof AsynchronousEventInspector;
+
+                final EventInspectorStatistics eventInspectorStatistics =
+                    getEventInspectorStatistics( entry.getKey(), async );
+
+                if ( async )
                 {
-                    if ( ei.accepts( evt ) )
-                    {
-                        ei.inspect( evt );
-                    }
+                    asyncEntries.add( new EventInspectorEntry( ei, eventInspectorStatistics, getEventInspectorQueue(
+                        entry.getKey(), ei, eventInspectorStatistics ) ) );
                 }
-                catch ( Exception e )
+                else
                 {
-                    getLogger().warn( "EventInspector implementation={} had problem accepting an event={}",
-                        ei.getClass().getName(), evt.getClass(), e);
+                    syncEntries.add( new EventInspectorEntry( ei, eventInspectorStatistics, null ) );
                 }
             }
         }
 
-        // 2nd pass: async ones
-        for ( EventInspector ei : inspectors )
+        return new EventInspectorDispatch( syncEntries.toArray( new EventInspectorEntry[syncEntries.size()] ),
+            asyncEntries.toArray( new EventInspectorEntry[asyncEntries.size()] ) );
+    }
+
+    protected boolean isInterestedIn( final EventInspector ei, final Class<?> eventClass )
+    {
+        final InspectedEvents inspectedEvents = ei.getClass().getAnnotation( InspectedEvents.class );
+
+        if ( inspectedEvents == null )
+        {
+            return true;
+        }
+
+        for ( Class<?> inspectedEventClass : inspectedEvents.value() )
         {
-            if ( ei instanceof AsynchronousEventInspector )
+            if ( inspectedEventClass.isAssignableFrom( eventClass ) )
             {
-                try
-                {
-                    if ( ei.accepts( evt ) )
-                    {
-                        final EventInspectorHandler handler = new EventInspectorHandler( getLogger(), ei, evt );
+                return true;
+            }
+        }
 
-                        hostThreadPool.execute( handler );
-                    }
-                }
-                catch ( Exception e )
-                {
-                    getLogger().warn( "Async EventInspector implementation={} had problem accepting an event={}",
-                        ei.getClass().getName(), evt.getClass(), e);
-                }
+        return false;
+    }
+
+    protected EventInspectorStatistics getEventInspectorStatistics( final String name, final boolean async )
+    {
+        EventInspectorStatistics result = statistics.get( name );
+
+        if ( result == null )
+        {
+            final EventInspectorStatistics newStatistics = new EventInspectorStatistics( name, async );
+
+            result = statistics.putIfAbsent( name, newStatistics );
+
+            if ( result == null )
+            {
+                result = newStatistics;
+                registerMBean( newStatistics );
             }
         }
+
+        return result;
     }
 
-    // ==
+    protected EventInspectorQueue getEventInspectorQueue( final String name, final EventInspector ei,
+                                                          final EventInspectorStatistics eventInspectorStatistics )
+    {
+        final EventInspectorQueue queue = queues.get( name );
 
-    public static class EventInspectorHandler
-        implements Runnable
+        if ( queue != null && queue.getEventInspector() == ei )
+        {
+            return queue;
+        }
+
+        // new or replaced inspector, the queue of replaced one will be drained and abandoned
+        final EventInspectorQueue newQueue =
+            new EventInspectorQueue( getLogger(), ei, eventInspectorStatistics, hostThreadPool, QUEUE_SIZE, BATCH_SIZE,
+                getOverflowPolicy( name ), OVERFLOW_WAIT_TIMEOUT );
+
+        if ( queue == null )
+        {
+            final EventInspectorQueue existing = queues.putIfAbsent( name, newQueue );
+
+            return existing != null ? existing : newQueue;
+        }
+        else
+        {
+            return queues.replace( name, queue, newQueue ) ? newQueue : queues.get( name );
+        }
+    }
+
+    protected OverflowPolicy getOverflowPolicy( final String name )
     {
-        private final Logger logger;
+        final String policy =
+            SystemPropertiesHelper.getString( PROPERTY_PREFIX + "overflowPolicy." + name, OVERFLOW_POLICY );
 
-        private final EventInspector ei;
+        try
+        {
+            return OverflowPolicy.valueOf( policy.toUpperCase( Locale.ENGLISH ) );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            getLogger().warn( "Unknown event inspector overflow policy \"{}\" for {}, using {}",
+                new Object[] { policy, name, OverflowPolicy.COALESCE } );
+            return OverflowPolicy.COALESCE;
+        }
+    }
 
-        private final Event<?> evt;
+    protected void registerMBean( final EventInspectorStatistics eventInspectorStatistics )
+    {
+        try
+        {
+            final ObjectName jmxName =
+                ObjectName.getInstance( JMX_DOMAIN + ":type=EventInspector,name="
+                    + ObjectName.quote( eventInspectorStatistics.getName() ) );
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if ( server.isRegistered( jmxName ) )
+            {
+                getLogger().debug( "MBean already registered; replacing: {}", jmxName );
+                server.unregisterMBean( jmxName );
+            }
+            server.registerMBean( new DefaultEventInspectorStatisticsMBean( eventInspectorStatistics ), jmxName );
+            jmxNames.put( eventInspectorStatistics.getName(), jmxName );
+        }
+        catch ( Exception e )
+        {
+            getLogger().warn( "Problem registering MBean for event inspector {}", eventInspectorStatistics.getName(),
+                e );
+        }
+    }
 
-        public EventInspectorHandler( final Logger logger, final EventInspector ei, final Event<?> evt )
+    protected void processEvent( final Event<?> evt, final EventInspectorDispatch dispatch )
+    {
+        // 1st pass: sync ones (without handler)
+        for ( EventInspectorEntry entry : dispatch.getSyncEntries() )
         {
-            this.logger = logger;
-            this.ei = ei;
-            this.evt = evt;
+            final EventInspector ei = entry.getEventInspector();
+
+            try
+            {
+                if ( ei.accepts( evt ) )
+                {
+                    final long start = System.nanoTime();
+                    try
+                    {
+                        ei.inspect( evt );
+                    }
+                    finally
+                    {
+                        entry.getStatistics().inspected( System.nanoTime() - start );
+                    }
+                }
+            }
+            catch ( Exception e )
+            {
+                getLogger().warn( "EventInspector implementation={} had problem accepting an event={}",
+                    ei.getClass().getName(), evt.getClass(), e);
+            }
         }
 
-        public void run()
+        // 2nd pass: async ones
+        for ( EventInspectorEntry entry : dispatch.getAsyncEntries() )
         {
+            final EventInspector ei = entry.getEventInspector();
+
             try
             {
-                ei.inspect( evt );
+                if ( ei.accepts( evt ) )
+                {
+                    entry.getQueue().enqueue( evt );
+                }
             }
             catch ( Exception e )
             {
-                logger.warn( "EventInspector implementation={} had problem accepting an event={}", ei.getClass().getName(), evt.getClass(), e);
+                getLogger().warn( "Async EventInspector implementation={} had problem accepting an event={}",
+                    ei.getClass().getName(), evt.getClass(), e);
             }
         }
     }
+
+    // ==
+
+    /**
+     * The inspectors interested in one event class, split into sync and async ones. Immutable.
+     */
+    protected static class EventInspectorDispatch
+    {
+        private final EventInspectorEntry[] syncEntries;
+
+        private final EventInspectorEntry[] asyncEntries;
+
+        public EventInspectorDispatch( final EventInspectorEntry[] syncEntries,
+                                       final EventInspectorEntry[] asyncEntries )
+        {
+            this.syncEntries = syncEntries;
+            this.asyncEntries = asyncEntries;
+        }
+
+        public EventInspectorEntry[] getSyncEntries()
+        {
+            return syncEntries;
+        }
+
+        public EventInspectorEntry[] getAsyncEntries()
+        {
+            return asyncEntries;
+        }
+    }
+
+    protected static class EventInspectorEntry
+    {
+        private final EventInspector eventInspector;
+
+        private final EventInspectorStatistics statistics;
+
+        private final EventInspectorQueue queue;
+
+        EventInspectorEntry( final EventInspector eventInspector, final EventInspectorStatistics statistics,
+                             final EventInspectorQueue queue )
+        {
+            this.eventInspector = eventInspector;
+            this.statistics = statistics;
+            this.queue = queue;
+        }
+
+        public EventInspector getEventInspector()
+        {
+            return eventInspector;
+        }
+
+        public EventInspectorStatistics getStatistics()
+        {
+            return statistics;
+        }
+
+        /**
+         * Returns the queue of asynchronous inspector, {@code null} for synchronous ones.
+         */
+        EventInspectorQueue getQueue()
+        {
+            return queue;
+        }
+    }
 }
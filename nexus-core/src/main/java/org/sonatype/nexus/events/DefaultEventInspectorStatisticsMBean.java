@@ -0,0 +1,90 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.events;
+
+import javax.management.StandardMBean;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The default implementation of MBean management interface for {@link EventInspectorStatistics}.
+ * 
+ * @since 2.4
+ */
+public class DefaultEventInspectorStatisticsMBean
+    extends StandardMBean
+    implements EventInspectorStatisticsMBean
+{
+    private final EventInspectorStatistics statistics;
+
+    public DefaultEventInspectorStatisticsMBean( final EventInspectorStatistics statistics )
+    {
+        super( EventInspectorStatisticsMBean.class, false );
+        this.statistics =
+            Preconditions.checkNotNull( statistics, "Managed EventInspectorStatistics cannot be null!" );
+    }
+
+    @Override
+    public String getName()
+    {
+        return statistics.getName();
+    }
+
+    @Override
+    public boolean isAsynchronous()
+    {
+        return statistics.isAsynchronous();
+    }
+
+    @Override
+    public long getInvocations()
+    {
+        return statistics.getInvocations();
+    }
+
+    @Override
+    public long getInspectTimeMillis()
+    {
+        return statistics.getInspectTimeMillis();
+    }
+
+    @Override
+    public long getOverCapacityEvents()
+    {
+        return statistics.getOverCapacityEvents();
+    }
+
+    @Override
+    public long getDroppedEvents()
+    {
+        return statistics.getDroppedEvents();
+    }
+
+    @Override
+    public long getCoalescedEvents()
+    {
+        return statistics.getCoalescedEvents();
+    }
+
+    @Override
+    public long getQueueSize()
+    {
+        return statistics.getQueueSize();
+    }
+
+    @Override
+    public void reset()
+    {
+        statistics.reset();
+    }
+}
@@ -17,6 +17,7 @@ import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.AsynchronousEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryEventPostRemove;
 import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.nexus.scheduling.NexusScheduler;
@@ -29,6 +30,7 @@ import org.sonatype.plexus.appevents.Event;
  * @author cstamas
  */
 @Component( role = EventInspector.class, hint = "DeleteRepositoryFoldersEventInspector" )
+@InspectedEvents( RepositoryRegistryEventPostRemove.class )
 public class DeleteRepositoryFoldersEventInspector
     extends AbstractEventInspector
     implements AsynchronousEventInspector
@@ -0,0 +1,373 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.events;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.sonatype.nexus.proxy.events.BatchingEventInspector;
+import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.plexus.appevents.Event;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Bounded queue of events accepted by one asynchronous event inspector. The queue is drained by the event inspector
+ * host workers, one batch at a time, and at most by one worker at a time, hence events are processed in same order as
+ * they were accepted. When queue is full, the {@link OverflowPolicy} applies. Callers never wait for free space longer
+ * than the overflow wait timeout, as they might hold locks (like item UID locks) the inspector needs to make progress.
+ * The inspector is never invoked outside of the drain loop.
+ * 
+ * @since 2.4
+ */
+class EventInspectorQueue
+    implements Runnable
+{
+    /**
+     * What happens with a new event when queue of inspector is full.
+     */
+    enum OverflowPolicy
+    {
+        /**
+         * Caller waits for free space in queue, at most the overflow wait timeout. After that, the event is queued
+         * beyond capacity (and counted in {@link EventInspectorStatistics#getOverCapacityEvents()}).
+         */
+        BLOCK,
+
+        /**
+         * Event is dropped (and counted in {@link EventInspectorStatistics#getDroppedEvents()}).
+         */
+        DROP,
+
+        /**
+         * Queued events having same coalescing key (see {@link BatchingEventInspector}) are removed, and the event is
+         * queued at the tail, as only the latest of them matters. If no such event queued, same applies as for
+         * {@link #BLOCK}.
+         */
+        COALESCE;
+    }
+
+    /**
+     * Marks the threads draining the queues, to not have them waiting on a full queue (as they might wait for
+     * themselves). For them, the capacity is a soft bound.
+     */
+    private static final ThreadLocal<Boolean> DRAINING = new ThreadLocal<Boolean>();
+
+    private final Logger logger;
+
+    private final EventInspector eventInspector;
+
+    private final EventInspectorStatistics statistics;
+
+    private final Executor executor;
+
+    private final int capacity;
+
+    private final int maxBatchSize;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final long overflowWaitNanos;
+
+    private final LinkedList<Event<?>> events;
+
+    private final ReentrantLock lock;
+
+    private final Condition notFull;
+
+    private final AtomicBoolean scheduled;
+
+    EventInspectorQueue( final Logger logger, final EventInspector eventInspector,
+                         final EventInspectorStatistics statistics, final Executor executor, final int capacity,
+                         final int maxBatchSize, final OverflowPolicy overflowPolicy, final long overflowWaitMillis )
+    {
+        Preconditions.checkArgument( capacity > 0, "Queue capacity must be greater than 0" );
+        Preconditions.checkArgument( maxBatchSize > 0, "Batch size must be greater than 0" );
+        this.logger = Preconditions.checkNotNull( logger );
+        this.eventInspector = Preconditions.checkNotNull( eventInspector );
+        this.statistics = Preconditions.checkNotNull( statistics );
+        this.executor = Preconditions.checkNotNull( executor );
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.overflowPolicy = Preconditions.checkNotNull( overflowPolicy );
+        this.overflowWaitNanos = TimeUnit.MILLISECONDS.toNanos( Math.max( 0, overflowWaitMillis ) );
+        this.events = new LinkedList<Event<?>>();
+        this.lock = new ReentrantLock();
+        this.notFull = lock.newCondition();
+        this.scheduled = new AtomicBoolean( false );
+    }
+
+    EventInspector getEventInspector()
+    {
+        return eventInspector;
+    }
+
+    OverflowPolicy getOverflowPolicy()
+    {
+        return overflowPolicy;
+    }
+
+    /**
+     * Returns true if queue is empty and no worker is processing events from it.
+     */
+    boolean isIdle()
+    {
+        lock.lock();
+        try
+        {
+            return events.isEmpty() && !scheduled.get();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Enqueues an event accepted by inspector, applying the overflow policy if queue is full.
+     */
+    void enqueue( final Event<?> evt )
+    {
+        lock.lock();
+        try
+        {
+            long waitNanos = overflowWaitNanos;
+
+            while ( events.size() >= capacity )
+            {
+                if ( OverflowPolicy.DROP == overflowPolicy )
+                {
+                    statistics.dropped();
+                    return;
+                }
+
+                if ( OverflowPolicy.COALESCE == overflowPolicy && coalesce( evt ) )
+                {
+                    // made space for the event
+                    break;
+                }
+
+                if ( Boolean.TRUE.equals( DRAINING.get() ) || Thread.currentThread().isInterrupted() || waitNanos <= 0 )
+                {
+                    // a worker (possibly of this very queue) must not wait for free space, nor can interrupted caller,
+                    // and a caller must not wait for long, as the inspector might need the locks the caller holds
+                    statistics.overCapacity();
+                    break;
+                }
+
+                try
+                {
+                    waitNanos = notFull.awaitNanos( waitNanos );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    statistics.overCapacity();
+                    break;
+                }
+            }
+
+            events.add( evt );
+            statistics.queued( 1 );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        schedule();
+    }
+
+    @Override
+    public void run()
+    {
+        DRAINING.set( Boolean.TRUE );
+        try
+        {
+            drainBatch();
+        }
+        finally
+        {
+            DRAINING.remove();
+            scheduled.set( false );
+        }
+
+        if ( !isEmpty() )
+        {
+            schedule();
+        }
+    }
+
+    // ==
+
+    protected boolean isEmpty()
+    {
+        lock.lock();
+        try
+        {
+            return events.isEmpty();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    protected void schedule()
+    {
+        if ( scheduled.compareAndSet( false, true ) )
+        {
+            try
+            {
+                executor.execute( this );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // host is shut down, process remaining events in caller thread
+                final Boolean draining = DRAINING.get();
+                DRAINING.set( Boolean.TRUE );
+                try
+                {
+                    while ( drainBatch() > 0 )
+                    {
+                        // nop
+                    }
+                }
+                finally
+                {
+                    DRAINING.set( draining );
+                    scheduled.set( false );
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes one batch of events, if any, and returns the count of events processed.
+     */
+    protected int drainBatch()
+    {
+        final List<Event<?>> batch;
+
+        lock.lock();
+        try
+        {
+            final int size = Math.min( maxBatchSize, events.size() );
+            batch = new ArrayList<Event<?>>( size );
+            for ( int i = 0; i < size; i++ )
+            {
+                batch.add( events.removeFirst() );
+            }
+            statistics.queued( -size );
+            notFull.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        if ( !batch.isEmpty() )
+        {
+            process( batch );
+        }
+
+        return batch.size();
+    }
+
+    protected void process( final List<Event<?>> batch )
+    {
+        if ( eventInspector instanceof BatchingEventInspector )
+        {
+            final long start = System.nanoTime();
+            try
+            {
+                ( (BatchingEventInspector) eventInspector ).inspect( batch );
+            }
+            catch ( Exception e )
+            {
+                logger.warn( "EventInspector implementation={} had problem accepting a batch of {} events",
+                    eventInspector.getClass().getName(), batch.size(), e );
+            }
+            finally
+            {
+                statistics.inspected( System.nanoTime() - start, batch.size() );
+            }
+        }
+        else
+        {
+            for ( Event<?> evt : batch )
+            {
+                final long start = System.nanoTime();
+                try
+                {
+                    eventInspector.inspect( evt );
+                }
+                catch ( Exception e )
+                {
+                    logger.warn( "EventInspector implementation={} had problem accepting an event={}",
+                        eventInspector.getClass().getName(), evt.getClass(), e );
+                }
+                finally
+                {
+                    statistics.inspected( System.nanoTime() - start );
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the queued events having same coalescing key as passed in event, returning {@code true} if there were
+     * any. Must be invoked while holding the lock.
+     */
+    protected boolean coalesce( final Event<?> evt )
+    {
+        if ( !( eventInspector instanceof BatchingEventInspector ) )
+        {
+            return false;
+        }
+
+        final BatchingEventInspector batchingEventInspector = (BatchingEventInspector) eventInspector;
+
+        final Object key = batchingEventInspector.getCoalescingKey( evt );
+
+        if ( key == null )
+        {
+            return false;
+        }
+
+        int removed = 0;
+
+        for ( Iterator<Event<?>> iterator = events.iterator(); iterator.hasNext(); )
+        {
+            if ( key.equals( batchingEventInspector.getCoalescingKey( iterator.next() ) ) )
+            {
+                iterator.remove();
+                statistics.coalesced();
+                removed++;
+            }
+        }
+
+        statistics.queued( -removed );
+
+        return removed > 0;
+    }
+}
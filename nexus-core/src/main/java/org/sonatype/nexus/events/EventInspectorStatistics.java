@@ -0,0 +1,151 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.events;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Counters of one event inspector, maintained by {@link DefaultEventInspectorHost}.
+ * 
+ * @since 2.4
+ */
+public class EventInspectorStatistics
+{
+    private final String name;
+
+    private final boolean asynchronous;
+
+    private final AtomicLong invocations = new AtomicLong();
+
+    private final AtomicLong inspectTimeNanos = new AtomicLong();
+
+    private final AtomicLong overCapacityEvents = new AtomicLong();
+
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    private final AtomicLong coalescedEvents = new AtomicLong();
+
+    private final AtomicLong queueSize = new AtomicLong();
+
+    public EventInspectorStatistics( final String name, final boolean asynchronous )
+    {
+        this.name = Preconditions.checkNotNull( name );
+        this.asynchronous = asynchronous;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public boolean isAsynchronous()
+    {
+        return asynchronous;
+    }
+
+    /**
+     * Returns the count of events inspected (events the inspector accepted).
+     */
+    public long getInvocations()
+    {
+        return invocations.get();
+    }
+
+    /**
+     * Returns the total time spent in inspect method, in milliseconds.
+     */
+    public long getInspectTimeMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( inspectTimeNanos.get() );
+    }
+
+    /**
+     * Returns the count of events queued beyond the capacity of the queue of an asynchronous inspector, as the queue
+     * was full and stayed full for the overflow wait timeout, or the caller was an event inspector host worker itself
+     * (or was interrupted), hence could not wait.
+     */
+    public long getOverCapacityEvents()
+    {
+        return overCapacityEvents.get();
+    }
+
+    /**
+     * Returns the count of events an asynchronous inspector did not process, as they were dropped due to full queue.
+     */
+    public long getDroppedEvents()
+    {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Returns the count of events an asynchronous inspector did not process, as they were coalesced with a later
+     * event, due to full queue.
+     */
+    public long getCoalescedEvents()
+    {
+        return coalescedEvents.get();
+    }
+
+    /**
+     * Returns the count of events accepted by an asynchronous inspector, but not yet processed.
+     */
+    public long getQueueSize()
+    {
+        return queueSize.get();
+    }
+
+    public void reset()
+    {
+        invocations.set( 0 );
+        inspectTimeNanos.set( 0 );
+        overCapacityEvents.set( 0 );
+        droppedEvents.set( 0 );
+        coalescedEvents.set( 0 );
+    }
+
+    // ==
+
+    void inspected( final long nanos )
+    {
+        inspected( nanos, 1 );
+    }
+
+    void inspected( final long nanos, final int count )
+    {
+        invocations.addAndGet( count );
+        inspectTimeNanos.addAndGet( nanos );
+    }
+
+    void overCapacity()
+    {
+        overCapacityEvents.incrementAndGet();
+    }
+
+    void dropped()
+    {
+        droppedEvents.incrementAndGet();
+    }
+
+    void coalesced()
+    {
+        coalescedEvents.incrementAndGet();
+    }
+
+    void queued( final int delta )
+    {
+        queueSize.addAndGet( delta );
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.events;
+
+/**
+ * The MBean management interface exposing {@link EventInspectorStatistics} of one event inspector.
+ * 
+ * @since 2.4
+ */
+public interface EventInspectorStatisticsMBean
+{
+    /**
+     * Returns the name (hint) of event inspector.
+     * 
+     * @return
+     */
+    String getName();
+
+    /**
+     * Returns true if event inspector is asynchronous.
+     * 
+     * @return
+     */
+    boolean isAsynchronous();
+
+    /**
+     * Returns the count of events inspected.
+     * 
+     * @return
+     */
+    long getInvocations();
+
+    /**
+     * Returns the total time spent inspecting events in milliseconds.
+     * 
+     * @return
+     */
+    long getInspectTimeMillis();
+
+    /**
+     * Returns the count of events queued beyond the capacity of the queue of asynchronous inspector, as queue was full
+     * and caller could not wait.
+     * 
+     * @return
+     */
+    long getOverCapacityEvents();
+
+    /**
+     * Returns the count of events dropped due to full queue of asynchronous inspector.
+     * 
+     * @return
+     */
+    long getDroppedEvents();
+
+    /**
+     * Returns the count of events coalesced with later ones due to full queue of asynchronous inspector.
+     * 
+     * @return
+     */
+    long getCoalescedEvents();
+
+    /**
+     * Returns the count of events waiting in queue of asynchronous inspector.
+     * 
+     * @return
+     */
+    long getQueueSize();
+
+    /**
+     * Resets the counters.
+     */
+    void reset();
+}
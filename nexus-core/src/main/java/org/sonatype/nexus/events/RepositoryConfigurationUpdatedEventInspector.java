@@ -17,6 +17,7 @@ import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.AsynchronousEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.RepositoryConfigurationUpdatedEvent;
 import org.sonatype.nexus.scheduling.NexusScheduler;
 import org.sonatype.nexus.tasks.ExpireCacheTask;
@@ -27,6 +28,7 @@ import org.sonatype.plexus.appevents.Event;
  * repository.
  */
 @Component( role = EventInspector.class, hint = "RepositoryConfigurationUpdatedEventInspector" )
+@InspectedEvents( RepositoryConfigurationUpdatedEvent.class )
 public class RepositoryConfigurationUpdatedEventInspector
     extends AbstractEventInspector
     implements AsynchronousEventInspector
@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -56,6 +57,8 @@ import org.sonatype.nexus.proxy.storage.UnsupportedStorageOperationException;
 import org.sonatype.nexus.proxy.walker.AbstractWalkerProcessor;
 import org.sonatype.nexus.proxy.walker.DefaultWalkerContext;
 import org.sonatype.nexus.proxy.walker.DottedStoreWalkerFilter;
+import org.sonatype.nexus.proxy.walker.LightweightWalkerProcessor;
+import org.sonatype.nexus.proxy.walker.ParallelWalkerProcessor;
 import org.sonatype.nexus.proxy.walker.ParentOMatic;
 import org.sonatype.nexus.proxy.walker.Walker;
 import org.sonatype.nexus.proxy.walker.WalkerContext;
@@ -309,29 +312,20 @@ public class DefaultSnapshotRemover
 
     private class SnapshotRemoverWalkerProcessor
         extends AbstractWalkerProcessor
+        implements LightweightWalkerProcessor, ParallelWalkerProcessor
     {
 
         private final MavenRepository repository;
 
         private final SnapshotRemovalRequest request;
 
-        private final Map<Version, List<StorageFileItem>> remainingSnapshotsAndFiles =
-            new HashMap<Version, List<StorageFileItem>>();
-
-        private final Map<Version, List<StorageFileItem>> deletableSnapshotsAndFiles =
-            new HashMap<Version, List<StorageFileItem>>();
-
         private final ParentOMatic collectionNodes;
 
         private final long dateThreshold;
 
-        private boolean shouldProcessCollection;
-
-        private boolean removeWholeGAV;
+        private final AtomicInteger deletedSnapshots = new AtomicInteger( 0 );
 
-        private int deletedSnapshots = 0;
-
-        private int deletedFiles = 0;
+        private final AtomicInteger deletedFiles = new AtomicInteger( 0 );
 
         public SnapshotRemoverWalkerProcessor( MavenRepository repository, SnapshotRemovalRequest request,
                                                final ParentOMatic collectionNodes )
@@ -407,18 +401,19 @@ public class DefaultSnapshotRemover
                 getLogger().debug( "onCollectionExit() :: " + coll.getRepositoryItemUid().toString() );
             }
 
-            shouldProcessCollection = coll.getPath().endsWith( "SNAPSHOT" );
-
-            if ( !shouldProcessCollection )
+            if ( !coll.getPath().endsWith( "SNAPSHOT" ) )
             {
                 return;
             }
 
-            deletableSnapshotsAndFiles.clear();
+            // collections are processed in parallel, keep the state local
+            final Map<Version, List<StorageFileItem>> remainingSnapshotsAndFiles =
+                new HashMap<Version, List<StorageFileItem>>();
 
-            remainingSnapshotsAndFiles.clear();
+            final Map<Version, List<StorageFileItem>> deletableSnapshotsAndFiles =
+                new HashMap<Version, List<StorageFileItem>>();
 
-            removeWholeGAV = false;
+            boolean removeWholeGAV = false;
 
             Gav gav = null;
 
@@ -574,7 +569,7 @@ public class DefaultSnapshotRemover
                 {
 
                     List<StorageFileItem> files = deletableSnapshotsAndFiles.get( key );
-                    deletedSnapshots++;
+                    deletedSnapshots.incrementAndGet();
 
                     for ( StorageFileItem file : files )
                     {
@@ -591,7 +586,7 @@ public class DefaultSnapshotRemover
 
                             repository.deleteItem( false, createResourceStoreRequest( file, context ) );
 
-                            deletedFiles++;
+                            deletedFiles.incrementAndGet();
                         }
                         catch ( ItemNotFoundException e )
                         {
@@ -610,21 +605,26 @@ public class DefaultSnapshotRemover
 
             removeDirectoryIfEmpty( coll );
 
-            updateMetadataIfNecessary( context, coll );
+            updateMetadataIfNecessary( context, coll, remainingSnapshotsAndFiles, deletableSnapshotsAndFiles );
 
         }
 
-        private void updateMetadataIfNecessary( WalkerContext context, StorageCollectionItem coll )
+        private void updateMetadataIfNecessary( WalkerContext context, StorageCollectionItem coll,
+                                                Map<Version, List<StorageFileItem>> remainingSnapshotsAndFiles,
+                                                Map<Version, List<StorageFileItem>> deletableSnapshotsAndFiles )
             throws Exception
         {
-            // all snapshot files are deleted
-            if ( !deletableSnapshotsAndFiles.isEmpty() && remainingSnapshotsAndFiles.isEmpty() )
-            {
-                collectionNodes.addAndMarkPath( ItemPathUtils.getParentPath( coll.getPath() ) );
-            }
-            else
+            synchronized ( collectionNodes )
             {
-                collectionNodes.addAndMarkPath( coll.getPath() );
+                // all snapshot files are deleted
+                if ( !deletableSnapshotsAndFiles.isEmpty() && remainingSnapshotsAndFiles.isEmpty() )
+                {
+                    collectionNodes.addAndMarkPath( ItemPathUtils.getParentPath( coll.getPath() ) );
+                }
+                else
+                {
+                    collectionNodes.addAndMarkPath( coll.getPath() );
+                }
             }
         }
 
@@ -748,12 +748,12 @@ public class DefaultSnapshotRemover
 
         public int getDeletedSnapshots()
         {
-            return deletedSnapshots;
+            return deletedSnapshots.get();
         }
 
         public int getDeletedFiles()
         {
-            return deletedFiles;
+            return deletedFiles.get();
         }
 
     }
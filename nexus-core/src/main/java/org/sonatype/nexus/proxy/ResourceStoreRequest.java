@@ -393,6 +393,27 @@ public class ResourceStoreRequest
         return appliedMappings;
     }
 
+    /**
+     * Merges the processed repositories and applied mappings of given request into this one. Used when processing of
+     * a request is forked into multiple requests (as with hedged group requests), to carry the state over to the
+     * forked requests, and to merge it back once they are done.
+     * 
+     * @param request
+     * @since 2.4
+     */
+    public void mergeProcessingState( final ResourceStoreRequest request )
+    {
+        for ( String repositoryId : request.processedRepositories )
+        {
+            if ( !processedRepositories.contains( repositoryId ) )
+            {
+                processedRepositories.add( repositoryId );
+            }
+        }
+
+        appliedMappings.putAll( request.appliedMappings );
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,287 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.access;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
+import org.sonatype.nexus.util.SystemPropertiesHelper;
+import org.sonatype.security.events.AuthorizationConfigurationChangedEvent;
+import org.sonatype.security.events.SecurityConfigurationChangedEvent;
+import org.sonatype.security.events.UserPrincipalsExpiredEvent;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Bounded cache of permission checks performed by {@link DefaultNexusItemAuthorizer}, keyed by subject
+ * principals and permission string (that carries target, repository and action). Both granted and denied decisions
+ * are cached, for limited time. Whole cache is invalidated when security configuration, authorization configuration
+ * (roles, privileges) or user principals change, and on demand (ie. when LDAP caches are cleared). Lookups do not
+ * take a global lock, the cache is a segmented Guava cache.
+ *
+ * @since 2.4
+ */
+@Named
+@Singleton
+@EventBus.Managed
+public class AuthorizationDecisionCache
+{
+    private static final String JMX_DOMAIN = "org.sonatype.nexus.proxy.access";
+
+    /**
+     * Maximum count of cached decisions, 0 disables caching. Default is 10000.
+     */
+    private static final int MAX_ENTRIES =
+        SystemPropertiesHelper.getInteger( AuthorizationDecisionCache.class.getName() + ".maxEntries", 10000 );
+
+    /**
+     * Maximum age of cached decisions in milliseconds, to pick up changes not announced by events (like group
+     * membership changes on LDAP server). Default is 60 seconds.
+     */
+    private static final long MAX_AGE =
+        SystemPropertiesHelper.getLong( AuthorizationDecisionCache.class.getName() + ".maxAge", 60000L );
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final boolean enabled;
+
+    private final Cache<Key, Boolean> entries;
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Incremented on each invalidation (before clearing the cache), to not cache decisions made before it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private ObjectName jmxName;
+
+    @Inject
+    public AuthorizationDecisionCache()
+    {
+        this( MAX_ENTRIES );
+    }
+
+    AuthorizationDecisionCache( final int maxEntries )
+    {
+        Preconditions.checkArgument( maxEntries >= 0, "Cache size must not be negative" );
+
+        this.enabled = maxEntries > 0;
+        this.entries =
+            CacheBuilder.newBuilder().maximumSize( maxEntries ).expireAfterWrite( MAX_AGE, TimeUnit.MILLISECONDS )
+                .recordStats().build();
+
+        if ( enabled )
+        {
+            registerMBean();
+        }
+    }
+
+    /**
+     * Returns {@code true} if subject has the permission, using cached decision if there is one.
+     */
+    public boolean isPermitted( final Subject subject, final String permission )
+    {
+        final PrincipalCollection principals = subject.getPrincipals();
+        if ( !enabled || principals == null || principals.isEmpty() )
+        {
+            return subject.isPermitted( permission );
+        }
+
+        final Key key = new Key( principals, permission );
+        final long decisionGeneration = generation.get();
+
+        final Boolean decision = entries.getIfPresent( key );
+        if ( decision != null )
+        {
+            return decision;
+        }
+
+        final boolean permitted = subject.isPermitted( permission );
+
+        entries.put( key, permitted );
+
+        // do not keep it if invalidated meanwhile, the decision might be based on old configuration
+        if ( decisionGeneration != generation.get() )
+        {
+            entries.invalidate( key );
+        }
+
+        return permitted;
+    }
+
+    /**
+     * Drops all cached decisions.
+     */
+    public void invalidate()
+    {
+        generation.incrementAndGet();
+        entries.invalidateAll();
+        invalidations.incrementAndGet();
+        logger.debug( "Authorization decision cache invalidated" );
+    }
+
+    public int getSize()
+    {
+        return (int) entries.size();
+    }
+
+    public long getHits()
+    {
+        return entries.stats().hitCount();
+    }
+
+    public long getMisses()
+    {
+        return entries.stats().missCount();
+    }
+
+    /**
+     * Returns the ratio of hits to all lookups, or -1 if there were no lookups yet.
+     */
+    public double getHitRatio()
+    {
+        return entries.stats().requestCount() == 0 ? -1 : entries.stats().hitRate();
+    }
+
+    public long getInvalidations()
+    {
+        return invalidations.get();
+    }
+
+    // ==
+
+    @AllowConcurrentEvents
+    @Subscribe
+    public void onEvent( final AuthorizationConfigurationChangedEvent evt )
+    {
+        invalidate();
+    }
+
+    @AllowConcurrentEvents
+    @Subscribe
+    public void onEvent( final SecurityConfigurationChangedEvent evt )
+    {
+        invalidate();
+    }
+
+    @AllowConcurrentEvents
+    @Subscribe
+    public void onEvent( final UserPrincipalsExpiredEvent evt )
+    {
+        invalidate();
+    }
+
+    @Subscribe
+    public void onEvent( final NexusStoppedEvent evt )
+    {
+        unregisterMBean();
+        invalidate();
+    }
+
+    // ==
+
+    private void registerMBean()
+    {
+        try
+        {
+            jmxName = ObjectName.getInstance( JMX_DOMAIN, "name", getClass().getSimpleName() );
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if ( server.isRegistered( jmxName ) )
+            {
+                logger.debug( "MBean already registered; replacing: {}", jmxName );
+                server.unregisterMBean( jmxName );
+            }
+            server.registerMBean( new DefaultAuthorizationDecisionCacheMBean( this ), jmxName );
+        }
+        catch ( Exception e )
+        {
+            logger.warn( "Problem registering MBean for: " + getClass().getName(), e );
+        }
+    }
+
+    private void unregisterMBean()
+    {
+        if ( null != jmxName )
+        {
+            try
+            {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if ( server.isRegistered( jmxName ) )
+                {
+                    server.unregisterMBean( jmxName );
+                }
+            }
+            catch ( final Exception e )
+            {
+                logger.warn( "Problem unregistering MBean for: " + getClass().getName(), e );
+            }
+        }
+    }
+
+    // ==
+
+    private static class Key
+    {
+        private final PrincipalCollection principals;
+
+        private final String permission;
+
+        private final int hashCode;
+
+        private Key( final PrincipalCollection principals, final String permission )
+        {
+            this.principals = principals;
+            this.permission = permission;
+            this.hashCode = 31 * principals.hashCode() + permission.hashCode();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( final Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !( obj instanceof Key ) )
+            {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return permission.equals( other.permission ) && principals.equals( other.principals );
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.access;
+
+/**
+ * JMX interface for monitoring {@link AuthorizationDecisionCache}.
+ * 
+ * @since 2.4
+ */
+public interface AuthorizationDecisionCacheMBean
+{
+    /**
+     * Returns the count of cached decisions.
+     * 
+     * @return the count of cached decisions.
+     */
+    int getSize();
+
+    /**
+     * Returns the count of permission checks answered from cache.
+     * 
+     * @return the count of hits.
+     */
+    long getHits();
+
+    /**
+     * Returns the count of permission checks evaluated by security system.
+     * 
+     * @return the count of misses.
+     */
+    long getMisses();
+
+    /**
+     * Returns the ratio of hits to all permission checks.
+     * 
+     * @return the hit ratio, or -1 if there were no checks yet.
+     */
+    double getHitRatio();
+
+    /**
+     * Returns the count of cache invalidations (caused by security configuration changes).
+     * 
+     * @return the count of invalidations.
+     */
+    long getInvalidations();
+
+    /**
+     * Drops all cached decisions.
+     */
+    void invalidate();
+}
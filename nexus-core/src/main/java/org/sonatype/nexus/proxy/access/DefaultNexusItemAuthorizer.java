@@ -42,6 +42,9 @@ public class DefaultNexusItemAuthorizer
     @Requirement
     private RepositoryRegistry repoRegistry;
 
+    @Requirement
+    private AuthorizationDecisionCache decisionCache;
+
     public boolean authorizePath( final Repository repository, final ResourceStoreRequest request, final Action action )
     {
         TargetSet matched = repository.getTargetsForRequest( request );
@@ -64,7 +67,8 @@ public class DefaultNexusItemAuthorizer
     public TargetSet getGroupsTargetSet( final Repository repository, final ResourceStoreRequest request )
     {
         final TargetSet targetSet = new TargetSet();
-        for ( Repository group : getListOfGroups( repository.getId() ) )
+        // precomputed by registry, no lookups needed
+        for ( Repository group : repoRegistry.getGroupsOfRepository( repository ) )
         {
             // are the perms transitively inherited from the groups where it is member?
             // !group.isExposed()
@@ -156,8 +160,7 @@ public class DefaultNexusItemAuthorizer
             getLogger().trace("Checking if subject '{}' has one of these permissions: {}", subject.getPrincipal(), perms);
         }
         for (String perm : perms) {
-            if (subject.isPermitted(perm)) {
-                // TODO: we should remember/cache these decisions per-thread and not re-evaluate it always from Security
+            if (decisionCache.isPermitted(subject, perm)) {
                 if (trace) {
                     getLogger().trace("Subject '{}' has permission: {}; allowing", subject.getPrincipal(), perm);
                 }
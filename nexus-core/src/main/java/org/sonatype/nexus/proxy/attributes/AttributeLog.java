@@ -0,0 +1,1284 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Append-only log of byte values keyed by path, with an index of the latest record of every path, persisted on close.
+ * Writes are appended to an in-memory buffer, and are written out (and synced) in batches, when buffer fills up or on
+ * {@link #flush()}. Space of overwritten and deleted records is reclaimed by {@link #compact()}, that rewrites the log
+ * with live records only while the log stays in use. Live records can be visited in bulk by {@link #scan(Visitor)},
+ * that reads the log sequentially. Torn records at log end (ie. after a crash) are detected by checksum and truncated
+ * on open.
+ * <p>
+ * The index keeps no paths in memory: it is an open addressing hash table of 64 bit path hashes and record positions
+ * (around 20 bytes per path). Paths are verified against the records they point to, so hash collisions are harmless.
+ * <p>
+ * Log layout: header (magic, log ID), then records (body length, body CRC32, body). Record body is path (modified UTF-8),
+ * then value bytes, or no value bytes and a negative length for deletions. Index file contains the ID and the length of
+ * log it was written for, so it is used only for the log it belongs to, and records appended after it was written are
+ * replayed from the log.
+ *
+ * @since 2.4
+ */
+class AttributeLog
+{
+    /**
+     * Visitor of live records.
+     */
+    interface Visitor
+    {
+        /**
+         * Visits the latest value of a path, returns {@code false} to stop the scan.
+         */
+        boolean visit( String path, byte[] value )
+            throws IOException;
+    }
+
+    static final String LOG_FILE = "attributes.log";
+
+    static final String INDEX_FILE = "attributes.idx";
+
+    private static final int LOG_MAGIC = 0x4e584c47;
+
+    // changed with index format, index files of older format are ignored
+    private static final int INDEX_MAGIC = 0x4e584932;
+
+    private static final int HEADER_LENGTH = 12;
+
+    private static final int RECORD_HEADER_LENGTH = 8;
+
+    // index entries are record offset and length packed into a long
+    private static final int LENGTH_BITS = 24;
+
+    private static final int MAX_RECORD_LENGTH = ( 1 << LENGTH_BITS ) - 1;
+
+    private static final long MAX_OFFSET = ( 1L << ( 63 - LENGTH_BITS ) ) - 1;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final File directory;
+
+    private final int batchSize;
+
+    private final ReadWriteLock lock;
+
+    /**
+     * Held while the log file is scanned or compacted, as both need it to stay in place.
+     */
+    private final Lock fileLock;
+
+    private final Buffer buffer;
+
+    private Index index;
+
+    private RandomAccessFile file;
+
+    private FileChannel channel;
+
+    private long id;
+
+    // length of log on disk, buffered records follow it
+    private long flushedLength;
+
+    // total length of live records (including their headers)
+    private long liveLength;
+
+    private boolean closed;
+
+    AttributeLog( final File directory, final int batchSize )
+        throws IOException
+    {
+        this.directory = directory;
+        this.batchSize = batchSize;
+        this.lock = new ReentrantReadWriteLock();
+        this.fileLock = new ReentrantLock();
+        this.buffer = new Buffer( batchSize );
+        this.index = new Index( 0 );
+
+        open();
+    }
+
+    /**
+     * Returns the value for path, or {@code null} if none.
+     */
+    byte[] get( final String path )
+        throws IOException
+    {
+        final long hash = hash( path );
+
+        lock.readLock().lock();
+
+        try
+        {
+            checkOpen();
+
+            for ( int slot = index.first( hash ); slot >= 0; slot = index.next( hash, slot ) )
+            {
+                final DataInputStream record = openRecord( index.get( slot ) );
+
+                if ( path.equals( record.readUTF() ) )
+                {
+                    final byte[] value = new byte[record.available()];
+
+                    record.readFully( value );
+
+                    return value;
+                }
+            }
+
+            return null;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put( final String path, final byte[] value )
+        throws IOException
+    {
+        append( path, value );
+    }
+
+    /**
+     * Returns {@code true} if a value for path existed.
+     */
+    boolean delete( final String path )
+        throws IOException
+    {
+        return append( path, null );
+    }
+
+    /**
+     * Invokes visitor with every path having a value, in log order. The log is read sequentially, and is locked only to
+     * check if a record is still live. Values written during the scan may or may not be visited. Compaction is skipped
+     * while the log is scanned.
+     */
+    void scan( final Visitor visitor )
+        throws IOException
+    {
+        fileLock.lock();
+
+        try
+        {
+            final RecordReader reader = new RecordReader( new File( directory, LOG_FILE ), HEADER_LENGTH );
+
+            try
+            {
+                final long length = flushAndGetLength();
+
+                while ( reader.next( length ) )
+                {
+                    if ( reader.isPut() && isLive( reader.getPath(), reader.getPosition() )
+                        && !visitor.visit( reader.getPath(), reader.getValue() ) )
+                    {
+                        return;
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        finally
+        {
+            fileLock.unlock();
+        }
+    }
+
+    int size()
+    {
+        lock.readLock().lock();
+
+        try
+        {
+            return index.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ratio of space taken by overwritten or deleted records in the log.
+     */
+    double getGarbageRatio()
+    {
+        lock.readLock().lock();
+
+        try
+        {
+            final long length = getLength() - HEADER_LENGTH;
+
+            return length > 0 ? (double) ( length - liveLength ) / length : 0;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    long getLength()
+    {
+        lock.readLock().lock();
+
+        try
+        {
+            return flushedLength + buffer.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes out and syncs the buffered records.
+     */
+    void flush()
+        throws IOException
+    {
+        lock.writeLock().lock();
+
+        try
+        {
+            if ( !closed )
+            {
+                doFlush();
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log with live records only. Live records are copied without locking the log, it is locked only to
+     * copy the records appended meanwhile, and to switch over to the compacted log. Returns {@code false} if skipped,
+     * as the log is being scanned or compacted already.
+     */
+    boolean compact()
+        throws IOException
+    {
+        if ( !fileLock.tryLock() )
+        {
+            return false;
+        }
+
+        try
+        {
+            final File log = new File( directory, LOG_FILE );
+
+            final File compacted = new File( directory, LOG_FILE + ".tmp" );
+
+            final long newId = new Random().nextLong();
+
+            final Index newIndex = new Index( size() );
+
+            long newLiveLength = 0;
+
+            final RandomAccessFile newFile = new RandomAccessFile( compacted, "rw" );
+
+            boolean replacing = false;
+
+            try
+            {
+                newFile.setLength( 0 );
+
+                writeHeader( newFile.getChannel(), newId );
+
+                // the stream shares file descriptor (and position) with the file
+                newFile.seek( HEADER_LENGTH );
+
+                final DataOutputStream out =
+                    new DataOutputStream( new BufferedOutputStream( new FileOutputStream( newFile.getFD() ),
+                        64 * 1024 ) );
+
+                long position = HEADER_LENGTH;
+
+                RecordReader reader = new RecordReader( log, HEADER_LENGTH );
+
+                final long copiedLength;
+
+                try
+                {
+                    copiedLength = flushAndGetLength();
+
+                    while ( reader.next( copiedLength ) )
+                    {
+                        if ( reader.isPut() && isLive( reader.getPath(), reader.getPosition() ) )
+                        {
+                            reader.writeTo( out );
+
+                            // record of a path stays live only until the path is written again, after copiedLength
+                            newIndex.add( hash( reader.getPath() ), entry( position, reader.getLength() ) );
+
+                            newLiveLength += reader.getLength();
+
+                            position += reader.getLength();
+                        }
+                    }
+                }
+                finally
+                {
+                    reader.close();
+                }
+
+                lock.writeLock().lock();
+
+                try
+                {
+                    checkOpen();
+
+                    doFlush();
+
+                    // records appended while copying are copied as they are, and applied once switched over
+                    final long appendedPosition = position;
+
+                    reader = new RecordReader( log, copiedLength );
+
+                    try
+                    {
+                        while ( reader.next( flushedLength ) )
+                        {
+                            reader.writeTo( out );
+                        }
+                    }
+                    finally
+                    {
+                        reader.close();
+                    }
+
+                    out.flush();
+
+                    newFile.getChannel().force( true );
+
+                    newFile.close();
+
+                    final long oldLength = flushedLength;
+
+                    // stale index would not match new log ID anyway
+                    new File( directory, INDEX_FILE ).delete();
+
+                    replacing = true;
+
+                    file.close();
+
+                    if ( !compacted.renameTo( log ) && !( log.delete() && compacted.renameTo( log ) ) )
+                    {
+                        closed = true;
+
+                        throw new IOException( "Could not replace attribute log " + log.getAbsolutePath() );
+                    }
+
+                    file = new RandomAccessFile( log, "rw" );
+                    channel = file.getChannel();
+                    id = newId;
+                    flushedLength = channel.size();
+                    index = newIndex;
+                    liveLength = newLiveLength;
+
+                    reader = new RecordReader( log, appendedPosition );
+
+                    try
+                    {
+                        while ( reader.next( flushedLength ) )
+                        {
+                            apply( reader.getPath(), reader.isPut(), reader.getPosition(), reader.getLength() );
+                        }
+                    }
+                    finally
+                    {
+                        reader.close();
+                    }
+
+                    logger.debug( "Compacted attribute log {} from {} to {} bytes.", new Object[] { log, oldLength,
+                        flushedLength } );
+
+                    return true;
+                }
+                finally
+                {
+                    lock.writeLock().unlock();
+                }
+            }
+            finally
+            {
+                newFile.close();
+
+                if ( !replacing )
+                {
+                    compacted.delete();
+                }
+            }
+        }
+        finally
+        {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the log, persists the index and closes the log. Closed log cannot be used anymore.
+     */
+    void close()
+        throws IOException
+    {
+        lock.writeLock().lock();
+
+        try
+        {
+            if ( closed )
+            {
+                return;
+            }
+
+            closed = true;
+
+            try
+            {
+                doFlush();
+
+                writeIndex();
+            }
+            finally
+            {
+                file.close();
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the 64 bit hash of path used by index.
+     */
+    long hash( final String path )
+    {
+        return HASH_FUNCTION.hashString( path, Charsets.UTF_8 ).asLong();
+    }
+
+    // ==
+
+    private boolean append( final String path, final byte[] value )
+        throws IOException
+    {
+        final ByteArrayOutputStream body =
+            new ByteArrayOutputStream( path.length() + 8 + ( value != null ? value.length : 0 ) );
+
+        final DataOutputStream dos = new DataOutputStream( body );
+
+        dos.writeUTF( path );
+
+        if ( value != null )
+        {
+            dos.write( value );
+        }
+
+        dos.flush();
+
+        final byte[] bytes = body.toByteArray();
+
+        if ( RECORD_HEADER_LENGTH + bytes.length > MAX_RECORD_LENGTH )
+        {
+            throw new IOException( "Value of " + path + " is too big for attribute log, " + bytes.length + " bytes" );
+        }
+
+        final CRC32 crc = new CRC32();
+
+        crc.update( bytes );
+
+        lock.writeLock().lock();
+
+        try
+        {
+            checkOpen();
+
+            final long offset = flushedLength + buffer.size();
+
+            if ( offset > MAX_OFFSET )
+            {
+                throw new IOException( "Attribute log " + directory.getAbsolutePath() + " is full." );
+            }
+
+            final DataOutputStream out = new DataOutputStream( buffer );
+
+            // deletions are marked by negative length
+            out.writeInt( value != null ? bytes.length : -bytes.length );
+            out.writeInt( (int) crc.getValue() );
+            out.write( bytes );
+            out.flush();
+
+            final boolean existed = apply( path, value != null, offset, RECORD_HEADER_LENGTH + bytes.length );
+
+            if ( buffer.size() >= batchSize )
+            {
+                doFlush();
+            }
+
+            return existed;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a record to the index, returns {@code true} if path had a value before.
+     */
+    private boolean apply( final String path, final boolean put, final long offset, final int length )
+        throws IOException
+    {
+        final long hash = hash( path );
+
+        for ( int slot = index.first( hash ); slot >= 0; slot = index.next( hash, slot ) )
+        {
+            final long previous = index.get( slot );
+
+            if ( path.equals( openRecord( previous ).readUTF() ) )
+            {
+                liveLength -= length( previous );
+
+                if ( put )
+                {
+                    index.set( slot, entry( offset, length ) );
+
+                    liveLength += length;
+                }
+                else
+                {
+                    index.remove( slot );
+                }
+
+                return true;
+            }
+        }
+
+        if ( put )
+        {
+            index.add( hash, entry( offset, length ) );
+
+            liveLength += length;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if the record at position is the latest one of path. Only hashes and positions are compared,
+     * as the position identifies the record.
+     */
+    private boolean isLive( final String path, final long position )
+        throws IOException
+    {
+        final long hash = hash( path );
+
+        lock.readLock().lock();
+
+        try
+        {
+            checkOpen();
+
+            for ( int slot = index.first( hash ); slot >= 0; slot = index.next( hash, slot ) )
+            {
+                if ( offset( index.get( slot ) ) == position )
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the body of indexed record, read from log or buffer.
+     */
+    private DataInputStream openRecord( final long entry )
+        throws IOException
+    {
+        final long offset = offset( entry );
+
+        final byte[] record = new byte[length( entry )];
+
+        if ( offset >= flushedLength )
+        {
+            System.arraycopy( buffer.array(), (int) ( offset - flushedLength ), record, 0, record.length );
+        }
+        else
+        {
+            readFully( channel, offset, record );
+        }
+
+        return new DataInputStream( new ByteArrayInputStream( record, RECORD_HEADER_LENGTH, record.length
+            - RECORD_HEADER_LENGTH ) );
+    }
+
+    /**
+     * Writes out the buffered records and returns the length of log on disk.
+     */
+    private long flushAndGetLength()
+        throws IOException
+    {
+        lock.writeLock().lock();
+
+        try
+        {
+            checkOpen();
+
+            doFlush();
+
+            return flushedLength;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void doFlush()
+        throws IOException
+    {
+        if ( buffer.size() == 0 )
+        {
+            return;
+        }
+
+        final ByteBuffer bb = ByteBuffer.wrap( buffer.array(), 0, buffer.size() );
+
+        long position = flushedLength;
+
+        while ( bb.hasRemaining() )
+        {
+            position += channel.write( bb, position );
+        }
+
+        channel.force( false );
+
+        flushedLength = position;
+
+        buffer.reset();
+    }
+
+    private void open()
+        throws IOException
+    {
+        if ( !directory.isDirectory() && !directory.mkdirs() )
+        {
+            throw new IOException( "Could not create attribute log directory " + directory.getAbsolutePath() );
+        }
+
+        final File log = new File( directory, LOG_FILE );
+
+        file = new RandomAccessFile( log, "rw" );
+
+        try
+        {
+            channel = file.getChannel();
+
+            if ( channel.size() < HEADER_LENGTH )
+            {
+                file.setLength( 0 );
+
+                id = new Random().nextLong();
+
+                writeHeader( channel, id );
+
+                channel.force( true );
+            }
+            else
+            {
+                final ByteBuffer header = ByteBuffer.allocate( HEADER_LENGTH );
+
+                readFully( channel, 0, header.array() );
+
+                if ( header.getInt() != LOG_MAGIC )
+                {
+                    throw new IOException( "Not an attribute log " + log.getAbsolutePath() );
+                }
+
+                id = header.getLong();
+            }
+
+            final long replayFrom = readIndex();
+
+            replay( replayFrom );
+
+            // will be rewritten on close, stale one must not be used after a crash
+            new File( directory, INDEX_FILE ).delete();
+        }
+        catch ( IOException e )
+        {
+            file.close();
+
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the index if present and belongs to the log, returns the log position index covers.
+     */
+    private long readIndex()
+    {
+        final File indexFile = new File( directory, INDEX_FILE );
+
+        if ( !indexFile.isFile() )
+        {
+            return HEADER_LENGTH;
+        }
+
+        DataInputStream dis = null;
+
+        try
+        {
+            dis = new DataInputStream( new BufferedInputStream( new FileInputStream( indexFile ) ) );
+
+            if ( dis.readInt() != INDEX_MAGIC || dis.readLong() != id )
+            {
+                return HEADER_LENGTH;
+            }
+
+            final long length = dis.readLong();
+
+            if ( length > channel.size() )
+            {
+                return HEADER_LENGTH;
+            }
+
+            final int count = dis.readInt();
+
+            index = new Index( count );
+
+            for ( int i = 0; i < count; i++ )
+            {
+                final long hash = dis.readLong();
+
+                final long entry = dis.readLong();
+
+                if ( offset( entry ) < HEADER_LENGTH || offset( entry ) + length( entry ) > length )
+                {
+                    throw new IOException( "Index entry points out of attribute log" );
+                }
+
+                index.add( hash, entry );
+
+                liveLength += length( entry );
+            }
+
+            return length;
+        }
+        catch ( IOException e )
+        {
+            logger.info( "Could not read attribute log index {}, replaying whole log.", indexFile, e );
+
+            index = new Index( 0 );
+
+            liveLength = 0;
+
+            return HEADER_LENGTH;
+        }
+        finally
+        {
+            IOUtil.close( dis );
+        }
+    }
+
+    private void writeIndex()
+        throws IOException
+    {
+        final File indexFile = new File( directory, INDEX_FILE );
+
+        final File tmpFile = new File( directory, INDEX_FILE + ".tmp" );
+
+        final FileOutputStream fos = new FileOutputStream( tmpFile );
+
+        try
+        {
+            final DataOutputStream dos = new DataOutputStream( new BufferedOutputStream( fos ) );
+
+            dos.writeInt( INDEX_MAGIC );
+            dos.writeLong( id );
+            dos.writeLong( flushedLength );
+            dos.writeInt( index.size() );
+
+            for ( int slot = 0; slot < index.capacity(); slot++ )
+            {
+                if ( index.get( slot ) != 0 )
+                {
+                    dos.writeLong( index.getHash( slot ) );
+                    dos.writeLong( index.get( slot ) );
+                }
+            }
+
+            dos.flush();
+
+            fos.getFD().sync();
+        }
+        finally
+        {
+            fos.close();
+        }
+
+        if ( !tmpFile.renameTo( indexFile ) && !( indexFile.delete() && tmpFile.renameTo( indexFile ) ) )
+        {
+            throw new IOException( "Could not write attribute log index " + indexFile.getAbsolutePath() );
+        }
+    }
+
+    /**
+     * Applies records from position to the end of log to the index, truncating the log at first torn record.
+     */
+    private void replay( final long from )
+        throws IOException
+    {
+        final long size = channel.size();
+
+        final DataInputStream dis =
+            new DataInputStream( new BufferedInputStream( new FileInputStream( file.getFD() ), 64 * 1024 ) );
+
+        // the stream shares file descriptor (and position) with the channel
+        channel.position( from );
+
+        // records being replayed are read from log when applied
+        flushedLength = size;
+
+        long position = from;
+
+        try
+        {
+            while ( position < size )
+            {
+                final int length = dis.readInt();
+
+                final int checksum = dis.readInt();
+
+                final int bodyLength = Math.abs( length );
+
+                if ( bodyLength < 2 || RECORD_HEADER_LENGTH + bodyLength > MAX_RECORD_LENGTH
+                    || position + RECORD_HEADER_LENGTH + bodyLength > size )
+                {
+                    break;
+                }
+
+                final byte[] body = new byte[bodyLength];
+
+                dis.readFully( body );
+
+                final CRC32 crc = new CRC32();
+
+                crc.update( body );
+
+                if ( (int) crc.getValue() != checksum )
+                {
+                    break;
+                }
+
+                final String path = new DataInputStream( new ByteArrayInputStream( body ) ).readUTF();
+
+                apply( path, length > 0, position, RECORD_HEADER_LENGTH + bodyLength );
+
+                position += RECORD_HEADER_LENGTH + bodyLength;
+            }
+        }
+        catch ( EOFException e )
+        {
+            // torn record header
+        }
+
+        if ( position < size )
+        {
+            logger.warn( "Attribute log {} has {} bytes of torn records at its end, truncating them.",
+                new Object[] { new File( directory, LOG_FILE ), size - position } );
+
+            file.setLength( position );
+        }
+
+        flushedLength = position;
+    }
+
+    private void checkOpen()
+        throws IOException
+    {
+        if ( closed )
+        {
+            throw new IOException( "Attribute log " + directory.getAbsolutePath() + " is closed." );
+        }
+    }
+
+    private static long entry( final long offset, final int length )
+    {
+        return ( offset << LENGTH_BITS ) | length;
+    }
+
+    private static long offset( final long entry )
+    {
+        return entry >>> LENGTH_BITS;
+    }
+
+    private static int length( final long entry )
+    {
+        return (int) ( entry & MAX_RECORD_LENGTH );
+    }
+
+    private static void writeHeader( final FileChannel channel, final long id )
+        throws IOException
+    {
+        final ByteBuffer header = ByteBuffer.allocate( HEADER_LENGTH );
+
+        header.putInt( LOG_MAGIC );
+        header.putLong( id );
+        header.flip();
+
+        long position = 0;
+
+        while ( header.hasRemaining() )
+        {
+            position += channel.write( header, position );
+        }
+    }
+
+    private static void readFully( final FileChannel channel, final long offset, final byte[] bytes )
+        throws IOException
+    {
+        final ByteBuffer bb = ByteBuffer.wrap( bytes );
+
+        while ( bb.hasRemaining() )
+        {
+            if ( channel.read( bb, offset + bb.position() ) < 0 )
+            {
+                throw new EOFException( "Unexpected end of attribute log at " + ( offset + bb.position() ) );
+            }
+        }
+    }
+
+    // ==
+
+    /**
+     * Open addressing (linear probing) hash table of path hashes and index entries, holding multiple entries for same
+     * hash if paths collide. Free slots have zero entry, as no record starts at zero offset. Capacity is not a power of
+     * two, to not waste up to half of the table on large logs.
+     */
+    private static class Index
+    {
+        private long[] hashes;
+
+        private long[] entries;
+
+        private int size;
+
+        private Index( final int expectedSize )
+        {
+            final int capacity = Math.max( 16, (int) ( ( expectedSize + 1L ) * 4 / 3 ) + 1 );
+
+            this.hashes = new long[capacity];
+            this.entries = new long[capacity];
+        }
+
+        private int size()
+        {
+            return size;
+        }
+
+        private int capacity()
+        {
+            return entries.length;
+        }
+
+        /**
+         * Returns the first slot of hash, or -1 if none.
+         */
+        private int first( final long hash )
+        {
+            return find( hash, home( hash ) );
+        }
+
+        /**
+         * Returns the slot of hash following the passed in one, or -1 if none.
+         */
+        private int next( final long hash, final int slot )
+        {
+            return find( hash, next( slot ) );
+        }
+
+        private long get( final int slot )
+        {
+            return entries[slot];
+        }
+
+        private long getHash( final int slot )
+        {
+            return hashes[slot];
+        }
+
+        private void set( final int slot, final long entry )
+        {
+            entries[slot] = entry;
+        }
+
+        private void add( final long hash, final long entry )
+        {
+            if ( ( size + 1L ) * 4 > entries.length * 3L )
+            {
+                grow();
+            }
+
+            int slot = home( hash );
+
+            while ( entries[slot] != 0 )
+            {
+                slot = next( slot );
+            }
+
+            hashes[slot] = hash;
+            entries[slot] = entry;
+            size++;
+        }
+
+        /**
+         * Removes the entry, moving the following entries of the probe sequence back, so lookups need no tombstones.
+         */
+        private void remove( final int slot )
+        {
+            int free = slot;
+
+            for ( int i = next( slot ); entries[i] != 0; i = next( i ) )
+            {
+                final int home = home( hashes[i] );
+
+                // entry can be moved only if it's home is not cyclically within (free, i]
+                if ( free <= i ? ( home <= free || home > i ) : ( home <= free && home > i ) )
+                {
+                    hashes[free] = hashes[i];
+                    entries[free] = entries[i];
+                    free = i;
+                }
+            }
+
+            hashes[free] = 0;
+            entries[free] = 0;
+            size--;
+        }
+
+        private int find( final long hash, final int from )
+        {
+            for ( int slot = from; entries[slot] != 0; slot = next( slot ) )
+            {
+                if ( hashes[slot] == hash )
+                {
+                    return slot;
+                }
+            }
+
+            return -1;
+        }
+
+        private int next( final int slot )
+        {
+            return slot + 1 < entries.length ? slot + 1 : 0;
+        }
+
+        /**
+         * Maps hash to a slot by multiplication, as capacity is not a power of two.
+         */
+        private int home( final long hash )
+        {
+            return (int) ( ( ( hash ^ ( hash >>> 32 ) ) & 0xffffffffL ) * entries.length >>> 32 );
+        }
+
+        private void grow()
+        {
+            final long[] oldHashes = hashes;
+            final long[] oldEntries = entries;
+
+            hashes = new long[oldEntries.length + oldEntries.length / 2];
+            entries = new long[hashes.length];
+            size = 0;
+
+            for ( int i = 0; i < oldEntries.length; i++ )
+            {
+                if ( oldEntries[i] != 0 )
+                {
+                    add( oldHashes[i], oldEntries[i] );
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads records of a log file sequentially, up to given length. Records are not checked against their checksums,
+     * as records on disk were either written by the log or checked when it was opened.
+     */
+    private static class RecordReader
+    {
+        private final DataInputStream input;
+
+        private long nextPosition;
+
+        private long position;
+
+        private int length;
+
+        private int checksum;
+
+        private byte[] body;
+
+        private String path;
+
+        private RecordReader( final File file, final long from )
+            throws IOException
+        {
+            final FileInputStream fis = new FileInputStream( file );
+
+            try
+            {
+                fis.getChannel().position( from );
+            }
+            catch ( IOException e )
+            {
+                fis.close();
+
+                throw e;
+            }
+
+            this.input = new DataInputStream( new BufferedInputStream( fis, 64 * 1024 ) );
+            this.nextPosition = from;
+        }
+
+        /**
+         * Reads the next record if it starts before end, returns {@code false} otherwise.
+         */
+        private boolean next( final long end )
+            throws IOException
+        {
+            if ( nextPosition >= end )
+            {
+                return false;
+            }
+
+            position = nextPosition;
+            length = input.readInt();
+            checksum = input.readInt();
+            body = new byte[Math.abs( length )];
+            input.readFully( body );
+            path = new DataInputStream( new ByteArrayInputStream( body ) ).readUTF();
+            nextPosition = position + getLength();
+
+            return true;
+        }
+
+        private long getPosition()
+        {
+            return position;
+        }
+
+        /**
+         * Returns the length of whole record, including header.
+         */
+        private int getLength()
+        {
+            return RECORD_HEADER_LENGTH + body.length;
+        }
+
+        private boolean isPut()
+        {
+            return length > 0;
+        }
+
+        private String getPath()
+        {
+            return path;
+        }
+
+        private byte[] getValue()
+            throws IOException
+        {
+            final DataInputStream dis = new DataInputStream( new ByteArrayInputStream( body ) );
+
+            dis.readUTF();
+
+            final byte[] value = new byte[dis.available()];
+
+            dis.readFully( value );
+
+            return value;
+        }
+
+        private void writeTo( final DataOutputStream out )
+            throws IOException
+        {
+            out.writeInt( length );
+            out.writeInt( checksum );
+            out.write( body );
+        }
+
+        private void close()
+        {
+            IOUtil.close( input );
+        }
+    }
+
+    private static class Buffer
+        extends ByteArrayOutputStream
+    {
+        private Buffer( final int size )
+        {
+            super( size );
+        }
+
+        private byte[] array()
+        {
+            return buf;
+        }
+    }
+}
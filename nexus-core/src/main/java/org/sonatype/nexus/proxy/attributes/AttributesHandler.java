@@ -40,6 +40,16 @@ public interface AttributesHandler
      */
     AttributeStorage getAttributeStorage();
 
+    /**
+     * Returns the AttributeStorage able to scan attributes in bulk, or {@code null} if the storage in use cannot do
+     * it. The scannable storage may lack attributes not transitioned to it yet, and lastRequested updates not written
+     * yet, so scanned attributes are hints only.
+     * 
+     * @return the scannable AttributeStorage or {@code null}.
+     * @since 2.4
+     */
+    ScannableAttributeStorage getScannableAttributeStorage();
+
     /**
      * Sets the attribute storage used by this instance.
      * 
@@ -21,7 +21,9 @@ import org.sonatype.nexus.proxy.wastebasket.AbstractRepositoryFolderCleaner;
 import org.sonatype.nexus.proxy.wastebasket.RepositoryFolderCleaner;
 
 /**
- * TO BE REMOVED once we switch from FS based attribute storage to LS based attribute storage!
+ * Removes attributes of removed repositories kept outside of repository storage: the legacy FS based attributes (TO BE
+ * REMOVED once we switch from FS based attribute storage to LS based attribute storage!) and attribute logs of
+ * {@link DefaultLogAttributeStorage}.
  * 
  * @author cstamas
  */
@@ -43,6 +45,16 @@ public class AttributesRepositoryFolderCleaner
             // attributes are not preserved
             delete( defaultProxyAttributesFolder, true );
         }
+
+        File attributeLogFolder =
+            new File( new File( getApplicationConfiguration().getWorkingDirectory(), "proxy/attribute-logs" ),
+                repository.getId() );
+
+        if ( attributeLogFolder.isDirectory() )
+        {
+            // attributes are not preserved
+            delete( attributeLogFolder, true );
+        }
     }
 
 }
@@ -22,6 +22,7 @@ import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.codehaus.plexus.util.IOUtil;
@@ -31,17 +32,22 @@ import org.sonatype.nexus.proxy.ItemNotFoundException;
 import org.sonatype.nexus.proxy.LocalStorageException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.access.AccessManager;
+import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
 import org.sonatype.nexus.proxy.item.ContentLocator;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
 import org.sonatype.nexus.proxy.item.StorageCollectionItem;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.item.uid.IsMetadataMaintainedAttribute;
 import org.sonatype.nexus.proxy.repository.HostedRepository;
 import org.sonatype.nexus.proxy.repository.ProxyRepository;
 import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.nexus.proxy.repository.RepositoryKind;
 import org.sonatype.nexus.proxy.storage.local.fs.FileContentLocator;
 import org.sonatype.nexus.util.SystemPropertiesHelper;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+
+import com.google.common.eventbus.Subscribe;
 
 /**
  * The default implementation of AttributesHandler. Does not have any assumption regarding actual AttributeStorage it
@@ -91,6 +97,33 @@ public class DefaultAttributesHandler
         "org.sonatype.nexus.proxy.attributes.DefaultAttributesHandler.lastRequested.enabled.proxy",
         LAST_REQUEST_ATTRIBUTE_ENABLED );
 
+    /**
+     * The AttributeStorage to use: "ls" (default, attributes stored in repository storage) or "log" (attributes stored
+     * in one single log per repository, see {@link DefaultLogAttributeStorage}).
+     */
+    private static final String ATTRIBUTE_STORAGE = SystemPropertiesHelper.getString(
+        "org.sonatype.nexus.proxy.attributes.DefaultAttributesHandler.attributeStorage", "ls" );
+
+    /**
+     * Flag to enable write-behind of lastRequested and checkedRemotely attribute updates ("touches"), see
+     * {@link WriteBehindTouchAttributeStorage}.
+     */
+    private static final boolean TOUCH_WRITE_BEHIND_ENABLED = SystemPropertiesHelper.getBoolean(
+        "org.sonatype.nexus.proxy.attributes.DefaultAttributesHandler.touch.writeBehind", false );
+
+    /**
+     * Maximum time in millis a touch is kept in memory before it is written, when write-behind is enabled.
+     */
+    private static final long TOUCH_MAX_STALENESS = SystemPropertiesHelper.getLong(
+        "org.sonatype.nexus.proxy.attributes.DefaultAttributesHandler.touch.maxStaleness", 10000L );
+
+    /**
+     * Maximum count of touches kept in memory, when write-behind is enabled. Touches above this are written
+     * synchronously.
+     */
+    private static final int TOUCH_MAX_PENDING = SystemPropertiesHelper.getInteger(
+        "org.sonatype.nexus.proxy.attributes.DefaultAttributesHandler.touch.maxPending", 100000 );
+
     /**
      * The actual value of lastRequest attribute's resolution.
      */
@@ -106,6 +139,16 @@ public class DefaultAttributesHandler
      */
     private DelegatingAttributeStorage attributeStorage;
 
+    /**
+     * The attribute storage able to scan attributes in bulk, {@code null} if none.
+     */
+    private ScannableAttributeStorage scannableAttributeStorage;
+
+    /**
+     * The touch buffer, {@code null} if write-behind of touches is disabled.
+     */
+    private WriteBehindTouchAttributeStorage touchBuffer;
+
     /**
      * The item inspector list.
      */
@@ -120,27 +163,53 @@ public class DefaultAttributesHandler
     public DefaultAttributesHandler( ApplicationConfiguration applicationConfiguration,
                                      @Named( "ls" ) AttributeStorage attributeStorage,
                                      @Named( "legacy" ) AttributeStorage legacyAttributeStorage,
+                                     @Named( "log" ) Provider<AttributeStorage> logAttributeStorage,
                                      List<StorageItemInspector> itemInspectorList,
-                                     List<StorageFileItemInspector> fileItemInspectorList )
+                                     List<StorageFileItemInspector> fileItemInspectorList, EventBus eventBus )
     {
         this.applicationConfiguration = applicationConfiguration;
 
+        AttributeStorage effectiveAttributeStorage = attributeStorage;
+
         // do we need to waste CPU cycles at "transitioning" at all? Should not, ie, for new instances
         if ( legacyAttributeStorage != null
             && ( (LegacyFSAttributeStorage) legacyAttributeStorage ).isLegacyAttributeStorageDiscovered() )
         {
-            this.attributeStorage =
-                new DelegatingAttributeStorage( new TransitioningAttributeStorage( attributeStorage,
-                    legacyAttributeStorage ) );
+            effectiveAttributeStorage = new TransitioningAttributeStorage( attributeStorage, legacyAttributeStorage );
 
             getLogger().info(
                 "Legacy AttributeStorage directory exists here \"{}\", transitioning them on-the-fly as they are used to repository storage.",
                 ( (LegacyFSAttributeStorage) legacyAttributeStorage ).getWorkingDirectory() );
         }
-        else
+
+        if ( "log".equals( ATTRIBUTE_STORAGE ) )
+        {
+            final AttributeStorage log = logAttributeStorage.get();
+
+            if ( log instanceof ScannableAttributeStorage )
+            {
+                scannableAttributeStorage = (ScannableAttributeStorage) log;
+            }
+
+            // attributes are transitioned on-the-fly from repository storage
+            effectiveAttributeStorage = new TransitioningAttributeStorage( log, effectiveAttributeStorage );
+
+            getLogger().info( "Log AttributeStorage selected, transitioning attributes on-the-fly as they are used." );
+        }
+
+        if ( TOUCH_WRITE_BEHIND_ENABLED )
         {
-            this.attributeStorage = new DelegatingAttributeStorage( attributeStorage );
+            touchBuffer =
+                new WriteBehindTouchAttributeStorage( effectiveAttributeStorage, TOUCH_MAX_STALENESS,
+                    TOUCH_MAX_PENDING );
+            effectiveAttributeStorage = touchBuffer;
+            eventBus.register( this );
+
+            getLogger().info( "Write-behind of attribute touches enabled, with maximum staleness of {} millis.",
+                TOUCH_MAX_STALENESS );
         }
+
+        this.attributeStorage = new DelegatingAttributeStorage( effectiveAttributeStorage );
         this.itemInspectorList = itemInspectorList;
         this.fileItemInspectorList = fileItemInspectorList;
     }
@@ -157,6 +226,12 @@ public class DefaultAttributesHandler
         return attributeStorage;
     }
 
+    @Override
+    public ScannableAttributeStorage getScannableAttributeStorage()
+    {
+        return scannableAttributeStorage;
+    }
+
     /**
      * Sets the attribute storage.
      * 
@@ -167,6 +242,18 @@ public class DefaultAttributesHandler
     public void setAttributeStorage( final AttributeStorage attributeStorage )
     {
         this.attributeStorage = new DelegatingAttributeStorage( attributeStorage );
+        this.scannableAttributeStorage =
+            attributeStorage instanceof ScannableAttributeStorage ? (ScannableAttributeStorage) attributeStorage : null;
+        this.touchBuffer = null;
+    }
+
+    @Subscribe
+    public void onEvent( final NexusStoppedEvent evt )
+    {
+        if ( touchBuffer != null )
+        {
+            touchBuffer.shutdown();
+        }
     }
 
     /**
@@ -235,6 +322,13 @@ public class DefaultAttributesHandler
         {
             item.getRepositoryItemAttributes().overlayAttributes( attributes );
         }
+        else if ( Boolean.FALSE.equals( item.getRepositoryItemUid().getAttributeValue(
+            IsMetadataMaintainedAttribute.class ) ) )
+        {
+            // no attributes are stored for these (like attributes of attributes), hence there is nothing to fix, and
+            // doing so would only read back the content of the item to calculate it's (not stored) attributes
+            return;
+        }
         else
         {
             // we are fixing md if we can
@@ -309,6 +403,17 @@ public class DefaultAttributesHandler
         }
 
         final RepositoryItemUid uid = storageItem.getRepositoryItemUid();
+
+        if ( touchBuffer != null )
+        {
+            if ( isMetadataMaintained( uid ) )
+            {
+                touchBuffer.touchCheckedRemotely( uid, timestamp );
+            }
+
+            return;
+        }
+
         final Attributes attributes = getAttributeStorage().getAttributes( uid );
 
         if ( attributes != null )
@@ -366,12 +471,27 @@ public class DefaultAttributesHandler
                 {
                     attributes.setLastRequested( timestamp );
 
-                    getAttributeStorage().putAttributes( uid, attributes );
+                    if ( touchBuffer != null )
+                    {
+                        if ( isMetadataMaintained( uid ) )
+                        {
+                            touchBuffer.touchLastRequested( uid, timestamp );
+                        }
+                    }
+                    else
+                    {
+                        getAttributeStorage().putAttributes( uid, attributes );
+                    }
                 }
             }
         }
     }
 
+    protected boolean isMetadataMaintained( final RepositoryItemUid uid )
+    {
+        return !Boolean.FALSE.equals( uid.getAttributeValue( IsMetadataMaintainedAttribute.class ) );
+    }
+
     protected boolean isTouchLastRequestedEnabled( final Repository repository )
         throws IOException
     {
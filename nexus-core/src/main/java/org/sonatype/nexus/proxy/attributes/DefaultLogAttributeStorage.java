@@ -0,0 +1,440 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.configuration.application.ApplicationConfiguration;
+import org.sonatype.nexus.proxy.access.Action;
+import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
+import org.sonatype.nexus.proxy.events.RepositoryRegistryEventAdd;
+import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.nexus.threads.NexusThreadFactory;
+import org.sonatype.nexus.util.SystemPropertiesHelper;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+
+import com.google.common.base.Preconditions;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * AttributeStorage implementation that keeps attributes of all items of a repository in one single append-only log
+ * (with a compacted index), placed in the "proxy/attribute-logs/[repoId]" working directory. Compared to
+ * {@link DefaultLSAttributeStorage} it needs no extra file (and inode) per item, and reading attributes does not involve
+ * opening a file. Writes are batched, and the log of every repository is periodically flushed, and compacted (while
+ * still in use) when needed. Index of a repository log is kept in memory while the log is open, as a compact hash table
+ * holding no paths. Attributes of a repository can be scanned in bulk, reading the log sequentially. Once the storage
+ * is shut down, or the repository is removed, attempts to use the log fail with {@link IOException}.
+ * <p>
+ * To switch to this storage, set the "org.sonatype.nexus.proxy.attributes.DefaultAttributesHandler.attributeStorage"
+ * system property to "log". Existing attributes are then transitioned on-the-fly as they are used (or by rebuilding
+ * attributes) from {@link DefaultLSAttributeStorage}.
+ * 
+ * @since 2.4
+ */
+@Typed( AttributeStorage.class )
+@Named( "log" )
+@Singleton
+public class DefaultLogAttributeStorage
+    extends AbstractAttributeStorage
+    implements ScannableAttributeStorage
+{
+    /**
+     * Size of write batches in bytes.
+     */
+    private static final int BATCH_SIZE = SystemPropertiesHelper.getInteger(
+        DefaultLogAttributeStorage.class.getName() + ".batchSize", 64 * 1024 );
+
+    /**
+     * Maximum time in millis a written attribute stays in write batch.
+     */
+    private static final long FLUSH_PERIOD = SystemPropertiesHelper.getLong(
+        DefaultLogAttributeStorage.class.getName() + ".flushPeriod", 1000L );
+
+    /**
+     * Logs shorter than this (in bytes) are not compacted.
+     */
+    private static final long COMPACT_MINIMUM_LENGTH = SystemPropertiesHelper.getLong(
+        DefaultLogAttributeStorage.class.getName() + ".compactMinimumLength", 64L * 1024 * 1024 );
+
+    /**
+     * Logs are compacted when ratio of overwritten and deleted records exceeds this percentage.
+     */
+    private static final int COMPACT_GARBAGE_PERCENTAGE = SystemPropertiesHelper.getInteger(
+        DefaultLogAttributeStorage.class.getName() + ".compactGarbagePercentage", 50 );
+
+    private final ApplicationConfiguration applicationConfiguration;
+
+    private final EventBus eventBus;
+
+    private final Marshaller marshaller;
+
+    private final ConcurrentMap<String, AttributeLog> logs;
+
+    /**
+     * IDs of removed repositories, their logs must not be reopened unless repository is added again.
+     */
+    private final Set<String> removedRepositoryIds;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Guarded by {@link #logs} monitor.
+     */
+    private boolean stopped;
+
+    @Inject
+    public DefaultLogAttributeStorage( final ApplicationConfiguration applicationConfiguration,
+                                       final EventBus eventBus )
+    {
+        this( applicationConfiguration, eventBus, new JacksonJSONMarshaller() );
+    }
+
+    public DefaultLogAttributeStorage( final ApplicationConfiguration applicationConfiguration,
+                                       final EventBus eventBus, final Marshaller marshaller )
+    {
+        this.applicationConfiguration = Preconditions.checkNotNull( applicationConfiguration );
+        this.eventBus = Preconditions.checkNotNull( eventBus );
+        this.marshaller = Preconditions.checkNotNull( marshaller );
+        this.logs = new ConcurrentHashMap<String, AttributeLog>();
+        this.removedRepositoryIds = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+        this.executor = new ScheduledThreadPoolExecutor( 1, new NexusThreadFactory( "attrlog", "Attribute Log" ) );
+        this.executor.scheduleWithFixedDelay( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                maintain();
+            }
+        }, FLUSH_PERIOD, FLUSH_PERIOD, TimeUnit.MILLISECONDS );
+        this.eventBus.register( this );
+        getLogger().info( "Log AttributeStorage in place, using {} marshaller.", marshaller );
+    }
+
+    /**
+     * Flushes and closes all the logs. Multiple invocation of this method is safe.
+     */
+    public synchronized void shutdown()
+    {
+        synchronized ( logs )
+        {
+            stopped = true;
+        }
+
+        executor.shutdown();
+
+        for ( String repositoryId : logs.keySet() )
+        {
+            close( repositoryId );
+        }
+
+        eventBus.unregister( this );
+    }
+
+    @Subscribe
+    public void onEvent( final NexusStoppedEvent evt )
+    {
+        shutdown();
+    }
+
+    @Subscribe
+    public void onEvent( final RepositoryRegistryEventAdd evt )
+    {
+        removedRepositoryIds.remove( evt.getRepository().getId() );
+    }
+
+    @Subscribe
+    public void onEvent( final RepositoryRegistryEventRemove evt )
+    {
+        // the log directory itself is removed by AttributesRepositoryFolderCleaner
+        synchronized ( logs )
+        {
+            removedRepositoryIds.add( evt.getRepository().getId() );
+        }
+
+        close( evt.getRepository().getId() );
+    }
+
+    // == AttributeStorage
+
+    @Override
+    public Attributes getAttributes( final RepositoryItemUid uid )
+        throws IOException
+    {
+        final RepositoryItemUidLock uidLock = uid.getLock();
+
+        uidLock.lock( Action.read );
+
+        try
+        {
+            if ( getLogger().isDebugEnabled() )
+            {
+                getLogger().debug( "Loading attributes on UID=" + uid.toString() );
+            }
+
+            return doGetAttributes( getLog( uid.getRepository() ), uid.getRepository().getId(), uid.getPath() );
+        }
+        finally
+        {
+            uidLock.unlock();
+        }
+    }
+
+    @Override
+    public void putAttributes( final RepositoryItemUid uid, Attributes attributes )
+        throws IOException
+    {
+        final RepositoryItemUidLock uidLock = uid.getLock();
+
+        uidLock.lock( Action.create );
+
+        try
+        {
+            if ( getLogger().isDebugEnabled() )
+            {
+                getLogger().debug( "Storing attributes on UID=" + uid.toString() );
+            }
+
+            final AttributeLog log = getLog( uid.getRepository() );
+
+            final Attributes stored = doGetAttributes( log, uid.getRepository().getId(), uid.getPath() );
+
+            if ( stored != null && ( stored.getGeneration() > attributes.getGeneration() ) )
+            {
+                // change detected, overlay the to be saved onto the newer one and swap
+                stored.overlayAttributes( attributes );
+
+                // and overlay other things too
+                stored.setRepositoryId( uid.getRepository().getId() );
+                stored.setPath( uid.getPath() );
+                stored.setReadable( attributes.isReadable() );
+                stored.setWritable( attributes.isWritable() );
+
+                attributes = stored;
+            }
+
+            attributes.incrementGeneration();
+
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+            marshaller.marshal( attributes, bos );
+
+            log.put( uid.getPath(), bos.toByteArray() );
+        }
+        finally
+        {
+            uidLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteAttributes( final RepositoryItemUid uid )
+        throws IOException
+    {
+        final RepositoryItemUidLock uidLock = uid.getLock();
+
+        uidLock.lock( Action.delete );
+
+        try
+        {
+            if ( getLogger().isDebugEnabled() )
+            {
+                getLogger().debug( "Deleting attributes on UID=" + uid.toString() );
+            }
+
+            return getLog( uid.getRepository() ).delete( uid.getPath() );
+        }
+        finally
+        {
+            uidLock.unlock();
+        }
+    }
+
+    // == ScannableAttributeStorage
+
+    @Override
+    public void scanAttributes( final Repository repository, final Visitor visitor )
+        throws IOException
+    {
+        final AttributeLog log = getLog( repository );
+
+        log.scan( new AttributeLog.Visitor()
+        {
+            @Override
+            public boolean visit( final String path, final byte[] value )
+                throws IOException
+            {
+                final Attributes attributes = unmarshal( log, repository.getId(), path, value );
+
+                return attributes == null || visitor.visit( attributes );
+            }
+        } );
+    }
+
+    // ==
+
+    protected File getLogDirectory( final String repositoryId )
+    {
+        return new File( applicationConfiguration.getWorkingDirectory( "proxy/attribute-logs" ), repositoryId );
+    }
+
+    protected AttributeLog getLog( final Repository repository )
+        throws IOException
+    {
+        AttributeLog log = logs.get( repository.getId() );
+
+        if ( log == null )
+        {
+            synchronized ( logs )
+            {
+                log = logs.get( repository.getId() );
+
+                if ( log == null )
+                {
+                    if ( stopped )
+                    {
+                        throw new IOException( "Attribute storage is shut down, cannot open attribute log of "
+                            + repository.getId() );
+                    }
+
+                    if ( removedRepositoryIds.contains( repository.getId() ) )
+                    {
+                        throw new IOException( "Repository " + repository.getId()
+                            + " is removed, cannot open it's attribute log" );
+                    }
+
+                    log = new AttributeLog( getLogDirectory( repository.getId() ), BATCH_SIZE );
+
+                    logs.put( repository.getId(), log );
+                }
+            }
+        }
+
+        return log;
+    }
+
+    protected void close( final String repositoryId )
+    {
+        final AttributeLog log = logs.remove( repositoryId );
+
+        if ( log != null )
+        {
+            try
+            {
+                log.close();
+            }
+            catch ( IOException e )
+            {
+                getLogger().warn( "Could not close attribute log of repository " + repositoryId, e );
+            }
+        }
+    }
+
+    /**
+     * Flushes the pending writes of all logs, and compacts the ones needing it.
+     */
+    protected void maintain()
+    {
+        for ( String repositoryId : logs.keySet() )
+        {
+            final AttributeLog log = logs.get( repositoryId );
+
+            if ( log == null )
+            {
+                continue;
+            }
+
+            try
+            {
+                log.flush();
+
+                if ( log.getLength() > COMPACT_MINIMUM_LENGTH
+                    && log.getGarbageRatio() * 100 > COMPACT_GARBAGE_PERCENTAGE )
+                {
+                    log.compact();
+                }
+            }
+            catch ( IOException e )
+            {
+                getLogger().warn( "Could not maintain attribute log of repository " + repositoryId, e );
+            }
+        }
+    }
+
+    protected Attributes doGetAttributes( final AttributeLog log, final String repositoryId, final String path )
+        throws IOException
+    {
+        final byte[] bytes = log.get( path );
+
+        if ( bytes == null )
+        {
+            return null;
+        }
+
+        return unmarshal( log, repositoryId, path, bytes );
+    }
+
+    protected Attributes unmarshal( final AttributeLog log, final String repositoryId, final String path,
+                                    final byte[] bytes )
+        throws IOException
+    {
+        final Attributes result;
+
+        try
+        {
+            result = marshaller.unmarshal( new ByteArrayInputStream( bytes ) );
+        }
+        catch ( InvalidInputException e )
+        {
+            getLogger().info( "Attributes of " + repositoryId + ":" + path + " are corrupt, deleting it." );
+
+            log.delete( path );
+
+            return null;
+        }
+
+        result.setRepositoryId( repositoryId );
+        result.setPath( path );
+
+        // fixing remoteChecked
+        if ( result.getCheckedRemotely() == 0 || result.getCheckedRemotely() == 1 )
+        {
+            result.setCheckedRemotely( System.currentTimeMillis() );
+            result.setExpired( true );
+        }
+
+        // fixing lastRequested
+        if ( result.getLastRequested() == 0 )
+        {
+            result.setLastRequested( System.currentTimeMillis() );
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import javax.management.StandardMBean;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Simple exposure of {@link WriteBehindTouchAttributeStorage} to JMX.
+ * 
+ * @since 2.4
+ */
+public class DefaultWriteBehindTouchAttributeStorageMBean
+    extends StandardMBean
+    implements WriteBehindTouchAttributeStorageMBean
+{
+    private final WriteBehindTouchAttributeStorage storage;
+
+    protected DefaultWriteBehindTouchAttributeStorageMBean( final WriteBehindTouchAttributeStorage storage )
+    {
+        super( WriteBehindTouchAttributeStorageMBean.class, false );
+        this.storage = Preconditions.checkNotNull( storage );
+    }
+
+    @Override
+    public long getBufferedCount()
+    {
+        return storage.getBufferedCount();
+    }
+
+    @Override
+    public long getCoalescedCount()
+    {
+        return storage.getCoalescedCount();
+    }
+
+    @Override
+    public long getFlushedCount()
+    {
+        return storage.getFlushedCount();
+    }
+
+    @Override
+    public long getDroppedCount()
+    {
+        return storage.getDroppedCount();
+    }
+
+    @Override
+    public long getWriteThroughCount()
+    {
+        return storage.getWriteThroughCount();
+    }
+
+    @Override
+    public int getPendingCount()
+    {
+        return storage.getPendingCount();
+    }
+}
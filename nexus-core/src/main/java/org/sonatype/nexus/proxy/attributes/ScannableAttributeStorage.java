@@ -0,0 +1,54 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import java.io.IOException;
+
+import org.sonatype.nexus.proxy.repository.Repository;
+
+/**
+ * AttributeStorage that is able to enumerate all the attributes it stores for a repository, without walking the
+ * repository local storage. Usable for bulk operations on attributes only, like eviction or reporting.
+ * 
+ * @since 2.4
+ */
+public interface ScannableAttributeStorage
+    extends AttributeStorage
+{
+    /**
+     * Visitor of scanned attributes.
+     */
+    interface Visitor
+    {
+        /**
+         * Visits attributes of one item.
+         * 
+         * @param attributes the attributes, with repository ID and path set.
+         * @return {@code true} to continue scanning, {@code false} to stop.
+         * @throws IOException in case of IO problem.
+         */
+        boolean visit( Attributes attributes )
+            throws IOException;
+    }
+
+    /**
+     * Invokes visitor with attributes of every item of given repository having attributes stored, in storage order.
+     * Changes made concurrently to the scan may or may not be visited.
+     * 
+     * @param repository the repository to scan
+     * @param visitor the visitor
+     * @throws IOException in case of IO problem.
+     */
+    void scanAttributes( Repository repository, Visitor visitor )
+        throws IOException;
+}
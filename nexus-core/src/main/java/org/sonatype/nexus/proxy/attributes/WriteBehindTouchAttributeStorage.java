@@ -0,0 +1,476 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.sonatype.nexus.proxy.access.Action;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
+import org.sonatype.nexus.threads.NexusThreadFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * AttributeStorage wrapper buffering "touches" (updates of lastRequested and checkedRemotely attributes) in memory, and
+ * writing them behind in batches by a background writer. Touches of same item are coalesced into one write, and are
+ * written at most "max staleness" millis after they were recorded. Attributes read through this storage always
+ * reflect the buffered touches, and storing whole attributes of an item writes out its buffered touch too. When the
+ * buffer is full, touches are written synchronously, as without buffering. Touches of items having no attributes
+ * anymore when the touch is written are dropped. This class is not a component, but is used by AttributesHandler
+ * when write-behind of touches is enabled.
+ * 
+ * @since 2.4
+ */
+public class WriteBehindTouchAttributeStorage
+    extends AbstractAttributeStorage
+    implements AttributeStorage
+{
+    private static final String JMX_DOMAIN = "org.sonatype.nexus.proxy.attributes";
+
+    private final AttributeStorage delegate;
+
+    private final int maxPending;
+
+    private final ConcurrentMap<String, Touch> touches;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final AtomicLong bufferedCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private final AtomicLong flushedCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong writeThroughCount = new AtomicLong();
+
+    private ObjectName jmxName;
+
+    public WriteBehindTouchAttributeStorage( final AttributeStorage delegate, final long maxStaleness,
+                                             final int maxPending )
+    {
+        Preconditions.checkArgument( maxStaleness > 0, "maxStaleness must be positive" );
+        this.delegate = Preconditions.checkNotNull( delegate );
+        this.maxPending = maxPending;
+        this.touches = new ConcurrentHashMap<String, Touch>();
+        this.executor =
+            new ScheduledThreadPoolExecutor( 1, new NexusThreadFactory( "touch", "Attribute Touch Writer" ) );
+        this.executor.scheduleWithFixedDelay( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                flush();
+            }
+        }, maxStaleness, maxStaleness, TimeUnit.MILLISECONDS );
+
+        try
+        {
+            jmxName = ObjectName.getInstance( JMX_DOMAIN, "name", getClass().getSimpleName() );
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if ( server.isRegistered( jmxName ) )
+            {
+                getLogger().debug( "MBean already registered; replacing: {}", jmxName );
+                server.unregisterMBean( jmxName );
+            }
+            server.registerMBean( new DefaultWriteBehindTouchAttributeStorageMBean( this ), jmxName );
+        }
+        catch ( Exception e )
+        {
+            jmxName = null;
+            getLogger().warn( "Problem registering MBean for: " + getClass().getName(), e );
+        }
+    }
+
+    public AttributeStorage getDelegate()
+    {
+        return delegate;
+    }
+
+    /**
+     * Writes out the buffered touches, stops the background writer and unregisters the MBean. Multiple invocation of
+     * this method is safe.
+     */
+    public synchronized void shutdown()
+    {
+        executor.shutdown();
+
+        try
+        {
+            executor.awaitTermination( 1, TimeUnit.MINUTES );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+
+        if ( null != jmxName )
+        {
+            try
+            {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if ( server.isRegistered( jmxName ) )
+                {
+                    server.unregisterMBean( jmxName );
+                }
+            }
+            catch ( final Exception e )
+            {
+                getLogger().warn( "Problem unregistering MBean for: " + getClass().getName(), e );
+            }
+
+            jmxName = null;
+        }
+    }
+
+    // == Touches
+
+    /**
+     * Records a lastRequested touch of item.
+     */
+    public void touchLastRequested( final RepositoryItemUid uid, final long timestamp )
+        throws IOException
+    {
+        touch( uid, timestamp, 0 );
+    }
+
+    /**
+     * Records a checkedRemotely touch of item, that also marks it as not expired.
+     */
+    public void touchCheckedRemotely( final RepositoryItemUid uid, final long timestamp )
+        throws IOException
+    {
+        touch( uid, 0, timestamp );
+    }
+
+    /**
+     * Writes out all the buffered touches.
+     */
+    public void flush()
+    {
+        for ( String key : touches.keySet() )
+        {
+            final Touch touch = touches.get( key );
+
+            if ( touch == null )
+            {
+                continue;
+            }
+
+            synchronized ( touch )
+            {
+                if ( touch.written )
+                {
+                    continue;
+                }
+
+                // freeze it, touches recorded from now on go into a new instance
+                touch.written = true;
+            }
+
+            try
+            {
+                if ( write( touch ) )
+                {
+                    flushedCount.incrementAndGet();
+                }
+                else
+                {
+                    droppedCount.incrementAndGet();
+                }
+            }
+            catch ( Exception e )
+            {
+                droppedCount.incrementAndGet();
+
+                getLogger().warn( "Could not write touch of UID=" + touch.uid.toString(), e );
+            }
+            finally
+            {
+                // it was kept until now so reads saw it while being written
+                touches.remove( key, touch );
+            }
+        }
+    }
+
+    // == Metrics
+
+    public long getBufferedCount()
+    {
+        return bufferedCount.get();
+    }
+
+    public long getCoalescedCount()
+    {
+        return coalescedCount.get();
+    }
+
+    public long getFlushedCount()
+    {
+        return flushedCount.get();
+    }
+
+    public long getDroppedCount()
+    {
+        return droppedCount.get();
+    }
+
+    public long getWriteThroughCount()
+    {
+        return writeThroughCount.get();
+    }
+
+    public int getPendingCount()
+    {
+        return touches.size();
+    }
+
+    // == AttributeStorage
+
+    @Override
+    public Attributes getAttributes( final RepositoryItemUid uid )
+        throws IOException
+    {
+        final Attributes attributes = delegate.getAttributes( uid );
+
+        if ( attributes != null )
+        {
+            final Touch touch = touches.get( getKey( uid ) );
+
+            if ( touch != null )
+            {
+                synchronized ( touch )
+                {
+                    touch.applyTo( attributes );
+                }
+            }
+        }
+
+        return attributes;
+    }
+
+    @Override
+    public void putAttributes( final RepositoryItemUid uid, final Attributes attributes )
+        throws IOException
+    {
+        final Touch touch = touches.remove( getKey( uid ) );
+
+        if ( touch != null )
+        {
+            synchronized ( touch )
+            {
+                touch.written = true;
+
+                // never step back in time, attributes to be stored were most probably read with the touch applied
+                if ( touch.lastRequested > attributes.getLastRequested() )
+                {
+                    attributes.setLastRequested( touch.lastRequested );
+                }
+
+                if ( touch.checkedRemotely > attributes.getCheckedRemotely() )
+                {
+                    attributes.setCheckedRemotely( touch.checkedRemotely );
+                    attributes.setExpired( false );
+                }
+            }
+
+            flushedCount.incrementAndGet();
+        }
+
+        delegate.putAttributes( uid, attributes );
+    }
+
+    @Override
+    public boolean deleteAttributes( final RepositoryItemUid uid )
+        throws IOException
+    {
+        final Touch touch = touches.remove( getKey( uid ) );
+
+        if ( touch != null )
+        {
+            synchronized ( touch )
+            {
+                touch.written = true;
+            }
+
+            droppedCount.incrementAndGet();
+        }
+
+        return delegate.deleteAttributes( uid );
+    }
+
+    // ==
+
+    protected void touch( final RepositoryItemUid uid, final long lastRequested, final long checkedRemotely )
+        throws IOException
+    {
+        final String key = getKey( uid );
+
+        while ( true )
+        {
+            final Touch touch = touches.get( key );
+
+            if ( touch == null && touches.size() >= maxPending )
+            {
+                writeThroughCount.incrementAndGet();
+
+                final Touch writeThrough = new Touch( uid );
+                writeThrough.record( lastRequested, checkedRemotely );
+                write( writeThrough );
+
+                return;
+            }
+
+            if ( touch != null )
+            {
+                synchronized ( touch )
+                {
+                    if ( !touch.written )
+                    {
+                        touch.record( lastRequested, checkedRemotely );
+
+                        coalescedCount.incrementAndGet();
+
+                        return;
+                    }
+                }
+            }
+
+            final Touch newTouch = new Touch( uid );
+
+            if ( touch != null )
+            {
+                // the frozen touch is still being written, reads see only the new one from now on
+                synchronized ( touch )
+                {
+                    newTouch.record( touch.lastRequested, touch.checkedRemotely );
+                }
+            }
+
+            newTouch.record( lastRequested, checkedRemotely );
+
+            // touch being written is replaced, it is removed only if still mapped
+            final boolean mapped =
+                touch == null ? touches.putIfAbsent( key, newTouch ) == null : touches.replace( key, touch, newTouch );
+
+            if ( mapped )
+            {
+                bufferedCount.incrementAndGet();
+
+                return;
+            }
+
+            // lost a race, retry
+        }
+    }
+
+    /**
+     * Writes a touch to attributes, returns {@code false} if item has no attributes.
+     */
+    protected boolean write( final Touch touch )
+        throws IOException
+    {
+        final RepositoryItemUidLock uidLock = touch.uid.getLock();
+
+        uidLock.lock( Action.create );
+
+        try
+        {
+            final Attributes attributes = delegate.getAttributes( touch.uid );
+
+            if ( attributes == null )
+            {
+                return false;
+            }
+
+            attributes.setRepositoryId( touch.uid.getRepository().getId() );
+            attributes.setPath( touch.uid.getPath() );
+
+            synchronized ( touch )
+            {
+                touch.applyTo( attributes );
+            }
+
+            delegate.putAttributes( touch.uid, attributes );
+
+            return true;
+        }
+        finally
+        {
+            uidLock.unlock();
+        }
+    }
+
+    protected String getKey( final RepositoryItemUid uid )
+    {
+        return uid.getKey();
+    }
+
+    // ==
+
+    protected static class Touch
+    {
+        private final RepositoryItemUid uid;
+
+        private long lastRequested;
+
+        private long checkedRemotely;
+
+        private boolean written;
+
+        private Touch( final RepositoryItemUid uid )
+        {
+            this.uid = uid;
+        }
+
+        private void record( final long lastRequested, final long checkedRemotely )
+        {
+            if ( lastRequested != 0 )
+            {
+                this.lastRequested = lastRequested;
+            }
+
+            if ( checkedRemotely != 0 )
+            {
+                this.checkedRemotely = checkedRemotely;
+            }
+        }
+
+        private void applyTo( final Attributes attributes )
+        {
+            if ( lastRequested != 0 )
+            {
+                attributes.setLastRequested( lastRequested );
+            }
+
+            if ( checkedRemotely != 0 )
+            {
+                attributes.setCheckedRemotely( checkedRemotely );
+                attributes.setExpired( false );
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+/**
+ * JMX interface for monitoring {@link WriteBehindTouchAttributeStorage}.
+ * 
+ * @since 2.4
+ */
+public interface WriteBehindTouchAttributeStorageMBean
+{
+    /**
+     * Returns the count of touches buffered for items having no touch buffered yet.
+     * 
+     * @return the count of buffered touches.
+     */
+    long getBufferedCount();
+
+    /**
+     * Returns the count of touches coalesced into a touch already buffered for same item.
+     * 
+     * @return the count of coalesced touches.
+     */
+    long getCoalescedCount();
+
+    /**
+     * Returns the count of buffered touches written to attribute storage.
+     * 
+     * @return the count of flushed touches.
+     */
+    long getFlushedCount();
+
+    /**
+     * Returns the count of buffered touches not written, as item had no attributes anymore or write failed.
+     * 
+     * @return the count of dropped touches.
+     */
+    long getDroppedCount();
+
+    /**
+     * Returns the count of touches written synchronously as buffer was full.
+     * 
+     * @return the count of touches not buffered.
+     */
+    long getWriteThroughCount();
+
+    /**
+     * Returns the count of touches currently buffered.
+     * 
+     * @return the count of pending touches.
+     */
+    int getPendingCount();
+}
@@ -0,0 +1,53 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes.inspectors;
+
+import javax.management.StandardMBean;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Simple exposure of {@link DigestCalculatingInspector} to JMX.
+ * 
+ * @since 2.4
+ */
+public class DefaultDigestCalculatingInspectorMBean
+    extends StandardMBean
+    implements DigestCalculatingInspectorMBean
+{
+    private final DigestCalculatingInspector inspector;
+
+    protected DefaultDigestCalculatingInspectorMBean( final DigestCalculatingInspector inspector )
+    {
+        super( DigestCalculatingInspectorMBean.class, false );
+        this.inspector = Preconditions.checkNotNull( inspector );
+    }
+
+    @Override
+    public long getLiftedCount()
+    {
+        return inspector.getLiftedCount();
+    }
+
+    @Override
+    public long getRehashCount()
+    {
+        return inspector.getRehashCount();
+    }
+
+    @Override
+    public boolean isSha256Enabled()
+    {
+        return DigestCalculatingInspector.DIGEST_SHA256_ENABLED;
+    }
+}
@@ -15,27 +15,48 @@ package org.sonatype.nexus.proxy.attributes.inspectors;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.security.MessageDigest;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.commons.codec.binary.Hex;
 import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
+import org.sonatype.nexus.proxy.RequestContext;
 import org.sonatype.nexus.proxy.attributes.AbstractStorageFileItemInspector;
 import org.sonatype.nexus.proxy.attributes.StorageFileItemInspector;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.util.SystemPropertiesHelper;
 
 /**
- * The Class DigestCalculatingInspector calculates MD5 and SHA1 digests of a file and stores them into extended
- * attributes.
+ * The Class DigestCalculatingInspector calculates MD5 and SHA1 (and optionally SHA-256) digests of a file and stores
+ * them into extended attributes. Digests are normally calculated by local storage while the content is being stored,
+ * and this inspector merely "lifts" them from item context. Reading back the content to calculate digests ("rehash")
+ * happens only when digests are not present in item context, and is counted (and exposed over JMX), as it should not
+ * happen on regular store paths.
  * 
  * @author cstamas
  */
 @Component( role = StorageFileItemInspector.class, hint = "digest" )
 public class DigestCalculatingInspector
     extends AbstractStorageFileItemInspector
+    implements Disposable
 {
+    private static final String JMX_DOMAIN = "org.sonatype.nexus.proxy.attributes";
+
+    /**
+     * Flag to enable calculation of SHA-256 digest beside MD5 and SHA1. Default is false.
+     * 
+     * @since 2.4
+     */
+    public static final boolean DIGEST_SHA256_ENABLED = SystemPropertiesHelper.getBoolean(
+        DigestCalculatingInspector.class.getName() + ".sha256", false );
 
     /** The digest md5 key. */
     @Deprecated
@@ -44,11 +65,88 @@ public class DigestCalculatingInspector
     /** The digest sha1 key. */
     public static String DIGEST_SHA1_KEY = StorageFileItem.DIGEST_SHA1_KEY;
 
+    /**
+     * The digest sha256 key.
+     * 
+     * @since 2.4
+     */
+    public static String DIGEST_SHA256_KEY = StorageFileItem.DIGEST_SHA256_KEY;
+
+    private final AtomicLong liftedCount = new AtomicLong();
+
+    private final AtomicLong rehashCount = new AtomicLong();
+
+    private ObjectName jmxName;
+
+    public DigestCalculatingInspector()
+    {
+        try
+        {
+            jmxName = ObjectName.getInstance( JMX_DOMAIN, "name", getClass().getSimpleName() );
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if ( server.isRegistered( jmxName ) )
+            {
+                getLogger().debug( "MBean already registered; replacing: {}", jmxName );
+                server.unregisterMBean( jmxName );
+            }
+            server.registerMBean( new DefaultDigestCalculatingInspectorMBean( this ), jmxName );
+        }
+        catch ( Exception e )
+        {
+            jmxName = null;
+            getLogger().warn( "Problem registering MBean for: " + getClass().getName(), e );
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        if ( null != jmxName )
+        {
+            try
+            {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if ( server.isRegistered( jmxName ) )
+                {
+                    server.unregisterMBean( jmxName );
+                }
+            }
+            catch ( final Exception e )
+            {
+                getLogger().warn( "Problem unregistering MBean for: " + getClass().getName(), e );
+            }
+        }
+    }
+
+    /**
+     * Returns the count of items having digests lifted from item context.
+     * 
+     * @since 2.4
+     */
+    public long getLiftedCount()
+    {
+        return liftedCount.get();
+    }
+
+    /**
+     * Returns the count of items having content read back just to calculate digests.
+     * 
+     * @since 2.4
+     */
+    public long getRehashCount()
+    {
+        return rehashCount.get();
+    }
+
     public Set<String> getIndexableKeywords()
     {
-        Set<String> result = new HashSet<String>( 2 );
+        Set<String> result = new HashSet<String>( 3 );
         result.add( DIGEST_MD5_KEY );
         result.add( DIGEST_SHA1_KEY );
+        if ( DIGEST_SHA256_ENABLED )
+        {
+            result.add( DIGEST_SHA256_KEY );
+        }
         return result;
     }
 
@@ -56,14 +154,25 @@ public class DigestCalculatingInspector
     {
         if ( item instanceof StorageFileItem )
         {
-            if ( item.getItemContext().containsKey( StorageFileItem.DIGEST_SHA1_KEY ) )
+            final RequestContext context = item.getItemContext();
+
+            if ( context.containsKey( StorageFileItem.DIGEST_SHA1_KEY )
+                && ( !DIGEST_SHA256_ENABLED || context.containsKey( StorageFileItem.DIGEST_SHA256_KEY ) ) )
             {
                 item.getRepositoryItemAttributes().put( DIGEST_SHA1_KEY,
-                    String.valueOf( item.getItemContext().get( StorageFileItem.DIGEST_SHA1_KEY ) ) );
+                    String.valueOf( context.get( StorageFileItem.DIGEST_SHA1_KEY ) ) );
 
                 // do this one "blindly"
                 item.getRepositoryItemAttributes().put( DIGEST_MD5_KEY,
-                    String.valueOf( item.getItemContext().get( StorageFileItem.DIGEST_MD5_KEY ) ) );
+                    String.valueOf( context.get( StorageFileItem.DIGEST_MD5_KEY ) ) );
+
+                if ( DIGEST_SHA256_ENABLED )
+                {
+                    item.getRepositoryItemAttributes().put( DIGEST_SHA256_KEY,
+                        String.valueOf( context.get( StorageFileItem.DIGEST_SHA256_KEY ) ) );
+                }
+
+                liftedCount.incrementAndGet();
 
                 // we did our job, we "lifted" the digest from context
                 return false;
@@ -78,12 +187,17 @@ public class DigestCalculatingInspector
     public void processStorageFileItem( StorageFileItem item, File file )
         throws Exception
     {
+        rehashCount.incrementAndGet();
+
+        getLogger().debug( "Reading back content of {} to calculate digests", item.getRepositoryItemUid() );
+
         InputStream fis = new FileInputStream( file );
         try
         {
-            byte[] buffer = new byte[1024];
+            byte[] buffer = new byte[65536];
             MessageDigest md5 = MessageDigest.getInstance( "MD5" );
             MessageDigest sha1 = MessageDigest.getInstance( "SHA1" );
+            MessageDigest sha256 = DIGEST_SHA256_ENABLED ? MessageDigest.getInstance( "SHA-256" ) : null;
             int numRead;
             do
             {
@@ -92,6 +206,10 @@ public class DigestCalculatingInspector
                 {
                     md5.update( buffer, 0, numRead );
                     sha1.update( buffer, 0, numRead );
+                    if ( sha256 != null )
+                    {
+                        sha256.update( buffer, 0, numRead );
+                    }
                 }
             }
             while ( numRead != -1 );
@@ -99,6 +217,11 @@ public class DigestCalculatingInspector
             String sha1DigestStr = new String( Hex.encodeHex( sha1.digest() ) );
             item.getRepositoryItemAttributes().put( DIGEST_MD5_KEY, md5digestStr );
             item.getRepositoryItemAttributes().put( DIGEST_SHA1_KEY, sha1DigestStr );
+            if ( sha256 != null )
+            {
+                item.getRepositoryItemAttributes().put( DIGEST_SHA256_KEY,
+                    new String( Hex.encodeHex( sha256.digest() ) ) );
+            }
         }
         finally
         {
@@ -0,0 +1,45 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes.inspectors;
+
+/**
+ * JMX interface for monitoring {@link DigestCalculatingInspector}.
+ * 
+ * @since 2.4
+ */
+public interface DigestCalculatingInspectorMBean
+{
+    /**
+     * Returns the count of items having digests "lifted" from item context, that were calculated while the content
+     * was being stored.
+     * 
+     * @return the count of items not needing their content to be read for digest calculation.
+     */
+    long getLiftedCount();
+
+    /**
+     * Returns the count of items having their content read back just to calculate digests. Stores are expected to
+     * calculate digests while streaming content to local storage, so this count should stay at zero unless
+     * attributes are being recreated or were lost.
+     * 
+     * @return the count of items having content read back for digest calculation.
+     */
+    long getRehashCount();
+
+    /**
+     * Returns true if SHA-256 digest is calculated beside MD5 and SHA1.
+     * 
+     * @return {@code true} if SHA-256 digest is calculated.
+     */
+    boolean isSha256Enabled();
+}
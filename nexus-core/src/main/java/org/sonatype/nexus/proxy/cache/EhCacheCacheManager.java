@@ -12,6 +12,8 @@
  */
 package org.sonatype.nexus.proxy.cache;
 
+import net.sf.ehcache.Ehcache;
+
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
@@ -33,16 +35,36 @@ public class EhCacheCacheManager
 
     public static final String SINGLE_PATH_CACHE_NAME = "path-cache";
 
+    /**
+     * Index of the shared path cache keys, registered with the shared path cache on first use.
+     */
+    private PathCacheIndex pathCacheIndex;
+
     public PathCache getPathCache( String cache )
     {
         final net.sf.ehcache.CacheManager ehCacheManager = cacheManagerComponent.getCacheManager();
 
-        if ( !ehCacheManager.cacheExists( SINGLE_PATH_CACHE_NAME ) )
+        final Ehcache ehCache;
+        final PathCacheIndex index;
+        synchronized ( this )
         {
-            ehCacheManager.addCache( SINGLE_PATH_CACHE_NAME );
+            if ( !ehCacheManager.cacheExists( SINGLE_PATH_CACHE_NAME ) )
+            {
+                ehCacheManager.addCache( SINGLE_PATH_CACHE_NAME );
+            }
+
+            ehCache = ehCacheManager.getEhcache( SINGLE_PATH_CACHE_NAME );
+
+            if ( pathCacheIndex == null )
+            {
+                pathCacheIndex = new PathCacheIndex();
+                ehCache.getCacheEventNotificationService().registerListener( pathCacheIndex );
+            }
+
+            index = pathCacheIndex;
         }
 
-        return new EhCachePathCache( cache, ehCacheManager.getEhcache( SINGLE_PATH_CACHE_NAME ) );
+        return new IndexedEhCachePathCache( cache, ehCache, index );
     }
 
     @Override
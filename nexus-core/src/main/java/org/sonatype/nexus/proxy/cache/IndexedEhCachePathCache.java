@@ -0,0 +1,120 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.sf.ehcache.Ehcache;
+
+import org.sonatype.nexus.proxy.cache.PathCacheIndex.RepositoryIndex;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link EhCachePathCache} using the per-repository sorted {@link PathCacheIndex} to perform subtree removals (and
+ * hence purges), and to list keys, without scanning all the keys of the shared cache. Statistics are also
+ * per-repository, while {@link EhCachePathCache} reports the statistics of the whole shared cache.
+ * 
+ * @since 2.4
+ */
+public class IndexedEhCachePathCache
+    extends EhCachePathCache
+{
+    private final RepositoryIndex repositoryIndex;
+
+    IndexedEhCachePathCache( final String repositoryId, final Ehcache cache, final PathCacheIndex pathCacheIndex )
+    {
+        super( repositoryId, cache );
+        this.repositoryIndex = Preconditions.checkNotNull( pathCacheIndex ).getRepositoryIndex( repositoryId );
+    }
+
+    @Override
+    public boolean doContains( final String key )
+    {
+        final boolean result = super.doContains( key );
+
+        if ( result )
+        {
+            repositoryIndex.hit();
+        }
+        else
+        {
+            repositoryIndex.miss();
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean removeWithChildren( final String path )
+    {
+        final String keyToRemove = makeKeyFromPath( path );
+
+        boolean removed = false;
+        if ( keyToRemove.equals( getKeyPrefix() ) )
+        {
+            // root: whole repository
+            for ( String key : repositoryIndex.getKeys() )
+            {
+                removed = doRemoveIndexed( key ) || removed;
+            }
+        }
+        else
+        {
+            removed = doRemoveIndexed( keyToRemove );
+            for ( String key : repositoryIndex.getChildKeys( keyToRemove ) )
+            {
+                removed = doRemoveIndexed( key ) || removed;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public CacheStatistics getStatistics()
+    {
+        return repositoryIndex.getStatistics();
+    }
+
+    @Override
+    public Collection<String> listKeysInCache()
+    {
+        // expired elements are dropped from index too
+        getEHCache().evictExpiredElements();
+
+        final String keyPrefix = getKeyPrefix();
+
+        final List<String> keys = new ArrayList<String>();
+
+        for ( String key : repositoryIndex.getKeys() )
+        {
+            keys.add( key.substring( keyPrefix.length() ) );
+        }
+
+        return keys;
+    }
+
+    // ==
+
+    protected boolean doRemoveIndexed( final String key )
+    {
+        final boolean removed = getEHCache().remove( key );
+
+        // index is maintained by cache events, but make sure no stale key remains if element was gone already
+        repositoryIndex.remove( key );
+
+        return removed;
+    }
+}
@@ -16,6 +16,7 @@ import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
 import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
@@ -31,6 +32,7 @@ import org.sonatype.plexus.appevents.Event;
  * @since 2.1
  */
 @Component( role = EventInspector.class, hint = "PathCacheEventInspector" )
+@InspectedEvents( RepositoryRegistryEventRemove.class )
 public class PathCacheEventInspector
     extends AbstractEventInspector
 {
@@ -0,0 +1,220 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.cache;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
+
+/**
+ * Index of keys of the shared path cache, kept per repository in sorted sets, to make subtree removals and repository
+ * purges cost proportional to the size of the removed subtree, instead of scanning all the keys of the shared cache.
+ * The index is maintained by EHCache itself (this class is registered as listener), hence entries removed due to
+ * eviction or expiration are removed from the index too. Also keeps per-repository hit and miss counters.
+ * 
+ * @since 2.4
+ */
+class PathCacheIndex
+    extends CacheEventListenerAdapter
+{
+    private final ConcurrentHashMap<String, RepositoryIndex> repositoryIndexes =
+        new ConcurrentHashMap<String, RepositoryIndex>();
+
+    /**
+     * Returns the index of given repository, never {@code null}.
+     */
+    RepositoryIndex getRepositoryIndex( final String repositoryId )
+    {
+        RepositoryIndex result = repositoryIndexes.get( repositoryId );
+
+        if ( result == null )
+        {
+            final RepositoryIndex newIndex = new RepositoryIndex();
+
+            result = repositoryIndexes.putIfAbsent( repositoryId, newIndex );
+
+            if ( result == null )
+            {
+                result = newIndex;
+            }
+        }
+
+        return result;
+    }
+
+    // == CacheEventListener
+
+    @Override
+    public void notifyElementPut( final Ehcache cache, final Element element )
+        throws CacheException
+    {
+        final String key = getKey( element );
+
+        if ( key != null )
+        {
+            getRepositoryIndex( getRepositoryId( key ) ).add( key );
+        }
+    }
+
+    @Override
+    public void notifyElementRemoved( final Ehcache cache, final Element element )
+        throws CacheException
+    {
+        removeFromIndex( element );
+    }
+
+    @Override
+    public void notifyElementExpired( final Ehcache cache, final Element element )
+    {
+        removeFromIndex( element );
+    }
+
+    @Override
+    public void notifyElementEvicted( final Ehcache cache, final Element element )
+    {
+        removeFromIndex( element );
+    }
+
+    @Override
+    public void notifyRemoveAll( final Ehcache cache )
+    {
+        for ( RepositoryIndex repositoryIndex : repositoryIndexes.values() )
+        {
+            repositoryIndex.clear();
+        }
+    }
+
+    @Override
+    public Object clone()
+        throws CloneNotSupportedException
+    {
+        // index is bound to the one shared cache it is registered with
+        throw new CloneNotSupportedException( "PathCacheIndex cannot be cloned" );
+    }
+
+    // ==
+
+    protected void removeFromIndex( final Element element )
+    {
+        final String key = getKey( element );
+
+        if ( key != null )
+        {
+            final RepositoryIndex repositoryIndex = repositoryIndexes.get( getRepositoryId( key ) );
+
+            if ( repositoryIndex != null )
+            {
+                repositoryIndex.remove( key );
+            }
+        }
+    }
+
+    protected String getKey( final Element element )
+    {
+        if ( element != null && element.getObjectKey() instanceof String )
+        {
+            return (String) element.getObjectKey();
+        }
+
+        return null;
+    }
+
+    /**
+     * Keys are in form of "repoId:path", see {@link EhCachePathCache#makeKeyFromPath(String)}.
+     */
+    protected String getRepositoryId( final String key )
+    {
+        final int idx = key.indexOf( ':' );
+
+        return idx > -1 ? key.substring( 0, idx ) : key;
+    }
+
+    // ==
+
+    /**
+     * Sorted keys and counters of one repository.
+     */
+    static class RepositoryIndex
+    {
+        private final ConcurrentSkipListSet<String> keys = new ConcurrentSkipListSet<String>();
+
+        private final AtomicLong size = new AtomicLong();
+
+        private final AtomicLong hits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        void add( final String key )
+        {
+            if ( keys.add( key ) )
+            {
+                size.incrementAndGet();
+            }
+        }
+
+        void remove( final String key )
+        {
+            if ( keys.remove( key ) )
+            {
+                size.decrementAndGet();
+            }
+        }
+
+        void clear()
+        {
+            for ( String key : keys )
+            {
+                remove( key );
+            }
+        }
+
+        /**
+         * Returns a live view of all keys of the repository.
+         */
+        NavigableSet<String> getKeys()
+        {
+            return keys;
+        }
+
+        /**
+         * Returns a live view of all the keys below passed in key (in path sense, so "a/b" has "a/b/c" as child but
+         * not "a/bc" nor "a/b.txt"), not including the key itself.
+         */
+        NavigableSet<String> getChildKeys( final String key )
+        {
+            // '0' is the character right after '/'
+            return keys.subSet( key + '/', true, key + '0', false );
+        }
+
+        void hit()
+        {
+            hits.incrementAndGet();
+        }
+
+        void miss()
+        {
+            misses.incrementAndGet();
+        }
+
+        CacheStatistics getStatistics()
+        {
+            return new CacheStatistics( size.get(), misses.get(), hits.get() );
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.events;
+
+import java.util.List;
+
+import org.sonatype.plexus.appevents.Event;
+
+/**
+ * An asynchronous event inspector that is able to process accepted events in batches, hence coalesce work (for example
+ * many item events of the same repository). The event inspector host will collect the accepted events in a queue, and
+ * hand them over in batches of events in same order as they were accepted. The single event
+ * {@link #inspect(Event)} method is not used by host for these inspectors.
+ * 
+ * @since 2.4
+ */
+public interface BatchingEventInspector
+    extends EventInspector, AsynchronousEventInspector
+{
+    /**
+     * Inspects a batch of accepted events.
+     * 
+     * @param events the batch, never empty.
+     */
+    void inspect( List<Event<?>> events );
+
+    /**
+     * Returns the coalescing key of the event, or {@code null} if the event cannot be coalesced with others. When
+     * queue of this inspector overflows and the "coalesce" policy is in effect, a queued event having same key is
+     * replaced by the new event, instead of waiting for free space in queue. Hence, events having same key must be
+     * such that processing only the latest of them yields same result as processing all of them.
+     */
+    Object getCoalescingKey( Event<?> evt );
+}
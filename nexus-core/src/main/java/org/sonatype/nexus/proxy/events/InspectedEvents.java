@@ -0,0 +1,42 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.events;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.sonatype.plexus.appevents.Event;
+
+/**
+ * Declares the event types an {@link EventInspector} is interested in. Event inspector host will offer to the annotated
+ * inspector only events that are instances of one of the declared types (or their subclasses), hence
+ * {@link EventInspector#accepts(Event)} of the inspector is not invoked at all for unrelated events. Inspectors not
+ * annotated are offered all the events, as before.
+ * 
+ * @since 2.4
+ */
+@Documented
+@Inherited
+@Target( ElementType.TYPE )
+@Retention( RetentionPolicy.RUNTIME )
+public @interface InspectedEvents
+{
+    /**
+     * The event types (classes or interfaces) the annotated inspector handles.
+     */
+    Class<?>[] value();
+}
@@ -12,8 +12,10 @@
  */
 package org.sonatype.nexus.proxy.item;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -63,48 +65,97 @@ public abstract class AbstractRepositoryItemUidFactory
     @Named( "${sisu-resource-locks:-disabled}" )
     private ResourceLockFactory sisuLockFactory;
 
-    private WeakHashMap<DefaultRepositoryItemUidLock, WeakReference<DefaultRepositoryItemUidLock>> locks =
-        new WeakHashMap<DefaultRepositoryItemUidLock, WeakReference<DefaultRepositoryItemUidLock>>();
+    /**
+     * Registry of live locks, keyed by UID key. Values are weakly referenced, so locks not used by anyone anymore are
+     * garbage collected, and their (cleared) references are removed from the map using the {@link #staleLocks} queue.
+     * The map is concurrent (internally striped), hence lookups of existing locks, that are the vast majority of
+     * invocations, do not contend on a single monitor and do not allocate anything.
+     */
+    private final ConcurrentHashMap<String, LockReference> locks = new ConcurrentHashMap<String, LockReference>();
+
+    private final ReferenceQueue<DefaultRepositoryItemUidLock> staleLocks =
+        new ReferenceQueue<DefaultRepositoryItemUidLock>();
 
     @Override
     public DefaultRepositoryItemUidLock createUidLock( final RepositoryItemUid uid )
     {
-        final String key = new String( uid.getKey() );
-
-        return doCreateUidLockForKey( key );
+        return doCreateUidLockForKey( uid.getKey() );
     }
 
     // ==
 
-    protected synchronized DefaultRepositoryItemUidLock doCreateUidLockForKey( final String key )
+    protected DefaultRepositoryItemUidLock doCreateUidLockForKey( final String key )
     {
+        // fast path: lock exists, no allocation and no locking
+        final LockReference existingRef = locks.get( key );
+
+        if ( existingRef != null )
+        {
+            final DefaultRepositoryItemUidLock existingLock = existingRef.get();
+
+            if ( existingLock != null )
+            {
+                return existingLock;
+            }
+        }
+
+        // slow path: create lock, but make sure only one lock instance per key is handed out
+        expungeStaleLocks();
+
+        final String lockKey = new String( key );
+
         final LockResource lockResource;
         if ( sisuLockFactory != null )
         {
-            lockResource = new SisuLockResource( sisuLockFactory.getResourceLock( key ) );
+            lockResource = new SisuLockResource( sisuLockFactory.getResourceLock( lockKey ) );
         }
         else
         {
             lockResource = new SimpleLockResource();
         }
 
-        final DefaultRepositoryItemUidLock newLock = new DefaultRepositoryItemUidLock( key, lockResource );
+        final DefaultRepositoryItemUidLock newLock = new DefaultRepositoryItemUidLock( lockKey, lockResource );
 
-        final WeakReference<DefaultRepositoryItemUidLock> oldLockRef = locks.get( newLock );
+        final LockReference newRef = new LockReference( lockKey, newLock, staleLocks );
 
-        if ( oldLockRef != null )
+        while ( true )
         {
-            final RepositoryItemUidLock oldLock = oldLockRef.get();
+            final LockReference oldRef = locks.putIfAbsent( lockKey, newRef );
+
+            if ( oldRef == null )
+            {
+                return newLock;
+            }
+
+            final DefaultRepositoryItemUidLock oldLock = oldRef.get();
 
             if ( oldLock != null )
             {
-                return oldLockRef.get();
+                // someone else was faster
+                return oldLock;
+            }
+
+            if ( locks.replace( lockKey, oldRef, newRef ) )
+            {
+                return newLock;
             }
         }
+    }
+
+    /**
+     * Removes the references of garbage collected locks from registry.
+     */
+    protected void expungeStaleLocks()
+    {
+        Reference<? extends DefaultRepositoryItemUidLock> ref;
 
-        locks.put( newLock, new WeakReference<DefaultRepositoryItemUidLock>( newLock ) );
+        while ( ( ref = staleLocks.poll() ) != null )
+        {
+            final LockReference lockRef = (LockReference) ref;
 
-        return newLock;
+            // remove only if not replaced meanwhile
+            locks.remove( lockRef.key, lockRef );
+        }
     }
 
     /**
@@ -114,6 +165,8 @@ public abstract class AbstractRepositoryItemUidFactory
      */
     protected int locksInMap()
     {
+        expungeStaleLocks();
+
         return locks.size();
     }
 
@@ -125,4 +178,24 @@ public abstract class AbstractRepositoryItemUidFactory
             sisuLockFactory.shutdown();
         }
     }
+
+    // ==
+
+    /**
+     * Weak reference to a lock, that remembers the key it was registered with, to be able to remove it from registry
+     * once the lock is garbage collected.
+     */
+    private static class LockReference
+        extends WeakReference<DefaultRepositoryItemUidLock>
+    {
+        private final String key;
+
+        private LockReference( final String key, final DefaultRepositoryItemUidLock lock,
+                               final ReferenceQueue<DefaultRepositoryItemUidLock> queue )
+        {
+            super( lock, queue );
+
+            this.key = key;
+        }
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.item;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.sonatype.nexus.proxy.RequestContext;
+import org.sonatype.nexus.util.DigesterUtils;
+import org.sonatype.nexus.util.WrappingInputStream;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A content locator that wraps another content locator, and calculates multiple hashes of it in single pass while
+ * reading it, putting the results into passed in Context. Unlike chaining multiple {@link ChecksummingContentLocator}s,
+ * the content is passed over only once, and fresh {@link MessageDigest} instances are used for every
+ * {@link #getContent()} invocation.
+ * 
+ * @since 2.4
+ */
+public class MultiChecksummingContentLocator
+    extends AbstractWrappingContentLocator
+{
+    private final Map<String, String> algorithms;
+
+    private final RequestContext context;
+
+    /**
+     * Creates the locator.
+     * 
+     * @param content the content to wrap.
+     * @param algorithms mapping of {@link MessageDigest} algorithm names to context keys to put resulting hashes under.
+     * @param context the context to put hashes into.
+     * @throws NoSuchAlgorithmException if any of the algorithms is not supported by the JVM.
+     */
+    public MultiChecksummingContentLocator( final ContentLocator content, final Map<String, String> algorithms,
+                                            final RequestContext context )
+        throws NoSuchAlgorithmException
+    {
+        super( content );
+        Preconditions.checkArgument( !algorithms.isEmpty(), "At least one algorithm must be specified" );
+        this.algorithms = new LinkedHashMap<String, String>( algorithms );
+        this.context = Preconditions.checkNotNull( context );
+        // fail fast
+        createDigests();
+    }
+
+    @Override
+    public InputStream getContent()
+        throws IOException
+    {
+        try
+        {
+            return new MultiDigestCalculatingInputStream( getTarget().getContent(), createDigests() );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // checked in constructor, should not happen
+            throw new IllegalStateException( e );
+        }
+    }
+
+    // ==
+
+    protected MessageDigest[] createDigests()
+        throws NoSuchAlgorithmException
+    {
+        final MessageDigest[] result = new MessageDigest[algorithms.size()];
+        int i = 0;
+        for ( String algorithm : algorithms.keySet() )
+        {
+            result[i++] = MessageDigest.getInstance( algorithm );
+        }
+        return result;
+    }
+
+    private class MultiDigestCalculatingInputStream
+        extends WrappingInputStream
+    {
+        private final MessageDigest[] digests;
+
+        private boolean done;
+
+        public MultiDigestCalculatingInputStream( final InputStream source, final MessageDigest[] digests )
+        {
+            super( source );
+            this.digests = digests;
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            final int result = super.read();
+
+            if ( result == -1 )
+            {
+                setHashes();
+            }
+            else
+            {
+                for ( MessageDigest digest : digests )
+                {
+                    digest.update( (byte) result );
+                }
+            }
+
+            return result;
+        }
+
+        @Override
+        public int read( final byte[] b )
+            throws IOException
+        {
+            return read( b, 0, b.length );
+        }
+
+        @Override
+        public int read( final byte[] b, final int off, final int len )
+            throws IOException
+        {
+            final int result = super.read( b, off, len );
+
+            if ( result == -1 )
+            {
+                setHashes();
+            }
+            else
+            {
+                for ( MessageDigest digest : digests )
+                {
+                    digest.update( b, off, result );
+                }
+            }
+
+            return result;
+        }
+
+        @Override
+        public long skip( final long n )
+            throws IOException
+        {
+            // skipped content must be hashed too
+            final byte[] buf = new byte[(int) Math.min( 8192, Math.max( n, 1 ) )];
+
+            long remaining = n;
+
+            while ( remaining > 0 )
+            {
+                final int read = read( buf, 0, (int) Math.min( buf.length, remaining ) );
+
+                if ( read == -1 )
+                {
+                    break;
+                }
+
+                remaining -= read;
+            }
+
+            return n - remaining;
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        // ==
+
+        protected void setHashes()
+        {
+            if ( !done )
+            {
+                done = true;
+
+                int i = 0;
+                for ( String contextKey : algorithms.values() )
+                {
+                    // the hashes belong to content just read, overwriting any stale value
+                    context.put( contextKey, DigesterUtils.getDigestAsString( digests[i++].digest() ) );
+                }
+            }
+        }
+    }
+}
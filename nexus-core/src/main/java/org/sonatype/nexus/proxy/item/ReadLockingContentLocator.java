@@ -35,6 +35,17 @@ public class ReadLockingContentLocator
         this.wrappedUid = wrappedUid;
     }
 
+    /**
+     * Returns the wrapped content locator. Content got directly from it is not guarded by the read lock, so caller
+     * should hold the lock while using it.
+     * 
+     * @since 2.4
+     */
+    public ContentLocator getWrappedLocator()
+    {
+        return getTarget();
+    }
+
     @Override
     public InputStream getContent()
         throws IOException
@@ -28,6 +28,14 @@ public interface StorageFileItem
     @Deprecated
     public static final String DIGEST_MD5_KEY = "digest.md5";
 
+    /**
+     * The digest sha256 key used in item context and attributes. Calculated only if enabled, see
+     * {@link org.sonatype.nexus.proxy.attributes.inspectors.DigestCalculatingInspector}.
+     * 
+     * @since 2.4
+     */
+    public static final String DIGEST_SHA256_KEY = "digest.sha256";
+
     /**
      * Gets the length.
      * 
@@ -33,11 +33,17 @@ import org.sonatype.nexus.proxy.ItemNotFoundException;
 import org.sonatype.nexus.proxy.LocalStorageException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.StorageException;
+import org.sonatype.nexus.proxy.events.RepositoryGroupMembersChangedEvent;
+import org.sonatype.nexus.proxy.events.RepositoryItemEvent;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventCache;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventDelete;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventStore;
 import org.sonatype.nexus.proxy.events.RepositoryItemValidationEvent;
 import org.sonatype.nexus.proxy.item.ByteArrayContentLocator;
 import org.sonatype.nexus.proxy.item.ContentLocator;
 import org.sonatype.nexus.proxy.item.DefaultStorageCompositeFileItem;
 import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
+import org.sonatype.nexus.proxy.item.StorageCollectionItem;
 import org.sonatype.nexus.proxy.item.StorageCompositeFileItem;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
@@ -57,6 +63,9 @@ import org.sonatype.nexus.proxy.registry.ContentClass;
 import org.sonatype.nexus.proxy.repository.GroupRepository;
 import org.sonatype.nexus.proxy.storage.UnsupportedStorageOperationException;
 import org.sonatype.nexus.util.DigesterUtils;
+import org.sonatype.nexus.util.SystemPropertiesHelper;
+
+import com.google.common.eventbus.Subscribe;
 
 @Component( role = GroupRepository.class, hint = M2GroupRepository.ID, instantiationStrategy = "per-lookup", description = "Maven2 Repository Group" )
 public class M2GroupRepository
@@ -80,6 +89,20 @@ public class M2GroupRepository
     @Requirement
     private M2GroupRepositoryConfigurator m2GroupRepositoryConfigurator;
 
+    /**
+     * The maximum count of merged metadata kept in memory per group, 0 disables the cache.
+     *
+     * @since 2.4
+     */
+    private final int MERGED_METADATA_CACHE_SIZE = SystemPropertiesHelper.getInteger( getClass().getName()
+        + ".mergedMetadataCacheSize", 1000 );
+
+    /**
+     * Cache of merged metadata, {@code null} if disabled.
+     */
+    private final MergedMetadataCache mergedMetadataCache = MERGED_METADATA_CACHE_SIZE > 0 ? new MergedMetadataCache(
+        MERGED_METADATA_CACHE_SIZE ) : null;
+
     @Override
     protected M2GroupRepositoryConfiguration getExternalConfiguration( boolean forWrite )
     {
@@ -120,6 +143,59 @@ public class M2GroupRepository
         return M2ArtifactRecognizer.isMetadata( path );
     }
 
+    // == Merged metadata cache invalidation
+
+    @Subscribe
+    public void onEvent( final RepositoryItemEventStore evt )
+    {
+        invalidateMergedMetadata( evt );
+    }
+
+    @Subscribe
+    public void onEvent( final RepositoryItemEventCache evt )
+    {
+        invalidateMergedMetadata( evt );
+    }
+
+    @Subscribe
+    public void onEvent( final RepositoryItemEventDelete evt )
+    {
+        invalidateMergedMetadata( evt );
+    }
+
+    @Subscribe
+    public void onEvent( final RepositoryGroupMembersChangedEvent evt )
+    {
+        if ( mergedMetadataCache != null && evt.getRepository() == this )
+        {
+            mergedMetadataCache.clear();
+        }
+    }
+
+    /**
+     * Drops cached merged metadata affected by a change in some other repository. As the check is path based only, and
+     * does not care whether sender is member of this group (even transitively), changes in non-member repositories may
+     * drop entries too, which is harmless.
+     */
+    protected void invalidateMergedMetadata( final RepositoryItemEvent evt )
+    {
+        if ( mergedMetadataCache == null || evt.getRepository() == this )
+        {
+            return;
+        }
+
+        final String path = evt.getItem().getPath();
+
+        if ( evt.getItem() instanceof StorageCollectionItem )
+        {
+            mergedMetadataCache.invalidateChildren( path );
+        }
+        else if ( M2ArtifactRecognizer.isMetadata( path ) && !M2ArtifactRecognizer.isChecksum( path ) )
+        {
+            mergedMetadataCache.invalidate( path );
+        }
+    }
+
     @Override
     protected StorageItem doRetrieveItem( ResourceStoreRequest request )
         throws IllegalOperationException, ItemNotFoundException, StorageException
@@ -140,9 +216,124 @@ public class M2GroupRepository
             }
         }
 
+        if ( M2ArtifactRecognizer.isMetadata( request.getRequestPath() )
+            && M2ArtifactRecognizer.isChecksum( request.getRequestPath() ) && isMergeMetadata() )
+        {
+            // serve the checksum of merged metadata from cache if we have it, those are calculated and
+            // cached as side-effect of doRetrieveMetadata.
+            final StorageItem item = doRetrieveCachedMetadataDigest( request );
+
+            if ( item != null )
+            {
+                return item;
+            }
+        }
+
         return super.doRetrieveItem( request );
     }
 
+    /**
+     * Returns the checksum of merged metadata from cache. Just like for metadata itself, the member metadata items are
+     * retrieved to check the fingerprint of the cached merge. If not cached or stale, metadata is merged again (that
+     * stores and caches fresh checksums too). Returns {@code null} if there is nothing to merge.
+     */
+    private StorageItem doRetrieveCachedMetadataDigest( final ResourceStoreRequest request )
+        throws StorageException
+    {
+        if ( mergedMetadataCache == null )
+        {
+            return null;
+        }
+
+        final String digestPath = request.getRequestPath();
+
+        final String metadataPath = digestPath.substring( 0, digestPath.lastIndexOf( '.' ) );
+
+        final String fingerprint;
+
+        try
+        {
+            fingerprint =
+                getMergedMetadataFingerprint( doRetrieveItems( createMetadataRequest( request, metadataPath ) ) );
+        }
+        catch ( ItemNotFoundException e )
+        {
+            return null;
+        }
+
+        MergedMetadataCache.Entry entry = mergedMetadataCache.get( metadataPath, fingerprint );
+
+        if ( entry == null )
+        {
+            try
+            {
+                doRetrieveMetadata( createMetadataRequest( request, metadataPath ) );
+            }
+            catch ( ItemNotFoundException e )
+            {
+                return null;
+            }
+            catch ( IllegalOperationException e )
+            {
+                return null;
+            }
+            catch ( UnsupportedStorageOperationException e )
+            {
+                return null;
+            }
+
+            entry = mergedMetadataCache.get( metadataPath, fingerprint );
+
+            if ( entry == null )
+            {
+                // members changed meanwhile, the checksum stored by the merge will be served
+                return null;
+            }
+        }
+
+        final String digest = digestPath.endsWith( ".sha1" ) ? entry.getSha1() : entry.getMd5();
+
+        try
+        {
+            final byte[] bytes = ( digest + '\n' ).getBytes( "UTF-8" );
+
+            final String mimeType = getMimeSupport().guessMimeTypeFromPath( getMimeRulesSource(), digestPath );
+
+            final DefaultStorageFileItem result =
+                new DefaultStorageFileItem( this, request, true, false,
+                    new ByteArrayContentLocator( bytes, mimeType ) );
+
+            result.setLength( bytes.length );
+
+            result.setCreated( entry.getCreated() );
+
+            result.setModified( entry.getCreated() );
+
+            return result;
+        }
+        catch ( IOException e )
+        {
+            // will not happen, UTF-8 is always supported
+            return null;
+        }
+    }
+
+    /**
+     * Creates the request for metadata of a metadata checksum request. It is a separate request, as members retrieving
+     * the metadata mark themselves processed.
+     */
+    private ResourceStoreRequest createMetadataRequest( final ResourceStoreRequest request, final String metadataPath )
+    {
+        final ResourceStoreRequest result =
+            new ResourceStoreRequest( metadataPath, request.isRequestLocalOnly(), request.isRequestRemoteOnly() );
+
+        result.getRequestContext().setParentContext( request.getRequestContext() );
+
+        result.mergeProcessingState( request );
+
+        return result;
+    }
+
     /**
      * Parse a maven Metadata object from a storage file item
      */
@@ -222,6 +413,25 @@ public class M2GroupRepository
             return items.get( 0 );
         }
 
+        final String fingerprint = getMergedMetadataFingerprint( items );
+
+        if ( mergedMetadataCache != null )
+        {
+            final MergedMetadataCache.Entry entry = mergedMetadataCache.get( request.getRequestPath(), fingerprint );
+
+            if ( entry != null )
+            {
+                if ( getLogger().isDebugEnabled() )
+                {
+                    getLogger().debug(
+                        "Item for path " + request.toString() + " served from merged metadata cache, merged from "
+                            + Integer.toString( items.size() ) + " found items." );
+                }
+
+                return createMergedMetadataItem( request, entry.getContent(), items );
+            }
+        }
+
         List<Metadata> existingMetadatas = new ArrayList<Metadata>();
 
         try
@@ -313,6 +523,12 @@ public class M2GroupRepository
 
             resultOutputStream.close();
 
+            if ( mergedMetadataCache != null )
+            {
+                mergedMetadataCache.put( request.getRequestPath(), fingerprint, resultOutputStream.toByteArray(),
+                    md5Digest, sha1Digest );
+            }
+
             if ( getLogger().isDebugEnabled() )
             {
                 getLogger().debug(
@@ -333,6 +549,31 @@ public class M2GroupRepository
         }
     }
 
+    /**
+     * Calculates the "fingerprint" of member metadata items that are about to be merged: their origin, size,
+     * modification timestamp and SHA1 (if known), in group member order.
+     */
+    private String getMergedMetadataFingerprint( List<StorageItem> sources )
+    {
+        final StringBuilder fingerprint = new StringBuilder();
+
+        for ( StorageItem source : sources )
+        {
+            fingerprint.append( source.getRepositoryId() ).append( ':' ).append( source.getModified() );
+
+            if ( source instanceof StorageFileItem )
+            {
+                fingerprint.append( ':' ).append( ( (StorageFileItem) source ).getLength() );
+                fingerprint.append( ':' ).append(
+                    source.getRepositoryItemAttributes().get( StorageFileItem.DIGEST_SHA1_KEY ) );
+            }
+
+            fingerprint.append( '|' );
+        }
+
+        return fingerprint.toString();
+    }
+
     protected void storeMergedMetadataItemDigest( ResourceStoreRequest request, String digest,
                                                   List<StorageItem> sources, String algorithm )
         throws IOException, UnsupportedStorageOperationException, IllegalOperationException
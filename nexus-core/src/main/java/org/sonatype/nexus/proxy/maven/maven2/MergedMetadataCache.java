@@ -0,0 +1,201 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.maven.maven2;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Bounded (LRU) in-memory cache of merged maven-metadata.xml files of a group, keyed by request path. Each entry
+ * carries a "fingerprint" of the member items it was merged from, and is served only if the fingerprint of current
+ * member items matches it. Entries are also dropped eagerly when member metadata changes (see
+ * {@link M2GroupRepository} event handlers).
+ *
+ * @since 2.4
+ */
+class MergedMetadataCache
+{
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    MergedMetadataCache( final int maxEntries )
+    {
+        Preconditions.checkArgument( maxEntries > 0, "Cache size must be greater than 0" );
+
+        this.entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, Entry> eldest )
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached entry for path if it was merged from member items having same fingerprint, {@code null}
+     * otherwise. Stale entries are removed.
+     */
+    Entry get( final String path, final String fingerprint )
+    {
+        synchronized ( entries )
+        {
+            final Entry entry = entries.get( path );
+
+            if ( entry != null )
+            {
+                if ( entry.getFingerprint().equals( fingerprint ) )
+                {
+                    hits.incrementAndGet();
+
+                    return entry;
+                }
+
+                entries.remove( path );
+            }
+        }
+
+        misses.incrementAndGet();
+
+        return null;
+    }
+
+    void put( final String path, final String fingerprint, final byte[] content, final String md5, final String sha1 )
+    {
+        final Entry entry = new Entry( fingerprint, content, md5, sha1 );
+
+        synchronized ( entries )
+        {
+            entries.put( path, entry );
+        }
+    }
+
+    void invalidate( final String path )
+    {
+        synchronized ( entries )
+        {
+            entries.remove( path );
+        }
+    }
+
+    /**
+     * Removes all entries on and below passed in path.
+     */
+    void invalidateChildren( final String path )
+    {
+        final String prefix = path.endsWith( "/" ) ? path : path + "/";
+
+        synchronized ( entries )
+        {
+            for ( Iterator<String> iterator = entries.keySet().iterator(); iterator.hasNext(); )
+            {
+                final String key = iterator.next();
+
+                if ( key.equals( path ) || key.startsWith( prefix ) )
+                {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    void clear()
+    {
+        synchronized ( entries )
+        {
+            entries.clear();
+        }
+    }
+
+    int size()
+    {
+        synchronized ( entries )
+        {
+            return entries.size();
+        }
+    }
+
+    long getHits()
+    {
+        return hits.get();
+    }
+
+    long getMisses()
+    {
+        return misses.get();
+    }
+
+    // ==
+
+    /**
+     * A merged metadata with it's checksums. Immutable.
+     */
+    static class Entry
+    {
+        private final String fingerprint;
+
+        private final byte[] content;
+
+        private final String md5;
+
+        private final String sha1;
+
+        private final long created;
+
+        Entry( final String fingerprint, final byte[] content, final String md5, final String sha1 )
+        {
+            this.fingerprint = Preconditions.checkNotNull( fingerprint );
+            this.content = Preconditions.checkNotNull( content );
+            this.md5 = Preconditions.checkNotNull( md5 );
+            this.sha1 = Preconditions.checkNotNull( sha1 );
+            this.created = System.currentTimeMillis();
+        }
+
+        String getFingerprint()
+        {
+            return fingerprint;
+        }
+
+        /**
+         * Returns the merged content. The returned array must not be modified.
+         */
+        byte[] getContent()
+        {
+            return content;
+        }
+
+        String getMd5()
+        {
+            return md5;
+        }
+
+        String getSha1()
+        {
+            return sha1;
+        }
+
+        long getCreated()
+        {
+            return created;
+        }
+    }
+}
@@ -21,9 +21,11 @@ import java.util.Map;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Initializable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonatype.nexus.configuration.AbstractConfigurable;
+import org.sonatype.nexus.configuration.ConfigurationChangeEvent;
 import org.sonatype.nexus.proxy.NoSuchRepositoryException;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryEventAdd;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryEventPostRemove;
@@ -36,6 +38,8 @@ import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
 import org.sonatype.plexus.appevents.EventListener;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
+import com.google.common.eventbus.Subscribe;
+
 /**
  * Repository registry. It holds handles to registered repositories and sorts them properly. This class is used to get a
  * grip on repositories.
@@ -52,7 +56,7 @@ import org.sonatype.sisu.goodies.eventbus.EventBus;
  */
 @Component( role = RepositoryRegistry.class )
 public class DefaultRepositoryRegistry
-    implements RepositoryRegistry, Disposable
+    implements RepositoryRegistry, Initializable, Disposable
 {
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
@@ -144,54 +148,33 @@ public class DefaultRepositoryRegistry
 
     public List<String> getGroupsOfRepository( final String repositoryId )
     {
-        final ArrayList<String> result = new ArrayList<String>();
-
-        try
-        {
-            final Repository repository = getRepository( repositoryId );
-
-            for ( GroupRepository group : getGroupsOfRepository( repository ) )
-            {
-                result.add( group.getId() );
-            }
-        }
-        catch ( NoSuchRepositoryException e )
-        {
-            // ignore, just return empty collection
-        }
-
-        return result;
+        return groupGraph.getGroupIdsOfRepository( repositoryId );
     }
 
     public List<GroupRepository> getGroupsOfRepository( final Repository repository )
     {
-        final ArrayList<GroupRepository> result = new ArrayList<GroupRepository>();
+        return groupGraph.getGroupsOfRepository( repository.getId() );
+    }
 
-        for ( Repository repo : getRepositories() )
-        {
-            if ( !repo.getId().equals( repository.getId() )
-                && repo.getRepositoryKind().isFacetAvailable( GroupRepository.class ) )
-            {
-                final GroupRepository group = repo.adaptToFacet( GroupRepository.class );
-
-                members: for ( Repository member : group.getMemberRepositories() )
-                {
-                    if ( repository.getId().equals( member.getId() ) )
-                    {
-                        result.add( group );
-                        break members;
-                    }
-                }
-            }
-        }
+    public List<Repository> getTransitiveMemberRepositories( final String groupId )
+    {
+        final List<Repository> result = groupGraph.getTransitiveMemberRepositories( groupId );
+        return result == null ? Collections.<Repository> emptyList() : result;
+    }
+
+    // Initializable plexus iface
 
-        return result;
+    public void initialize()
+    {
+        eventBus.register( this );
     }
 
     // Disposable plexus iface
 
     public void dispose()
     {
+        eventBus.unregister( this );
+
         // kill the checker daemon threads
         for ( Repository repository : getRepositoriesMap().values() )
         {
@@ -209,6 +192,9 @@ public class DefaultRepositoryRegistry
     /** The repository registry RO "view" */
     private volatile Map<String, Repository> _repositoriesView;
 
+    /** The group memberships of registered repositories, replaced on every change */
+    private volatile RepositoryGroupGraph groupGraph = RepositoryGroupGraph.EMPTY;
+
     /**
      * Returns a copy of map with repositories. Is synchronized method, to allow consistent-read access. Methods
      * modifying this map are all also synchronized (see API Interface and above), while all the "reading" methods from
@@ -228,12 +214,35 @@ public class DefaultRepositoryRegistry
     {
         _repositories.put( repository.getId(), repository );
         _repositoriesView = Collections.unmodifiableMap( new HashMap<String, Repository>( _repositories ) );
+        rebuildGroupGraph();
     }
 
     protected synchronized void repositoriesMapRemove( final String repositoryId )
     {
         _repositories.remove( repositoryId );
         _repositoriesView = Collections.unmodifiableMap( new HashMap<String, Repository>( _repositories ) );
+        rebuildGroupGraph();
+    }
+
+    /**
+     * Rebuilds the group graph once configuration changes (including group member changes) are committed. Changes
+     * that are rolled back never make it into the graph.
+     * 
+     * @since 2.4
+     */
+    @Subscribe
+    public synchronized void onEvent( final ConfigurationChangeEvent evt )
+    {
+        rebuildGroupGraph();
+    }
+
+    /**
+     * Replaces the group graph with one built from currently registered repositories. Must be called while holding
+     * the lock of this instance.
+     */
+    private void rebuildGroupGraph()
+    {
+        groupGraph = new RepositoryGroupGraph( _repositories.values() );
     }
 
     protected void doRemoveRepository( final String repoId, final boolean silently )
@@ -0,0 +1,194 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sonatype.nexus.proxy.repository.GroupRepository;
+import org.sonatype.nexus.proxy.repository.Repository;
+
+/**
+ * Immutable snapshot of group memberships of registered repositories: direct members of groups, groups where
+ * repositories are direct members, and transitive (non-group) members of groups. Lists returned by this class are
+ * precomputed and unmodifiable, lookups do not allocate.
+ *
+ * @since 2.4
+ */
+class RepositoryGroupGraph
+{
+    static final RepositoryGroupGraph EMPTY = new RepositoryGroupGraph( Collections.<Repository> emptyList() );
+
+    private final Map<String, List<Repository>> members;
+
+    private final Map<String, List<String>> groupIds;
+
+    private final Map<String, List<GroupRepository>> groups;
+
+    private final Map<String, List<Repository>> transitiveMembers;
+
+    /**
+     * @param repositories the registered repositories, groups having their committed member configuration.
+     */
+    RepositoryGroupGraph( final Collection<Repository> repositories )
+    {
+        final Map<String, Repository> registered = new HashMap<String, Repository>( repositories.size() );
+        for ( Repository repository : repositories )
+        {
+            registered.put( repository.getId(), repository );
+        }
+
+        final Map<String, List<Repository>> members = new HashMap<String, List<Repository>>();
+        final Map<String, List<String>> groupIds = new HashMap<String, List<String>>();
+        final Map<String, List<GroupRepository>> groups = new HashMap<String, List<GroupRepository>>();
+
+        for ( Repository repository : repositories )
+        {
+            if ( !repository.getRepositoryKind().isFacetAvailable( GroupRepository.class ) )
+            {
+                continue;
+            }
+
+            final GroupRepository group = repository.adaptToFacet( GroupRepository.class );
+            final List<String> memberIds = group.getMemberRepositoryIds();
+
+            final List<Repository> groupMembers = new ArrayList<Repository>( memberIds.size() );
+            for ( String memberId : memberIds )
+            {
+                final Repository member = registered.get( memberId );
+                // unregistered members are skipped, as does GroupRepository#getMemberRepositories()
+                if ( member != null && !member.getId().equals( group.getId() ) )
+                {
+                    groupMembers.add( member );
+                    add( groupIds, member.getId(), group.getId() );
+                    add( groups, member.getId(), group );
+                }
+            }
+            members.put( group.getId(), Collections.unmodifiableList( groupMembers ) );
+        }
+
+        final Map<String, List<Repository>> transitiveMembers = new HashMap<String, List<Repository>>();
+        for ( String groupId : members.keySet() )
+        {
+            collectTransitiveMembers( groupId, members, transitiveMembers, new HashSet<String>() );
+        }
+
+        this.members = members;
+        this.groupIds = unmodifiableValues( groupIds );
+        this.groups = unmodifiableValues( groups );
+        this.transitiveMembers = transitiveMembers;
+    }
+
+    /**
+     * Returns the registered direct members of group, or empty list if not a registered group.
+     */
+    List<Repository> getMemberRepositories( final String groupId )
+    {
+        return get( members, groupId );
+    }
+
+    /**
+     * Returns IDs of the groups where repository is direct member.
+     */
+    List<String> getGroupIdsOfRepository( final String repositoryId )
+    {
+        return get( groupIds, repositoryId );
+    }
+
+    /**
+     * Returns the groups where repository is direct member.
+     */
+    List<GroupRepository> getGroupsOfRepository( final String repositoryId )
+    {
+        return get( groups, repositoryId );
+    }
+
+    /**
+     * Returns the non-group members of group, collected recursively from member groups in order of membership, or
+     * {@code null} if not a registered group. A repository being member of multiple member groups is listed multiple
+     * times, as by {@link GroupRepository#getTransitiveMemberRepositories()}.
+     */
+    List<Repository> getTransitiveMemberRepositories( final String groupId )
+    {
+        return transitiveMembers.get( groupId );
+    }
+
+    // ==
+
+    private static List<Repository> collectTransitiveMembers( final String groupId,
+                                                              final Map<String, List<Repository>> members,
+                                                              final Map<String, List<Repository>> transitiveMembers,
+                                                              final Set<String> visiting )
+    {
+        List<Repository> result = transitiveMembers.get( groupId );
+        if ( result != null )
+        {
+            return result;
+        }
+        if ( !visiting.add( groupId ) )
+        {
+            // cycles are prevented by group validation, but stay safe
+            return Collections.emptyList();
+        }
+
+        final List<Repository> collected = new ArrayList<Repository>();
+        for ( Repository member : members.get( groupId ) )
+        {
+            if ( members.containsKey( member.getId() ) )
+            {
+                collected.addAll( collectTransitiveMembers( member.getId(), members, transitiveMembers, visiting ) );
+            }
+            else
+            {
+                collected.add( member );
+            }
+        }
+
+        visiting.remove( groupId );
+        result = Collections.unmodifiableList( collected );
+        transitiveMembers.put( groupId, result );
+        return result;
+    }
+
+    private static <T> void add( final Map<String, List<T>> map, final String key, final T value )
+    {
+        List<T> values = map.get( key );
+        if ( values == null )
+        {
+            values = new ArrayList<T>();
+            map.put( key, values );
+        }
+        values.add( value );
+    }
+
+    private static <T> Map<String, List<T>> unmodifiableValues( final Map<String, List<T>> map )
+    {
+        for ( Map.Entry<String, List<T>> entry : map.entrySet() )
+        {
+            entry.setValue( Collections.unmodifiableList( entry.getValue() ) );
+        }
+        return map;
+    }
+
+    private static <T> List<T> get( final Map<String, List<T>> map, final String key )
+    {
+        final List<T> result = map.get( key );
+        return result == null ? Collections.<T> emptyList() : result;
+    }
+}
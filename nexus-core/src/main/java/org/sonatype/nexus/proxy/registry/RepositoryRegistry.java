@@ -109,4 +109,13 @@ public interface RepositoryRegistry
      * @return list of group's where the repo appears as member
      */
     List<GroupRepository> getGroupsOfRepository( Repository repository);
+
+    /**
+     * Collect the non-group repositories that are members of given group, directly or through member groups.
+     *
+     * @param groupId the group id
+     * @return list of transitive members, or empty list if no such group registered
+     * @since 2.4
+     */
+    List<Repository> getTransitiveMemberRepositories( String groupId );
 }
@@ -70,6 +70,30 @@ public abstract class AbstractGroupRepository
     private final boolean USE_CHARGER_FOR_GROUP_REQUESTS = SystemPropertiesHelper.getBoolean( getClass().getName()
         + ".useParallelGroupRequests", false );
 
+    /**
+     * Secret switch that enables hedged group requests (see {@link HedgedGroupItemRetriever}). Ignored if Charger is
+     * used.
+     */
+    private final boolean USE_HEDGED_GROUP_REQUESTS = SystemPropertiesHelper.getBoolean( getClass().getName()
+        + ".useHedgedGroupRequests", false );
+
+    /** The percentile of member latencies after which the next member is hedged. */
+    private final int HEDGE_PERCENTILE = SystemPropertiesHelper.getInteger( getClass().getName()
+        + ".hedgePercentile", 95 );
+
+    private final long HEDGE_MINIMUM_DELAY_MILLIS = SystemPropertiesHelper.getLong( getClass().getName()
+        + ".hedgeMinimumDelayMillis", 20L );
+
+    /** The hedge delay used for members having no latencies recorded yet. */
+    private final long HEDGE_MAXIMUM_DELAY_MILLIS = SystemPropertiesHelper.getLong( getClass().getName()
+        + ".hedgeMaximumDelayMillis", 2000L );
+
+    /** The maximum count of hedged member requests in flight at once. */
+    private final int HEDGE_MAXIMUM_HEDGES = SystemPropertiesHelper.getInteger( getClass().getName()
+        + ".hedgeMaximumHedges", 1 );
+
+    private final GroupMemberStatistics memberStatistics = new GroupMemberStatistics();
+
     @Requirement
     private RepositoryRegistry repoRegistry;
 
@@ -96,6 +120,8 @@ public abstract class AbstractGroupRepository
         if ( extConfig != null && extConfig.getMemberRepositoryIds().contains( evt.getRepository().getId() ) )
         {
             removeMemberRepositoryId( evt.getRepository().getId() );
+
+            memberStatistics.removeMemberStatistics( evt.getRepository().getId() );
         }
     }
 
@@ -346,6 +372,45 @@ public abstract class AbstractGroupRepository
                         throw new LocalStorageException( "Ouch!", e );
                     }
                 }
+                else if ( USE_HEDGED_GROUP_REQUESTS )
+                {
+                    final List<Repository> members = new ArrayList<Repository>();
+
+                    for ( Repository repository : getRequestRepositories( request ) )
+                    {
+                        if ( !request.getProcessedRepositories().contains( repository.getId() ) )
+                        {
+                            members.add( repository );
+                        }
+                        else
+                        {
+                            if ( getLogger().isDebugEnabled() )
+                            {
+                                getLogger().debug(
+                                    String.format(
+                                        "Repository %s member of group %s was already processed during this request! Skipping it from processing. Request: %s",
+                                        RepositoryStringUtils.getHumanizedNameString( repository ),
+                                        RepositoryStringUtils.getHumanizedNameString( this ), request.toString() ) );
+                            }
+                        }
+                    }
+
+                    StorageItem item =
+                        new HedgedGroupItemRetriever( getLogger(), poolManager.getHedgingThreadPool(),
+                            memberStatistics, HEDGE_PERCENTILE, HEDGE_MINIMUM_DELAY_MILLIS,
+                            HEDGE_MAXIMUM_DELAY_MILLIS, HEDGE_MAXIMUM_HEDGES ).retrieveItem( request, members,
+                            memberThrowables );
+
+                    if ( item instanceof StorageCollectionItem )
+                    {
+                        item = new DefaultStorageCollectionItem( this, request, true, false );
+                    }
+
+                    if ( item != null )
+                    {
+                        return item;
+                    }
+                }
                 else
                 {
                     for ( Repository repo : getRequestRepositories( request ) )
@@ -354,7 +419,8 @@ public abstract class AbstractGroupRepository
                         {
                             try
                             {
-                                StorageItem item = repo.retrieveItem( request );
+                                StorageItem item =
+                                    HedgedGroupItemRetriever.retrieveItem( memberStatistics, repo, request );
 
                                 if ( item instanceof StorageCollectionItem )
                                 {
@@ -411,6 +477,17 @@ public abstract class AbstractGroupRepository
         throw new GroupItemNotFoundException( request, this, memberThrowables );
     }
 
+    /**
+     * Returns the statistics of item retrievals this group performed against it's members.
+     * 
+     * @return the member statistics, never {@code null}.
+     * @since 2.4
+     */
+    public GroupMemberStatistics getMemberStatistics()
+    {
+        return memberStatistics;
+    }
+
     public List<String> getMemberRepositoryIds()
     {
         ArrayList<String> result =
@@ -668,6 +745,11 @@ public abstract class AbstractGroupRepository
     @Override
     public List<Repository> getTransitiveMemberRepositories()
     {
+        if ( repoRegistry.repositoryIdExists( getId() ) )
+        {
+            // precomputed by registry
+            return new ArrayList<Repository>( repoRegistry.getTransitiveMemberRepositories( getId() ) );
+        }
         return getTransitiveMemberRepositories( this );
     }
 
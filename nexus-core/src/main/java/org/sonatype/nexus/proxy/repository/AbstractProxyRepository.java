@@ -18,9 +18,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLPeerUnverifiedException;
@@ -42,6 +46,8 @@ import org.sonatype.nexus.proxy.RemoteStorageTransportException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.StorageException;
 import org.sonatype.nexus.proxy.access.Action;
+import org.sonatype.nexus.proxy.attributes.Attributes;
+import org.sonatype.nexus.proxy.attributes.ScannableAttributeStorage;
 import org.sonatype.nexus.proxy.events.RepositoryConfigurationUpdatedEvent;
 import org.sonatype.nexus.proxy.events.RepositoryEventEvictUnusedItems;
 import org.sonatype.nexus.proxy.events.RepositoryEventExpireProxyCaches;
@@ -49,11 +55,13 @@ import org.sonatype.nexus.proxy.events.RepositoryEventProxyModeChanged;
 import org.sonatype.nexus.proxy.events.RepositoryEventProxyModeSet;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventCacheCreate;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventCacheUpdate;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventRetrieve;
 import org.sonatype.nexus.proxy.events.RepositoryItemValidationEvent;
 import org.sonatype.nexus.proxy.item.AbstractStorageItem;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
 import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
 import org.sonatype.nexus.proxy.item.StorageCollectionItem;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.mirror.DefaultDownloadMirrors;
 import org.sonatype.nexus.proxy.mirror.DownloadMirrorSelector;
@@ -61,12 +69,18 @@ import org.sonatype.nexus.proxy.mirror.DownloadMirrors;
 import org.sonatype.nexus.proxy.repository.EvictUnusedItemsWalkerProcessor.EvictUnusedItemsWalkerFilter;
 import org.sonatype.nexus.proxy.repository.threads.ThreadPoolManager;
 import org.sonatype.nexus.proxy.storage.UnsupportedStorageOperationException;
+import org.sonatype.nexus.proxy.storage.local.fs.HiddenTargetListener;
 import org.sonatype.nexus.proxy.storage.remote.AbstractHTTPRemoteRepositoryStorage;
+import org.sonatype.nexus.proxy.storage.remote.ConditionalRemoteRepositoryStorage;
 import org.sonatype.nexus.proxy.storage.remote.DefaultRemoteStorageContext;
+import org.sonatype.nexus.proxy.storage.remote.RemoteItemNotModifiedException;
 import org.sonatype.nexus.proxy.storage.remote.RemoteRepositoryStorage;
 import org.sonatype.nexus.proxy.storage.remote.RemoteStorageContext;
+import org.sonatype.nexus.proxy.storage.remote.RemoteStorageStatistics;
 import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
+import org.sonatype.nexus.proxy.walker.ConjunctionWalkerFilter;
 import org.sonatype.nexus.proxy.walker.DefaultWalkerContext;
+import org.sonatype.nexus.proxy.walker.PredicatePathWalkerFilter;
 import org.sonatype.nexus.proxy.walker.WalkerException;
 import org.sonatype.nexus.proxy.walker.WalkerFilter;
 import org.sonatype.nexus.util.ConstantNumberSequence;
@@ -74,6 +88,8 @@ import org.sonatype.nexus.util.FibonacciNumberSequence;
 import org.sonatype.nexus.util.NumberSequence;
 import org.sonatype.nexus.util.SystemPropertiesHelper;
 
+import com.google.common.base.Predicates;
+
 /**
  * Adds the proxying capability to a simple repository. The proxying will happen only if reposiory has remote storage!
  * So, this implementation is used in both "simple" repository cases: hosted and proxy, but in 1st case there is no
@@ -104,9 +120,43 @@ public abstract class AbstractProxyRepository
      */
     private static final long AUTO_BLOCK_STATUS_MAX_RETAIN_TIME = 60L * 60L * 1000L;
 
+    /**
+     * Switch to enable "single-flight" downloads: while a remote fetch of an item is in progress, concurrent requesters
+     * of the same item are served with content read as it lands on local storage, instead of having them wait for the
+     * download to finish. See {@link SingleFlightDownload}.
+     *
+     * @since 2.4
+     */
+    private static final boolean SINGLE_FLIGHT_DOWNLOADS = SystemPropertiesHelper.getBoolean(
+        AbstractProxyRepository.class.getName() + ".singleFlightDownloads", false );
+
+    /**
+     * Switch to enable conditional revalidation of old items: if remote storage supports it, and the validators of the
+     * remote item were recorded when it was cached, a single conditional GET replaces the existence check followed by
+     * a GET. See {@link ConditionalRemoteRepositoryStorage}.
+     *
+     * @since 2.4
+     */
+    private static final boolean CONDITIONAL_REVALIDATION = SystemPropertiesHelper.getBoolean(
+        AbstractProxyRepository.class.getName() + ".conditionalRevalidation", true );
+
+    /**
+     * Switch to narrow the eviction walk down to the items that a bulk scan of attribute storage (if it supports it)
+     * found not requested since eviction timestamp, and to their parents. Items whose attributes are not in the
+     * scannable storage are not evicted, so this should be enabled only once all attributes were transitioned to it
+     * (ie. by rebuilding attributes).
+     *
+     * @since 2.4
+     */
+    private static final boolean EVICT_USING_ATTRIBUTE_SCAN = SystemPropertiesHelper.getBoolean(
+        AbstractProxyRepository.class.getName() + ".evictUsingAttributeScan", false );
+
     @Requirement
     private ThreadPoolManager poolManager;
 
+    @Requirement
+    private RemoteStorageStatistics remoteStorageStatistics;
+
     /**
      * The remote status checker thread, used in Proxies for handling autoBlocking. Not to go into Pool above, is
      * handled separately.
@@ -159,6 +209,12 @@ public abstract class AbstractProxyRepository
      */
     private Map<String, ItemContentValidator> itemContentValidators;
 
+    /**
+     * Remote fetches in progress, keyed by request path, used with single-flight downloads only.
+     */
+    private final ConcurrentMap<String, SingleFlightDownload> singleFlightDownloads =
+        new ConcurrentHashMap<String, SingleFlightDownload>();
+
     @Override
     protected AbstractProxyRepositoryConfiguration getExternalConfiguration( boolean forModification )
     {
@@ -341,7 +397,27 @@ public abstract class AbstractProxyRepository
 
         request.setRequestLocalOnly( true );
 
-        DefaultWalkerContext ctx = new DefaultWalkerContext( this, request, filter );
+        WalkerFilter effectiveFilter = filter;
+
+        if ( EVICT_USING_ATTRIBUTE_SCAN )
+        {
+            final Set<String> candidatePaths = scanEvictionCandidatePaths( request.getRequestPath(), timestamp );
+
+            if ( candidatePaths != null )
+            {
+                if ( candidatePaths.isEmpty() )
+                {
+                    return processor.getFiles();
+                }
+
+                effectiveFilter =
+                    new ConjunctionWalkerFilter( filter, new PredicatePathWalkerFilter(
+                        PredicatePathWalkerFilter.ITEM_PATH_EXTRACTOR, Predicates.in( candidatePaths ),
+                        Predicates.in( candidatePaths ) ) );
+            }
+        }
+
+        DefaultWalkerContext ctx = new DefaultWalkerContext( this, request, effectiveFilter );
 
         ctx.getProcessors().add( processor );
 
@@ -363,6 +439,65 @@ public abstract class AbstractProxyRepository
         return processor.getFiles();
     }
 
+    /**
+     * Returns the paths of items under path that were not requested since timestamp according to a bulk scan of
+     * attribute storage, with all their parents, or {@code null} if attribute storage cannot be scanned.
+     */
+    protected Set<String> scanEvictionCandidatePaths( final String path, final long timestamp )
+    {
+        final ScannableAttributeStorage attributeStorage = getAttributesHandler().getScannableAttributeStorage();
+
+        if ( attributeStorage == null )
+        {
+            return null;
+        }
+
+        final String prefix =
+            path.endsWith( RepositoryItemUid.PATH_SEPARATOR ) ? path : path + RepositoryItemUid.PATH_SEPARATOR;
+
+        final Set<String> result = new HashSet<String>();
+
+        try
+        {
+            attributeStorage.scanAttributes( this, new ScannableAttributeStorage.Visitor()
+            {
+                @Override
+                public boolean visit( final Attributes attributes )
+                {
+                    String itemPath = attributes.getPath();
+
+                    if ( attributes.getLastRequested() < timestamp
+                        && ( itemPath.equals( path ) || itemPath.startsWith( prefix ) ) )
+                    {
+                        // parents of a path already added were added too
+                        while ( result.add( itemPath ) && itemPath.length() > 1 )
+                        {
+                            final int lastSeparator = itemPath.lastIndexOf( RepositoryItemUid.PATH_SEPARATOR );
+
+                            itemPath =
+                                lastSeparator > 0 ? itemPath.substring( 0, lastSeparator )
+                                    : RepositoryItemUid.PATH_ROOT;
+                        }
+                    }
+
+                    return true;
+                }
+            } );
+        }
+        catch ( IOException e )
+        {
+            getLogger().warn(
+                "Could not scan attributes of proxy repository " + RepositoryStringUtils.getHumanizedNameString( this )
+                    + ", evicting by walking it.", e );
+
+            return null;
+        }
+
+        getLogger().debug( "Attribute scan found {} eviction candidate paths.", result.size() );
+
+        return result;
+    }
+
     public Map<String, ItemContentValidator> getItemContentValidators()
     {
         if ( itemContentValidators == null )
@@ -1055,6 +1190,45 @@ public abstract class AbstractProxyRepository
         return result;
     }
 
+    /**
+     * Beside original behavior, when single-flight downloads are enabled, attaches to remote fetch of the requested
+     * item if one is in progress, instead of blocking on the UID lock held by the fetching thread.
+     *
+     * @since 2.4
+     */
+    @Override
+    public StorageItem retrieveItem( boolean fromTask, ResourceStoreRequest request )
+        throws IllegalOperationException, ItemNotFoundException, StorageException
+    {
+        if ( SINGLE_FLIGHT_DOWNLOADS && !request.isRequestLocalOnly() && getLocalStatus().shouldServiceRequest() )
+        {
+            final SingleFlightDownload download = singleFlightDownloads.get( request.getRequestPath() );
+
+            if ( download != null )
+            {
+                final StorageItem item = download.attach( this, request );
+
+                if ( item != null )
+                {
+                    if ( getLogger().isDebugEnabled() )
+                    {
+                        getLogger().debug(
+                            getId() + " retrieveItem() :: ATTACHED to remote fetch in progress of "
+                                + item.getRepositoryItemUid().toString() );
+                    }
+
+                    request.addProcessedRepository( this );
+
+                    eventBus().post( new RepositoryItemEventRetrieve( this, item ) );
+
+                    return item;
+                }
+            }
+        }
+
+        return super.retrieveItem( fromTask, request );
+    }
+
     @Override
     protected StorageItem doRetrieveItem( ResourceStoreRequest request )
         throws IllegalOperationException, ItemNotFoundException, StorageException
@@ -1206,7 +1380,24 @@ public abstract class AbstractProxyRepository
                 {
                     boolean shouldGetRemote = false;
 
-                    if ( localItem != null )
+                    // the local item to revalidate with conditional GET, if applicable
+                    StorageItem revalidatedItem = null;
+
+                    if ( localItem != null && isConditionallyRevalidated( localItem ) )
+                    {
+                        if ( getLogger().isDebugEnabled() )
+                        {
+                            getLogger().debug(
+                                "Item " + request.toString() + " is old, revalidating it with conditional GET: "
+                                    + new Date( localItem.getModified() ) );
+                        }
+
+                        // the conditional GET below checks and retrieves in single round trip
+                        revalidatedItem = localItem;
+
+                        shouldGetRemote = true;
+                    }
+                    else if ( localItem != null )
                     {
                         if ( getLogger().isDebugEnabled() )
                         {
@@ -1274,16 +1465,40 @@ public abstract class AbstractProxyRepository
 
                     if ( shouldGetRemote )
                     {
-                        // this will GET it unconditionally
+                        // this will GET it unconditionally, or conditionally when revalidating
                         try
                         {
-                            remoteItem = doRetrieveRemoteItem( request );
+                            remoteItem = doRetrieveRemoteItem( request, revalidatedItem );
 
                             if ( getLogger().isDebugEnabled() )
                             {
                                 getLogger().debug( "Item " + request.toString() + " found in remote storage." );
                             }
                         }
+                        catch ( RemoteItemNotModifiedException ex )
+                        {
+                            remoteItem = null;
+
+                            markItemRevalidated( localItem );
+
+                            if ( getLogger().isDebugEnabled() )
+                            {
+                                getLogger().debug(
+                                    "No newer version of item " + request.toString() + " found on remote storage." );
+                            }
+                        }
+                        catch ( ItemNotFoundException ex )
+                        {
+                            if ( revalidatedItem == null )
+                            {
+                                throw ex;
+                            }
+
+                            // just like existence check would do: no newer version found, keep serving local one
+                            remoteItem = null;
+
+                            markItemRevalidated( localItem );
+                        }
                         catch ( StorageException ex )
                         {
                             if ( ex instanceof RemoteStorageException
@@ -1419,6 +1634,19 @@ public abstract class AbstractProxyRepository
         getAttributesHandler().touchItemCheckedRemotely( System.currentTimeMillis(), item );
     }
 
+    private void markItemRevalidated( final StorageItem item )
+    {
+        try
+        {
+            markItemRemotelyChecked( item );
+        }
+        catch ( Exception e )
+        {
+            // do not fail, it will be just revalidated again
+            getLogger().debug( "Could not mark item " + item.getRepositoryItemUid() + " as remotely checked", e );
+        }
+    }
+
     /**
      * Validates integrity of content of <code>item</code>. Retruns <code>true</code> if item content is valid and
      * <code>false</code> if item content is corrupted. Note that this method is called doRetrieveRemoteItem, so
@@ -1462,6 +1690,26 @@ public abstract class AbstractProxyRepository
         return isValid;
     }
 
+    /**
+     * Returns {@code true} if the old local item should be revalidated with a conditional GET: the remote storage
+     * supports it, and the item carries validators recorded when it was cached.
+     *
+     * @since 2.4
+     */
+    protected boolean isConditionallyRevalidated( final StorageItem localItem )
+    {
+        if ( !CONDITIONAL_REVALIDATION || !( localItem instanceof StorageFileItem )
+            || !( getRemoteStorage() instanceof ConditionalRemoteRepositoryStorage ) )
+        {
+            return false;
+        }
+
+        final Attributes attributes = localItem.getRepositoryItemAttributes();
+
+        return attributes.containsKey( ConditionalRemoteRepositoryStorage.REMOTE_ETAG_KEY )
+            || attributes.containsKey( ConditionalRemoteRepositoryStorage.REMOTE_LAST_MODIFIED_KEY );
+    }
+
     /**
      * Checks for remote existence of local item.
      *
@@ -1511,6 +1759,20 @@ public abstract class AbstractProxyRepository
      */
     protected AbstractStorageItem doRetrieveRemoteItem( ResourceStoreRequest request )
         throws ItemNotFoundException, RemoteAccessException, StorageException
+    {
+        return doRetrieveRemoteItem( request, null );
+    }
+
+    /**
+     * Retrieves item just like {@link #doRetrieveRemoteItem(ResourceStoreRequest)} does, but if a locally cached item
+     * to revalidate is passed in, it is retrieved conditionally, only if modified on remote storage (see
+     * {@link ConditionalRemoteRepositoryStorage}). In that case, when not modified,
+     * {@link RemoteItemNotModifiedException} is thrown, and the local item is never deleted on failures.
+     *
+     * @since 2.4
+     */
+    protected AbstractStorageItem doRetrieveRemoteItem( ResourceStoreRequest request, StorageItem revalidatedItem )
+        throws ItemNotFoundException, RemoteAccessException, StorageException
     {
         final RepositoryItemUid itemUid = createUid( request.getRequestPath() );
 
@@ -1535,10 +1797,18 @@ public abstract class AbstractProxyRepository
 
             Exception lastException = null;
 
+            Mirror previousMirror = null;
+
             try
             {
                 all_urls: for ( Mirror mirror : mirrors )
                 {
+                    if ( previousMirror != null )
+                    {
+                        recordRemoteFailover( previousMirror );
+                    }
+                    previousMirror = mirror;
+
                     int retryCount = 1;
 
                     if ( getRemoteStorageContext() != null )
@@ -1571,28 +1841,50 @@ public abstract class AbstractProxyRepository
 
                     for ( int i = 0; i < retryCount; i++ )
                     {
+                        if ( i > 0 )
+                        {
+                            recordRemoteRetry( mirror );
+                        }
+
                         try
                         {
                             // events.clear();
 
                             AbstractStorageItem remoteItem =
-                                getRemoteStorage().retrieveItem( this, request, mirror.getUrl() );
+                                revalidatedItem != null
+                                    ? ( (ConditionalRemoteRepositoryStorage) getRemoteStorage() ).retrieveItemIfModified(
+                                        this, request, mirror.getUrl(), revalidatedItem )
+                                    : getRemoteStorage().retrieveItem( this, request, mirror.getUrl() );
 
                             remoteItem.getItemContext().putAll( request.getRequestContext() );
 
-                            remoteItem = doCacheItem( remoteItem );
+                            final SingleFlightDownload download = beginSingleFlightDownload( request, remoteItem );
 
-                            if ( doValidateRemoteItemContent( request, mirror.getUrl(), remoteItem, events ) )
+                            try
                             {
-                                sendContentValidationEvents( request, events, true );
+                                remoteItem = doCacheItem( remoteItem );
+
+                                if ( doValidateRemoteItemContent( request, mirror.getUrl(), remoteItem, events ) )
+                                {
+                                    sendContentValidationEvents( request, events, true );
 
-                                selector.feedbackSuccess( mirror );
+                                    selector.feedbackSuccess( mirror );
 
-                                return remoteItem;
+                                    if ( download != null )
+                                    {
+                                        download.succeeded();
+                                    }
+
+                                    return remoteItem;
+                                }
+                                else
+                                {
+                                    continue all_urls; // retry with next url
+                                }
                             }
-                            else
+                            finally
                             {
-                                continue all_urls; // retry with next url
+                                endSingleFlightDownload( request, download, remoteItem );
                             }
                         }
                         catch ( ItemNotFoundException e )
@@ -1610,6 +1902,11 @@ public abstract class AbstractProxyRepository
 
                             continue all_urls; // retry with next url
                         }
+                        catch ( RemoteItemNotModifiedException e )
+                        {
+                            // not an error, the cached item is still valid
+                            throw e;
+                        }
                         catch ( RemoteStorageException e )
                         {
                             // in case when we were unable to make outbound request
@@ -1705,17 +2002,22 @@ public abstract class AbstractProxyRepository
 
             sendContentValidationEvents( request, events, false );
 
-            try
-            {
-                getLocalStorage().deleteItem( this, request );
-            }
-            catch ( ItemNotFoundException e )
+            // when revalidating, the local item is still served, keep it
+            if ( revalidatedItem == null )
             {
-                // good, we want this item deleted
-            }
-            catch ( UnsupportedStorageOperationException e )
-            {
-                getLogger().warn( "Unexpected Exception in " + RepositoryStringUtils.getHumanizedNameString( this ), e );
+                try
+                {
+                    getLocalStorage().deleteItem( this, request );
+                }
+                catch ( ItemNotFoundException e )
+                {
+                    // good, we want this item deleted
+                }
+                catch ( UnsupportedStorageOperationException e )
+                {
+                    getLogger().warn( "Unexpected Exception in " + RepositoryStringUtils.getHumanizedNameString( this ),
+                        e );
+                }
             }
 
             if ( lastException instanceof StorageException )
@@ -1736,6 +2038,64 @@ public abstract class AbstractProxyRepository
         }
     }
 
+    /**
+     * Registers a single-flight download for passed in remote item, if enabled and applicable.
+     *
+     * @return the registered download, or {@code null} if none registered.
+     */
+    private SingleFlightDownload beginSingleFlightDownload( final ResourceStoreRequest request,
+                                                            final AbstractStorageItem remoteItem )
+    {
+        if ( !SINGLE_FLIGHT_DOWNLOADS || !( remoteItem instanceof StorageFileItem ) )
+        {
+            return null;
+        }
+
+        final StorageFileItem remoteFileItem = (StorageFileItem) remoteItem;
+
+        final SingleFlightDownload download = new SingleFlightDownload( remoteFileItem );
+
+        if ( singleFlightDownloads.putIfAbsent( request.getRequestPath(), download ) != null )
+        {
+            // should not happen, as we hold exclusive lock on UID
+            return null;
+        }
+
+        remoteFileItem.setContentLocator( download.wrap( remoteFileItem.getContentLocator() ) );
+
+        remoteItem.getItemContext().put( HiddenTargetListener.CONTEXT_KEY, download );
+
+        return download;
+    }
+
+    /**
+     * Unregisters the single-flight download, marking it as failed if it was not marked as succeeded before.
+     */
+    private void endSingleFlightDownload( final ResourceStoreRequest request, final SingleFlightDownload download,
+                                          final AbstractStorageItem item )
+    {
+        if ( download != null )
+        {
+            download.failed( "Remote fetch of " + request.toString() + " from "
+                + RepositoryStringUtils.getHumanizedNameString( this ) + " did not complete" );
+
+            singleFlightDownloads.remove( request.getRequestPath(), download );
+
+            // do not let the listener "leak" into item got from cache
+            item.getItemContext().remove( HiddenTargetListener.CONTEXT_KEY );
+        }
+    }
+
+    private void recordRemoteRetry( final Mirror mirror )
+    {
+        remoteStorageStatistics.recordRetry( getId(), mirror.getUrl() );
+    }
+
+    private void recordRemoteFailover( final Mirror mirror )
+    {
+        remoteStorageStatistics.recordFailover( getId(), mirror.getUrl() );
+    }
+
     private void logFailedMirror( Mirror mirror, Exception e )
     {
         if ( getLogger().isDebugEnabled() )
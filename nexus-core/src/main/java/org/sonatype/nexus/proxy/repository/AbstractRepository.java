@@ -12,11 +12,14 @@
  */
 package org.sonatype.nexus.proxy.repository;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.codehaus.plexus.component.annotations.Requirement;
@@ -42,7 +45,9 @@ import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.StorageException;
 import org.sonatype.nexus.proxy.access.AccessManager;
 import org.sonatype.nexus.proxy.access.Action;
+import org.sonatype.nexus.proxy.attributes.Attributes;
 import org.sonatype.nexus.proxy.attributes.AttributesHandler;
+import org.sonatype.nexus.proxy.attributes.inspectors.DigestCalculatingInspector;
 import org.sonatype.nexus.proxy.cache.CacheManager;
 import org.sonatype.nexus.proxy.cache.PathCache;
 import org.sonatype.nexus.proxy.events.RepositoryConfigurationUpdatedEvent;
@@ -60,6 +65,7 @@ import org.sonatype.nexus.proxy.item.ContentLocator;
 import org.sonatype.nexus.proxy.item.DefaultStorageCollectionItem;
 import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
 import org.sonatype.nexus.proxy.item.DefaultStorageNotFoundItem;
+import org.sonatype.nexus.proxy.item.FileContentLocator;
 import org.sonatype.nexus.proxy.item.PreparedContentLocator;
 import org.sonatype.nexus.proxy.item.ReadLockingContentLocator;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
@@ -929,11 +935,37 @@ public abstract class AbstractRepository
             {
                 try
                 {
-                    DefaultStorageFileItem target =
-                        new DefaultStorageFileItem( this, to, true, true, new PreparedContentLocator(
-                            ( (StorageFileItem) item ).getInputStream(), ( (StorageFileItem) item ).getMimeType() ) );
+                    final StorageFileItem source = (StorageFileItem) item;
+                    final DefaultStorageFileItem target;
 
-                    target.getItemContext().putAll( item.getItemContext() );
+                    // we hold the read lock of source already
+                    ContentLocator sourceContent = source.getContentLocator();
+                    if ( sourceContent instanceof ReadLockingContentLocator )
+                    {
+                        sourceContent = ( (ReadLockingContentLocator) sourceContent ).getWrappedLocator();
+                    }
+
+                    if ( sourceContent instanceof FileContentLocator && sourceContent.isReusable() )
+                    {
+                        // plain file: let local storage transfer it, and reuse it's known digests if still valid
+                        final File sourceFile = ( (FileContentLocator) sourceContent ).getFile();
+
+                        target =
+                            new DefaultStorageFileItem( this, to, true, true, new FileContentLocator( sourceFile,
+                                source.getMimeType() ) );
+
+                        target.getItemContext().putAll( item.getItemContext() );
+
+                        copyDigests( source, sourceFile, target );
+                    }
+                    else
+                    {
+                        target =
+                            new DefaultStorageFileItem( this, to, true, true, new PreparedContentLocator(
+                                source.getInputStream(), source.getMimeType() ) );
+
+                        target.getItemContext().putAll( item.getItemContext() );
+                    }
 
                     storeItem( fromTask, target );
 
@@ -954,6 +986,47 @@ public abstract class AbstractRepository
         }
     }
 
+    /**
+     * Puts the stored digests of source item into target's item context, as they would be calculated while storing it
+     * otherwise. Digests are copied only if source has them all, and the length and modification time stored with
+     * them match the source file (times compared in whole seconds, as not all file systems keep milliseconds).
+     * Otherwise, the file might have been changed behind our back, and target digests are calculated while storing it.
+     */
+    private void copyDigests( final StorageFileItem source, final File sourceFile, final StorageFileItem target )
+        throws IOException
+    {
+        final Attributes stored =
+            source.getRepositoryItemUid().getRepository().getAttributesHandler().getAttributeStorage().getAttributes(
+                source.getRepositoryItemUid() );
+
+        if ( stored == null || stored.getLength() != sourceFile.length()
+            || stored.getModified() / 1000 != sourceFile.lastModified() / 1000 )
+        {
+            return;
+        }
+
+        final List<String> keys = new ArrayList<String>( 3 );
+        keys.add( StorageFileItem.DIGEST_SHA1_KEY );
+        keys.add( StorageFileItem.DIGEST_MD5_KEY );
+        if ( DigestCalculatingInspector.DIGEST_SHA256_ENABLED )
+        {
+            keys.add( StorageFileItem.DIGEST_SHA256_KEY );
+        }
+
+        for ( String key : keys )
+        {
+            if ( stored.get( key ) == null )
+            {
+                return;
+            }
+        }
+
+        for ( String key : keys )
+        {
+            target.getItemContext().put( key, stored.get( key ) );
+        }
+    }
+
     public void moveItem( boolean fromTask, ResourceStoreRequest from, ResourceStoreRequest to )
         throws UnsupportedStorageOperationException, IllegalOperationException, ItemNotFoundException, StorageException
     {
@@ -0,0 +1,170 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of item retrievals a group repository performed against it's members, keyed by member repository ID.
+ * Kept in memory only, and reset on Nexus restart.
+ *
+ * @since 2.4
+ */
+public class GroupMemberStatistics
+{
+    private final ConcurrentMap<String, MemberStatistics> members =
+        new ConcurrentHashMap<String, MemberStatistics>();
+
+    /**
+     * Returns the statistics of given member, never {@code null}.
+     */
+    public MemberStatistics getMemberStatistics( final String repositoryId )
+    {
+        MemberStatistics result = members.get( repositoryId );
+
+        if ( result == null )
+        {
+            final MemberStatistics created = new MemberStatistics( repositoryId );
+
+            result = members.putIfAbsent( repositoryId, created );
+
+            if ( result == null )
+            {
+                result = created;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Drops statistics of given member, used when member is removed from group.
+     */
+    public void removeMemberStatistics( final String repositoryId )
+    {
+        members.remove( repositoryId );
+    }
+
+    public void reset()
+    {
+        members.clear();
+    }
+
+    // ==
+
+    /**
+     * Statistics of one member. Latency is recorded for every completed retrieval (hits, misses and failures alike),
+     * as that is the time a group request spends waiting for the member.
+     */
+    public static class MemberStatistics
+    {
+        private final String repositoryId;
+
+        private final AtomicLong hits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        private final AtomicLong failures = new AtomicLong();
+
+        private final AtomicLong hedges = new AtomicLong();
+
+        private final AtomicLong discards = new AtomicLong();
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        MemberStatistics( final String repositoryId )
+        {
+            this.repositoryId = repositoryId;
+        }
+
+        public String getRepositoryId()
+        {
+            return repositoryId;
+        }
+
+        /**
+         * Number of retrievals that found the item.
+         */
+        public long getHits()
+        {
+            return hits.get();
+        }
+
+        /**
+         * Number of retrievals that did not found the item.
+         */
+        public long getMisses()
+        {
+            return misses.get();
+        }
+
+        /**
+         * Number of retrievals that failed for other reason than item not found (ie. member out of service).
+         */
+        public long getFailures()
+        {
+            return failures.get();
+        }
+
+        /**
+         * Number of retrievals started ahead of time, as hedge against slow response of preceding member.
+         */
+        public long getHedges()
+        {
+            return hedges.get();
+        }
+
+        /**
+         * Number of retrievals started but not used, as a preceding member served the item.
+         */
+        public long getDiscards()
+        {
+            return discards.get();
+        }
+
+        public LatencyHistogram getLatency()
+        {
+            return latency;
+        }
+
+        void hit( final long millis )
+        {
+            hits.incrementAndGet();
+            latency.record( millis );
+        }
+
+        void miss( final long millis )
+        {
+            misses.incrementAndGet();
+            latency.record( millis );
+        }
+
+        void failure( final long millis )
+        {
+            failures.incrementAndGet();
+            latency.record( millis );
+        }
+
+        void hedged()
+        {
+            hedges.incrementAndGet();
+        }
+
+        void discarded()
+        {
+            discards.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,491 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.sonatype.nexus.proxy.AccessDeniedException;
+import org.sonatype.nexus.proxy.IllegalOperationException;
+import org.sonatype.nexus.proxy.ItemNotFoundException;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.StorageException;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.repository.GroupMemberStatistics.MemberStatistics;
+import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Retrieves an item from group members using "hedged" requests, while keeping the group ordering semantics: the item
+ * of the first member (in group order) having it is returned, as with sequential processing.
+ * <p>
+ * First, local storages of all members are probed in parallel. Then members are processed in order, but if a member
+ * does not respond within the configured percentile of it's own past latencies, retrieval from the next member is
+ * started too (hedged), so that it's response is (hopefully) ready by the time preceding member misses. Members known
+ * to have the item in local storage are not hedged against, and first of them is started right away. Retrievals of
+ * members following the one that served the item are not waited for, they are left to complete in background.
+ * <p>
+ * The executor is expected to be bounded and to reject tasks when full. Rejected probes and hedges are simply skipped
+ * (hedging stops for the rest of the retrieval), while a rejected retrieval of the processed member runs in the caller
+ * thread, as with sequential processing.
+ *
+ * @since 2.4
+ */
+class HedgedGroupItemRetriever
+{
+    private final Logger logger;
+
+    private final ExecutorService executor;
+
+    private final GroupMemberStatistics statistics;
+
+    private final double hedgePercentile;
+
+    private final long minimumHedgeDelayMillis;
+
+    private final long maximumHedgeDelayMillis;
+
+    private final int maximumHedges;
+
+    HedgedGroupItemRetriever( final Logger logger, final ExecutorService executor,
+                              final GroupMemberStatistics statistics, final double hedgePercentile,
+                              final long minimumHedgeDelayMillis, final long maximumHedgeDelayMillis,
+                              final int maximumHedges )
+    {
+        Preconditions.checkArgument( hedgePercentile > 0 && hedgePercentile <= 100,
+            "Hedge percentile must be in range (0, 100]" );
+        Preconditions.checkArgument( minimumHedgeDelayMillis >= 0 && minimumHedgeDelayMillis <= maximumHedgeDelayMillis,
+            "Hedge delays must satisfy 0 <= minimum <= maximum" );
+        Preconditions.checkArgument( maximumHedges >= 0, "Maximum hedges must not be negative" );
+
+        this.logger = Preconditions.checkNotNull( logger );
+        this.executor = Preconditions.checkNotNull( executor );
+        this.statistics = Preconditions.checkNotNull( statistics );
+        this.hedgePercentile = hedgePercentile;
+        this.minimumHedgeDelayMillis = minimumHedgeDelayMillis;
+        this.maximumHedgeDelayMillis = maximumHedgeDelayMillis;
+        this.maximumHedges = maximumHedges;
+    }
+
+    /**
+     * Retrieves the item from first member having it, or returns {@code null} if none of the members have it.
+     * Exceptions of processed members are recorded into memberThrowables. Each member is given it's own copy of the
+     * request, and the state it recorded (processed repositories, including nested group members, and applied
+     * mappings) is merged back into the request in group order, as if members were processed sequentially using the
+     * same request.
+     */
+    StorageItem retrieveItem( final ResourceStoreRequest request, final List<Repository> members,
+                              final Map<Repository, Throwable> memberThrowables )
+        throws StorageException
+    {
+        final int size = members.size();
+
+        final List<Future<StorageItem>> futures = new ArrayList<Future<StorageItem>>( size );
+
+        final ResourceStoreRequest[] memberRequests = new ResourceStoreRequest[size];
+
+        final long[] startedAt = new long[size];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            futures.add( null );
+        }
+
+        int processed = 0;
+
+        boolean hedging = true;
+
+        try
+        {
+            final boolean[] local = probeLocalStorages( request, members );
+
+            for ( int i = 1; i < size; i++ )
+            {
+                if ( local[i] )
+                {
+                    start( request, members, futures, memberRequests, startedAt, i, false );
+                    break;
+                }
+            }
+
+            for ( ; processed < size; processed++ )
+            {
+                final Repository member = members.get( processed );
+
+                if ( futures.get( processed ) == null )
+                {
+                    start( request, members, futures, memberRequests, startedAt, processed, true );
+                }
+
+                while ( true )
+                {
+                    final long waitNanos =
+                        hedging ? getHedgeWaitNanos( members, futures, startedAt, local, processed ) : -1;
+
+                    try
+                    {
+                        final StorageItem item =
+                            waitNanos < 0 ? futures.get( processed ).get() : futures.get( processed ).get(
+                                waitNanos, TimeUnit.NANOSECONDS );
+
+                        request.mergeProcessingState( memberRequests[processed] );
+
+                        return item;
+                    }
+                    catch ( TimeoutException e )
+                    {
+                        hedging = hedge( request, members, futures, memberRequests, startedAt, processed );
+                    }
+                    catch ( ExecutionException e )
+                    {
+                        request.mergeProcessingState( memberRequests[processed] );
+
+                        handleMemberException( member, e.getCause(), memberThrowables );
+
+                        break;
+                    }
+                }
+            }
+
+            return null;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new StorageException( "Interrupted while retrieving " + request.getRequestPath()
+                + " from group members", e );
+        }
+        finally
+        {
+            // members following the processed one: give up on them
+            for ( int i = processed + 1; i < size; i++ )
+            {
+                final Future<StorageItem> future = futures.get( i );
+
+                if ( future != null )
+                {
+                    // no interruption, as it would break the caching of item being fetched
+                    future.cancel( false );
+
+                    statistics.getMemberStatistics( members.get( i ).getId() ).discarded();
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves item from member, recording the outcome into statistics.
+     */
+    static StorageItem retrieveItem( final GroupMemberStatistics statistics, final Repository member,
+                                     final ResourceStoreRequest request )
+        throws ItemNotFoundException, IllegalOperationException, StorageException, AccessDeniedException
+    {
+        final MemberStatistics memberStatistics = statistics.getMemberStatistics( member.getId() );
+
+        final long started = System.nanoTime();
+
+        try
+        {
+            final StorageItem result = member.retrieveItem( request );
+
+            memberStatistics.hit( elapsedMillis( started ) );
+
+            return result;
+        }
+        catch ( ItemNotFoundException e )
+        {
+            memberStatistics.miss( elapsedMillis( started ) );
+
+            throw e;
+        }
+        catch ( IllegalOperationException e )
+        {
+            memberStatistics.failure( elapsedMillis( started ) );
+
+            throw e;
+        }
+        catch ( StorageException e )
+        {
+            memberStatistics.failure( elapsedMillis( started ) );
+
+            throw e;
+        }
+        catch ( AccessDeniedException e )
+        {
+            memberStatistics.failure( elapsedMillis( started ) );
+
+            throw e;
+        }
+        catch ( RuntimeException e )
+        {
+            memberStatistics.failure( elapsedMillis( started ) );
+
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the hedge delay of member: the configured percentile of it's latencies, clamped to configured bounds.
+     * Members without recorded latencies get maximum delay.
+     */
+    long getHedgeDelayMillis( final Repository member )
+    {
+        final long percentile = statistics.getMemberStatistics( member.getId() ).getLatency().getPercentile(
+            hedgePercentile );
+
+        if ( percentile < 0 )
+        {
+            return maximumHedgeDelayMillis;
+        }
+
+        return Math.max( minimumHedgeDelayMillis, Math.min( maximumHedgeDelayMillis, percentile ) );
+    }
+
+    // ==
+
+    /**
+     * Probes local storages of members (except the first one, that is started anyway) in parallel.
+     */
+    private boolean[] probeLocalStorages( final ResourceStoreRequest request, final List<Repository> members )
+        throws InterruptedException
+    {
+        final boolean[] result = new boolean[members.size()];
+
+        final List<Future<Boolean>> probes = new ArrayList<Future<Boolean>>( members.size() );
+
+        for ( int i = 1; i < members.size(); i++ )
+        {
+            final Repository member = members.get( i );
+
+            final FutureTask<Boolean> probe = new FutureTask<Boolean>( new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    try
+                    {
+                        return member.getLocalStatus().shouldServiceRequest()
+                            && member.getLocalStorage().containsItem( member, new ResourceStoreRequest( request ) );
+                    }
+                    catch ( Exception e )
+                    {
+                        // just a hint, member will be processed anyway
+                        return Boolean.FALSE;
+                    }
+                }
+            } );
+
+            try
+            {
+                executor.execute( probe );
+
+                probes.add( probe );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // pool is full, skip the probe
+                probes.add( null );
+            }
+        }
+
+        for ( int i = 1; i < members.size(); i++ )
+        {
+            final Future<Boolean> probe = probes.get( i - 1 );
+
+            try
+            {
+                result[i] = probe != null && probe.get();
+            }
+            catch ( ExecutionException e )
+            {
+                // cannot happen, callable catches all
+                result[i] = false;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Starts retrieval from member using a copy of the request, as members running in parallel cannot share it. The
+     * copy carries the state recorded in request so far, same as the one sequential processing would pass in. Returns
+     * {@code false} if the executor rejected the retrieval, unless it is mandatory, in which case it is performed in
+     * the caller thread.
+     */
+    private boolean start( final ResourceStoreRequest request, final List<Repository> members,
+                           final List<Future<StorageItem>> futures, final ResourceStoreRequest[] memberRequests,
+                           final long[] startedAt, final int index, final boolean mandatory )
+    {
+        final Repository member = members.get( index );
+
+        final ResourceStoreRequest memberRequest = new ResourceStoreRequest( request );
+        memberRequest.setRequestLocalOnly( request.isRequestLocalOnly() );
+        memberRequest.setRequestRemoteOnly( request.isRequestRemoteOnly() );
+        memberRequest.mergeProcessingState( request );
+
+        final FutureTask<StorageItem> task = new FutureTask<StorageItem>( new Callable<StorageItem>()
+        {
+            @Override
+            public StorageItem call()
+                throws Exception
+            {
+                return retrieveItem( statistics, member, memberRequest );
+            }
+        } );
+
+        startedAt[index] = System.nanoTime();
+
+        try
+        {
+            executor.execute( task );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            if ( !mandatory )
+            {
+                return false;
+            }
+
+            // pool is full, process member in this thread as sequential processing would
+            task.run();
+        }
+
+        memberRequests[index] = memberRequest;
+
+        futures.set( index, task );
+
+        return true;
+    }
+
+    /**
+     * Starts retrieval from the first unstarted member following the processed one. Returns {@code false} if hedging
+     * should stop, as the executor rejected the retrieval.
+     */
+    private boolean hedge( final ResourceStoreRequest request, final List<Repository> members,
+                           final List<Future<StorageItem>> futures, final ResourceStoreRequest[] memberRequests,
+                           final long[] startedAt, final int processed )
+    {
+        for ( int i = processed + 1; i < members.size(); i++ )
+        {
+            if ( futures.get( i ) == null )
+            {
+                if ( logger.isDebugEnabled() )
+                {
+                    logger.debug( "Hedging slow retrieval of {} from {} with retrieval from {}",
+                        new Object[] { request.getRequestPath(),
+                            RepositoryStringUtils.getHumanizedNameString( members.get( processed ) ),
+                            RepositoryStringUtils.getHumanizedNameString( members.get( i ) ) } );
+                }
+
+                if ( !start( request, members, futures, memberRequests, startedAt, i, false ) )
+                {
+                    logger.debug( "Hedging thread pool is full, not hedging retrieval of {}",
+                        request.getRequestPath() );
+
+                    return false;
+                }
+
+                statistics.getMemberStatistics( members.get( i ).getId() ).hedged();
+
+                return true;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the time to wait for the processed member before hedging, or {@code -1} if no hedging should happen.
+     * Delay is measured from start of the most recently started remote retrieval.
+     */
+    private long getHedgeWaitNanos( final List<Repository> members, final List<Future<StorageItem>> futures,
+                                    final long[] startedAt, final boolean[] local, final int processed )
+    {
+        if ( local[processed] )
+        {
+            return -1;
+        }
+
+        int latest = processed;
+
+        int inFlight = 0;
+
+        boolean hasUnstarted = false;
+
+        for ( int i = processed + 1; i < members.size(); i++ )
+        {
+            final Future<StorageItem> future = futures.get( i );
+
+            if ( future == null )
+            {
+                hasUnstarted = true;
+            }
+            else if ( !local[i] )
+            {
+                if ( !future.isDone() )
+                {
+                    inFlight++;
+                }
+
+                if ( startedAt[i] - startedAt[latest] > 0 )
+                {
+                    latest = i;
+                }
+            }
+        }
+
+        if ( !hasUnstarted || inFlight >= maximumHedges )
+        {
+            return -1;
+        }
+
+        final long remaining =
+            startedAt[latest] + TimeUnit.MILLISECONDS.toNanos( getHedgeDelayMillis( members.get( latest ) ) )
+                - System.nanoTime();
+
+        return Math.max( 0, remaining );
+    }
+
+    private void handleMemberException( final Repository member, final Throwable cause,
+                                        final Map<Repository, Throwable> memberThrowables )
+    {
+        if ( cause instanceof RuntimeException )
+        {
+            throw (RuntimeException) cause;
+        }
+        else if ( cause instanceof Error )
+        {
+            throw (Error) cause;
+        }
+
+        // ignored, but bookkeeping happens now
+        memberThrowables.put( member, cause );
+    }
+
+    private static long elapsedMillis( final long startedNanos )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startedNanos );
+    }
+}
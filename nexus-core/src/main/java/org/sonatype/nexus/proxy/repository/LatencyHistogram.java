@@ -0,0 +1,134 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed, exponentially growing millisecond buckets. Percentiles are estimated as the
+ * upper bound of the bucket the percentile falls into, hence are never underestimated.
+ *
+ * @since 2.4
+ */
+public class LatencyHistogram
+{
+    /**
+     * Inclusive upper bounds (in milliseconds) of buckets. An extra, last bucket collects everything above the last
+     * bound.
+     */
+    private static final long[] BUCKET_BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000,
+        10000, 30000 };
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKET_BOUNDS_MILLIS.length + 1 );
+
+    public void record( final long millis )
+    {
+        counts.incrementAndGet( bucketOf( millis ) );
+    }
+
+    public long getCount()
+    {
+        long result = 0;
+
+        for ( int i = 0; i < counts.length(); i++ )
+        {
+            result += counts.get( i );
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the upper bounds of buckets in milliseconds. The returned array has one element less than the one
+     * returned by {@link #getBucketCounts()}, as the last bucket is unbounded.
+     */
+    public long[] getBucketBounds()
+    {
+        return BUCKET_BOUNDS_MILLIS.clone();
+    }
+
+    /**
+     * Returns a snapshot of bucket counts.
+     */
+    public long[] getBucketCounts()
+    {
+        final long[] result = new long[counts.length()];
+
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = counts.get( i );
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the estimated latency in milliseconds that given percentage (0-100) of recorded samples did not exceed,
+     * {@code -1} if no samples recorded yet, or {@link Long#MAX_VALUE} if percentile falls into the unbounded bucket.
+     */
+    public long getPercentile( final double percentile )
+    {
+        final long[] snapshot = getBucketCounts();
+
+        long total = 0;
+
+        for ( long count : snapshot )
+        {
+            total += count;
+        }
+
+        if ( total == 0 )
+        {
+            return -1;
+        }
+
+        final long rank = (long) Math.ceil( total * Math.max( 0, Math.min( 100, percentile ) ) / 100d );
+
+        long cumulative = 0;
+
+        for ( int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++ )
+        {
+            cumulative += snapshot[i];
+
+            if ( cumulative >= rank && cumulative > 0 )
+            {
+                return BUCKET_BOUNDS_MILLIS[i];
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    public void reset()
+    {
+        for ( int i = 0; i < counts.length(); i++ )
+        {
+            counts.set( i, 0 );
+        }
+    }
+
+    // ==
+
+    private static int bucketOf( final long millis )
+    {
+        for ( int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++ )
+        {
+            if ( millis <= BUCKET_BOUNDS_MILLIS[i] )
+            {
+                return i;
+            }
+        }
+
+        return BUCKET_BOUNDS_MILLIS.length;
+    }
+}
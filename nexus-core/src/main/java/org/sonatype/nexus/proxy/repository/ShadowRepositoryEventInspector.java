@@ -18,6 +18,7 @@ import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.RepositoryItemEvent;
 import org.sonatype.nexus.proxy.registry.RepositoryRegistry;
 import org.sonatype.plexus.appevents.Event;
@@ -32,6 +33,7 @@ import org.sonatype.plexus.appevents.Event;
  * @author cstamas
  */
 @Component( role = EventInspector.class, hint = "ShadowRepositoryEventInspector" )
+@InspectedEvents( RepositoryItemEvent.class )
 public class ShadowRepositoryEventInspector
     extends AbstractEventInspector
     implements EventInspector
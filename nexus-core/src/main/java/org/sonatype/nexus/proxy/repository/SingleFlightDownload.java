@@ -0,0 +1,329 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.item.AbstractWrappingContentLocator;
+import org.sonatype.nexus.proxy.item.ContentLocator;
+import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
+import org.sonatype.nexus.proxy.item.PreparedContentLocator;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.proxy.storage.local.fs.HiddenTargetListener;
+import org.sonatype.nexus.util.WrappingInputStream;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Tracks a remote fetch in progress of a single path in a proxy repository (a "single-flight" download). The thread
+ * fetching the item keeps holding the exclusive UID lock for the whole transfer, but concurrent requesters of the same
+ * path, instead of blocking on that lock, may "attach" to the download and read the content from the hidden target
+ * file as it is being written by the fetching thread.
+ * <p>
+ * Attached readers get EOF only after the fetching thread reported success, that is, when the item is cached and its
+ * content validated. If the fetch fails, attached readers get an {@link IOException} instead. As attached readers keep
+ * reading the hidden target file after it is moved to its final location, this works on filesystems allowing rename
+ * of open files only (not on Windows).
+ *
+ * @since 2.4
+ */
+class SingleFlightDownload
+    implements HiddenTargetListener
+{
+    /**
+     * The maximum time to wait for a progress notification before re-checking the state of the download.
+     */
+    private static final long WAIT_SLICE_MILLIS = 500L;
+
+    private final StorageFileItem remoteItem;
+
+    private File hiddenTarget;
+
+    private boolean done;
+
+    private Throwable failure;
+
+    SingleFlightDownload( final StorageFileItem remoteItem )
+    {
+        this.remoteItem = Preconditions.checkNotNull( remoteItem );
+    }
+
+    @Override
+    public synchronized void hiddenTargetCreated( final File hiddenTarget, final File target )
+    {
+        this.hiddenTarget = hiddenTarget;
+
+        notifyAll();
+    }
+
+    /**
+     * Wraps the content locator of the item being fetched, to have attached readers woken up as content arrives.
+     */
+    ContentLocator wrap( final ContentLocator contentLocator )
+    {
+        return new AbstractWrappingContentLocator( contentLocator )
+        {
+            @Override
+            public InputStream getContent()
+                throws IOException
+            {
+                return new ProgressNotifyingInputStream( super.getContent() );
+            }
+        };
+    }
+
+    /**
+     * Marks the download as successfully finished: item is cached and valid.
+     */
+    synchronized void succeeded()
+    {
+        done = true;
+
+        notifyAll();
+    }
+
+    /**
+     * Marks the download as failed, unless it was already marked as succeeded.
+     */
+    synchronized void failed( final String message )
+    {
+        if ( !done )
+        {
+            done = true;
+
+            failure = new IOException( message );
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Attaches to this download. Blocks until the fetching thread starts writing the content to disk, and returns a
+     * file item having content read from the hidden target as it grows. Returns {@code null} if the download finished
+     * (successfully or not) before it could be attached to, in which case the caller should retrieve the item as
+     * usual.
+     */
+    StorageFileItem attach( final Repository repository, final ResourceStoreRequest request )
+    {
+        final InputStream content;
+
+        synchronized ( this )
+        {
+            try
+            {
+                while ( hiddenTarget == null && !done )
+                {
+                    wait( WAIT_SLICE_MILLIS );
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+
+                return null;
+            }
+
+            if ( hiddenTarget == null || done )
+            {
+                return null;
+            }
+
+            try
+            {
+                content = new FileInputStream( hiddenTarget );
+            }
+            catch ( FileNotFoundException e )
+            {
+                // already moved to its final location
+                return null;
+            }
+        }
+
+        final DefaultStorageFileItem result =
+            new DefaultStorageFileItem( repository, request, remoteItem.isReadable(), remoteItem.isWritable(),
+                new PreparedContentLocator( new TailingInputStream( content ), remoteItem.getMimeType() ) );
+
+        result.setLength( remoteItem.getLength() );
+        result.setCreated( remoteItem.getCreated() );
+        result.setModified( remoteItem.getModified() );
+        if ( remoteItem.getRemoteUrl() != null )
+        {
+            result.setRemoteUrl( remoteItem.getRemoteUrl() );
+        }
+
+        return result;
+    }
+
+    // ==
+
+    private synchronized void progress()
+    {
+        notifyAll();
+    }
+
+    private synchronized boolean isDone()
+        throws IOException
+    {
+        if ( failure != null )
+        {
+            throw new IOException( "Single-flight download of " + remoteItem.getRepositoryItemUid()
+                + " failed, content is incomplete", failure );
+        }
+
+        return done;
+    }
+
+    private synchronized void awaitProgress()
+        throws IOException
+    {
+        if ( !done )
+        {
+            try
+            {
+                wait( WAIT_SLICE_MILLIS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+
+                throw new InterruptedIOException( "Interrupted while waiting for content of "
+                    + remoteItem.getRepositoryItemUid() );
+            }
+        }
+    }
+
+    /**
+     * Stream used by fetching thread, notifying attached readers on every chunk of content read from remote (hence
+     * written to the hidden target just before the next read).
+     */
+    private class ProgressNotifyingInputStream
+        extends WrappingInputStream
+    {
+        public ProgressNotifyingInputStream( final InputStream wrappedStream )
+        {
+            super( wrappedStream );
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            final int result = super.read();
+
+            progress();
+
+            return result;
+        }
+
+        @Override
+        public int read( final byte[] b )
+            throws IOException
+        {
+            return read( b, 0, b.length );
+        }
+
+        @Override
+        public int read( final byte[] b, final int off, final int len )
+            throws IOException
+        {
+            final int result = super.read( b, off, len );
+
+            progress();
+
+            return result;
+        }
+    }
+
+    /**
+     * Stream used by attached readers, following the hidden target as it grows, until download is done.
+     */
+    private class TailingInputStream
+        extends WrappingInputStream
+    {
+        public TailingInputStream( final InputStream wrappedStream )
+        {
+            super( wrappedStream );
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            final byte[] b = new byte[1];
+
+            return read( b, 0, 1 ) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read( final byte[] b )
+            throws IOException
+        {
+            return read( b, 0, b.length );
+        }
+
+        @Override
+        public int read( final byte[] b, final int off, final int len )
+            throws IOException
+        {
+            if ( len == 0 )
+            {
+                return 0;
+            }
+
+            while ( true )
+            {
+                // state must be sampled _before_ reading: if download was done, EOF is real EOF
+                final boolean wasDone = isDone();
+
+                final int result = super.read( b, off, len );
+
+                if ( result != -1 || wasDone )
+                {
+                    return result;
+                }
+
+                awaitProgress();
+            }
+        }
+
+        @Override
+        public long skip( final long n )
+            throws IOException
+        {
+            // do not let underlying stream skip beyond current end of the file
+            final byte[] buf = new byte[4096];
+
+            long remaining = n;
+
+            while ( remaining > 0 )
+            {
+                final int read = read( buf, 0, (int) Math.min( buf.length, remaining ) );
+
+                if ( read == -1 )
+                {
+                    break;
+                }
+
+                remaining -= read;
+            }
+
+            return n - remaining;
+        }
+    }
+}
@@ -15,6 +15,7 @@ package org.sonatype.nexus.proxy.repository.threads;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
 import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
 import java.util.concurrent.TimeUnit;
 
@@ -36,10 +37,15 @@ public class DefaultThreadPoolManager
     private static final int PROXY_REPOSITORY_THREAD_POOL_SIZE = SystemPropertiesHelper.getInteger(
         "nexus.proxyRepositoryThreadPoolSize", 50 );
 
+    private static final int HEDGING_THREAD_POOL_SIZE = SystemPropertiesHelper.getInteger(
+        "nexus.hedgingThreadPoolSize", 50 );
+
     private final ExecutorService groupRepositoryThreadPool;
 
     private final ExecutorService proxyRepositoryThreadPool;
 
+    private final ExecutorService hedgingThreadPool;
+
     public DefaultThreadPoolManager()
     {
         // direct hand-off used! Proxy pool will use caller thread to execute the task when full!
@@ -53,6 +59,12 @@ public class DefaultThreadPoolManager
             new ThreadPoolExecutor( 0, PROXY_REPOSITORY_THREAD_POOL_SIZE, 60L, TimeUnit.SECONDS,
                 new SynchronousQueue<Runnable>(), new NexusThreadFactory( "proxy", "Proxy TPool" ),
                 new CallerRunsPolicy() );
+
+        // direct hand-off used! Hedging pool rejects the task when full, caller should skip the hedge!
+        this.hedgingThreadPool =
+            new ThreadPoolExecutor( 0, HEDGING_THREAD_POOL_SIZE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new NexusThreadFactory( "hedge", "Hedge TPool" ),
+                new AbortPolicy() );
     }
 
     @Override
@@ -72,6 +84,12 @@ public class DefaultThreadPoolManager
         }
     }
 
+    @Override
+    public ExecutorService getHedgingThreadPool()
+    {
+        return hedgingThreadPool;
+    }
+
     @Override
     public synchronized void createPool( Repository repository )
     {
@@ -88,6 +106,7 @@ public class DefaultThreadPoolManager
     {
         terminatePool( groupRepositoryThreadPool );
         terminatePool( proxyRepositoryThreadPool );
+        terminatePool( hedgingThreadPool );
     }
 
     @Override
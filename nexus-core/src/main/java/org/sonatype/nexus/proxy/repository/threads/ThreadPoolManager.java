@@ -20,6 +20,13 @@ public interface ThreadPoolManager
 {
     ExecutorService getRepositoryThreadPool( Repository repository );
 
+    /**
+     * Returns the bounded pool used for hedged group member requests, that rejects tasks when full.
+     * 
+     * @since 2.4
+     */
+    ExecutorService getHedgingThreadPool();
+
     void createPool( Repository repository );
 
     void removePool( Repository repository );
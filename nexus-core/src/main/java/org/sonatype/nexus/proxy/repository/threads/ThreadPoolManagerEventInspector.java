@@ -16,6 +16,7 @@ import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryEventAdd;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryRepositoryEvent;
@@ -27,6 +28,7 @@ import org.sonatype.plexus.appevents.Event;
  * @author cstamas
  */
 @Component( role = EventInspector.class, hint = "ThreadPoolManagerEventInspector" )
+@InspectedEvents( RepositoryRegistryRepositoryEvent.class )
 public class ThreadPoolManagerEventInspector
     extends AbstractEventInspector
 {
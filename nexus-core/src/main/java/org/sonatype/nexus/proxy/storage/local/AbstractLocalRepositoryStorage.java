@@ -15,20 +15,23 @@ package org.sonatype.nexus.proxy.storage.local;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.sonatype.nexus.logging.AbstractLoggingComponent;
 import org.sonatype.nexus.mime.MimeSupport;
 import org.sonatype.nexus.proxy.ItemNotFoundException;
 import org.sonatype.nexus.proxy.LocalStorageException;
+import org.sonatype.nexus.proxy.RequestContext;
 import org.sonatype.nexus.proxy.ResourceStoreIteratorRequest;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
-import org.sonatype.nexus.proxy.item.ChecksummingContentLocator;
+import org.sonatype.nexus.proxy.attributes.inspectors.DigestCalculatingInspector;
+import org.sonatype.nexus.proxy.item.FileContentLocator;
 import org.sonatype.nexus.proxy.item.LinkPersister;
+import org.sonatype.nexus.proxy.item.MultiChecksummingContentLocator;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
@@ -202,19 +205,27 @@ public abstract class AbstractLocalRepositoryStorage
     protected void prepareStorageFileItemForStore( final StorageFileItem item )
         throws LocalStorageException
     {
-        try
+        if ( item.getContentLocator() instanceof FileContentLocator && hasDigests( item.getItemContext() ) )
         {
-            // replace content locator
-            ChecksummingContentLocator sha1cl =
-                new ChecksummingContentLocator( item.getContentLocator(), MessageDigest.getInstance( "SHA1" ),
-                    StorageFileItem.DIGEST_SHA1_KEY, item.getItemContext() );
+            // content is a file with already known digests (ie. a copy of another item), no need to calculate
+            // them, and this lets FS peer transfer the file content without passing it through the heap
+            return;
+        }
 
+        try
+        {
+            // replace content locator, calculating all the digests in single pass while content is being stored
             // md5 is deprecated but still calculated
-            ChecksummingContentLocator md5cl =
-                new ChecksummingContentLocator( sha1cl, MessageDigest.getInstance( "MD5" ),
-                    StorageFileItem.DIGEST_MD5_KEY, item.getItemContext() );
+            final Map<String, String> algorithms = new LinkedHashMap<String, String>( 3 );
+            algorithms.put( "SHA1", StorageFileItem.DIGEST_SHA1_KEY );
+            algorithms.put( "MD5", StorageFileItem.DIGEST_MD5_KEY );
+            if ( DigestCalculatingInspector.DIGEST_SHA256_ENABLED )
+            {
+                algorithms.put( "SHA-256", StorageFileItem.DIGEST_SHA256_KEY );
+            }
 
-            item.setContentLocator( md5cl );
+            item.setContentLocator( new MultiChecksummingContentLocator( item.getContentLocator(), algorithms,
+                item.getItemContext() ) );
         }
         catch ( NoSuchAlgorithmException e )
         {
@@ -223,4 +234,12 @@ public abstract class AbstractLocalRepositoryStorage
                 e );
         }
     }
+
+    protected boolean hasDigests( final RequestContext context )
+    {
+        return context.containsKey( StorageFileItem.DIGEST_SHA1_KEY, false )
+            && context.containsKey( StorageFileItem.DIGEST_MD5_KEY, false )
+            && ( !DigestCalculatingInspector.DIGEST_SHA256_ENABLED || context.containsKey(
+                StorageFileItem.DIGEST_SHA256_KEY, false ) );
+    }
 }
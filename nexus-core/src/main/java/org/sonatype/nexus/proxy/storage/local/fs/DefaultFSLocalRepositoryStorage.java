@@ -482,4 +482,54 @@ public class DefaultFSLocalRepositoryStorage
         return result;
     }
 
+    /**
+     * Lists the collection like {@link #listItems(Repository, ResourceStoreRequest)} does, but without materializing
+     * the file items: the returned file items have path, length and modification time set from the file, while their
+     * attributes and content are loaded only when asked for. Link files are returned as plain file items. Meant for
+     * walks that do not need the full items, see {@link org.sonatype.nexus.proxy.walker.LightweightWalkerProcessor}.
+     * 
+     * @since 2.4
+     */
+    public Collection<StorageItem> listItemsLazily( Repository repository, ResourceStoreRequest request )
+        throws ItemNotFoundException, LocalStorageException
+    {
+        File target = getFileFromBase( repository, request );
+
+        Collection<File> files = getFSPeer().listItems( repository, getBaseDir( repository, request ), request, target );
+
+        if ( files == null )
+        {
+            // not a collection
+            return listItems( repository, request );
+        }
+
+        List<StorageItem> result = new ArrayList<StorageItem>( files.size() );
+
+        for ( File file : files )
+        {
+            String newPath = ItemPathUtils.concatPaths( request.getRequestPath(), file.getName() );
+
+            request.pushRequestPath( newPath );
+
+            ResourceStoreRequest collMemberReq = new ResourceStoreRequest( request );
+
+            if ( file.isDirectory() )
+            {
+                DefaultStorageCollectionItem coll =
+                    new DefaultStorageCollectionItem( repository, collMemberReq, file.canRead(), file.canWrite() );
+                coll.setModified( file.lastModified() );
+                coll.setCreated( file.lastModified() );
+                result.add( coll );
+            }
+            else if ( file.isFile() )
+            {
+                result.add( new LazyStorageFileItem( repository, collMemberReq, file, getMimeSupport() ) );
+            }
+
+            request.popRequestPath();
+        }
+
+        return result;
+    }
+
 }
@@ -17,6 +17,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -98,6 +99,13 @@ public class DefaultFSPeer
             // we have _content_ (content or link), hence we store a file
             final File hiddenTarget = getHiddenTarget( repository, repositoryBaseDir, target, item );
 
+            // let interested parties (like single-flight proxy downloads) know where the content goes
+            final Object listener = item.getItemContext().get( HiddenTargetListener.CONTEXT_KEY );
+            if ( listener instanceof HiddenTargetListener )
+            {
+                ( (HiddenTargetListener) listener ).hiddenTargetCreated( hiddenTarget, target );
+            }
+
             // NEXUS-4550: Part One, saving to "hidden" (temp) file
             // In case of error cleaning up only what needed
             // No locking needed, AbstractRepository took care of that
@@ -110,7 +118,16 @@ public class DefaultFSPeer
 
                 is = cl.getContent();
 
-                IOUtil.copy( is, os, getCopyStreamBufferSize() );
+                if ( is instanceof FileInputStream )
+                {
+                    // content is a plain file (ie. a copy of another item), let the OS transfer it
+                    org.sonatype.nexus.util.FileUtils.transfer( ( (FileInputStream) is ).getChannel(),
+                        os.getChannel() );
+                }
+                else
+                {
+                    IOUtil.copy( is, os, getCopyStreamBufferSize() );
+                }
 
                 os.flush();
             }
@@ -289,7 +306,7 @@ public class DefaultFSPeer
                 {
                     try
                     {
-                        FileUtils.copyFile( fromTarget, toTarget );
+                        org.sonatype.nexus.util.FileUtils.copyFile( fromTarget, toTarget );
                     }
                     catch ( IOException ioe )
                     {
@@ -0,0 +1,38 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.local.fs;
+
+import java.io.File;
+
+/**
+ * Listener that gets notified by {@link DefaultFSPeer} about the "hidden" (temp) file the content of an item being
+ * stored is spooled into (see NEXUS-4550), before it is moved to its final location. To get notified, put the
+ * listener instance into the item context of the item being stored, using {@link #CONTEXT_KEY} as key.
+ *
+ * @since 2.4
+ */
+public interface HiddenTargetListener
+{
+    /**
+     * The item context key to be used to register the listener.
+     */
+    String CONTEXT_KEY = HiddenTargetListener.class.getName();
+
+    /**
+     * Invoked right after the hidden target file is created, but before any content is written into it.
+     *
+     * @param hiddenTarget the hidden (temp) file the content is being written to.
+     * @param target the final location of the file, where hidden target will be moved once content is written.
+     */
+    void hiddenTargetCreated( File hiddenTarget, File target );
+}
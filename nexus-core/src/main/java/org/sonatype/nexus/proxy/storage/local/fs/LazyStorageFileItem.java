@@ -0,0 +1,142 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.local.fs;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.sonatype.nexus.mime.MimeSupport;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.attributes.Attributes;
+import org.sonatype.nexus.proxy.item.ContentLocator;
+import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
+import org.sonatype.nexus.proxy.repository.Repository;
+
+/**
+ * A file item backed by a file, that has it's path, length and modification time set from the file, while it's
+ * attributes are fetched, and content locator (with MIME type guess) is created only when first asked for. The cheap
+ * properties (path, name, length, created and modified times) are served without fetching the attributes.
+ * 
+ * @since 2.4
+ */
+class LazyStorageFileItem
+    extends DefaultStorageFileItem
+{
+    private static final long serialVersionUID = -1870146287436318516L;
+
+    private final transient Repository repository;
+
+    private final transient File target;
+
+    private final transient MimeSupport mimeSupport;
+
+    private final long lastModified;
+
+    private final long length;
+
+    private transient boolean attributesPending;
+
+    LazyStorageFileItem( final Repository repository, final ResourceStoreRequest request, final File target,
+                         final MimeSupport mimeSupport )
+    {
+        super( repository, request, target.canRead(), target.canWrite(), null );
+        this.repository = repository;
+        this.target = target;
+        this.mimeSupport = mimeSupport;
+        this.lastModified = target.lastModified();
+        this.length = target.length();
+        applyFileProperties();
+        // from now on, any access to attributes except the cheap ones will fetch them
+        this.attributesPending = true;
+    }
+
+    @Override
+    public Attributes getRepositoryItemAttributes()
+    {
+        if ( attributesPending )
+        {
+            // flip it before fetching, as handler will ask for attributes too
+            attributesPending = false;
+
+            try
+            {
+                repository.getAttributesHandler().fetchAttributes( this );
+            }
+            catch ( IOException e )
+            {
+                attributesPending = true;
+
+                throw new IllegalStateException( "Could not fetch attributes of item " + getRepositoryItemUid(), e );
+            }
+
+            // same as DefaultFSLocalRepositoryStorage does: file system wins
+            applyFileProperties();
+        }
+
+        return super.getRepositoryItemAttributes();
+    }
+
+    @Override
+    public ContentLocator getContentLocator()
+    {
+        if ( super.getContentLocator() == null )
+        {
+            setContentLocator( new FileContentLocator( target, mimeSupport.guessMimeTypeFromPath(
+                repository.getMimeRulesSource(), target.getAbsolutePath() ) ) );
+        }
+
+        return super.getContentLocator();
+    }
+
+    // == cheap properties, served without fetching attributes
+
+    @Override
+    public String getPath()
+    {
+        return super.getRepositoryItemAttributes().getPath();
+    }
+
+    @Override
+    public String getRepositoryId()
+    {
+        return super.getRepositoryItemAttributes().getRepositoryId();
+    }
+
+    @Override
+    public long getLength()
+    {
+        return super.getRepositoryItemAttributes().getLength();
+    }
+
+    @Override
+    public long getCreated()
+    {
+        return super.getRepositoryItemAttributes().getCreated();
+    }
+
+    @Override
+    public long getModified()
+    {
+        return super.getRepositoryItemAttributes().getModified();
+    }
+
+    // ==
+
+    private void applyFileProperties()
+    {
+        final Attributes attributes = super.getRepositoryItemAttributes();
+        attributes.setModified( lastModified );
+        attributes.setCreated( lastModified );
+        attributes.setLength( length );
+    }
+}
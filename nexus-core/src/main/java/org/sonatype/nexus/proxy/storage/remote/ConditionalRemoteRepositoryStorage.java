@@ -0,0 +1,59 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.remote;
+
+import org.sonatype.nexus.proxy.ItemNotFoundException;
+import org.sonatype.nexus.proxy.RemoteStorageException;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.item.AbstractStorageItem;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.repository.ProxyRepository;
+
+/**
+ * Remote storage capable of conditional retrieval of items. Implementations record the validators got from remote
+ * (like HTTP "ETag" and "Last-Modified") into attributes of retrieved items using the keys below, and use them to
+ * revalidate the locally cached item in single round trip, instead of checking for existence and retrieving
+ * separately.
+ * 
+ * @since 2.4
+ */
+public interface ConditionalRemoteRepositoryStorage
+    extends RemoteRepositoryStorage
+{
+    /**
+     * Item attribute key of the entity tag sent by remote storage.
+     */
+    String REMOTE_ETAG_KEY = "remote.etag";
+
+    /**
+     * Item attribute key of the (unparsed) last modification date sent by remote storage.
+     */
+    String REMOTE_LAST_MODIFIED_KEY = "remote.lastModified";
+
+    /**
+     * Retrieves item if it is modified on remote storage since it was cached as passed in local item.
+     * 
+     * @param repository the repository
+     * @param request the request
+     * @param baseUrl the base URL to retrieve item from
+     * @param localItem the locally cached item to revalidate
+     * @return the newer item, to be cached, just as {@link #retrieveItem(ProxyRepository, ResourceStoreRequest, String)}
+     *         returns it
+     * @throws RemoteItemNotModifiedException if remote item is not modified since local item was cached
+     * @throws ItemNotFoundException the item not found exception
+     * @throws RemoteStorageException the storage exception
+     */
+    AbstractStorageItem retrieveItemIfModified( ProxyRepository repository, ResourceStoreRequest request,
+                                                String baseUrl, StorageItem localItem )
+        throws RemoteItemNotModifiedException, ItemNotFoundException, RemoteStorageException;
+}
@@ -0,0 +1,163 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.remote;
+
+import java.util.Collection;
+
+import javax.management.StandardMBean;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Simple exposure of {@link RemoteStorageStatistics} of one proxy repository to JMX.
+ *
+ * @since 2.4
+ */
+public class DefaultRemoteRepositoryStatisticsMBean
+    extends StandardMBean
+    implements RemoteRepositoryStatisticsMBean
+{
+    private final RemoteStorageStatistics statistics;
+
+    private final String repositoryId;
+
+    protected DefaultRemoteRepositoryStatisticsMBean( final RemoteStorageStatistics statistics,
+                                                      final String repositoryId )
+    {
+        super( RemoteRepositoryStatisticsMBean.class, false );
+        this.statistics = Preconditions.checkNotNull( statistics );
+        this.repositoryId = Preconditions.checkNotNull( repositoryId );
+    }
+
+    @Override
+    public String getRepositoryId()
+    {
+        return repositoryId;
+    }
+
+    @Override
+    public long getRequests()
+    {
+        return total().getRequests();
+    }
+
+    @Override
+    public long getSuccesses()
+    {
+        return total().getSuccesses();
+    }
+
+    @Override
+    public long getNotFounds()
+    {
+        return total().getNotFounds();
+    }
+
+    @Override
+    public long getNotModifieds()
+    {
+        return total().getNotModifieds();
+    }
+
+    @Override
+    public long getFailures()
+    {
+        return total().getFailures();
+    }
+
+    @Override
+    public long getRetries()
+    {
+        return total().getRetries();
+    }
+
+    @Override
+    public long getFailovers()
+    {
+        return total().getFailovers();
+    }
+
+    @Override
+    public long getBytesDownloaded()
+    {
+        return total().getBytesDownloaded();
+    }
+
+    @Override
+    public long getThroughput()
+    {
+        return total().getThroughput();
+    }
+
+    @Override
+    public long getTimeToFirstByte50thPercentile()
+    {
+        return total().getTimeToFirstByte().getPercentile( 50 );
+    }
+
+    @Override
+    public long getTimeToFirstByte95thPercentile()
+    {
+        return total().getTimeToFirstByte().getPercentile( 95 );
+    }
+
+    @Override
+    public long getTimeToFirstByte99thPercentile()
+    {
+        return total().getTimeToFirstByte().getPercentile( 99 );
+    }
+
+    @Override
+    public long getPoolWait95thPercentile()
+    {
+        return total().getPoolWait().getPercentile( 95 );
+    }
+
+    @Override
+    public long getDownloadTime95thPercentile()
+    {
+        return total().getDownloadTime().getPercentile( 95 );
+    }
+
+    @Override
+    public String[] getEndpoints()
+    {
+        final Collection<RemoteEndpointStatistics> endpoints = statistics.getEndpointStatistics( repositoryId );
+        final String[] result = new String[endpoints.size()];
+        int i = 0;
+        for ( RemoteEndpointStatistics endpoint : endpoints )
+        {
+            result[i++] =
+                String.format( "%s requests=%s failures=%s notFounds=%s retries=%s failovers=%s "
+                    + "ttfbP95=%sms poolWaitP95=%sms throughput=%sB/s", endpoint.getUrl(), endpoint.getRequests(),
+                    endpoint.getFailures(), endpoint.getNotFounds(), endpoint.getRetries(), endpoint.getFailovers(),
+                    endpoint.getTimeToFirstByte().getPercentile( 95 ), endpoint.getPoolWait().getPercentile( 95 ),
+                    endpoint.getThroughput() );
+        }
+        return result;
+    }
+
+    @Override
+    public void reset()
+    {
+        statistics.reset( repositoryId );
+    }
+
+    // ==
+
+    private RemoteEndpointStatistics total()
+    {
+        final RemoteEndpointStatistics total = statistics.getRepositoryStatistics( repositoryId );
+        return total == null ? new RemoteEndpointStatistics( null ) : total;
+    }
+}
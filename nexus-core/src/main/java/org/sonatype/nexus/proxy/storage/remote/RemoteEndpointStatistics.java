@@ -0,0 +1,233 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.remote;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sonatype.nexus.proxy.repository.LatencyHistogram;
+
+/**
+ * Statistics of remote retrievals performed against one remote endpoint (repository remote URL or one of it's
+ * mirrors), or all endpoints of a proxy repository. Recording is lock-free, safe to leave enabled in production.
+ *
+ * @since 2.4
+ */
+public class RemoteEndpointStatistics
+{
+    /**
+     * Outcome of a remote request.
+     */
+    public static enum Outcome
+    {
+        /**
+         * Content is about to be received.
+         */
+        SUCCESS,
+
+        /**
+         * Remote does not have the item.
+         */
+        NOT_FOUND,
+
+        /**
+         * Remote item is not modified since it was cached.
+         */
+        NOT_MODIFIED,
+
+        /**
+         * Transport failure or unexpected response.
+         */
+        FAILURE;
+    }
+
+    private final String url;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong successes = new AtomicLong();
+
+    private final AtomicLong notFounds = new AtomicLong();
+
+    private final AtomicLong notModifieds = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final AtomicLong retries = new AtomicLong();
+
+    private final AtomicLong failovers = new AtomicLong();
+
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+
+    private final AtomicLong downloadMillis = new AtomicLong();
+
+    private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+
+    private final LatencyHistogram poolWait = new LatencyHistogram();
+
+    private final LatencyHistogram downloadTime = new LatencyHistogram();
+
+    public RemoteEndpointStatistics( final String url )
+    {
+        this.url = url;
+    }
+
+    /**
+     * The remote URL of endpoint, or {@code null} for statistics of all endpoints.
+     */
+    public String getUrl()
+    {
+        return url;
+    }
+
+    public long getRequests()
+    {
+        return requests.get();
+    }
+
+    public long getSuccesses()
+    {
+        return successes.get();
+    }
+
+    public long getNotFounds()
+    {
+        return notFounds.get();
+    }
+
+    public long getNotModifieds()
+    {
+        return notModifieds.get();
+    }
+
+    public long getFailures()
+    {
+        return failures.get();
+    }
+
+    /**
+     * Number of retrievals retried against same endpoint after a failure.
+     */
+    public long getRetries()
+    {
+        return retries.get();
+    }
+
+    /**
+     * Number of times retrieval moved on to next endpoint (mirror), as this one failed or did not have the item.
+     */
+    public long getFailovers()
+    {
+        return failovers.get();
+    }
+
+    public long getBytesDownloaded()
+    {
+        return bytesDownloaded.get();
+    }
+
+    /**
+     * Average download throughput in bytes per second, measured from first to last byte of content, or {@code -1} if
+     * nothing was downloaded yet.
+     */
+    public long getThroughput()
+    {
+        final long millis = downloadMillis.get();
+        final long bytes = bytesDownloaded.get();
+        if ( bytes == 0 )
+        {
+            return -1;
+        }
+        return bytes * 1000 / Math.max( 1, millis );
+    }
+
+    /**
+     * Time from sending request until response headers are received, including connection pool wait.
+     */
+    public LatencyHistogram getTimeToFirstByte()
+    {
+        return timeToFirstByte;
+    }
+
+    /**
+     * Time spent waiting for a connection from connection pool.
+     */
+    public LatencyHistogram getPoolWait()
+    {
+        return poolWait;
+    }
+
+    /**
+     * Time spent receiving content.
+     */
+    public LatencyHistogram getDownloadTime()
+    {
+        return downloadTime;
+    }
+
+    public void reset()
+    {
+        requests.set( 0 );
+        successes.set( 0 );
+        notFounds.set( 0 );
+        notModifieds.set( 0 );
+        failures.set( 0 );
+        retries.set( 0 );
+        failovers.set( 0 );
+        bytesDownloaded.set( 0 );
+        downloadMillis.set( 0 );
+        timeToFirstByte.reset();
+        poolWait.reset();
+        downloadTime.reset();
+    }
+
+    // ==
+
+    void response( final Outcome outcome, final long timeToFirstByteMillis, final long poolWaitMillis )
+    {
+        requests.incrementAndGet();
+        switch ( outcome )
+        {
+            case SUCCESS:
+                successes.incrementAndGet();
+                break;
+            case NOT_FOUND:
+                notFounds.incrementAndGet();
+                break;
+            case NOT_MODIFIED:
+                notModifieds.incrementAndGet();
+                break;
+            default:
+                failures.incrementAndGet();
+                break;
+        }
+        timeToFirstByte.record( timeToFirstByteMillis );
+        poolWait.record( poolWaitMillis );
+    }
+
+    void download( final long bytes, final long millis )
+    {
+        bytesDownloaded.addAndGet( bytes );
+        downloadMillis.addAndGet( millis );
+        downloadTime.record( millis );
+    }
+
+    void retry()
+    {
+        retries.incrementAndGet();
+    }
+
+    void failover()
+    {
+        failovers.incrementAndGet();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.remote;
+
+import org.sonatype.nexus.proxy.RemoteStorageException;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.repository.ProxyRepository;
+
+/**
+ * Thrown by {@link ConditionalRemoteRepositoryStorage} if the conditionally retrieved item is not modified on remote
+ * storage, hence the locally cached item is still valid. This is not an error, and should not be treated as such
+ * (no retries, no auto blocking).
+ * 
+ * @since 2.4
+ */
+public class RemoteItemNotModifiedException
+    extends RemoteStorageException
+{
+    private static final long serialVersionUID = -2379624520196634112L;
+
+    private final ResourceStoreRequest request;
+
+    private final ProxyRepository repository;
+
+    public RemoteItemNotModifiedException( final ResourceStoreRequest request, final ProxyRepository repository )
+    {
+        super( "Item " + request.getRequestPath() + " is not modified on remote storage of repository "
+            + repository.getId() );
+        this.request = request;
+        this.repository = repository;
+    }
+
+    public ResourceStoreRequest getRequest()
+    {
+        return request;
+    }
+
+    public ProxyRepository getRepository()
+    {
+        return repository;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.remote;
+
+/**
+ * JMX view of {@link RemoteStorageStatistics} of one proxy repository. Times are in milliseconds, throughput is in
+ * bytes per second.
+ *
+ * @since 2.4
+ */
+public interface RemoteRepositoryStatisticsMBean
+{
+    String getRepositoryId();
+
+    long getRequests();
+
+    long getSuccesses();
+
+    long getNotFounds();
+
+    long getNotModifieds();
+
+    long getFailures();
+
+    long getRetries();
+
+    long getFailovers();
+
+    long getBytesDownloaded();
+
+    long getThroughput();
+
+    long getTimeToFirstByte50thPercentile();
+
+    long getTimeToFirstByte95thPercentile();
+
+    long getTimeToFirstByte99thPercentile();
+
+    long getPoolWait95thPercentile();
+
+    long getDownloadTime95thPercentile();
+
+    /**
+     * Per endpoint (remote URL or mirror) summary.
+     */
+    String[] getEndpoints();
+
+    void reset();
+}
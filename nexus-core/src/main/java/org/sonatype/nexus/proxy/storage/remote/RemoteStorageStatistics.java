@@ -0,0 +1,289 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.remote;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
+import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
+import org.sonatype.nexus.proxy.storage.remote.RemoteEndpointStatistics.Outcome;
+import org.sonatype.nexus.util.SystemPropertiesHelper;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import com.google.common.base.Preconditions;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Keeps statistics of remote retrievals per proxy repository and per remote endpoint (remote URL or mirror) of the
+ * repository: time to first byte, connection pool wait, download throughput, retries and mirror failovers. Statistics
+ * of each repository are exposed over JMX, and are dropped when repository is removed.
+ *
+ * @since 2.4
+ */
+@Named
+@Singleton
+public class RemoteStorageStatistics
+{
+    private static final String JMX_DOMAIN = "org.sonatype.nexus.httpclient";
+
+    private static final boolean ENABLED =
+        SystemPropertiesHelper.getBoolean( RemoteStorageStatistics.class.getName() + ".enabled", true );
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final EventBus eventBus;
+
+    private final ConcurrentMap<String, RepositoryEntry> repositories =
+        new ConcurrentHashMap<String, RepositoryEntry>();
+
+    @Inject
+    public RemoteStorageStatistics( final EventBus eventBus )
+    {
+        this.eventBus = Preconditions.checkNotNull( eventBus );
+        this.eventBus.register( this );
+    }
+
+    /**
+     * Returns {@code true} if statistics are being recorded.
+     */
+    public boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * Records a response (or failure to get one) of a remote request.
+     *
+     * @param repositoryId the proxy repository ID.
+     * @param url the remote URL (remote URL of repository or a mirror) the request was sent to.
+     * @param outcome the outcome.
+     * @param timeToFirstByteMillis time from sending request to receiving response headers.
+     * @param poolWaitMillis portion of time to first byte spent waiting for a pooled connection.
+     */
+    public void recordResponse( final String repositoryId, final String url, final Outcome outcome,
+                                final long timeToFirstByteMillis, final long poolWaitMillis )
+    {
+        if ( ENABLED )
+        {
+            final RepositoryEntry entry = getEntry( repositoryId );
+            entry.total.response( outcome, timeToFirstByteMillis, poolWaitMillis );
+            entry.getEndpoint( url ).response( outcome, timeToFirstByteMillis, poolWaitMillis );
+        }
+    }
+
+    /**
+     * Records a content download, measured from first to last byte.
+     */
+    public void recordDownload( final String repositoryId, final String url, final long bytes, final long millis )
+    {
+        if ( ENABLED )
+        {
+            final RepositoryEntry entry = getEntry( repositoryId );
+            entry.total.download( bytes, millis );
+            entry.getEndpoint( url ).download( bytes, millis );
+        }
+    }
+
+    /**
+     * Records that retrieval from given endpoint is being retried.
+     */
+    public void recordRetry( final String repositoryId, final String url )
+    {
+        if ( ENABLED )
+        {
+            final RepositoryEntry entry = getEntry( repositoryId );
+            entry.total.retry();
+            entry.getEndpoint( url ).retry();
+        }
+    }
+
+    /**
+     * Records that retrieval moved on from given endpoint to the next one (mirror).
+     */
+    public void recordFailover( final String repositoryId, final String url )
+    {
+        if ( ENABLED )
+        {
+            final RepositoryEntry entry = getEntry( repositoryId );
+            entry.total.failover();
+            entry.getEndpoint( url ).failover();
+        }
+    }
+
+    /**
+     * Returns the statistics of all endpoints of given repository, or {@code null} if none recorded.
+     */
+    public RemoteEndpointStatistics getRepositoryStatistics( final String repositoryId )
+    {
+        final RepositoryEntry entry = repositories.get( repositoryId );
+        return entry == null ? null : entry.total;
+    }
+
+    /**
+     * Returns the statistics of each endpoint of given repository, never {@code null}.
+     */
+    public Collection<RemoteEndpointStatistics> getEndpointStatistics( final String repositoryId )
+    {
+        final RepositoryEntry entry = repositories.get( repositoryId );
+        if ( entry == null )
+        {
+            return Collections.emptyList();
+        }
+        return new ArrayList<RemoteEndpointStatistics>( entry.endpoints.values() );
+    }
+
+    /**
+     * Resets the statistics of given repository.
+     */
+    public void reset( final String repositoryId )
+    {
+        final RepositoryEntry entry = repositories.get( repositoryId );
+        if ( entry != null )
+        {
+            entry.total.reset();
+            entry.endpoints.clear();
+        }
+    }
+
+    // ==
+
+    @Subscribe
+    public void onEvent( final RepositoryRegistryEventRemove evt )
+    {
+        final RepositoryEntry entry = repositories.remove( evt.getRepository().getId() );
+        if ( entry != null )
+        {
+            unregisterMBean( entry );
+        }
+    }
+
+    @Subscribe
+    public void onEvent( final NexusStoppedEvent evt )
+    {
+        eventBus.unregister( this );
+        for ( RepositoryEntry entry : repositories.values() )
+        {
+            unregisterMBean( entry );
+        }
+        repositories.clear();
+    }
+
+    // ==
+
+    private RepositoryEntry getEntry( final String repositoryId )
+    {
+        RepositoryEntry entry = repositories.get( repositoryId );
+        if ( entry == null )
+        {
+            final RepositoryEntry newEntry = new RepositoryEntry( repositoryId );
+            entry = repositories.putIfAbsent( repositoryId, newEntry );
+            if ( entry == null )
+            {
+                entry = newEntry;
+                registerMBean( entry );
+            }
+        }
+        return entry;
+    }
+
+    private void registerMBean( final RepositoryEntry entry )
+    {
+        try
+        {
+            entry.jmxName =
+                ObjectName.getInstance( JMX_DOMAIN + ":type=" + getClass().getSimpleName() + ",repository="
+                    + ObjectName.quote( entry.repositoryId ) );
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if ( server.isRegistered( entry.jmxName ) )
+            {
+                logger.debug( "MBean already registered; replacing: {}", entry.jmxName );
+                server.unregisterMBean( entry.jmxName );
+            }
+            server.registerMBean( new DefaultRemoteRepositoryStatisticsMBean( this, entry.repositoryId ),
+                entry.jmxName );
+        }
+        catch ( Exception e )
+        {
+            entry.jmxName = null;
+            logger.warn( "Problem registering MBean for remote statistics of repository " + entry.repositoryId, e );
+        }
+    }
+
+    private void unregisterMBean( final RepositoryEntry entry )
+    {
+        if ( entry.jmxName != null )
+        {
+            try
+            {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if ( server.isRegistered( entry.jmxName ) )
+                {
+                    server.unregisterMBean( entry.jmxName );
+                }
+            }
+            catch ( Exception e )
+            {
+                logger.warn( "Problem unregistering MBean for remote statistics of repository "
+                    + entry.repositoryId, e );
+            }
+            finally
+            {
+                entry.jmxName = null;
+            }
+        }
+    }
+
+    private static class RepositoryEntry
+    {
+        private final String repositoryId;
+
+        private final RemoteEndpointStatistics total = new RemoteEndpointStatistics( null );
+
+        private final ConcurrentMap<String, RemoteEndpointStatistics> endpoints =
+            new ConcurrentHashMap<String, RemoteEndpointStatistics>();
+
+        private volatile ObjectName jmxName;
+
+        private RepositoryEntry( final String repositoryId )
+        {
+            this.repositoryId = repositoryId;
+        }
+
+        private RemoteEndpointStatistics getEndpoint( final String url )
+        {
+            RemoteEndpointStatistics endpoint = endpoints.get( url );
+            if ( endpoint == null )
+            {
+                final RemoteEndpointStatistics newEndpoint = new RemoteEndpointStatistics( url );
+                endpoint = endpoints.putIfAbsent( url, newEndpoint );
+                if ( endpoint == null )
+                {
+                    endpoint = newEndpoint;
+                }
+            }
+            return endpoint;
+        }
+    }
+}
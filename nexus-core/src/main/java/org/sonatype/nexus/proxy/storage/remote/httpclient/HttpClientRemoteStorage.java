@@ -17,6 +17,8 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -44,6 +46,7 @@ import org.codehaus.plexus.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonatype.nexus.ApplicationStatusSource;
+import org.sonatype.nexus.apachehttpclient.ConnectionLeaseTimer;
 import org.sonatype.nexus.apachehttpclient.Hc4Provider;
 import org.sonatype.nexus.mime.MimeSupport;
 import org.sonatype.nexus.proxy.ItemNotFoundException;
@@ -60,12 +63,17 @@ import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.repository.ProxyRepository;
 import org.sonatype.nexus.proxy.storage.UnsupportedStorageOperationException;
 import org.sonatype.nexus.proxy.storage.remote.AbstractHTTPRemoteRepositoryStorage;
+import org.sonatype.nexus.proxy.storage.remote.ConditionalRemoteRepositoryStorage;
 import org.sonatype.nexus.proxy.storage.remote.DefaultRemoteStorageContext.BooleanFlagHolder;
+import org.sonatype.nexus.proxy.storage.remote.RemoteEndpointStatistics.Outcome;
 import org.sonatype.nexus.proxy.storage.remote.RemoteItemNotFoundException;
+import org.sonatype.nexus.proxy.storage.remote.RemoteItemNotModifiedException;
 import org.sonatype.nexus.proxy.storage.remote.RemoteRepositoryStorage;
 import org.sonatype.nexus.proxy.storage.remote.RemoteStorageContext;
+import org.sonatype.nexus.proxy.storage.remote.RemoteStorageStatistics;
 import org.sonatype.nexus.proxy.storage.remote.http.QueryStringBuilder;
 import org.sonatype.nexus.proxy.utils.UserAgentBuilder;
+import org.sonatype.nexus.util.SystemPropertiesHelper;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
@@ -79,7 +87,7 @@ import com.google.common.base.Stopwatch;
 @Singleton
 public class HttpClientRemoteStorage
     extends AbstractHTTPRemoteRepositoryStorage
-    implements RemoteRepositoryStorage
+    implements RemoteRepositoryStorage, ConditionalRemoteRepositoryStorage
 {
 
     private static final Logger timingLog = LoggerFactory.getLogger( "remote.storage.timing" );
@@ -118,10 +126,20 @@ public class HttpClientRemoteStorage
      */
     private static final boolean CAN_WRITE = true;
 
+    /**
+     * How many times will a broken download be resumed using ranged GETs, 0 to disable resume.
+     *
+     * @since 2.4
+     */
+    private static final int MAX_RESUMES = SystemPropertiesHelper.getInteger(
+        HttpClientRemoteStorage.class.getName() + ".maxResumes", 3 );
+
     private final QueryStringBuilder queryStringBuilder;
 
     private final HttpClientManager httpClientManager;
 
+    private final RemoteStorageStatistics remoteStorageStatistics;
+
     // ----------------------------------------------------------------------
     // Constructors
     // ----------------------------------------------------------------------
@@ -129,11 +147,13 @@ public class HttpClientRemoteStorage
     @Inject
     HttpClientRemoteStorage( final UserAgentBuilder userAgentBuilder,
                              final ApplicationStatusSource applicationStatusSource, final MimeSupport mimeSupport,
-                             final QueryStringBuilder queryStringBuilder, final HttpClientManager httpClientManager )
+                             final QueryStringBuilder queryStringBuilder, final HttpClientManager httpClientManager,
+                             final RemoteStorageStatistics remoteStorageStatistics )
     {
         super( userAgentBuilder, applicationStatusSource, mimeSupport );
         this.queryStringBuilder = queryStringBuilder;
         this.httpClientManager = httpClientManager;
+        this.remoteStorageStatistics = remoteStorageStatistics;
     }
 
     // ----------------------------------------------------------------------
@@ -150,6 +170,27 @@ public class HttpClientRemoteStorage
     public AbstractStorageItem retrieveItem( final ProxyRepository repository, final ResourceStoreRequest request,
                                              final String baseUrl )
         throws ItemNotFoundException, RemoteStorageException
+    {
+        return doRetrieveItem( repository, request, baseUrl, null );
+    }
+
+    @Override
+    public AbstractStorageItem retrieveItemIfModified( final ProxyRepository repository,
+                                                       final ResourceStoreRequest request, final String baseUrl,
+                                                       final StorageItem localItem )
+        throws RemoteItemNotModifiedException, ItemNotFoundException, RemoteStorageException
+    {
+        return doRetrieveItem( repository, request, baseUrl, localItem );
+    }
+
+    /**
+     * Retrieves the item using HTTP GET, that is conditional if local item is given: it uses the validators recorded
+     * in attributes of local item when it was cached ("If-None-Match" with the remote ETag, and "If-Modified-Since"
+     * with the remote Last-Modified, or local item modification date if remote sent none).
+     */
+    private AbstractStorageItem doRetrieveItem( final ProxyRepository repository, final ResourceStoreRequest request,
+                                                final String baseUrl, final StorageItem localItem )
+        throws ItemNotFoundException, RemoteStorageException
     {
         final URL remoteURL =
             appendQueryString( getAbsoluteUrlFromBase( baseUrl, request.getRequestPath() ), repository );
@@ -170,15 +211,61 @@ public class HttpClientRemoteStorage
 
         final HttpGet method = new HttpGet( url );
 
-        final HttpResponse httpResponse = executeRequest( repository, request, method );
+        if ( localItem != null )
+        {
+            final String etag = localItem.getRepositoryItemAttributes().get( REMOTE_ETAG_KEY );
+            if ( etag != null )
+            {
+                method.setHeader( "If-None-Match", etag );
+            }
+            final String lastModified = localItem.getRepositoryItemAttributes().get( REMOTE_LAST_MODIFIED_KEY );
+            method.setHeader( "If-Modified-Since",
+                lastModified != null ? lastModified : DateUtils.formatDate( new Date( localItem.getModified() ) ) );
+        }
+
+        // pool wait and time to first byte of this request, for remote storage statistics
+        ConnectionLeaseTimer.getAndResetWaitNanos();
+        final long started = System.nanoTime();
 
-        if ( httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_OK )
+        final HttpResponse httpResponse;
+        try
+        {
+            httpResponse = executeRequest( repository, request, method );
+        }
+        catch ( RemoteStorageException e )
+        {
+            recordResponse( repository, baseUrl, Outcome.FAILURE, started );
+            throw e;
+        }
+
+        recordResponse( repository, baseUrl, getOutcome( httpResponse, localItem ), started );
+
+        if ( localItem != null && httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED )
+        {
+            release( httpResponse );
+            throw new RemoteItemNotModifiedException( request, repository );
+        }
+        else if ( httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_OK )
         {
             InputStream is;
             try
             {
                 is = new Hc4InputStream( repository, new InterruptableInputStream( method, httpResponse.getEntity().getContent() ) );
-                 
+
+                is = makeResumable( repository, request, url, method, httpResponse, is );
+
+                if ( remoteStorageStatistics.isEnabled() )
+                {
+                    is = new MeteredInputStream( is )
+                    {
+                        @Override
+                        protected void done( final long bytes, final long millis )
+                        {
+                            remoteStorageStatistics.recordDownload( repository.getId(), baseUrl, bytes, millis );
+                        }
+                    };
+                }
+
                 String mimeType = ContentType.getOrDefault( httpResponse.getEntity() ).getMimeType();
                 if ( mimeType == null )
                 {
@@ -200,6 +287,18 @@ public class HttpClientRemoteStorage
                 httpItem.setCreated( httpItem.getModified() );
                 httpItem.getItemContext().putAll( request.getRequestContext() );
 
+                // record validators for later revalidation
+                final Header etag = httpResponse.getFirstHeader( "etag" );
+                if ( etag != null )
+                {
+                    httpItem.getRepositoryItemAttributes().put( REMOTE_ETAG_KEY, etag.getValue() );
+                }
+                final Header lastModified = httpResponse.getFirstHeader( "last-modified" );
+                if ( lastModified != null )
+                {
+                    httpItem.getRepositoryItemAttributes().put( REMOTE_LAST_MODIFIED_KEY, lastModified.getValue() );
+                }
+
                 return httpItem;
             }
             catch ( IOException ex )
@@ -428,6 +527,93 @@ public class HttpClientRemoteStorage
     // Implementation methods
     // ----------------------------------------------------------------------
 
+    /**
+     * Wraps the content stream into {@link ResumableInputStream} if the response allows resume: it has a known
+     * length, is not encoded, and carries a validator usable in "If-Range" header (a strong ETag or Last-Modified).
+     * Otherwise the stream is returned as is.
+     */
+    private InputStream makeResumable( final ProxyRepository repository, final ResourceStoreRequest request,
+                                       final String url, final HttpGet method, final HttpResponse httpResponse,
+                                       final InputStream is )
+    {
+        final long length = httpResponse.getEntity().getContentLength();
+        if ( MAX_RESUMES < 1 || length < 1 || httpResponse.getFirstHeader( "content-encoding" ) != null )
+        {
+            return is;
+        }
+
+        String validator = null;
+        final Header etag = httpResponse.getFirstHeader( "etag" );
+        if ( etag != null && !etag.getValue().startsWith( "W/" ) )
+        {
+            validator = etag.getValue();
+        }
+        else if ( httpResponse.getFirstHeader( "last-modified" ) != null )
+        {
+            validator = httpResponse.getFirstHeader( "last-modified" ).getValue();
+        }
+        if ( validator == null )
+        {
+            return is;
+        }
+
+        final String ifRange = validator;
+        return new ResumableInputStream( is, length, MAX_RESUMES )
+        {
+            private HttpGet current = method;
+
+            @Override
+            protected InputStream resume( final long offset, final InputStream failed )
+            {
+                // abort, as consuming the rest of broken response would be pointless
+                current.abort();
+
+                final HttpGet resumed = new HttpGet( url );
+                resumed.setHeader( "Range", "bytes=" + offset + "-" );
+                resumed.setHeader( "If-Range", ifRange );
+                // we need the very same bytes, no encoding
+                resumed.setHeader( "Accept-Encoding", "identity" );
+
+                final HttpResponse resumedResponse;
+                try
+                {
+                    resumedResponse = executeRequest( repository, request, resumed );
+                }
+                catch ( RemoteStorageException e )
+                {
+                    getLogger().debug( "Could not resume download of {}", url, e );
+                    return null;
+                }
+
+                // 200 means the remote content changed (If-Range failed) or remote does not support ranges
+                final Header contentRange = resumedResponse.getFirstHeader( "content-range" );
+                if ( resumedResponse.getStatusLine().getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT
+                    || contentRange == null
+                    || !contentRange.getValue().trim().startsWith( "bytes " + offset + "-" )
+                    || resumedResponse.getEntity().getContentLength() != length - offset )
+                {
+                    getLogger().debug( "Remote refused to resume download of {}, response: {}", url,
+                        resumedResponse.getStatusLine() );
+                    resumed.abort();
+                    return null;
+                }
+
+                try
+                {
+                    getLogger().info( "Resumed download of {} at byte {} of {}", new Object[] { url, offset, length } );
+                    current = resumed;
+                    return new Hc4InputStream( repository, new InterruptableInputStream( resumed,
+                        resumedResponse.getEntity().getContent() ) );
+                }
+                catch ( IOException e )
+                {
+                    resumed.abort();
+                    return null;
+                }
+            }
+        };
+    }
+
     /**
      * Executes the HTTP request.
      * <p/>
@@ -482,7 +668,10 @@ public class HttpClientRemoteStorage
 
         httpRequest.setHeader( "Accept", "*/*" );
         httpRequest.setHeader( "Accept-Language", "en-us" );
-        httpRequest.setHeader( "Accept-Encoding", "gzip,deflate,identity" );
+        if ( !httpRequest.containsHeader( "Accept-Encoding" ) )
+        {
+            httpRequest.setHeader( "Accept-Encoding", "gzip,deflate,identity" );
+        }
         httpRequest.setHeader( "Cache-Control", "no-cache" );
 
         HttpResponse httpResponse = null;
@@ -549,6 +738,37 @@ public class HttpClientRemoteStorage
         }
     }
 
+    /**
+     * Maps the response of a GET to outcome recorded in remote storage statistics.
+     */
+    private Outcome getOutcome( final HttpResponse httpResponse, final StorageItem localItem )
+    {
+        final int statusCode = httpResponse.getStatusLine().getStatusCode();
+        if ( statusCode == HttpStatus.SC_OK )
+        {
+            return Outcome.SUCCESS;
+        }
+        else if ( localItem != null && statusCode == HttpStatus.SC_NOT_MODIFIED )
+        {
+            return Outcome.NOT_MODIFIED;
+        }
+        else if ( statusCode == HttpStatus.SC_NOT_FOUND || statusCode == HttpStatus.SC_MOVED_TEMPORARILY
+            || statusCode == HttpStatus.SC_MOVED_PERMANENTLY )
+        {
+            return Outcome.NOT_FOUND;
+        }
+        return Outcome.FAILURE;
+    }
+
+    private void recordResponse( final ProxyRepository repository, final String baseUrl, final Outcome outcome,
+                                 final long startedNanos )
+    {
+        final long poolWaitNanos = ConnectionLeaseTimer.getAndResetWaitNanos();
+        remoteStorageStatistics.recordResponse( repository.getId(), baseUrl, outcome,
+            TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startedNanos ),
+            TimeUnit.NANOSECONDS.toMillis( poolWaitNanos ) );
+    }
+
     /**
      * Executes the HTTP request and automatically releases any related resources.
      *
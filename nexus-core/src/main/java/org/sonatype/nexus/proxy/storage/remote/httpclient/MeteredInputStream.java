@@ -0,0 +1,117 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.remote.httpclient;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Input stream that counts the bytes read and measures the time from it's creation until the end of content is
+ * reached or the stream is closed, whichever happens first, and reports them once to {@link #done(long, long)}.
+ *
+ * @since 2.4
+ */
+abstract class MeteredInputStream
+    extends FilterInputStream
+{
+    private final long started;
+
+    private long bytes;
+
+    private boolean done;
+
+    protected MeteredInputStream( final InputStream stream )
+    {
+        super( stream );
+        this.started = System.nanoTime();
+    }
+
+    /**
+     * Invoked once, with count of bytes read and elapsed time in milliseconds.
+     */
+    protected abstract void done( final long bytes, final long millis );
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final int result = super.read();
+        if ( result > -1 )
+        {
+            bytes++;
+        }
+        else
+        {
+            finish();
+        }
+        return result;
+    }
+
+    @Override
+    public int read( final byte[] b, final int off, final int len )
+        throws IOException
+    {
+        final int result = super.read( b, off, len );
+        if ( result > -1 )
+        {
+            bytes += result;
+        }
+        else
+        {
+            finish();
+        }
+        return result;
+    }
+
+    @Override
+    public long skip( final long n )
+        throws IOException
+    {
+        final long result = super.skip( n );
+        bytes += result;
+        return result;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            finish();
+        }
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    // ==
+
+    private void finish()
+    {
+        if ( !done )
+        {
+            done = true;
+            done( bytes, TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - started ) );
+        }
+    }
+}
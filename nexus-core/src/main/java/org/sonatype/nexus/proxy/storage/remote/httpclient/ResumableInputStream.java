@@ -0,0 +1,166 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.remote.httpclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Input stream of a remote content with known length, that in case of transport failure (or premature end of
+ * content) "resumes" the content from the position where failure happened, by asking the implementation to open a new
+ * stream starting at given offset (ie. using a ranged GET). If resume is not possible, the original failure is
+ * rethrown, hence the behaviour is same as without this wrapper. Thread interruption is never resumed.
+ *
+ * @since 2.4
+ */
+abstract class ResumableInputStream
+    extends InputStream
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final long length;
+
+    private InputStream stream;
+
+    private long position;
+
+    private int resumesLeft;
+
+    protected ResumableInputStream( final InputStream stream, final long length, final int maxResumes )
+    {
+        this.stream = stream;
+        this.length = length;
+        this.position = 0;
+        this.resumesLeft = maxResumes;
+    }
+
+    /**
+     * Opens a new stream of content starting at given offset, or returns {@code null} if not possible.
+     * Implementation should release the resources bound to the failed stream.
+     */
+    protected abstract InputStream resume( final long offset, final InputStream failed )
+        throws IOException;
+
+    public long getPosition()
+    {
+        return position;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        while ( true )
+        {
+            try
+            {
+                final int result = stream.read();
+                if ( result > -1 )
+                {
+                    position++;
+                    return result;
+                }
+                if ( position >= length || !tryResume( null ) )
+                {
+                    return -1;
+                }
+            }
+            catch ( IOException e )
+            {
+                if ( !tryResume( e ) )
+                {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int read( final byte[] b, final int off, final int len )
+        throws IOException
+    {
+        while ( true )
+        {
+            try
+            {
+                final int result = stream.read( b, off, len );
+                if ( result > -1 )
+                {
+                    position += result;
+                    return result;
+                }
+                if ( position >= length || !tryResume( null ) )
+                {
+                    return -1;
+                }
+            }
+            catch ( IOException e )
+            {
+                if ( !tryResume( e ) )
+                {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int available()
+        throws IOException
+    {
+        return stream.available();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        stream.close();
+    }
+
+    // ==
+
+    /**
+     * Tries to resume the content at current position. The cause is {@code null} for premature end of content.
+     */
+    private boolean tryResume( final IOException cause )
+        throws IOException
+    {
+        // plain InterruptedIOException is thread interruption (see InterruptableInputStream), while it's
+        // subclasses like SocketTimeoutException are transport failures
+        if ( resumesLeft <= 0 || position >= length
+            || ( cause != null && cause.getClass() == InterruptedIOException.class )
+            || Thread.currentThread().isInterrupted() )
+        {
+            return false;
+        }
+
+        resumesLeft--;
+
+        logger.debug( "Resuming remote content at {} of {} bytes, cause: {}", new Object[] { position, length,
+            cause == null ? "premature end of content" : cause.toString() } );
+
+        final InputStream resumed = resume( position, stream );
+        if ( resumed == null )
+        {
+            return false;
+        }
+
+        stream = resumed;
+        return true;
+    }
+}
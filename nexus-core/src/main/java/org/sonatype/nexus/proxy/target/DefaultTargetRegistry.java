@@ -42,6 +42,9 @@ import org.sonatype.nexus.proxy.events.TargetRegistryEventRemove;
 import org.sonatype.nexus.proxy.registry.ContentClass;
 import org.sonatype.nexus.proxy.registry.RepositoryTypeRegistry;
 import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.nexus.util.SystemPropertiesHelper;
+
+import com.google.common.eventbus.Subscribe;
 
 /**
  * The default implementation of target registry.
@@ -64,10 +67,19 @@ public class DefaultTargetRegistry
     @Requirement
     private ApplicationConfigurationValidator validator;
 
+    private final int MATCHER_CACHE_SIZE = SystemPropertiesHelper.getInteger( getClass().getName()
+        + ".matcherCacheSize", 10000 );
+
+    private final long MATCHER_CACHE_MAX_AGE = SystemPropertiesHelper.getLong( getClass().getName()
+        + ".matcherCacheMaxAge", 600000L );
+
     // a cache view of "live" targets, keyed by target ID
     // eagerly rebuilt on every configuration change
     private Map<String, Target> targets;
 
+    // compiled form of the view above, rebuilt with it, result cache invalidated on target add/remove
+    private volatile TargetMatcher targetMatcher = new TargetMatcher( Collections.<Target> emptyList(), 0, 0 );
+
     // ==
 
     @Override
@@ -143,6 +155,8 @@ public class DefaultTargetRegistry
                 }
             }
             targets = newView;
+            logger.debug( "Replacing target matcher, result cache statistics: {}", targetMatcher.getCacheStats() );
+            targetMatcher = new TargetMatcher( newView.values(), MATCHER_CACHE_SIZE, MATCHER_CACHE_MAX_AGE );
         }
     }
 
@@ -257,15 +271,7 @@ public class DefaultTargetRegistry
     {
         logger.debug("Resolving targets for contentClass='{}' for path='{}'", contentClass.getId(), path );
 
-        final Set<Target> result = new HashSet<Target>();
-        for ( Target t : getRepositoryTargets() )
-        {
-            if ( t.isPathContained( contentClass, path ) )
-            {
-                result.add( t );
-            }
-        }
-        return result;
+        return new HashSet<Target>( targetMatcher.getTargets( contentClass, path ) );
     }
 
     public TargetSet getTargetsForRepositoryPath( Repository repository, String path )
@@ -273,12 +279,9 @@ public class DefaultTargetRegistry
         logger.debug( "Resolving targets for repository='{}' for path='{}'", repository.getId(), path );
 
         final TargetSet result = new TargetSet();
-        for ( Target t : getRepositoryTargets() )
+        for ( Target t : targetMatcher.getTargets( repository.getRepositoryContentClass(), path ) )
         {
-            if ( t.isPathContained( repository.getRepositoryContentClass(), path ) )
-            {
-                result.addTargetMatch( new TargetMatch( t, repository ) );
-            }
+            result.addTargetMatch( new TargetMatch( t, repository ) );
         }
         return result;
     }
@@ -301,4 +304,18 @@ public class DefaultTargetRegistry
     {
         return "Repository Target Configuration";
     }
+
+    // ==
+
+    @Subscribe
+    public void onEvent( final TargetRegistryEventAdd evt )
+    {
+        targetMatcher.clearCache();
+    }
+
+    @Subscribe
+    public void onEvent( final TargetRegistryEventRemove evt )
+    {
+        targetMatcher.clearCache();
+    }
 }
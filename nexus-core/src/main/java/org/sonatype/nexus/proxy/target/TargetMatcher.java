@@ -0,0 +1,475 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.target;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.sonatype.nexus.proxy.registry.ContentClass;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Matches paths against all the patterns of a fixed set of targets at once, yielding same results as invoking
+ * {@link Target#isPathContained(ContentClass, String)} on each of them. Built once per target registry change.
+ * <p>
+ * A literal prefix is extracted from every pattern, and patterns are stored in a prefix trie, so that only patterns
+ * whose prefix is a prefix of the path are evaluated at all. Patterns of same target having same prefix are combined
+ * into one alternation, evaluated as a single regular expression (the JDK regex engine has no DFA, so this is the
+ * closest to combined automaton it offers). The "match all" patterns and fully literal patterns are matched without
+ * regular expressions. Finally, results are memoized per content class and path in a bounded cache, whose entries
+ * expire after given age, as content class compatibility may change while the matcher is in use.
+ *
+ * @since 2.4
+ */
+class TargetMatcher
+{
+    private static final String MATCH_ALL = ".*";
+
+    private static final String METACHARACTERS = ".[]{}()*+?^$|";
+
+    private static final String OPTIONAL_QUANTIFIERS = "?*{";
+
+    // inline flags, quoting and back references
+    private static final Pattern UNCOMBINABLE = Pattern.compile( "\\(\\?[^:=!<]|\\\\Q|\\\\\\d|\\\\k<" );
+
+    private final Target[] targets;
+
+    private final List<Integer> matchAllTargets;
+
+    private final Map<String, List<Integer>> literalTargets;
+
+    private final Node root;
+
+    private final ConcurrentMap<String, boolean[]> compatibilities;
+
+    private final Cache<String, List<Target>> cache;
+
+    TargetMatcher( final Collection<Target> targets, final int cacheSize, final long cacheMaxAge )
+    {
+        this.targets = targets.toArray( new Target[targets.size()] );
+        this.matchAllTargets = new ArrayList<Integer>();
+        this.literalTargets = new HashMap<String, List<Integer>>();
+        this.root = new Node();
+        this.compatibilities = new ConcurrentHashMap<String, boolean[]>();
+        this.cache =
+            CacheBuilder.newBuilder().maximumSize( cacheSize ).expireAfterWrite( cacheMaxAge, TimeUnit.MILLISECONDS )
+                .recordStats().build();
+
+        for ( int i = 0; i < this.targets.length; i++ )
+        {
+            compile( i, this.targets[i] );
+        }
+    }
+
+    /**
+     * Returns the unmodifiable list of targets containing the path, never {@code null}.
+     */
+    List<Target> getTargets( final ContentClass contentClass, final String path )
+    {
+        final String key = contentClass.getId() + ":" + path;
+
+        List<Target> result = cache.getIfPresent( key );
+
+        if ( result == null )
+        {
+            result = match( contentClass, path );
+            cache.put( key, result );
+        }
+
+        return result;
+    }
+
+    void clearCache()
+    {
+        compatibilities.clear();
+        cache.invalidateAll();
+    }
+
+    CacheStats getCacheStats()
+    {
+        return cache.stats();
+    }
+
+    // ==
+
+    /**
+     * Returns the longest literal string all the strings matched by regex start with. Is conservative, may return a
+     * shorter prefix than possible (ie. empty string for patterns having top level alternation).
+     */
+    static String getLiteralPrefix( final String regex )
+    {
+        final StringBuilder prefix = new StringBuilder();
+
+        scanLiteral( regex, prefix );
+
+        return prefix.toString();
+    }
+
+    /**
+     * Returns {@code true} if regex matches only one string: itself, with escapes removed.
+     */
+    static boolean isLiteral( final String regex )
+    {
+        return scanLiteral( regex, new StringBuilder() ) == regex.length();
+    }
+
+    // ==
+
+    private void compile( final int index, final Target target )
+    {
+        final Map<String, List<Pattern>> patternsByPrefix = new LinkedHashMap<String, List<Pattern>>();
+
+        for ( Pattern pattern : target.getPatterns() )
+        {
+            final String regex = pattern.pattern();
+
+            if ( MATCH_ALL.equals( regex ) )
+            {
+                // other patterns of target does not matter
+                matchAllTargets.add( index );
+
+                return;
+            }
+
+            final StringBuilder prefix = new StringBuilder();
+
+            if ( scanLiteral( regex, prefix ) == regex.length() )
+            {
+                List<Integer> indexes = literalTargets.get( prefix.toString() );
+
+                if ( indexes == null )
+                {
+                    indexes = new ArrayList<Integer>( 1 );
+                    literalTargets.put( prefix.toString(), indexes );
+                }
+
+                indexes.add( index );
+            }
+            else
+            {
+                List<Pattern> patterns = patternsByPrefix.get( prefix.toString() );
+
+                if ( patterns == null )
+                {
+                    patterns = new ArrayList<Pattern>();
+                    patternsByPrefix.put( prefix.toString(), patterns );
+                }
+
+                patterns.add( pattern );
+            }
+        }
+
+        for ( Map.Entry<String, List<Pattern>> entry : patternsByPrefix.entrySet() )
+        {
+            final Node node = root.descend( entry.getKey() );
+
+            for ( Pattern pattern : combine( entry.getValue() ) )
+            {
+                node.entries.add( new Entry( index, pattern ) );
+            }
+        }
+    }
+
+    private List<Target> match( final ContentClass contentClass, final String path )
+    {
+        final boolean[] compatible = getCompatibility( contentClass );
+
+        final boolean[] matched = new boolean[targets.length];
+
+        final List<Target> result = new ArrayList<Target>();
+
+        // "." does not match line terminators
+        if ( !hasLineTerminator( path ) )
+        {
+            for ( int index : matchAllTargets )
+            {
+                add( index, compatible, matched, result );
+            }
+        }
+
+        final List<Integer> literals = literalTargets.get( path );
+
+        if ( literals != null )
+        {
+            for ( int index : literals )
+            {
+                add( index, compatible, matched, result );
+            }
+        }
+
+        Node node = root;
+
+        for ( int i = 0; node != null; i++ )
+        {
+            for ( Entry entry : node.entries )
+            {
+                if ( compatible[entry.index] && !matched[entry.index] && entry.pattern.matcher( path ).matches() )
+                {
+                    add( entry.index, compatible, matched, result );
+                }
+            }
+
+            node = i < path.length() ? node.children.get( path.charAt( i ) ) : null;
+        }
+
+        return Collections.unmodifiableList( result );
+    }
+
+    private void add( final int index, final boolean[] compatible, final boolean[] matched, final List<Target> result )
+    {
+        if ( compatible[index] && !matched[index] )
+        {
+            matched[index] = true;
+
+            result.add( targets[index] );
+        }
+    }
+
+    private boolean[] getCompatibility( final ContentClass contentClass )
+    {
+        boolean[] result = compatibilities.get( contentClass.getId() );
+
+        if ( result == null )
+        {
+            result = new boolean[targets.length];
+
+            for ( int i = 0; i < targets.length; i++ )
+            {
+                result[i] = targets[i].isContentClassCompatible( contentClass );
+            }
+
+            compatibilities.put( contentClass.getId(), result );
+        }
+
+        return result;
+    }
+
+    /**
+     * Combines patterns into one alternation, if they use no constructs that would change meaning when wrapped into a
+     * group (back references, inline flags, quoting).
+     */
+    private static List<Pattern> combine( final List<Pattern> patterns )
+    {
+        if ( patterns.size() == 1 )
+        {
+            return patterns;
+        }
+
+        final StringBuilder combined = new StringBuilder();
+
+        for ( Pattern pattern : patterns )
+        {
+            final String regex = pattern.pattern();
+
+            if ( UNCOMBINABLE.matcher( regex ).find() )
+            {
+                return patterns;
+            }
+
+            if ( combined.length() > 0 )
+            {
+                combined.append( '|' );
+            }
+
+            combined.append( "(?:" ).append( regex ).append( ')' );
+        }
+
+        try
+        {
+            return Collections.singletonList( Pattern.compile( combined.toString() ) );
+        }
+        catch ( PatternSyntaxException e )
+        {
+            return patterns;
+        }
+    }
+
+    /**
+     * Scans the literal prefix of regex into prefix, and returns the index scan stopped at. Returns {@code -1} if regex
+     * has top level alternation.
+     */
+    private static int scanLiteral( final String regex, final StringBuilder prefix )
+    {
+        if ( hasTopLevelAlternation( regex ) )
+        {
+            return -1;
+        }
+
+        int i = 0;
+
+        while ( i < regex.length() )
+        {
+            final char c = regex.charAt( i );
+
+            final int next;
+
+            if ( c == '\\' )
+            {
+                if ( i + 1 >= regex.length() || Character.isLetterOrDigit( regex.charAt( i + 1 ) ) )
+                {
+                    // character class, back reference, quoting or similar
+                    return i;
+                }
+
+                prefix.append( regex.charAt( i + 1 ) );
+
+                next = i + 2;
+            }
+            else if ( METACHARACTERS.indexOf( c ) > -1 )
+            {
+                return i;
+            }
+            else
+            {
+                prefix.append( c );
+
+                next = i + 1;
+            }
+
+            if ( next < regex.length() && OPTIONAL_QUANTIFIERS.indexOf( regex.charAt( next ) ) > -1 )
+            {
+                // last character may be absent
+                prefix.setLength( prefix.length() - 1 );
+
+                return i;
+            }
+
+            i = next;
+        }
+
+        return i;
+    }
+
+    private static boolean hasTopLevelAlternation( final String regex )
+    {
+        int depth = 0;
+
+        boolean inClass = false;
+
+        for ( int i = 0; i < regex.length(); i++ )
+        {
+            final char c = regex.charAt( i );
+
+            if ( c == '\\' )
+            {
+                if ( i + 1 < regex.length() && regex.charAt( i + 1 ) == 'Q' )
+                {
+                    final int end = regex.indexOf( "\\E", i + 2 );
+
+                    if ( end < 0 )
+                    {
+                        return false;
+                    }
+
+                    i = end + 1;
+                }
+                else
+                {
+                    i++;
+                }
+            }
+            else if ( inClass )
+            {
+                inClass = c != ']';
+            }
+            else if ( c == '[' )
+            {
+                inClass = true;
+            }
+            else if ( c == '(' )
+            {
+                depth++;
+            }
+            else if ( c == ')' )
+            {
+                depth--;
+            }
+            else if ( c == '|' && depth == 0 )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean hasLineTerminator( final String path )
+    {
+        for ( int i = 0; i < path.length(); i++ )
+        {
+            final char c = path.charAt( i );
+
+            if ( c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029' )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // ==
+
+    private static class Node
+    {
+        private final Map<Character, Node> children = new HashMap<Character, Node>();
+
+        private final List<Entry> entries = new ArrayList<Entry>();
+
+        private Node descend( final String path )
+        {
+            Node result = this;
+
+            for ( int i = 0; i < path.length(); i++ )
+            {
+                Node child = result.children.get( path.charAt( i ) );
+
+                if ( child == null )
+                {
+                    child = new Node();
+                    result.children.put( path.charAt( i ), child );
+                }
+
+                result = child;
+            }
+
+            return result;
+        }
+    }
+
+    private static class Entry
+    {
+        private final int index;
+
+        private final Pattern pattern;
+
+        private Entry( final int index, final Pattern pattern )
+        {
+            this.index = index;
+            this.pattern = pattern;
+        }
+    }
+}
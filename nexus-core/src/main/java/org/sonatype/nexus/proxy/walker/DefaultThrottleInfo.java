@@ -12,10 +12,13 @@
  */
 package org.sonatype.nexus.proxy.walker;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.sonatype.nexus.proxy.walker.WalkerThrottleController.ThrottleInfo;
 
 /**
- * A simple single-threaded ThrottleInfo used in Walker implementation.
+ * A simple ThrottleInfo used in Walker implementation. Is safe to use from multiple threads (as parallel walks do),
+ * each thread timing it's own item processing.
  * 
  * @author cstamas
  * @since 2.0
@@ -25,17 +28,18 @@ public class DefaultThrottleInfo
 {
     private final long walkStarted;
 
-    private long totalProcessItemSpentMillis;
+    private final AtomicLong totalProcessItemSpentMillis;
 
-    private long totalProcessItemInvocationCount;
+    private final AtomicLong totalProcessItemInvocationCount;
 
-    private long lastProcessItemEnterTime;
+    private final ThreadLocal<Long> lastProcessItemEnterTime;
 
     public DefaultThrottleInfo()
     {
         this.walkStarted = now();
-        this.totalProcessItemSpentMillis = 0;
-        this.totalProcessItemInvocationCount = 0;
+        this.totalProcessItemSpentMillis = new AtomicLong( 0 );
+        this.totalProcessItemInvocationCount = new AtomicLong( 0 );
+        this.lastProcessItemEnterTime = new ThreadLocal<Long>();
     }
 
     protected long now()
@@ -45,25 +49,30 @@ public class DefaultThrottleInfo
 
     public void enterProcessItem()
     {
-        this.lastProcessItemEnterTime = now();
+        lastProcessItemEnterTime.set( now() );
     }
 
     public void exitProcessItem()
     {
-        totalProcessItemSpentMillis += now() - lastProcessItemEnterTime;
-        totalProcessItemInvocationCount++;
+        final Long enterTime = lastProcessItemEnterTime.get();
+        if ( enterTime != null )
+        {
+            totalProcessItemSpentMillis.addAndGet( now() - enterTime );
+            lastProcessItemEnterTime.remove();
+        }
+        totalProcessItemInvocationCount.incrementAndGet();
     }
 
     @Override
     public long getTotalProcessItemSpentMillis()
     {
-        return totalProcessItemSpentMillis;
+        return totalProcessItemSpentMillis.get();
     }
 
     @Override
     public long getTotalProcessItemInvocationCount()
     {
-        return totalProcessItemInvocationCount;
+        return totalProcessItemInvocationCount.get();
     }
 
     @Override
@@ -15,29 +15,44 @@ package org.sonatype.nexus.proxy.walker;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
 import org.sonatype.nexus.logging.AbstractLoggingComponent;
 import org.sonatype.nexus.proxy.AccessDeniedException;
 import org.sonatype.nexus.proxy.IllegalOperationException;
 import org.sonatype.nexus.proxy.ItemNotFoundException;
+import org.sonatype.nexus.proxy.RepositoryNotAvailableException;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.StorageException;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
 import org.sonatype.nexus.proxy.item.StorageCollectionItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.repository.GroupRepository;
 import org.sonatype.nexus.proxy.repository.LocalStatus;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.nexus.proxy.repository.ShadowRepository;
+import org.sonatype.nexus.proxy.storage.local.fs.DefaultFSLocalRepositoryStorage;
 import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
+import org.sonatype.nexus.threads.NexusThreadFactory;
+import org.sonatype.nexus.util.SystemPropertiesHelper;
 import org.sonatype.scheduling.TaskInterruptedException;
 
 /**
- * The Class Walker.
+ * The Class Walker. Walks are depth-first and made by the calling thread, unless all the processors of the walk are
+ * {@link ParallelWalkerProcessor}s, in which case subtrees are walked in parallel, using a bounded pool of threads
+ * shared by all the walks. The pool is sized by {@code org.sonatype.nexus.proxy.walker.DefaultWalker.parallelism}
+ * system property, where value of 1 (the default) disables parallel walks.
  * 
  * @author cstamas
  */
 @Component( role = Walker.class )
 public class DefaultWalker
     extends AbstractLoggingComponent
-    implements Walker
+    implements Walker, Disposable
 {
     public static final String WALKER_WALKED_COLLECTION_COUNT = Walker.class.getSimpleName() + ".collCount";
 
@@ -45,6 +60,28 @@ public class DefaultWalker
 
     public static final String WALKER_THROTTLE_INFO = Walker.class.getSimpleName() + ".throttleInfo";
 
+    /**
+     * The count of threads walking in parallel, shared by all the walks. This pool size is the only cap of the IO
+     * parallel walks take from content requests. Parallel walks are disabled by default.
+     */
+    private final int parallelism = SystemPropertiesHelper.getInteger( DefaultWalker.class.getName() + ".parallelism",
+        1 );
+
+    private ThreadPoolExecutor parallelExecutor;
+
+    // == Disposable iface, to manage ExecutorService lifecycle
+
+    public synchronized void dispose()
+    {
+        if ( parallelExecutor != null )
+        {
+            parallelExecutor.shutdown();
+            parallelExecutor = null;
+        }
+    }
+
+    // == Walker iface
+
     public void walk( WalkerContext context )
         throws WalkerException
     {
@@ -91,7 +128,16 @@ public class DefaultWalker
                         {
                             WalkerFilter filter =
                                 context.getFilter() != null ? context.getFilter() : new DefaultStoreWalkerFilter();
-                            collCount = walkRecursive( 0, context, filter, (StorageCollectionItem) item );
+                            if ( isParallel( context ) )
+                            {
+                                final ParallelWalk walk =
+                                    new ParallelWalk( this, context, filter, getParallelExecutor() );
+                                collCount = walk.walk( (StorageCollectionItem) item );
+                            }
+                            else
+                            {
+                                collCount = walkRecursive( 0, context, filter, (StorageCollectionItem) item );
+                            }
                             context.getContext().put( WALKER_WALKED_COLLECTION_COUNT, collCount );
                         }
                         catch ( Exception e )
@@ -229,7 +275,7 @@ public class DefaultWalker
 
         if ( shouldProcessRecursively )
         {
-            ls = context.getRepository().list( false, coll );
+            ls = listItems( context, coll );
 
             if ( context.getItemComparator() != null )
             {
@@ -272,6 +318,85 @@ public class DefaultWalker
         return collCount;
     }
 
+    /**
+     * Lists the collection being walked. If all the active processors are {@link LightweightWalkerProcessor}s, and the
+     * repository is neither a group nor a shadow, and is backed by file system storage, the listing is made without
+     * materializing the file items, see {@link DefaultFSLocalRepositoryStorage#listItemsLazily}.
+     */
+    protected Collection<StorageItem> listItems( WalkerContext context, StorageCollectionItem coll )
+        throws AccessDeniedException, IllegalOperationException, ItemNotFoundException, StorageException
+    {
+        final Repository repository = context.getRepository();
+
+        if ( isLightweight( context ) && repository.getLocalStorage() instanceof DefaultFSLocalRepositoryStorage
+            && !repository.getRepositoryKind().isFacetAvailable( GroupRepository.class )
+            && !repository.getRepositoryKind().isFacetAvailable( ShadowRepository.class ) )
+        {
+            if ( !repository.getLocalStatus().shouldServiceRequest() )
+            {
+                throw new RepositoryNotAvailableException( repository );
+            }
+
+            final Collection<StorageItem> items =
+                ( (DefaultFSLocalRepositoryStorage) repository.getLocalStorage() ).listItemsLazily( repository,
+                    new ResourceStoreRequest( coll ) );
+
+            for ( StorageItem item : items )
+            {
+                item.getItemContext().putAll( coll.getItemContext() );
+            }
+
+            return items;
+        }
+
+        return repository.list( false, coll );
+    }
+
+    protected boolean isLightweight( WalkerContext context )
+    {
+        for ( WalkerProcessor processor : context.getProcessors() )
+        {
+            if ( processor.isActive() && !( processor instanceof LightweightWalkerProcessor ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    protected boolean isParallel( WalkerContext context )
+    {
+        if ( parallelism < 2 )
+        {
+            return false;
+        }
+
+        for ( WalkerProcessor processor : context.getProcessors() )
+        {
+            if ( processor.isActive() && !( processor instanceof ParallelWalkerProcessor ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    protected synchronized ThreadPoolExecutor getParallelExecutor()
+    {
+        if ( parallelExecutor == null )
+        {
+            parallelExecutor =
+                new ThreadPoolExecutor( parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new NexusThreadFactory( "nxwalker", "Parallel Walker",
+                        Thread.NORM_PRIORITY, true ) );
+            parallelExecutor.allowCoreThreadTimeOut( true );
+        }
+
+        return parallelExecutor;
+    }
+
     protected void walkItem( WalkerContext context, WalkerFilter filter, StorageItem i )
     {
         if ( filter.shouldProcess( context, i ) )
@@ -39,7 +39,7 @@ public class DefaultWalkerContext
 
     private List<WalkerProcessor> processors;
 
-    private Throwable stopCause;
+    private volatile Throwable stopCause;
 
     private Comparator<StorageItem> itemComparator;
 
@@ -0,0 +1,30 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.walker;
+
+/**
+ * Marker for {@link WalkerProcessor}s that need only the "cheap" properties of walked file items: path, name, length
+ * and modification time (as known by the file system). When all the active processors of a walk are lightweight,
+ * and the walked repository is backed by file system storage, the walker lists the collections without materializing
+ * the file items: the item attributes (hence also properties like last requested time) and content (with it's MIME
+ * type) are loaded only when the processor (or the walker filter) asks for them. As lightweight listing is not a
+ * content request, the last requested time of walked items is not touched. Also, link items are presented as plain
+ * file items, and virtual items the repository might add to listings (like remote checksums of Maven proxies) are not
+ * presented at all, hence processors interested in those should not implement this interface.
+ * 
+ * @since 2.4
+ */
+public interface LightweightWalkerProcessor
+    extends WalkerProcessor
+{
+}
@@ -0,0 +1,272 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.walker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.nexus.proxy.item.StorageCollectionItem;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.scheduling.TaskInterruptedException;
+
+/**
+ * A single parallel walk, see {@link ParallelWalkerProcessor}. Subtrees are forked as tasks to the executor only while
+ * it's queue is short, otherwise they are walked inline (depth-first) by the thread that found them, hence the tasks
+ * never wait for each other. Instead, every collection counts it's pending subtrees, and the thread completing the last
+ * of them invokes the exit callback of the collection. The thread that started the walk walks the root collection
+ * itself, and then waits for all the forked tasks to finish, meanwhile checking for cancellation of the walk.
+ * 
+ * @since 2.4
+ */
+class ParallelWalk
+{
+    private final DefaultWalker walker;
+
+    private final WalkerContext context;
+
+    private final WalkerFilter filter;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int forkThreshold;
+
+    private final AtomicInteger collCount;
+
+    private final Object lock;
+
+    private int runningTasks;
+
+    ParallelWalk( final DefaultWalker walker, final WalkerContext context, final WalkerFilter filter,
+                  final ThreadPoolExecutor executor )
+    {
+        this.walker = walker;
+        this.context = context;
+        this.filter = filter;
+        this.executor = executor;
+        this.forkThreshold = executor.getMaximumPoolSize();
+        this.collCount = new AtomicInteger( 0 );
+        this.lock = new Object();
+        this.runningTasks = 0;
+    }
+
+    /**
+     * Walks the collection, returning the count of processed collections.
+     */
+    int walk( final StorageCollectionItem root )
+    {
+        walkNode( new Node( null, root ) );
+
+        awaitTasks();
+
+        return collCount.get();
+    }
+
+    // ==
+
+    private void walkNode( final Node node )
+    {
+        try
+        {
+            if ( context.isStopped() )
+            {
+                return;
+            }
+
+            final boolean shouldProcess = filter.shouldProcess( context, node.coll );
+
+            final boolean shouldProcessRecursively = filter.shouldProcessRecursively( context, node.coll );
+
+            if ( shouldProcess )
+            {
+                walker.onCollectionEnter( context, node.coll );
+
+                collCount.incrementAndGet();
+
+                node.entered = true;
+            }
+
+            if ( !shouldProcessRecursively || context.isStopped() )
+            {
+                return;
+            }
+
+            Collection<StorageItem> ls = walker.listItems( context, node.coll );
+
+            if ( context.getItemComparator() != null )
+            {
+                final ArrayList<StorageItem> list = new ArrayList<StorageItem>( ls );
+                Collections.sort( list, context.getItemComparator() );
+                ls = list;
+            }
+
+            for ( StorageItem i : ls )
+            {
+                if ( i instanceof StorageCollectionItem )
+                {
+                    final Node child = new Node( node, (StorageCollectionItem) i );
+
+                    // the child holds the parent until it exits
+                    node.pending.incrementAndGet();
+
+                    if ( executor.getQueue().size() < forkThreshold )
+                    {
+                        fork( child );
+                    }
+                    else
+                    {
+                        walkNode( child );
+                    }
+                }
+                else
+                {
+                    walker.walkItem( context, filter, i );
+                }
+
+                if ( context.isStopped() )
+                {
+                    return;
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            context.stop( e );
+        }
+        finally
+        {
+            complete( node );
+        }
+    }
+
+    /**
+     * Releases the node, and invokes exit callbacks of the node and it's parents that have no more pending subtrees.
+     */
+    private void complete( final Node node )
+    {
+        Node current = node;
+
+        while ( current != null && current.pending.decrementAndGet() == 0 )
+        {
+            if ( current.entered && !context.isStopped() )
+            {
+                walker.onCollectionExit( context, current.coll );
+            }
+
+            current = current.parent;
+        }
+    }
+
+    private void fork( final Node node )
+    {
+        synchronized ( lock )
+        {
+            runningTasks++;
+        }
+
+        try
+        {
+            executor.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        walkNode( node );
+                    }
+                    finally
+                    {
+                        taskDone();
+                    }
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // pool is shutting down, we are on our own
+            taskDone();
+
+            walkNode( node );
+        }
+    }
+
+    private void taskDone()
+    {
+        synchronized ( lock )
+        {
+            runningTasks--;
+
+            if ( runningTasks == 0 )
+            {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void awaitTasks()
+    {
+        boolean interrupted = false;
+
+        synchronized ( lock )
+        {
+            while ( runningTasks > 0 )
+            {
+                try
+                {
+                    lock.wait( 1000 );
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+
+                    context.stop( new TaskInterruptedException( "Thread \"" + Thread.currentThread().getName()
+                        + "\" is interrupted!", false ) );
+                }
+
+                // cancellation is detectable from this thread only, and is propagated to workers by stopping
+                context.isStopped();
+            }
+        }
+
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==
+
+    private static class Node
+    {
+        private final Node parent;
+
+        private final StorageCollectionItem coll;
+
+        private final AtomicInteger pending;
+
+        private volatile boolean entered;
+
+        private Node( final Node parent, final StorageCollectionItem coll )
+        {
+            this.parent = parent;
+            this.coll = coll;
+            // the node holds itself until it's listing is walked
+            this.pending = new AtomicInteger( 1 );
+            this.entered = false;
+        }
+    }
+}
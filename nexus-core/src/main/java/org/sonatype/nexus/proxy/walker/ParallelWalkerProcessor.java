@@ -0,0 +1,28 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.walker;
+
+/**
+ * Marker for {@link WalkerProcessor}s that are safe to be invoked concurrently, from multiple threads. When all the
+ * active processors of a walk are parallel, and parallel walking is not disabled, the walker splits the subtrees of
+ * the walked collection across a bounded pool of threads shared by all walks. Within each subtree the callbacks are
+ * still invoked in order: {@code onCollectionEnter} of a collection precedes the callbacks of it's members, and
+ * {@code onCollectionExit} follows all of them, but the order of processing of sibling subtrees is not defined (nor is
+ * the thread they are processed with). The {@link WalkerFilter} of the walk, if any, is invoked concurrently as well.
+ * 
+ * @since 2.4
+ */
+public interface ParallelWalkerProcessor
+    extends WalkerProcessor
+{
+}
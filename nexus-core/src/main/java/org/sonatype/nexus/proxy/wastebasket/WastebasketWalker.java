@@ -25,13 +25,14 @@ import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.storage.UnsupportedStorageOperationException;
 import org.sonatype.nexus.proxy.walker.AbstractWalkerProcessor;
+import org.sonatype.nexus.proxy.walker.LightweightWalkerProcessor;
+import org.sonatype.nexus.proxy.walker.ParallelWalkerProcessor;
 import org.sonatype.nexus.proxy.walker.SilentWalker;
 import org.sonatype.nexus.proxy.walker.WalkerContext;
-import org.sonatype.nexus.proxy.walker.WalkerProcessor;
 
 public class WastebasketWalker
     extends AbstractWalkerProcessor
-    implements WalkerProcessor, SilentWalker
+    implements LightweightWalkerProcessor, ParallelWalkerProcessor, SilentWalker
 {
 
     private long age;
@@ -24,6 +24,7 @@ import org.sonatype.nexus.proxy.NoSuchRepositoryException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.NexusStartedEvent;
 import org.sonatype.nexus.proxy.events.RepositoryConfigurationUpdatedEvent;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryEventAdd;
@@ -46,6 +47,7 @@ import org.sonatype.nexus.repository.metadata.model.RepositoryMirrorMetadata;
 import org.sonatype.plexus.appevents.Event;
 
 @Component( role = EventInspector.class, hint = "NexusRepositoryMetadataEventInspector" )
+@InspectedEvents( { RepositoryRegistryEventAdd.class, RepositoryConfigurationUpdatedEvent.class, NexusStartedEvent.class } )
 public class NexusRepositoryMetadataEventInspector
     extends AbstractEventInspector
 {
@@ -18,6 +18,7 @@ import org.sonatype.nexus.email.NexusPostOffice;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.AsynchronousEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.scheduling.events.NexusTaskEventStoppedFailed;
 import org.sonatype.plexus.appevents.Event;
 
@@ -27,6 +28,7 @@ import org.sonatype.plexus.appevents.Event;
  * @author Alin Dreghiciu
  */
 @Component( role = EventInspector.class, hint = "nexusTaskFailureAlertEmailSender" )
+@InspectedEvents( NexusTaskEventStoppedFailed.class )
 public class NexusTaskFailureAlertEmailSender
     extends AbstractEventInspector
     implements AsynchronousEventInspector
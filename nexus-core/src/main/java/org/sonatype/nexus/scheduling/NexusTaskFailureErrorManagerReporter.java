@@ -19,6 +19,7 @@ import org.sonatype.nexus.error.reporting.ErrorReportingManager;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.AsynchronousEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.scheduling.events.NexusTaskEventStoppedFailed;
 import org.sonatype.plexus.appevents.Event;
 
@@ -28,6 +29,7 @@ import org.sonatype.plexus.appevents.Event;
  * @author cstamas
  */
 @Component( role = EventInspector.class, hint = "NexusTaskFailureErrorManagerReporter" )
+@InspectedEvents( NexusTaskEventStoppedFailed.class )
 public class NexusTaskFailureErrorManagerReporter
     extends AbstractEventInspector
     implements AsynchronousEventInspector
@@ -23,6 +23,7 @@ import org.sonatype.nexus.jsecurity.realms.TargetPrivilegeRepositoryPropertyDesc
 import org.sonatype.nexus.jsecurity.realms.TargetPrivilegeRepositoryTargetPropertyDescriptor;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
 import org.sonatype.nexus.proxy.events.TargetRegistryEventRemove;
 import org.sonatype.plexus.appevents.Event;
@@ -34,6 +35,7 @@ import org.sonatype.security.authorization.xml.SecurityXmlAuthorizationManager;
 import org.sonatype.security.realms.tools.ConfigurationManager;
 
 @Component( role = EventInspector.class, hint = "SecurityCleanupEventInspector" )
+@InspectedEvents( { RepositoryRegistryEventRemove.class, TargetRegistryEventRemove.class } )
 public class SecurityCleanupEventInspector
     extends AbstractEventInspector
 {
@@ -17,6 +17,7 @@ import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.nexus.plugins.events.PluginActivatedEvent;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.plexus.appevents.Event;
 
 /**
@@ -25,6 +26,7 @@ import org.sonatype.plexus.appevents.Event;
  * @author cstamas
  */
 @Component( role = EventInspector.class, hint = "PluginActivatedTemplateEventInspector" )
+@InspectedEvents( PluginActivatedEvent.class )
 public class PluginActivatedTemplateEventInspector
     extends AbstractEventInspector
     implements EventInspector
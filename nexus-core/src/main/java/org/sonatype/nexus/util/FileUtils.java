@@ -14,10 +14,14 @@ package org.sonatype.nexus.util;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -280,4 +284,98 @@ public class FileUtils
             }
         }
     }
+
+    /**
+     * The maximum count of bytes transferred by single {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+     * invocation, as some OSes have limits on it.
+     */
+    private static final long TRANSFER_CHUNK_SIZE = 64L * 1024L * 1024L;
+
+    /**
+     * Transfers the whole content of the source file channel to target channel using
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, that on most OSes avoids copying the content
+     * through user space (and Java heap buffers). The position of the source channel is not used nor modified.
+     * 
+     * @return the count of bytes transferred.
+     * @since 2.4
+     */
+    public static long transfer( final FileChannel source, final WritableByteChannel target )
+        throws IOException
+    {
+        return transfer( source, 0, source.size(), target );
+    }
+
+    /**
+     * Transfers the given region of the source file channel to target channel, just like
+     * {@link #transfer(FileChannel, WritableByteChannel)} does with whole content (ie. to serve byte ranges). The
+     * position of the source channel is not used nor modified.
+     * 
+     * @return the count of bytes transferred, that is less than count if source is shorter than expected.
+     * @since 2.4
+     */
+    public static long transfer( final FileChannel source, final long position, final long count,
+                                 final WritableByteChannel target )
+        throws IOException
+    {
+        final long end = position + count;
+
+        long current = position;
+
+        while ( current < end )
+        {
+            final long transferred =
+                source.transferTo( current, Math.min( end - current, TRANSFER_CHUNK_SIZE ), target );
+
+            if ( transferred <= 0 )
+            {
+                // source got truncated meanwhile
+                break;
+            }
+
+            current += transferred;
+        }
+
+        return current - position;
+    }
+
+    /**
+     * Copies source file to destination file using {@link #transfer(FileChannel, WritableByteChannel)}. Destination
+     * file, if exists, is overwritten, and parent directories of it are created if needed.
+     * 
+     * @since 2.4
+     */
+    public static void copyFile( final File source, final File destination )
+        throws IOException
+    {
+        if ( !source.isFile() )
+        {
+            throw new FileNotFoundException( "Source file doesn't exists " + source );
+        }
+
+        destination.getParentFile().mkdirs();
+
+        final FileInputStream fis = new FileInputStream( source );
+        try
+        {
+            final FileOutputStream fos = new FileOutputStream( destination );
+            try
+            {
+                final long transferred = transfer( fis.getChannel(), fos.getChannel() );
+
+                if ( transferred != source.length() )
+                {
+                    throw new IOException( "Failed to copy full contents from '" + source + "' to '" + destination
+                        + "'" );
+                }
+            }
+            finally
+            {
+                fos.close();
+            }
+        }
+        finally
+        {
+            fis.close();
+        }
+    }
 }
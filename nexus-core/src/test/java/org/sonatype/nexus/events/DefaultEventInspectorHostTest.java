@@ -14,6 +14,7 @@ package org.sonatype.nexus.events;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 
 import java.util.HashMap;
@@ -22,7 +23,9 @@ import java.util.concurrent.CountDownLatch;
 import org.junit.Test;
 import org.sonatype.nexus.proxy.events.AsynchronousEventInspectorWrapper;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.NexusStartedEvent;
+import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
 import org.sonatype.plexus.appevents.Event;
 
 public class DefaultEventInspectorHostTest
@@ -55,8 +58,107 @@ public class DefaultEventInspectorHostTest
         assertThat( asyncEI.getInspectInvoked() - syncEI.getInspectInvoked(), greaterThanOrEqualTo( 100L ) );
     }
 
+    @Test
+    public void testDispatchByInspectedEvents()
+        throws Exception
+    {
+        final InvocationTimestampEventInspector anyEI = new InvocationTimestampEventInspector();
+        final StartedEventInspector startedEI = new StartedEventInspector();
+
+        final HashMap<String, EventInspector> map = new HashMap<String, EventInspector>( 2 );
+        map.put( "any", anyEI );
+        map.put( "started", startedEI );
+
+        final DefaultEventInspectorHost host = new DefaultEventInspectorHost( map );
+        try
+        {
+            host.onEvent( new NexusStoppedEvent( this ) );
+            host.onEvent( new NexusStoppedEvent( this ) );
+
+            // not declared, not even asked
+            assertThat( startedEI.getAcceptsInvoked(), equalTo( 0 ) );
+
+            host.onEvent( new NexusStartedEvent( this ) );
+
+            assertThat( startedEI.getAcceptsInvoked(), equalTo( 1 ) );
+            assertThat( host.getEventInspectorStatistics().get( "any" ).getInvocations(), equalTo( 3L ) );
+            assertThat( host.getEventInspectorStatistics().get( "started" ).getInvocations(), equalTo( 1L ) );
+        }
+        finally
+        {
+            host.dispose();
+        }
+    }
+
+    @Test
+    public void testDispatchBuiltBeforeInspectorsChangeIsDiscarded()
+        throws Exception
+    {
+        final HashMap<String, EventInspector> map = new HashMap<String, EventInspector>( 2 );
+        map.put( "any", new InvocationTimestampEventInspector() );
+
+        final DefaultEventInspectorHost host = new DefaultEventInspectorHost( map )
+        {
+            private boolean changeInspectors = true;
+
+            @Override
+            protected EventInspectorDispatch buildEventInspectorDispatch( final Class<?> eventClass )
+            {
+                final EventInspectorDispatch result = super.buildEventInspectorDispatch( eventClass );
+
+                // inspectors change (and host gets notified) while dispatch is being built from the old ones
+                if ( changeInspectors )
+                {
+                    changeInspectors = false;
+                    map.put( "late", new InvocationTimestampEventInspector() );
+                    onEvent( new NexusStartedEvent( this ) );
+                }
+
+                return result;
+            }
+        };
+        try
+        {
+            host.onEvent( new NexusStoppedEvent( this ) );
+            host.onEvent( new NexusStoppedEvent( this ) );
+
+            // started event and second stopped event
+            assertThat( host.getEventInspectorStatistics().get( "late" ).getInvocations(), equalTo( 2L ) );
+            assertThat( host.getEventInspectorStatistics().get( "any" ).getInvocations(), equalTo( 3L ) );
+        }
+        finally
+        {
+            host.dispose();
+        }
+    }
+
     // ==
 
+    @InspectedEvents( NexusStartedEvent.class )
+    public static class StartedEventInspector
+        implements EventInspector
+    {
+        private int acceptsInvoked = 0;
+
+        public int getAcceptsInvoked()
+        {
+            return acceptsInvoked;
+        }
+
+        @Override
+        public boolean accepts( Event<?> evt )
+        {
+            acceptsInvoked++;
+            return true;
+        }
+
+        @Override
+        public void inspect( Event<?> evt )
+        {
+            // nothing
+        }
+    }
+
     public static class InvocationTimestampEventInspector
         implements EventInspector
     {
@@ -0,0 +1,276 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.events;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.sonatype.nexus.events.EventInspectorQueue.OverflowPolicy;
+import org.sonatype.nexus.proxy.events.BatchingEventInspector;
+import org.sonatype.nexus.proxy.events.NexusStartedEvent;
+import org.sonatype.plexus.appevents.Event;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * {@link EventInspectorQueue} UTs.
+ * 
+ * @since 2.4
+ */
+public class EventInspectorQueueTest
+    extends TestSupport
+{
+    /**
+     * Executor that does not run anything until asked to.
+     */
+    private final ManualExecutor executor = new ManualExecutor();
+
+    private final RecordingEventInspector eventInspector = new RecordingEventInspector();
+
+    private final EventInspectorStatistics statistics = new EventInspectorStatistics( "test", true );
+
+    @Test
+    public void eventsAreProcessedInBatches()
+    {
+        final EventInspectorQueue queue = createQueue( 10, 2, OverflowPolicy.BLOCK );
+
+        final List<KeyedEvent> events = new ArrayList<KeyedEvent>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            events.add( new KeyedEvent( String.valueOf( i ) ) );
+            queue.enqueue( events.get( i ) );
+        }
+        assertThat( statistics.getQueueSize(), equalTo( 5L ) );
+
+        executor.runAll();
+
+        assertThat( eventInspector.batches, hasSize( 3 ) );
+        assertThat( eventInspector.inspected(), equalTo( (List<Event<?>>) new ArrayList<Event<?>>( events ) ) );
+        assertThat( statistics.getInvocations(), equalTo( 5L ) );
+        assertThat( statistics.getQueueSize(), equalTo( 0L ) );
+        assertThat( queue.isIdle(), equalTo( true ) );
+    }
+
+    @Test
+    public void dropPolicy()
+    {
+        final EventInspectorQueue queue = createQueue( 2, 10, OverflowPolicy.DROP );
+
+        queue.enqueue( new KeyedEvent( "a" ) );
+        queue.enqueue( new KeyedEvent( "b" ) );
+        queue.enqueue( new KeyedEvent( "c" ) );
+
+        executor.runAll();
+
+        assertThat( eventInspector.inspected(), hasSize( 2 ) );
+        assertThat( statistics.getDroppedEvents(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void coalescePolicy()
+    {
+        final EventInspectorQueue queue = createQueue( 2, 10, OverflowPolicy.COALESCE );
+
+        final KeyedEvent a1 = new KeyedEvent( "a" );
+        final KeyedEvent b = new KeyedEvent( "b" );
+        final KeyedEvent a2 = new KeyedEvent( "a" );
+        queue.enqueue( a1 );
+        queue.enqueue( b );
+        queue.enqueue( a2 );
+
+        executor.runAll();
+
+        assertThat( eventInspector.inspected(), contains( (Event<?>) b, a2 ) );
+        assertThat( statistics.getCoalescedEvents(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void coalescePolicyKeepsLatestEvent()
+    {
+        final EventInspectorQueue queue = createQueue( 2, 10, OverflowPolicy.COALESCE );
+
+        // like store, delete and store again of same item
+        final KeyedEvent store1 = new KeyedEvent( "a" );
+        final KeyedEvent delete = new KeyedEvent( "a" );
+        final KeyedEvent store2 = new KeyedEvent( "a" );
+        queue.enqueue( store1 );
+        queue.enqueue( delete );
+        queue.enqueue( store2 );
+
+        executor.runAll();
+
+        assertThat( eventInspector.inspected(), contains( (Event<?>) store2 ) );
+        assertThat( statistics.getCoalescedEvents(), equalTo( 2L ) );
+        assertThat( statistics.getQueueSize(), equalTo( 0L ) );
+    }
+
+    @Test
+    public void workerDoesNotBlockOnFullQueue()
+    {
+        final EventInspectorQueue queue = createQueue( 1, 10, OverflowPolicy.BLOCK );
+        final KeyedEvent a = new KeyedEvent( "a" );
+        final KeyedEvent b = new KeyedEvent( "b" );
+        final KeyedEvent c = new KeyedEvent( "c" );
+        eventInspector.onInspect = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                // emitted from within worker, while queue is full
+                eventInspector.onInspect = null;
+                queue.enqueue( b );
+                queue.enqueue( c );
+            }
+        };
+
+        queue.enqueue( a );
+        executor.runAll();
+
+        // b got queued, c queued beyond capacity, and both processed in order by the drainer
+        assertThat( eventInspector.inspected(), contains( (Event<?>) a, b, c ) );
+        assertThat( eventInspector.batches, hasSize( 2 ) );
+        assertThat( statistics.getOverCapacityEvents(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void callerWaitForFreeSpaceIsBounded()
+    {
+        final EventInspectorQueue queue = createQueue( 1, 10, OverflowPolicy.BLOCK );
+        final KeyedEvent a = new KeyedEvent( "a" );
+        final KeyedEvent b = new KeyedEvent( "b" );
+
+        // nothing drains the queue until runAll, like a worker waiting for a lock held by the caller
+        queue.enqueue( a );
+        queue.enqueue( b );
+
+        assertThat( statistics.getOverCapacityEvents(), equalTo( 1L ) );
+        assertThat( statistics.getQueueSize(), equalTo( 2L ) );
+
+        executor.runAll();
+
+        assertThat( eventInspector.inspected(), contains( (Event<?>) a, b ) );
+    }
+
+    @Test
+    public void coalescePolicyWaitIsBoundedWhenNothingToCoalesce()
+    {
+        final EventInspectorQueue queue = createQueue( 1, 10, OverflowPolicy.COALESCE );
+        final KeyedEvent a = new KeyedEvent( "a" );
+        final KeyedEvent b = new KeyedEvent( "b" );
+
+        queue.enqueue( a );
+        queue.enqueue( b );
+
+        assertThat( statistics.getOverCapacityEvents(), equalTo( 1L ) );
+        assertThat( statistics.getCoalescedEvents(), equalTo( 0L ) );
+
+        executor.runAll();
+
+        assertThat( eventInspector.inspected(), contains( (Event<?>) a, b ) );
+    }
+
+    // ==
+
+    private EventInspectorQueue createQueue( final int capacity, final int batchSize, final OverflowPolicy policy )
+    {
+        return new EventInspectorQueue( LoggerFactory.getLogger( getClass() ), eventInspector, statistics, executor,
+            capacity, batchSize, policy, 10 );
+    }
+
+    private static class ManualExecutor
+        implements Executor
+    {
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute( final Runnable command )
+        {
+            tasks.add( command );
+        }
+
+        public void runAll()
+        {
+            while ( !tasks.isEmpty() )
+            {
+                tasks.remove( 0 ).run();
+            }
+        }
+    }
+
+    private static class KeyedEvent
+        extends NexusStartedEvent
+    {
+        private final String key;
+
+        private KeyedEvent( final String key )
+        {
+            super( null );
+            this.key = key;
+        }
+    }
+
+    private static class RecordingEventInspector
+        implements BatchingEventInspector
+    {
+        private final List<List<Event<?>>> batches = new ArrayList<List<Event<?>>>();
+
+        private Runnable onInspect;
+
+        public List<Event<?>> inspected()
+        {
+            final List<Event<?>> result = new ArrayList<Event<?>>();
+            for ( List<Event<?>> batch : batches )
+            {
+                result.addAll( batch );
+            }
+            return result;
+        }
+
+        @Override
+        public boolean accepts( final Event<?> evt )
+        {
+            return true;
+        }
+
+        @Override
+        public void inspect( final Event<?> evt )
+        {
+            final List<Event<?>> batch = new ArrayList<Event<?>>();
+            batch.add( evt );
+            inspect( batch );
+        }
+
+        @Override
+        public void inspect( final List<Event<?>> events )
+        {
+            batches.add( new ArrayList<Event<?>>( events ) );
+            if ( onInspect != null )
+            {
+                onInspect.run();
+            }
+        }
+
+        @Override
+        public Object getCoalescingKey( final Event<?> evt )
+        {
+            return ( (KeyedEvent) evt ).key;
+        }
+    }
+}
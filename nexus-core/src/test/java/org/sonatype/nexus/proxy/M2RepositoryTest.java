@@ -35,6 +35,8 @@ import org.sonatype.nexus.configuration.model.CRepositoryCoreConfiguration;
 import org.sonatype.nexus.proxy.access.AccessManager;
 import org.sonatype.nexus.proxy.attributes.AttributeStorage;
 import org.sonatype.nexus.proxy.attributes.Attributes;
+import org.sonatype.nexus.proxy.attributes.StorageFileItemInspector;
+import org.sonatype.nexus.proxy.attributes.inspectors.DigestCalculatingInspector;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventCache;
 import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
@@ -54,6 +56,7 @@ import org.sonatype.nexus.proxy.repository.ProxyRepository;
 import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.nexus.proxy.repository.RepositoryWritePolicy;
 import org.sonatype.nexus.proxy.storage.UnsupportedStorageOperationException;
+import org.sonatype.nexus.util.DigesterUtils;
 
 import com.google.common.eventbus.Subscribe;
 
@@ -85,6 +88,28 @@ public class M2RepositoryTest
         return repo1;
     }
 
+    @Test
+    public void testCopyItemChangedBehindOurBack()
+        throws Exception
+    {
+        retrieveItem();
+
+        // file changed, stored digests are stale
+        final File file = getFile( getRepositoryRegistry().getRepository( "repo1" ), getItemPath() );
+        FileUtils.fileWrite( file.getAbsolutePath(), "changed content" );
+        file.setLastModified( System.currentTimeMillis() + 60000L );
+
+        getResourceStore().copyItem( new ResourceStoreRequest( getItemPath(), true ),
+            new ResourceStoreRequest( getItemPath() + "-copy", true ) );
+
+        final StorageFileItem dest =
+            (StorageFileItem) getResourceStore().retrieveItem(
+                new ResourceStoreRequest( getItemPath() + "-copy", true ) );
+
+        Assert.assertEquals( DigesterUtils.getSha1Digest( "changed content" ),
+            dest.getRepositoryItemAttributes().get( StorageFileItem.DIGEST_SHA1_KEY ) );
+    }
+
     @Test
     public void testPoliciesWithRetrieve()
         throws Exception
@@ -906,6 +931,36 @@ public class M2RepositoryTest
         Assert.assertEquals( 32, md5.getLength() );
     }
 
+    @Test
+    public void testDigestsCalculatedWhileCaching()
+        throws Exception
+    {
+        final M2Repository repository = (M2Repository) getResourceStore();
+        final DigestCalculatingInspector inspector =
+            (DigestCalculatingInspector) lookup( StorageFileItemInspector.class, "digest" );
+        final long rehashCount = inspector.getRehashCount();
+        final long liftedCount = inspector.getLiftedCount();
+
+        // proxy cache fill
+        StorageFileItem item =
+            (StorageFileItem) repository.retrieveItem( new ResourceStoreRequest( "/spoof/simple.txt" ) );
+        Assert.assertEquals( DigesterUtils.getSha1Digest( item.getInputStream() ),
+            item.getRepositoryItemAttributes().get( StorageFileItem.DIGEST_SHA1_KEY ) );
+        Assert.assertEquals( DigesterUtils.getMd5Digest( item.getInputStream() ),
+            item.getRepositoryItemAttributes().get( StorageFileItem.DIGEST_MD5_KEY ) );
+
+        // deploy
+        repository.storeItem( false, new DefaultStorageFileItem( repository, "/spoof/deployed.txt", true, true,
+            new StringContentLocator( "deployed content" ) ) );
+        item = (StorageFileItem) repository.retrieveItem( new ResourceStoreRequest( "/spoof/deployed.txt", true ) );
+        Assert.assertEquals( DigesterUtils.getSha1Digest( "deployed content" ),
+            item.getRepositoryItemAttributes().get( StorageFileItem.DIGEST_SHA1_KEY ) );
+
+        // no content was read back just to be hashed
+        Assert.assertEquals( rehashCount, inspector.getRehashCount() );
+        Assert.assertTrue( inspector.getLiftedCount() >= liftedCount + 2 );
+    }
+
     // ==
 
     protected class CounterListener
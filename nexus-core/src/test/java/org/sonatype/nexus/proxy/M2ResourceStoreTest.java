@@ -14,12 +14,14 @@ package org.sonatype.nexus.proxy;
 
 import java.util.Collection;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.sonatype.jettytestsuite.ServletServer;
 import org.sonatype.nexus.proxy.item.StorageCollectionItem;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.nexus.util.DigesterUtils;
 
 public abstract class M2ResourceStoreTest
     extends AbstractProxyTestEnvironment
@@ -72,6 +74,12 @@ public abstract class M2ResourceStoreTest
             new ResourceStoreRequest( getItemPath() + "-copy", true ) );
 
         checkForFileAndMatchContents( src, dest );
+
+        // digests are carried over from source, and match the content
+        Assert.assertEquals( src.getRepositoryItemAttributes().get( StorageFileItem.DIGEST_SHA1_KEY ),
+            dest.getRepositoryItemAttributes().get( StorageFileItem.DIGEST_SHA1_KEY ) );
+        Assert.assertEquals( DigesterUtils.getSha1Digest( dest.getInputStream() ),
+            dest.getRepositoryItemAttributes().get( StorageFileItem.DIGEST_SHA1_KEY ) );
     }
 
     @Test
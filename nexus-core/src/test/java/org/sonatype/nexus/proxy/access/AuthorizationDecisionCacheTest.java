@@ -0,0 +1,108 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.access;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.junit.Test;
+import org.sonatype.security.events.AuthorizationConfigurationChangedEvent;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * {@link AuthorizationDecisionCache} UTs.
+ */
+public class AuthorizationDecisionCacheTest
+    extends TestSupport
+{
+    private static final String READ = "nexus:target:1:central:read";
+
+    private static final String WRITE = "nexus:target:1:central:create";
+
+    private static Subject subject( final String userId )
+    {
+        final Subject subject = mock( Subject.class );
+        when( subject.getPrincipals() ).thenReturn( new SimplePrincipalCollection( userId, "realm" ) );
+        when( subject.isPermitted( READ ) ).thenReturn( true );
+        when( subject.isPermitted( WRITE ) ).thenReturn( false );
+        return subject;
+    }
+
+    @Test
+    public void grantsAndDenialsAreCached()
+    {
+        final AuthorizationDecisionCache cache = new AuthorizationDecisionCache( 10 );
+        final Subject subject = subject( "deployment" );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertThat( cache.isPermitted( subject, READ ), equalTo( true ) );
+            assertThat( cache.isPermitted( subject, WRITE ), equalTo( false ) );
+        }
+
+        verify( subject, times( 1 ) ).isPermitted( READ );
+        verify( subject, times( 1 ) ).isPermitted( WRITE );
+        assertThat( cache.getHits(), equalTo( 4L ) );
+        assertThat( cache.getMisses(), equalTo( 2L ) );
+    }
+
+    @Test
+    public void decisionsArePerPrincipal()
+    {
+        final AuthorizationDecisionCache cache = new AuthorizationDecisionCache( 10 );
+        final Subject deployment = subject( "deployment" );
+        final Subject anonymous = subject( "anonymous" );
+        when( anonymous.isPermitted( READ ) ).thenReturn( false );
+
+        assertThat( cache.isPermitted( deployment, READ ), equalTo( true ) );
+        assertThat( cache.isPermitted( anonymous, READ ), equalTo( false ) );
+        assertThat( cache.isPermitted( deployment, READ ), equalTo( true ) );
+        assertThat( cache.isPermitted( anonymous, READ ), equalTo( false ) );
+
+        assertThat( cache.getSize(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void configurationChangeInvalidates()
+    {
+        final AuthorizationDecisionCache cache = new AuthorizationDecisionCache( 10 );
+        final Subject subject = subject( "deployment" );
+
+        assertThat( cache.isPermitted( subject, READ ), equalTo( true ) );
+        cache.onEvent( new AuthorizationConfigurationChangedEvent( this ) );
+        assertThat( cache.getSize(), equalTo( 0 ) );
+
+        when( subject.isPermitted( READ ) ).thenReturn( false );
+        assertThat( cache.isPermitted( subject, READ ), equalTo( false ) );
+        assertThat( cache.getInvalidations(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void disabledCacheAlwaysAsks()
+    {
+        final AuthorizationDecisionCache cache = new AuthorizationDecisionCache( 0 );
+        final Subject subject = subject( "deployment" );
+
+        cache.isPermitted( subject, READ );
+        cache.isPermitted( subject, READ );
+
+        verify( subject, times( 2 ) ).isPermitted( READ );
+        assertThat( cache.getSize(), equalTo( 0 ) );
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * Tests for {@link AttributeLog}.
+ */
+public class AttributeLogTest
+    extends TestSupport
+{
+    private File directory;
+
+    @Before
+    public void prepare()
+        throws Exception
+    {
+        directory = util.createTempDir( getClass().getSimpleName() );
+    }
+
+    @After
+    public void cleanup()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+    }
+
+    @Test
+    public void testPutGetDelete()
+        throws Exception
+    {
+        final AttributeLog log = new AttributeLog( directory, 64 );
+
+        log.put( "/a", bytes( "a1" ) );
+        log.put( "/b", bytes( "b1" ) );
+        log.put( "/a", bytes( "a2" ) );
+
+        assertThat( string( log.get( "/a" ) ), equalTo( "a2" ) );
+        assertThat( string( log.get( "/b" ) ), equalTo( "b1" ) );
+        assertThat( log.get( "/c" ), nullValue() );
+
+        assertThat( log.delete( "/b" ), equalTo( true ) );
+        assertThat( log.delete( "/b" ), equalTo( false ) );
+        assertThat( log.get( "/b" ), nullValue() );
+        assertThat( paths( log ), contains( "/a" ) );
+
+        log.close();
+    }
+
+    @Test
+    public void testReopen()
+        throws Exception
+    {
+        AttributeLog log = new AttributeLog( directory, 64 );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            log.put( "/" + i, bytes( "v" + i ) );
+        }
+        log.delete( "/50" );
+        log.close();
+
+        // with index
+        log = new AttributeLog( directory, 64 );
+        assertThat( log.size(), equalTo( 99 ) );
+        assertThat( string( log.get( "/99" ) ), equalTo( "v99" ) );
+        assertThat( log.get( "/50" ), nullValue() );
+        log.put( "/100", bytes( "v100" ) );
+        log.flush();
+
+        // crash: no index, tail is replayed
+        log = new AttributeLog( directory, 64 );
+        assertThat( log.size(), equalTo( 100 ) );
+        assertThat( string( log.get( "/100" ) ), equalTo( "v100" ) );
+        assertThat( log.get( "/50" ), nullValue() );
+        log.close();
+    }
+
+    @Test
+    public void testTornRecordTruncated()
+        throws Exception
+    {
+        AttributeLog log = new AttributeLog( directory, 64 );
+        log.put( "/a", bytes( "a" ) );
+        log.put( "/b", bytes( "b" ) );
+        log.flush();
+        final long length = log.getLength();
+
+        // crash in the middle of the write of the last record
+        final RandomAccessFile file = new RandomAccessFile( new File( directory, AttributeLog.LOG_FILE ), "rw" );
+        file.setLength( length - 1 );
+        file.close();
+
+        log = new AttributeLog( directory, 64 );
+        assertThat( string( log.get( "/a" ) ), equalTo( "a" ) );
+        assertThat( log.get( "/b" ), nullValue() );
+        log.put( "/c", bytes( "c" ) );
+        log.close();
+
+        log = new AttributeLog( directory, 64 );
+        assertThat( paths( log ), contains( "/a", "/c" ) );
+        log.close();
+    }
+
+    @Test
+    public void testCompact()
+        throws Exception
+    {
+        AttributeLog log = new AttributeLog( directory, 1024 );
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            log.put( "/" + ( i % 10 ), bytes( "v" + i ) );
+        }
+
+        final long length = log.getLength();
+        assertThat( log.getGarbageRatio() > 0.9, equalTo( true ) );
+
+        log.compact();
+
+        assertThat( log.getLength(), lessThan( length ) );
+        assertThat( log.getGarbageRatio(), equalTo( 0.0 ) );
+        assertThat( string( log.get( "/9" ) ), equalTo( "v999" ) );
+        log.close();
+
+        log = new AttributeLog( directory, 1024 );
+        assertThat( log.size(), equalTo( 10 ) );
+        assertThat( string( log.get( "/0" ) ), equalTo( "v990" ) );
+        log.close();
+    }
+
+    @Test
+    public void testCompactKeepsWritesMadeMeanwhile()
+        throws Exception
+    {
+        final AttributeLog log = new AttributeLog( directory, 1024 );
+
+        for ( int i = 0; i < 10000; i++ )
+        {
+            log.put( "/" + ( i % 100 ), bytes( "v" + i ) );
+        }
+
+        final Thread writer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    for ( int i = 0; i < 1000; i++ )
+                    {
+                        log.put( "/" + ( i % 200 ), bytes( "w" + i ) );
+                        log.delete( "/" + ( 50 + i % 50 ) );
+                    }
+                }
+                catch ( Exception e )
+                {
+                    throw new IllegalStateException( e );
+                }
+            }
+        };
+        writer.start();
+        while ( writer.isAlive() )
+        {
+            log.compact();
+        }
+        writer.join();
+        log.compact();
+
+        assertThat( log.getGarbageRatio(), equalTo( 0.0 ) );
+        assertThat( log.size(), equalTo( 150 ) );
+        assertThat( string( log.get( "/0" ) ), equalTo( "w800" ) );
+        assertThat( string( log.get( "/199" ) ), equalTo( "w999" ) );
+        assertThat( log.get( "/99" ), nullValue() );
+        assertThat( paths( log ).size(), equalTo( 150 ) );
+        log.close();
+    }
+
+    @Test
+    public void testHashCollisions()
+        throws Exception
+    {
+        AttributeLog log = new CollidingAttributeLog( directory );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            log.put( "/" + i, bytes( "v" + i ) );
+        }
+        for ( int i = 0; i < 100; i += 2 )
+        {
+            assertThat( log.delete( "/" + i ), equalTo( true ) );
+        }
+        log.put( "/1", bytes( "x" ) );
+
+        assertThat( log.size(), equalTo( 50 ) );
+        assertThat( string( log.get( "/1" ) ), equalTo( "x" ) );
+        assertThat( string( log.get( "/99" ) ), equalTo( "v99" ) );
+        assertThat( log.get( "/98" ), nullValue() );
+        log.close();
+
+        log = new CollidingAttributeLog( directory );
+        assertThat( log.size(), equalTo( 50 ) );
+        assertThat( string( log.get( "/1" ) ), equalTo( "x" ) );
+        assertThat( log.get( "/0" ), nullValue() );
+        log.compact();
+        assertThat( string( log.get( "/3" ) ), equalTo( "v3" ) );
+        assertThat( paths( log ).size(), equalTo( 50 ) );
+        log.close();
+    }
+
+    @Test
+    public void testScanStops()
+        throws Exception
+    {
+        final AttributeLog log = new AttributeLog( directory, 64 );
+        log.put( "/a", bytes( "a" ) );
+        log.put( "/b", bytes( "b" ) );
+
+        final List<String> visited = new ArrayList<String>();
+        log.scan( new AttributeLog.Visitor()
+        {
+            @Override
+            public boolean visit( final String path, final byte[] value )
+                throws IOException
+            {
+                visited.add( path );
+                return false;
+            }
+        } );
+
+        assertThat( visited, contains( "/a" ) );
+        log.close();
+    }
+
+    // ==
+
+    private static List<String> paths( final AttributeLog log )
+        throws IOException
+    {
+        final List<String> result = new ArrayList<String>();
+
+        log.scan( new AttributeLog.Visitor()
+        {
+            @Override
+            public boolean visit( final String path, final byte[] value )
+                throws IOException
+            {
+                result.add( path );
+                return true;
+            }
+        } );
+
+        return result;
+    }
+
+    private static byte[] bytes( final String value )
+        throws Exception
+    {
+        return value.getBytes( "UTF-8" );
+    }
+
+    private static String string( final byte[] value )
+        throws Exception
+    {
+        return new String( value, "UTF-8" );
+    }
+
+    /**
+     * Log with few distinct path hashes, so lookups have to tell colliding paths apart.
+     */
+    private static class CollidingAttributeLog
+        extends AttributeLog
+    {
+        private CollidingAttributeLog( final File directory )
+            throws IOException
+        {
+            super( directory, 64 );
+        }
+
+        @Override
+        long hash( final String path )
+        {
+            return path.length() % 3;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.nexus.configuration.application.ApplicationConfiguration;
+import org.sonatype.nexus.proxy.attributes.internal.DefaultAttributes;
+import org.sonatype.nexus.proxy.events.RepositoryRegistryEventAdd;
+import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
+import org.sonatype.nexus.proxy.registry.RepositoryRegistry;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * Tests for {@link DefaultLogAttributeStorage}.
+ */
+public class DefaultLogAttributeStorageTest
+    extends TestSupport
+{
+    private File directory;
+
+    private Repository repository;
+
+    private DefaultLogAttributeStorage storage;
+
+    @Before
+    public void prepare()
+        throws Exception
+    {
+        directory = util.createTempDir( getClass().getSimpleName() );
+
+        final ApplicationConfiguration applicationConfiguration = mock( ApplicationConfiguration.class );
+        when( applicationConfiguration.getWorkingDirectory( anyString() ) ).thenReturn( directory );
+
+        repository = mock( Repository.class );
+        when( repository.getId() ).thenReturn( "repo" );
+
+        storage = new DefaultLogAttributeStorage( applicationConfiguration, mock( EventBus.class ) );
+    }
+
+    @After
+    public void cleanup()
+        throws Exception
+    {
+        storage.shutdown();
+        FileUtils.deleteDirectory( directory );
+    }
+
+    @Test( expected = IOException.class )
+    public void testLogIsNotReopenedAfterShutdown()
+        throws Exception
+    {
+        assertThat( storage.getLog( repository ), notNullValue() );
+
+        storage.shutdown();
+
+        storage.getLog( repository );
+    }
+
+    @Test
+    public void testLogIsNotReopenedAfterRepositoryRemoval()
+        throws Exception
+    {
+        assertThat( storage.getLog( repository ), notNullValue() );
+
+        storage.onEvent( new RepositoryRegistryEventRemove( mock( RepositoryRegistry.class ), repository ) );
+
+        try
+        {
+            storage.getLog( repository );
+            Assert.fail( "Log of removed repository should not be reopened" );
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+
+        // unless repository is added again
+        storage.onEvent( new RepositoryRegistryEventAdd( mock( RepositoryRegistry.class ), repository ) );
+
+        assertThat( storage.getLog( repository ), notNullValue() );
+    }
+
+    @Test
+    public void testScanAttributesSkipsCorruptRecords()
+        throws Exception
+    {
+        final AttributeLog log = storage.getLog( repository );
+        log.put( "/a", marshal( 1000L ) );
+        log.put( "/b", "corrupt".getBytes( "UTF-8" ) );
+        log.put( "/c", marshal( 2000L ) );
+
+        final List<String> paths = new ArrayList<String>();
+        final List<Long> lastRequested = new ArrayList<Long>();
+        storage.scanAttributes( repository, new ScannableAttributeStorage.Visitor()
+        {
+            @Override
+            public boolean visit( final Attributes attributes )
+                throws IOException
+            {
+                assertThat( attributes.getRepositoryId(), equalTo( "repo" ) );
+                paths.add( attributes.getPath() );
+                lastRequested.add( attributes.getLastRequested() );
+                return true;
+            }
+        } );
+
+        assertThat( paths, contains( "/a", "/c" ) );
+        assertThat( lastRequested, contains( 1000L, 2000L ) );
+        assertThat( log.get( "/b" ), nullValue() );
+    }
+
+    // ==
+
+    private static byte[] marshal( final long lastRequested )
+        throws IOException
+    {
+        final Attributes attributes = new DefaultAttributes();
+        attributes.setLastRequested( lastRequested );
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new JacksonJSONMarshaller().marshal( attributes, bos );
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.nexus.proxy.attributes.internal.DefaultAttributes;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * Tests for {@link WriteBehindTouchAttributeStorage}.
+ */
+public class WriteBehindTouchAttributeStorageTest
+    extends TestSupport
+{
+    private MapAttributeStorage delegate;
+
+    private WriteBehindTouchAttributeStorage storage;
+
+    private RepositoryItemUid uid;
+
+    @Before
+    public void prepare()
+    {
+        delegate = new MapAttributeStorage();
+        // long staleness, test flushes explicitly
+        storage = new WriteBehindTouchAttributeStorage( delegate, 60000L, 2 );
+        uid = createUid( "/a" );
+
+        final Attributes attributes = new DefaultAttributes();
+        attributes.setLastRequested( 1L );
+        attributes.setCheckedRemotely( 1L );
+        attributes.setExpired( true );
+        delegate.attributes.put( uid.getKey(), attributes );
+    }
+
+    @After
+    public void cleanup()
+    {
+        storage.shutdown();
+    }
+
+    @Test
+    public void testTouchesCoalescedAndVisible()
+        throws Exception
+    {
+        storage.touchLastRequested( uid, 10L );
+        storage.touchLastRequested( uid, 20L );
+        storage.touchCheckedRemotely( uid, 30L );
+
+        // not written yet, but visible
+        assertThat( delegate.puts, equalTo( 0 ) );
+        assertThat( storage.getAttributes( uid ).getLastRequested(), equalTo( 20L ) );
+        assertThat( storage.getAttributes( uid ).getCheckedRemotely(), equalTo( 30L ) );
+        assertThat( storage.getAttributes( uid ).isExpired(), equalTo( false ) );
+        assertThat( storage.getPendingCount(), equalTo( 1 ) );
+
+        storage.flush();
+
+        assertThat( delegate.puts, equalTo( 1 ) );
+        assertThat( delegate.attributes.get( uid.getKey() ).getLastRequested(), equalTo( 20L ) );
+        assertThat( delegate.attributes.get( uid.getKey() ).getCheckedRemotely(), equalTo( 30L ) );
+        assertThat( storage.getPendingCount(), equalTo( 0 ) );
+        assertThat( storage.getBufferedCount(), equalTo( 1L ) );
+        assertThat( storage.getCoalescedCount(), equalTo( 2L ) );
+        assertThat( storage.getFlushedCount(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void testTouchOfRemovedItemDropped()
+        throws Exception
+    {
+        final RepositoryItemUid other = createUid( "/b" );
+
+        storage.touchLastRequested( other, 10L );
+        storage.touchLastRequested( uid, 10L );
+        storage.deleteAttributes( uid );
+        storage.flush();
+
+        assertThat( delegate.puts, equalTo( 0 ) );
+        assertThat( storage.getDroppedCount(), equalTo( 2L ) );
+    }
+
+    @Test
+    public void testPutWritesTouch()
+        throws Exception
+    {
+        storage.touchLastRequested( uid, 10L );
+
+        final Attributes attributes = new DefaultAttributes();
+        attributes.setLastRequested( 5L );
+        storage.putAttributes( uid, attributes );
+        storage.flush();
+
+        assertThat( delegate.puts, equalTo( 1 ) );
+        assertThat( delegate.attributes.get( uid.getKey() ).getLastRequested(), equalTo( 10L ) );
+        assertThat( storage.getFlushedCount(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void testTouchWhileWritingKeepsBufferedValues()
+        throws Exception
+    {
+        storage.touchCheckedRemotely( uid, 30L );
+
+        final Attributes[] seen = new Attributes[1];
+        delegate.onPut = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                delegate.onPut = null;
+                try
+                {
+                    // touched while the frozen touch is being written, before it lands
+                    storage.touchLastRequested( uid, 40L );
+                    seen[0] = storage.getAttributes( uid );
+                }
+                catch ( Exception e )
+                {
+                    throw new RuntimeException( e );
+                }
+            }
+        };
+
+        storage.flush();
+
+        assertThat( seen[0].getLastRequested(), equalTo( 40L ) );
+        assertThat( seen[0].getCheckedRemotely(), equalTo( 30L ) );
+        assertThat( seen[0].isExpired(), equalTo( false ) );
+        assertThat( storage.getPendingCount(), equalTo( 1 ) );
+
+        storage.flush();
+
+        assertThat( delegate.attributes.get( uid.getKey() ).getLastRequested(), equalTo( 40L ) );
+        assertThat( delegate.attributes.get( uid.getKey() ).getCheckedRemotely(), equalTo( 30L ) );
+    }
+
+    @Test
+    public void testWriteThroughWhenFull()
+        throws Exception
+    {
+        final RepositoryItemUid b = createUid( "/b" );
+        final RepositoryItemUid c = createUid( "/c" );
+        delegate.attributes.put( c.getKey(), new DefaultAttributes() );
+
+        storage.touchLastRequested( uid, 10L );
+        storage.touchLastRequested( b, 10L );
+        storage.touchLastRequested( c, 10L );
+
+        assertThat( storage.getPendingCount(), equalTo( 2 ) );
+        assertThat( storage.getWriteThroughCount(), equalTo( 1L ) );
+        assertThat( delegate.puts, equalTo( 1 ) );
+        assertThat( delegate.attributes.get( c.getKey() ).getLastRequested(), equalTo( 10L ) );
+    }
+
+    // ==
+
+    private RepositoryItemUid createUid( final String path )
+    {
+        final Repository repository = mock( Repository.class );
+        when( repository.getId() ).thenReturn( "repo" );
+
+        final RepositoryItemUid result = mock( RepositoryItemUid.class );
+        when( result.getRepository() ).thenReturn( repository );
+        when( result.getPath() ).thenReturn( path );
+        when( result.getKey() ).thenReturn( "repo:" + path );
+        when( result.getLock() ).thenReturn( mock( RepositoryItemUidLock.class ) );
+        return result;
+    }
+
+    private static class MapAttributeStorage
+        implements AttributeStorage
+    {
+        private final Map<String, Attributes> attributes = new HashMap<String, Attributes>();
+
+        private int puts;
+
+        private Runnable onPut;
+
+        @Override
+        public Attributes getAttributes( final RepositoryItemUid uid )
+        {
+            final Attributes result = attributes.get( uid.getKey() );
+
+            return result != null ? new DefaultAttributes( result.asMap() ) : null;
+        }
+
+        @Override
+        public void putAttributes( final RepositoryItemUid uid, final Attributes attributes )
+        {
+            if ( onPut != null )
+            {
+                onPut.run();
+            }
+            puts++;
+            this.attributes.put( uid.getKey(), new DefaultAttributes( attributes.asMap() ) );
+        }
+
+        @Override
+        public boolean deleteAttributes( final RepositoryItemUid uid )
+        {
+            return attributes.remove( uid.getKey() ) != null;
+        }
+    }
+}
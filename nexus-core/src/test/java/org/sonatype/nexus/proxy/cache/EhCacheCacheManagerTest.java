@@ -150,4 +150,69 @@ public class EhCacheCacheManagerTest
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testRemoveWithChildrenRespectsPathBoundaries()
+        throws Exception
+    {
+        CacheManager cm = lookup( CacheManager.class );
+
+        PathCache c = cm.getPathCache( "boundaries" );
+
+        c.put( "/com/sonatype", Boolean.TRUE );
+        c.put( "/com/sonatype/nexus", Boolean.TRUE );
+        c.put( "/com/sonatype-nexus", Boolean.TRUE );
+        c.put( "/com/sonatype.txt", Boolean.TRUE );
+        c.put( "/com/sonatypes", Boolean.TRUE );
+
+        assertTrue( c.removeWithChildren( "/com/sonatype" ) );
+
+        assertFalse( c.contains( "/com/sonatype" ) );
+        assertFalse( c.contains( "/com/sonatype/nexus" ) );
+        assertTrue( c.contains( "/com/sonatype-nexus" ) );
+        assertTrue( c.contains( "/com/sonatype.txt" ) );
+        assertTrue( c.contains( "/com/sonatypes" ) );
+    }
+
+    @Test
+    public void testPurgeDoesNotAffectOtherRepositories()
+        throws Exception
+    {
+        CacheManager cm = lookup( CacheManager.class );
+
+        PathCache c1 = cm.getPathCache( "repo1" );
+        PathCache c10 = cm.getPathCache( "repo10" );
+
+        c1.put( "/com/sonatype", Boolean.TRUE );
+        c10.put( "/com/sonatype", Boolean.TRUE );
+
+        assertTrue( c1.purge() );
+
+        assertFalse( c1.contains( "/com/sonatype" ) );
+        assertTrue( c10.contains( "/com/sonatype" ) );
+        assertEquals( 0L, c1.getStatistics().getSize() );
+        assertEquals( 1L, c10.getStatistics().getSize() );
+    }
+
+    @Test
+    public void testStatistics()
+        throws Exception
+    {
+        CacheManager cm = lookup( CacheManager.class );
+
+        PathCache c = cm.getPathCache( "stats" );
+
+        c.put( "/com", Boolean.TRUE );
+        c.put( "/com/sonatype", Boolean.TRUE );
+
+        assertTrue( c.contains( "/com" ) );
+        assertFalse( c.contains( "/org" ) );
+        c.remove( "/com/sonatype" );
+
+        // stats are same from any instance of same repository
+        CacheStatistics stats = cm.getPathCache( "stats" ).getStatistics();
+        assertEquals( 1L, stats.getSize() );
+        assertEquals( 2L, stats.getHits() );
+        assertEquals( 1L, stats.getMisses() );
+    }
+
+}
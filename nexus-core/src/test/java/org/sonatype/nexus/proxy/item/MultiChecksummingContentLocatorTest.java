@@ -0,0 +1,100 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.item;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.InputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Test;
+import org.sonatype.nexus.proxy.RequestContext;
+import org.sonatype.nexus.util.DigesterUtils;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * {@link MultiChecksummingContentLocator} UTs.
+ * 
+ * @since 2.4
+ */
+public class MultiChecksummingContentLocatorTest
+    extends TestSupport
+{
+    private static final String CONTENT = "Some content to be hashed while being read, only once.";
+
+    private Map<String, String> algorithms()
+    {
+        final Map<String, String> algorithms = new LinkedHashMap<String, String>();
+        algorithms.put( "SHA1", StorageFileItem.DIGEST_SHA1_KEY );
+        algorithms.put( "MD5", StorageFileItem.DIGEST_MD5_KEY );
+        return algorithms;
+    }
+
+    @Test
+    public void digestsSetOnEof()
+        throws Exception
+    {
+        final RequestContext context = new RequestContext();
+        final MultiChecksummingContentLocator cl =
+            new MultiChecksummingContentLocator( new StringContentLocator( CONTENT ), algorithms(), context );
+
+        final InputStream is = cl.getContent();
+        try
+        {
+            is.read( new byte[5] );
+            assertThat( context.get( StorageFileItem.DIGEST_SHA1_KEY ), nullValue() );
+            is.skip( 5 );
+            IOUtil.toByteArray( is );
+        }
+        finally
+        {
+            is.close();
+        }
+
+        assertThat( (String) context.get( StorageFileItem.DIGEST_SHA1_KEY ),
+            equalTo( DigesterUtils.getSha1Digest( CONTENT ) ) );
+        assertThat( (String) context.get( StorageFileItem.DIGEST_MD5_KEY ),
+            equalTo( DigesterUtils.getMd5Digest( CONTENT ) ) );
+    }
+
+    @Test
+    public void staleDigestsOverwritten()
+        throws Exception
+    {
+        final RequestContext context = new RequestContext();
+        context.put( StorageFileItem.DIGEST_SHA1_KEY, "stale" );
+        final MultiChecksummingContentLocator cl =
+            new MultiChecksummingContentLocator( new StringContentLocator( CONTENT ), algorithms(), context );
+
+        // read twice, fresh digests must be used for each read
+        IOUtil.toByteArray( cl.getContent() );
+        IOUtil.toByteArray( cl.getContent() );
+
+        assertThat( (String) context.get( StorageFileItem.DIGEST_SHA1_KEY ),
+            equalTo( DigesterUtils.getSha1Digest( CONTENT ) ) );
+    }
+
+    @Test( expected = NoSuchAlgorithmException.class )
+    public void unknownAlgorithmFailsFast()
+        throws Exception
+    {
+        final Map<String, String> algorithms = algorithms();
+        algorithms.put( "NO-SUCH-ALGORITHM", "digest.none" );
+        new MultiChecksummingContentLocator( new StringContentLocator( CONTENT ), algorithms, new RequestContext() );
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.item;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.MethodRule;
+import org.sonatype.nexus.proxy.NoSuchRepositoryException;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.BenchmarkRule;
+import com.carrotsearch.junitbenchmarks.annotation.AxisRange;
+import com.carrotsearch.junitbenchmarks.annotation.BenchmarkMethodChart;
+
+/**
+ * Benchmarks the UID lock registry of {@link AbstractRepositoryItemUidFactory} against the previous implementation
+ * (synchronized factory with a {@link WeakHashMap}), at 1, 8 and 64 threads. The workload is mostly lookups of locks
+ * being in use (hot keys), with every 16th lookup being a key never seen before.
+ *
+ * @since 2.4
+ */
+@BenchmarkMethodChart( )
+@AxisRange( min = 0 )
+public class RepositoryItemUidLockRegistryIT
+    extends TestSupport
+{
+    private static final int HOT_KEYS = 1024;
+
+    private static final int LOOKUPS_PER_ROUND = 100000;
+
+    @Rule
+    public MethodRule benchmarkRun = new BenchmarkRule();
+
+    // fixture is shared, as benchmark rule invokes @Before methods concurrently
+
+    private static final AtomicInteger coldKeyCounter = new AtomicInteger();
+
+    private static String[] hotKeys;
+
+    private static List<DefaultRepositoryItemUidLock> hotLocks;
+
+    private static AbstractRepositoryItemUidFactory currentFactory;
+
+    private static AbstractRepositoryItemUidFactory legacyFactory;
+
+    @BeforeClass
+    public static void prepare()
+    {
+        currentFactory = new TestRepositoryItemUidFactory();
+        legacyFactory = new LegacyRepositoryItemUidFactory();
+
+        hotKeys = new String[HOT_KEYS];
+        hotLocks = new ArrayList<DefaultRepositoryItemUidLock>( HOT_KEYS * 2 );
+        for ( int i = 0; i < HOT_KEYS; i++ )
+        {
+            hotKeys[i] = "repo1:/org/sonatype/nexus/artifact-" + i + "/1.0/artifact-" + i + "-1.0.jar";
+            // keep hot locks in use
+            hotLocks.add( currentFactory.doCreateUidLockForKey( hotKeys[i] ) );
+            hotLocks.add( legacyFactory.doCreateUidLockForKey( hotKeys[i] ) );
+        }
+    }
+
+    @Test
+    public void sameLockForSameKey()
+    {
+        for ( int i = 0; i < HOT_KEYS; i++ )
+        {
+            assertThat( currentFactory.doCreateUidLockForKey( new String( hotKeys[i] ) ),
+                sameInstance( hotLocks.get( i * 2 ) ) );
+        }
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 64, warmupRounds = 8, concurrency = 1 )
+    public void current1Thread()
+    {
+        lookups( currentFactory );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 64, warmupRounds = 8, concurrency = 8 )
+    public void current8Threads()
+    {
+        lookups( currentFactory );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 256, warmupRounds = 64, concurrency = 64 )
+    public void current64Threads()
+    {
+        lookups( currentFactory );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 64, warmupRounds = 8, concurrency = 1 )
+    public void legacy1Thread()
+    {
+        lookups( legacyFactory );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 64, warmupRounds = 8, concurrency = 8 )
+    public void legacy8Threads()
+    {
+        lookups( legacyFactory );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 256, warmupRounds = 64, concurrency = 64 )
+    public void legacy64Threads()
+    {
+        lookups( legacyFactory );
+    }
+
+    // ==
+
+    private void lookups( final AbstractRepositoryItemUidFactory factory )
+    {
+        final int offset = (int) Thread.currentThread().getId();
+
+        for ( int i = 0; i < LOOKUPS_PER_ROUND; i++ )
+        {
+            if ( ( i & 15 ) == 15 )
+            {
+                factory.doCreateUidLockForKey( "repo1:/cold/" + coldKeyCounter.incrementAndGet() );
+            }
+            else
+            {
+                factory.doCreateUidLockForKey( hotKeys[( offset + i ) & ( HOT_KEYS - 1 )] );
+            }
+        }
+    }
+
+    private static class TestRepositoryItemUidFactory
+        extends AbstractRepositoryItemUidFactory
+    {
+        @Override
+        public DefaultRepositoryItemUid createUid( final String uidStr )
+            throws IllegalArgumentException, NoSuchRepositoryException
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * The UID lock registry as it was before: allocates a lock on every invocation and serializes all of them.
+     */
+    private static class LegacyRepositoryItemUidFactory
+        extends TestRepositoryItemUidFactory
+    {
+        private final WeakHashMap<DefaultRepositoryItemUidLock, WeakReference<DefaultRepositoryItemUidLock>> locks =
+            new WeakHashMap<DefaultRepositoryItemUidLock, WeakReference<DefaultRepositoryItemUidLock>>();
+
+        @Override
+        protected synchronized DefaultRepositoryItemUidLock doCreateUidLockForKey( final String key )
+        {
+            final DefaultRepositoryItemUidLock newLock =
+                new DefaultRepositoryItemUidLock( key, new SimpleLockResource() );
+
+            final WeakReference<DefaultRepositoryItemUidLock> oldLockRef = locks.get( newLock );
+
+            if ( oldLockRef != null )
+            {
+                final DefaultRepositoryItemUidLock oldLock = oldLockRef.get();
+
+                if ( oldLock != null )
+                {
+                    return oldLock;
+                }
+            }
+
+            locks.put( newLock, new WeakReference<DefaultRepositoryItemUidLock>( newLock ) );
+
+            return newLock;
+        }
+    }
+}
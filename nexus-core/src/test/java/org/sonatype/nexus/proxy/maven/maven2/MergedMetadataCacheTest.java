@@ -0,0 +1,75 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.maven.maven2;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.Test;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * {@link MergedMetadataCache} UTs.
+ *
+ * @since 2.4
+ */
+public class MergedMetadataCacheTest
+    extends TestSupport
+{
+    private static final byte[] CONTENT = "<metadata/>".getBytes();
+
+    @Test
+    public void staleFingerprintIsMiss()
+    {
+        final MergedMetadataCache cache = new MergedMetadataCache( 10 );
+        cache.put( "/g/a/maven-metadata.xml", "repo1:1|repo2:2|", CONTENT, "md5", "sha1" );
+
+        assertThat( cache.get( "/g/a/maven-metadata.xml", "repo1:1|repo2:2|" ), notNullValue() );
+        assertThat( cache.get( "/g/a/maven-metadata.xml", "repo1:1|repo2:3|" ), nullValue() );
+        // stale entry was dropped
+        assertThat( cache.size(), equalTo( 0 ) );
+        assertThat( cache.getHits(), equalTo( 1L ) );
+        assertThat( cache.getMisses(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void invalidateChildren()
+    {
+        final MergedMetadataCache cache = new MergedMetadataCache( 10 );
+        cache.put( "/g/a/maven-metadata.xml", "f", CONTENT, "md5", "sha1" );
+        cache.put( "/g/a/1.0/maven-metadata.xml", "f", CONTENT, "md5", "sha1" );
+        cache.put( "/g/ab/maven-metadata.xml", "f", CONTENT, "md5", "sha1" );
+
+        cache.invalidateChildren( "/g/a" );
+
+        assertThat( cache.size(), equalTo( 1 ) );
+        assertThat( cache.get( "/g/ab/maven-metadata.xml", "f" ), notNullValue() );
+    }
+
+    @Test
+    public void sizeIsBounded()
+    {
+        final MergedMetadataCache cache = new MergedMetadataCache( 2 );
+        cache.put( "/a/maven-metadata.xml", "f", CONTENT, "md5", "sha1" );
+        cache.put( "/b/maven-metadata.xml", "f", CONTENT, "md5", "sha1" );
+        // touch a, so b is eldest
+        cache.get( "/a/maven-metadata.xml", "f" );
+        cache.put( "/c/maven-metadata.xml", "f", CONTENT, "md5", "sha1" );
+
+        assertThat( cache.size(), equalTo( 2 ) );
+        assertThat( cache.get( "/a/maven-metadata.xml", "f" ), notNullValue() );
+        assertThat( cache.get( "/b/maven-metadata.xml", "f" ), nullValue() );
+    }
+}
@@ -12,12 +12,16 @@
  */
 package org.sonatype.nexus.proxy.maven.metadata;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.util.Arrays;
 
 import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Versioning;
 import org.codehaus.plexus.digest.Md5Digester;
 import org.codehaus.plexus.digest.Sha1Digester;
 import org.junit.Test;
@@ -235,6 +239,116 @@ public class GroupMetadataMergeTest
         }
     }
 
+    /**
+     * Merged metadata is cached, but deploy of member metadata must be reflected in merged one, and in it's checksum
+     * too.
+     *
+     * @throws Exception unexpected
+     */
+    @Test
+    public void testMergedMetadataCacheInvalidatedOnMemberDeploy()
+        throws Exception
+    {
+        String mdPath = "/md-merge/ga/maven-metadata.xml";
+
+        StorageItem item = getRootRouter().retrieveItem( new ResourceStoreRequest( "/groups/test" + mdPath, false ) );
+        Metadata md = parseMetadata( (StorageFileItem) item );
+        assertFalse( md.getVersioning().getVersions().contains( "9.9.9" ) );
+
+        // served from cache
+        item = getRootRouter().retrieveItem( new ResourceStoreRequest( "/groups/test" + mdPath, false ) );
+        assertEquals( md.getVersioning().getVersions(), parseMetadata( (StorageFileItem) item ).getVersioning()
+            .getVersions() );
+
+        // deploy new metadata to member
+        Metadata deployed = new Metadata();
+        deployed.setGroupId( "org.sonatype.nexus" );
+        deployed.setArtifactId( "nexus" );
+        Versioning versioning = new Versioning();
+        versioning.addVersion( "9.9.9" );
+        versioning.setRelease( "9.9.9" );
+        versioning.setLatest( "9.9.9" );
+        versioning.setLastUpdated( "20990101000000" );
+        deployed.setVersioning( versioning );
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        MetadataBuilder.write( deployed, bos );
+        getRepositoryRegistry().getRepository( "inhouse" ).storeItem( new ResourceStoreRequest( mdPath ),
+            new ByteArrayInputStream( bos.toByteArray() ), null );
+
+        item = getRootRouter().retrieveItem( new ResourceStoreRequest( "/groups/test" + mdPath, false ) );
+        assertTrue( parseMetadata( (StorageFileItem) item ).getVersioning().getVersions().contains( "9.9.9" ) );
+
+        File mdFile = createTempFile( "metadata", "tmp" );
+        try
+        {
+            saveItemToFile( ( (StorageFileItem) item ), mdFile );
+
+            StorageItem sha1Item =
+                getRootRouter().retrieveItem( new ResourceStoreRequest( "/groups/test" + mdPath + ".sha1", false ) );
+
+            new Sha1Digester().verify( mdFile, contentAsString( sha1Item ) );
+        }
+        finally
+        {
+            mdFile.delete();
+        }
+    }
+
+    /**
+     * Checksum of merged metadata must match a fresh merge, even if it is requested alone, and the member metadata
+     * changed without the group noticing it.
+     *
+     * @throws Exception unexpected
+     */
+    @Test
+    public void testMergedMetadataChecksumOfChangedMember()
+        throws Exception
+    {
+        String mdPath = "/md-merge/ga/maven-metadata.xml";
+
+        StorageItem item = getRootRouter().retrieveItem( new ResourceStoreRequest( "/groups/test" + mdPath, false ) );
+        assertFalse( parseMetadata( (StorageFileItem) item ).getVersioning().getVersions().contains( "9.9.9" ) );
+
+        // change member metadata behind the back of the group, no events are fired
+        Metadata changed = new Metadata();
+        changed.setGroupId( "org.sonatype.nexus" );
+        changed.setArtifactId( "nexus" );
+        Versioning versioning = new Versioning();
+        versioning.addVersion( "9.9.9" );
+        versioning.setLastUpdated( "20990101000000" );
+        changed.setVersioning( versioning );
+        File memberFile = getFile( getRepositoryRegistry().getRepository( "inhouse" ), mdPath );
+        memberFile.getParentFile().mkdirs();
+        FileOutputStream fos = new FileOutputStream( memberFile );
+        try
+        {
+            MetadataBuilder.write( changed, fos );
+        }
+        finally
+        {
+            fos.close();
+        }
+        memberFile.setLastModified( System.currentTimeMillis() + 60000L );
+
+        StorageItem sha1Item =
+            getRootRouter().retrieveItem( new ResourceStoreRequest( "/groups/test" + mdPath + ".sha1", false ) );
+
+        item = getRootRouter().retrieveItem( new ResourceStoreRequest( "/groups/test" + mdPath, false ) );
+        assertTrue( parseMetadata( (StorageFileItem) item ).getVersioning().getVersions().contains( "9.9.9" ) );
+
+        File mdFile = createTempFile( "metadata", "tmp" );
+        try
+        {
+            saveItemToFile( ( (StorageFileItem) item ), mdFile );
+
+            new Sha1Digester().verify( mdFile, contentAsString( sha1Item ) );
+        }
+        finally
+        {
+            mdFile.delete();
+        }
+    }
+
     /**
      * NEXUS-4970: merging should not fail by incompatible artifact ids ( incompatible one should be skipped).
      *
@@ -22,6 +22,11 @@ import java.util.Map;
 
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.junit.Test;
+import org.sonatype.nexus.configuration.ConfigurationChangeEvent;
+import org.sonatype.nexus.configuration.ConfigurationCommitEvent;
+import org.sonatype.nexus.configuration.ConfigurationPrepareForSaveEvent;
+import org.sonatype.nexus.configuration.ConfigurationRollbackEvent;
+import org.sonatype.nexus.configuration.application.ApplicationConfiguration;
 import org.sonatype.nexus.configuration.model.CLocalStorage;
 import org.sonatype.nexus.configuration.model.CRepository;
 import org.sonatype.nexus.configuration.model.DefaultCRepository;
@@ -35,6 +40,7 @@ import org.sonatype.nexus.proxy.repository.GroupRepository;
 import org.sonatype.nexus.proxy.repository.HostedRepository;
 import org.sonatype.nexus.proxy.repository.ProxyRepository;
 import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
 
 public class DefaultRepositoryRegistryTest
     extends AbstractNexusTestEnvironment
@@ -128,6 +134,14 @@ public class DefaultRepositoryRegistryTest
 
         assertEquals( 3, group.getMemberRepositories().size() );
 
+        // and the group graph
+        assertEquals( 1, repositoryRegistry.getGroupsOfRepository( "A" ).size() );
+        assertEquals( "ALL", repositoryRegistry.getGroupsOfRepository( "A" ).get( 0 ) );
+        assertEquals( "ALL", repositoryRegistry.getGroupsOfRepository( repoB ).get( 0 ).getId() );
+        assertEquals( 0, repositoryRegistry.getGroupsOfRepository( "ALL" ).size() );
+        assertEquals( 3, repositoryRegistry.getTransitiveMemberRepositories( "ALL" ).size() );
+        assertEquals( 3, group.getTransitiveMemberRepositories().size() );
+
         // and remove them all
         List<? extends Repository> repositories = repositoryRegistry.getRepositoriesWithFacet( HostedRepository.class );
 
@@ -156,5 +170,75 @@ public class DefaultRepositoryRegistryTest
         group = repositoryRegistry.getRepositoryWithFacet( "ALL", GroupRepository.class );
 
         assertEquals( 0, group.getMemberRepositories().size() );
+        assertEquals( 0, repositoryRegistry.getGroupsOfRepository( "A" ).size() );
+        assertEquals( 0, repositoryRegistry.getTransitiveMemberRepositories( "ALL" ).size() );
+    }
+
+    @Test
+    public void testGroupGraphFollowsCommittedMembers()
+        throws Exception
+    {
+        for ( String id : new String[] { "A", "B", "C" } )
+        {
+            HostedRepository repo = mock( HostedRepository.class );
+            doReturn( Repository.class.getName() ).when( repo ).getProviderRole();
+            doReturn( "maven2" ).when( repo ).getProviderHint();
+            doReturn( id ).when( repo ).getId();
+            doReturn( id + "Name" ).when( repo ).getName();
+            doReturn( new Maven2ContentClass() ).when( repo ).getRepositoryContentClass();
+            doReturn( new DefaultRepositoryKind( HostedRepository.class, null ) ).when( repo ).getRepositoryKind();
+            doReturn( repo ).when( repo ).adaptToFacet( HostedRepository.class );
+            doReturn( null ).when( repo ).adaptToFacet( ProxyRepository.class );
+            doReturn( true ).when( repo ).isUserManaged();
+            repositoryRegistry.addRepository( repo );
+        }
+
+        M2GroupRepository group = (M2GroupRepository) getContainer().lookup( GroupRepository.class, "maven2" );
+
+        CRepository repoGroupConf = new DefaultCRepository();
+        repoGroupConf.setProviderRole( GroupRepository.class.getName() );
+        repoGroupConf.setProviderHint( "maven2" );
+        repoGroupConf.setId( "ALL" );
+        repoGroupConf.setLocalStorage( new CLocalStorage() );
+        repoGroupConf.getLocalStorage().setProvider( "file" );
+
+        Xpp3Dom exGroupRepo = new Xpp3Dom( "externalConfiguration" );
+        repoGroupConf.setExternalConfiguration( exGroupRepo );
+        M2GroupRepositoryConfiguration exGroupRepoConf = new M2GroupRepositoryConfiguration( exGroupRepo );
+        List<String> gl = new ArrayList<String>();
+        gl.add( "A" );
+        gl.add( "B" );
+        gl.add( "C" );
+        exGroupRepoConf.setMemberRepositoryIds( gl );
+
+        group.configure( repoGroupConf );
+
+        repositoryRegistry.addRepository( group );
+
+        assertEquals( 1, repositoryRegistry.getGroupsOfRepository( "C" ).size() );
+        assertEquals( 3, repositoryRegistry.getTransitiveMemberRepositories( "ALL" ).size() );
+
+        EventBus eventBus = lookup( EventBus.class );
+        ApplicationConfiguration configuration = mock( ApplicationConfiguration.class );
+
+        // member change is prepared (firing members changed event), but vetoed and rolled back
+        group.removeMemberRepositoryId( "C" );
+        eventBus.post( new ConfigurationPrepareForSaveEvent( configuration ) );
+        eventBus.post( new ConfigurationRollbackEvent( configuration ) );
+
+        assertEquals( 3, group.getMemberRepositoryIds().size() );
+        assertEquals( 1, repositoryRegistry.getGroupsOfRepository( "C" ).size() );
+        assertEquals( 3, repositoryRegistry.getTransitiveMemberRepositories( "ALL" ).size() );
+
+        // member change is committed
+        group.removeMemberRepositoryId( "C" );
+        ConfigurationPrepareForSaveEvent prepare = new ConfigurationPrepareForSaveEvent( configuration );
+        eventBus.post( prepare );
+        eventBus.post( new ConfigurationCommitEvent( configuration ) );
+        eventBus.post( new ConfigurationChangeEvent( configuration, prepare.getChanges(), null ) );
+
+        assertEquals( 2, group.getMemberRepositoryIds().size() );
+        assertEquals( 0, repositoryRegistry.getGroupsOfRepository( "C" ).size() );
+        assertEquals( 2, repositoryRegistry.getTransitiveMemberRepositories( "ALL" ).size() );
     }
 }
@@ -0,0 +1,365 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonatype.nexus.proxy.ItemNotFoundException;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.storage.local.LocalRepositoryStorage;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * {@link HedgedGroupItemRetriever} UTs.
+ *
+ * @since 2.4
+ */
+public class HedgedGroupItemRetrieverTest
+    extends TestSupport
+{
+    private static final String PATH = "/org/test/test/1.0/test-1.0.jar";
+
+    private ExecutorService executor;
+
+    private GroupMemberStatistics statistics;
+
+    private HedgedGroupItemRetriever retriever;
+
+    @Before
+    public void prepare()
+    {
+        executor = Executors.newCachedThreadPool();
+        statistics = new GroupMemberStatistics();
+        // no latencies recorded in tests, so members are hedged after maximum delay
+        retriever = new HedgedGroupItemRetriever( logger, executor, statistics, 95, 10, 100, 1 );
+    }
+
+    @After
+    public void cleanup()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void groupOrderIsKept()
+        throws Exception
+    {
+        final StorageItem slowItem = mock( StorageFileItem.class );
+        final StorageItem fastItem = mock( StorageFileItem.class );
+        final Repository slow = member( "slow", 400, slowItem, false );
+        final Repository fast = member( "fast", 0, fastItem, true );
+
+        final ResourceStoreRequest request = new ResourceStoreRequest( PATH );
+        final HashMap<Repository, Throwable> memberThrowables = new HashMap<Repository, Throwable>();
+
+        final StorageItem result = retriever.retrieveItem( request, Arrays.asList( slow, fast ), memberThrowables );
+
+        assertThat( result, sameInstance( slowItem ) );
+        assertThat( memberThrowables.isEmpty(), equalTo( true ) );
+        assertThat( request.getProcessedRepositories(), equalTo( Arrays.asList( "slow" ) ) );
+        assertThat( statistics.getMemberStatistics( "slow" ).getHits(), equalTo( 1L ) );
+        // local hit is started right away, not hedged, and it's result is discarded
+        assertThat( statistics.getMemberStatistics( "fast" ).getHedges(), equalTo( 0L ) );
+        assertThat( statistics.getMemberStatistics( "fast" ).getDiscards(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void slowMissIsHedged()
+        throws Exception
+    {
+        final StorageItem item = mock( StorageFileItem.class );
+        final Repository first = member( "first", 400, null, false );
+        final Repository second = member( "second", 400, item, false );
+        final Repository third = member( "third", 0, mock( StorageFileItem.class ), false );
+
+        final ResourceStoreRequest request = new ResourceStoreRequest( PATH );
+        final HashMap<Repository, Throwable> memberThrowables = new HashMap<Repository, Throwable>();
+
+        final long started = System.currentTimeMillis();
+        final StorageItem result =
+            retriever.retrieveItem( request, Arrays.asList( first, second, third ), memberThrowables );
+        final long elapsed = System.currentTimeMillis() - started;
+
+        assertThat( result, sameInstance( item ) );
+        // sequential processing would take 800ms
+        assertThat( elapsed, lessThan( 700L ) );
+        assertThat( memberThrowables.get( first ), instanceOf( ItemNotFoundException.class ) );
+        assertThat( request.getProcessedRepositories(), equalTo( Arrays.asList( "first", "second" ) ) );
+        assertThat( statistics.getMemberStatistics( "first" ).getMisses(), equalTo( 1L ) );
+        assertThat( statistics.getMemberStatistics( "second" ).getHedges(), equalTo( 1L ) );
+        assertThat( statistics.getMemberStatistics( "second" ).getHits(), equalTo( 1L ) );
+        // one hedge at most in flight: third one was hedged while waiting for the second one
+        assertThat( statistics.getMemberStatistics( "third" ).getHedges(), equalTo( 1L ) );
+        assertThat( statistics.getMemberStatistics( "third" ).getDiscards(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void rejectedHedgeIsSkipped()
+        throws Exception
+    {
+        // single thread, busy with the first member by the time it should be hedged
+        final ExecutorService fullExecutor =
+            new ThreadPoolExecutor( 0, 1, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new AbortPolicy() );
+
+        try
+        {
+            final HedgedGroupItemRetriever fullRetriever =
+                new HedgedGroupItemRetriever( logger, fullExecutor, statistics, 95, 10, 100, 1 );
+
+            final StorageItem item = mock( StorageFileItem.class );
+            final Repository first = member( "first", 400, null, false );
+            final Repository second = member( "second", 0, item, false );
+            final Repository third = member( "third", 0, mock( StorageFileItem.class ), false );
+
+            final ResourceStoreRequest request = new ResourceStoreRequest( PATH );
+            final HashMap<Repository, Throwable> memberThrowables = new HashMap<Repository, Throwable>();
+
+            final StorageItem result =
+                fullRetriever.retrieveItem( request, Arrays.asList( first, second, third ), memberThrowables );
+
+            assertThat( result, sameInstance( item ) );
+            assertThat( memberThrowables.get( first ), instanceOf( ItemNotFoundException.class ) );
+            assertThat( request.getProcessedRepositories(), equalTo( Arrays.asList( "first", "second" ) ) );
+            assertThat( statistics.getMemberStatistics( "second" ).getHedges(), equalTo( 0L ) );
+            assertThat( statistics.getMemberStatistics( "second" ).getHits(), equalTo( 1L ) );
+            assertThat( statistics.getMemberStatistics( "third" ).getHedges(), equalTo( 0L ) );
+        }
+        finally
+        {
+            fullExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void noMemberHasItem()
+        throws Exception
+    {
+        final Repository first = member( "first", 0, null, false );
+        final Repository second = member( "second", 0, null, false );
+
+        final ResourceStoreRequest request = new ResourceStoreRequest( PATH );
+        final HashMap<Repository, Throwable> memberThrowables = new HashMap<Repository, Throwable>();
+
+        final List<Repository> members = Arrays.asList( first, second );
+        assertThat( retriever.retrieveItem( request, members, memberThrowables ), nullValue() );
+        assertThat( memberThrowables.keySet(), hasItems( first, second ) );
+        assertThat( statistics.getMemberStatistics( "first" ).getMisses(), equalTo( 1L ) );
+        assertThat( statistics.getMemberStatistics( "second" ).getMisses(), equalTo( 1L ) );
+        assertThat( statistics.getMemberStatistics( "first" ).getLatency().getCount(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void nestedGroupsAreProcessedAsSequentially()
+        throws Exception
+    {
+        final StorageItem item = mock( StorageFileItem.class );
+        // slow first group, second one is hedged while first one still processes it's members; "a" is processed
+        // before the groups are, so it must be skipped by the first group
+        final Repository first = nestedGroup( "first", 200, "a", mock( StorageFileItem.class ), "a", "b" );
+        final Repository second = nestedGroup( "second", 0, "c", item, "b", "c" );
+        final List<Repository> members = Arrays.asList( first, second );
+
+        final ResourceStoreRequest sequentialRequest = new ResourceStoreRequest( PATH );
+        sequentialRequest.addProcessedRepository( member( "a", 0, null, false ) );
+        final StorageItem sequentialResult =
+            retrieveSequentially( sequentialRequest, members, new HashMap<Repository, Throwable>() );
+
+        final ResourceStoreRequest hedgedRequest = new ResourceStoreRequest( PATH );
+        hedgedRequest.addProcessedRepository( member( "a", 0, null, false ) );
+        final StorageItem hedgedResult =
+            retriever.retrieveItem( hedgedRequest, members, new HashMap<Repository, Throwable>() );
+
+        assertThat( sequentialResult, sameInstance( item ) );
+        assertThat( hedgedResult, sameInstance( item ) );
+        assertThat( sequentialRequest.getProcessedRepositories(),
+            equalTo( Arrays.asList( "a", "first", "b", "second", "c" ) ) );
+        assertThat( hedgedRequest.getProcessedRepositories(), equalTo( sequentialRequest.getProcessedRepositories() ) );
+        assertThat( sequentialRequest.getAppliedMappings().keySet(), hasItems( "first", "second" ) );
+        assertThat( hedgedRequest.getAppliedMappings(), equalTo( sequentialRequest.getAppliedMappings() ) );
+    }
+
+    @Test
+    public void hedgeDelayIsClampedPercentile()
+    {
+        final Repository member = member( "member", 0, null, false );
+
+        assertThat( retriever.getHedgeDelayMillis( member ), equalTo( 100L ) );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            statistics.getMemberStatistics( "member" ).hit( 1 );
+        }
+        assertThat( retriever.getHedgeDelayMillis( member ), equalTo( 10L ) );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            statistics.getMemberStatistics( "member" ).miss( 40 );
+        }
+        assertThat( retriever.getHedgeDelayMillis( member ), equalTo( 50L ) );
+    }
+
+    // ==
+
+    /**
+     * Creates a member mock, that responds after delay with passed in item, or with {@link ItemNotFoundException} if
+     * item is {@code null}.
+     */
+    private Repository member( final String id, final long delayMillis, final StorageItem item,
+                               final boolean localHit )
+    {
+        try
+        {
+            final Repository result = mock( Repository.class );
+            when( result.getId() ).thenReturn( id );
+            when( result.getLocalStatus() ).thenReturn( LocalStatus.IN_SERVICE );
+
+            final LocalRepositoryStorage localStorage = mock( LocalRepositoryStorage.class );
+            when( localStorage.containsItem( any( Repository.class ), any( ResourceStoreRequest.class ) ) ).thenReturn(
+                localHit );
+            when( result.getLocalStorage() ).thenReturn( localStorage );
+
+            when( result.retrieveItem( any( ResourceStoreRequest.class ) ) ).thenAnswer( new Answer<StorageItem>()
+            {
+                @Override
+                public StorageItem answer( final InvocationOnMock invocation )
+                    throws Throwable
+                {
+                    ( (ResourceStoreRequest) invocation.getArguments()[0] ).addProcessedRepository( result );
+
+                    Thread.sleep( delayMillis );
+
+                    if ( item == null )
+                    {
+                        throw new ItemNotFoundException( (ResourceStoreRequest) invocation.getArguments()[0] );
+                    }
+
+                    return item;
+                }
+            } );
+
+            return result;
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+    /**
+     * Processes members in order using the same request, as {@link AbstractGroupRepository} does when hedging is off.
+     */
+    private StorageItem retrieveSequentially( final ResourceStoreRequest request, final List<Repository> members,
+                                              final Map<Repository, Throwable> memberThrowables )
+        throws Exception
+    {
+        for ( Repository member : members )
+        {
+            if ( !request.getProcessedRepositories().contains( member.getId() ) )
+            {
+                try
+                {
+                    return HedgedGroupItemRetriever.retrieveItem( statistics, member, request );
+                }
+                catch ( ItemNotFoundException e )
+                {
+                    memberThrowables.put( member, e );
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates a nested group mock, that after delay records it's members as applied mappings, and processes those not
+     * yet processed in request. Member with passed in id has the passed in item, if it gets processed, otherwise group
+     * responds with {@link ItemNotFoundException}.
+     */
+    private Repository nestedGroup( final String id, final long delayMillis, final String itemMemberId,
+                                    final StorageItem item, final String... memberIds )
+        throws Exception
+    {
+        final Repository result = mock( Repository.class );
+        when( result.getId() ).thenReturn( id );
+        when( result.getLocalStatus() ).thenReturn( LocalStatus.IN_SERVICE );
+
+        final LocalRepositoryStorage localStorage = mock( LocalRepositoryStorage.class );
+        when( result.getLocalStorage() ).thenReturn( localStorage );
+
+        final List<Repository> members = new ArrayList<Repository>();
+        for ( String memberId : memberIds )
+        {
+            members.add( member( memberId, 0, null, false ) );
+        }
+
+        when( result.retrieveItem( any( ResourceStoreRequest.class ) ) ).thenAnswer( new Answer<StorageItem>()
+        {
+            @Override
+            public StorageItem answer( final InvocationOnMock invocation )
+                throws Throwable
+            {
+                final ResourceStoreRequest request = (ResourceStoreRequest) invocation.getArguments()[0];
+
+                request.addProcessedRepository( result );
+
+                request.addAppliedMappingsList( result, Arrays.asList( memberIds ) );
+
+                Thread.sleep( delayMillis );
+
+                for ( Repository member : members )
+                {
+                    if ( !request.getProcessedRepositories().contains( member.getId() ) )
+                    {
+                        request.addProcessedRepository( member );
+
+                        if ( member.getId().equals( itemMemberId ) )
+                        {
+                            return item;
+                        }
+                    }
+                }
+
+                throw new ItemNotFoundException( request );
+            }
+        } );
+
+        return result;
+    }
+}
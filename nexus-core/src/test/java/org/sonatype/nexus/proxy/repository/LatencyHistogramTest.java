@@ -0,0 +1,65 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * {@link LatencyHistogram} UTs.
+ *
+ * @since 2.4
+ */
+public class LatencyHistogramTest
+    extends TestSupport
+{
+    @Test
+    public void emptyHistogram()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat( histogram.getCount(), equalTo( 0L ) );
+        assertThat( histogram.getPercentile( 95 ), equalTo( -1L ) );
+    }
+
+    @Test
+    public void percentiles()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        for ( int i = 0; i < 90; i++ )
+        {
+            histogram.record( 3 );
+        }
+        for ( int i = 0; i < 9; i++ )
+        {
+            histogram.record( 150 );
+        }
+        histogram.record( 60000 );
+
+        assertThat( histogram.getCount(), equalTo( 100L ) );
+        assertThat( histogram.getPercentile( 50 ), equalTo( 5L ) );
+        assertThat( histogram.getPercentile( 90 ), equalTo( 5L ) );
+        assertThat( histogram.getPercentile( 95 ), equalTo( 200L ) );
+        assertThat( histogram.getPercentile( 99 ), equalTo( 200L ) );
+        assertThat( histogram.getPercentile( 100 ), equalTo( Long.MAX_VALUE ) );
+        assertThat( histogram.getBucketCounts().length, equalTo( histogram.getBucketBounds().length + 1 ) );
+
+        histogram.reset();
+
+        assertThat( histogram.getCount(), equalTo( 0L ) );
+    }
+}
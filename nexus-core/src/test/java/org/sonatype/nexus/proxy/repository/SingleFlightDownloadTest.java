@@ -0,0 +1,188 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.item.ByteArrayContentLocator;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * {@link SingleFlightDownload} UTs.
+ *
+ * @since 2.4
+ */
+public class SingleFlightDownloadTest
+    extends TestSupport
+{
+    private static final byte[] CONTENT = "Some content that is spooled to disk in small chunks.".getBytes();
+
+    private Repository repository;
+
+    private StorageFileItem remoteItem;
+
+    private File hiddenTarget;
+
+    @Before
+    public void prepare()
+        throws IOException
+    {
+        repository = mock( Repository.class );
+        when( repository.getId() ).thenReturn( "proxy" );
+        when( repository.createUid( anyString() ) ).thenReturn( mock( RepositoryItemUid.class ) );
+
+        remoteItem = mock( StorageFileItem.class );
+        when( remoteItem.getLength() ).thenReturn( (long) CONTENT.length );
+        when( remoteItem.getMimeType() ).thenReturn( "text/plain" );
+        when( remoteItem.isReadable() ).thenReturn( true );
+
+        hiddenTarget = File.createTempFile( "single-flight", ".nx-upload" );
+        hiddenTarget.deleteOnExit();
+    }
+
+    @Test
+    public void attachedReaderGetsWholeContent()
+        throws Exception
+    {
+        final SingleFlightDownload download = new SingleFlightDownload( remoteItem );
+        final Fetcher fetcher = new Fetcher( download, true );
+        fetcher.start();
+
+        final StorageFileItem item = download.attach( repository, new ResourceStoreRequest( "/some/file.txt" ) );
+
+        assertThat( item, notNullValue() );
+        assertThat( item.getLength(), equalTo( (long) CONTENT.length ) );
+        assertThat( readFully( item.getInputStream() ), equalTo( CONTENT ) );
+
+        fetcher.join();
+    }
+
+    @Test( expected = IOException.class )
+    public void attachedReaderFailsWhenFetchFails()
+        throws Exception
+    {
+        final SingleFlightDownload download = new SingleFlightDownload( remoteItem );
+        final Fetcher fetcher = new Fetcher( download, false );
+        fetcher.start();
+
+        final StorageFileItem item = download.attach( repository, new ResourceStoreRequest( "/some/file.txt" ) );
+
+        assertThat( item, notNullValue() );
+        readFully( item.getInputStream() );
+    }
+
+    @Test
+    public void attachToFinishedDownloadFallsBack()
+        throws Exception
+    {
+        final SingleFlightDownload download = new SingleFlightDownload( remoteItem );
+        download.hiddenTargetCreated( hiddenTarget, new File( hiddenTarget.getParentFile(), "target" ) );
+        download.succeeded();
+
+        assertThat( download.attach( repository, new ResourceStoreRequest( "/some/file.txt" ) ), nullValue() );
+    }
+
+    // ==
+
+    private byte[] readFully( final InputStream is )
+        throws IOException
+    {
+        try
+        {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            IOUtil.copy( is, bos );
+            return bos.toByteArray();
+        }
+        finally
+        {
+            IOUtil.close( is );
+        }
+    }
+
+    /**
+     * Mimics the fetching thread: spools content to hidden target slowly, as DefaultFSPeer would do.
+     */
+    private class Fetcher
+        extends Thread
+    {
+        private final SingleFlightDownload download;
+
+        private final boolean succeed;
+
+        private Fetcher( final SingleFlightDownload download, final boolean succeed )
+        {
+            this.download = download;
+            this.succeed = succeed;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                final InputStream is = download.wrap( new ByteArrayContentLocator( CONTENT, "text/plain" ) ).getContent();
+                download.hiddenTargetCreated( hiddenTarget, new File( hiddenTarget.getParentFile(), "target" ) );
+                final FileOutputStream os = new FileOutputStream( hiddenTarget );
+                try
+                {
+                    final byte[] buf = new byte[8];
+                    int read;
+                    while ( ( read = is.read( buf ) ) != -1 )
+                    {
+                        os.write( buf, 0, read );
+                        Thread.sleep( 20 );
+                        if ( !succeed )
+                        {
+                            break;
+                        }
+                    }
+                }
+                finally
+                {
+                    IOUtil.close( os );
+                }
+
+                if ( succeed )
+                {
+                    download.succeeded();
+                }
+                else
+                {
+                    download.failed( "Remote went away" );
+                }
+            }
+            catch ( Exception e )
+            {
+                download.failed( e.getMessage() );
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.remote;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
+import org.sonatype.nexus.proxy.registry.RepositoryRegistry;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.nexus.proxy.storage.remote.RemoteEndpointStatistics.Outcome;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * {@link RemoteStorageStatistics} UTs.
+ */
+public class RemoteStorageStatisticsTest
+    extends TestSupport
+{
+    private static final String CENTRAL = "http://repo1.maven.org/maven2/";
+
+    private static final String MIRROR = "http://mirror.example.com/maven2/";
+
+    private RemoteStorageStatistics underTest;
+
+    @Before
+    public void prepare()
+    {
+        underTest = new RemoteStorageStatistics( mock( EventBus.class ) );
+    }
+
+    @Test
+    public void recordsTotalAndPerEndpoint()
+    {
+        underTest.recordResponse( "central", MIRROR, Outcome.FAILURE, 3000, 0 );
+        underTest.recordFailover( "central", MIRROR );
+        underTest.recordResponse( "central", CENTRAL, Outcome.FAILURE, 100, 50 );
+        underTest.recordRetry( "central", CENTRAL );
+        underTest.recordResponse( "central", CENTRAL, Outcome.SUCCESS, 20, 0 );
+        underTest.recordDownload( "central", CENTRAL, 10000, 500 );
+
+        final RemoteEndpointStatistics total = underTest.getRepositoryStatistics( "central" );
+        assertThat( total.getUrl(), nullValue() );
+        assertThat( total.getRequests(), equalTo( 3L ) );
+        assertThat( total.getSuccesses(), equalTo( 1L ) );
+        assertThat( total.getFailures(), equalTo( 2L ) );
+        assertThat( total.getRetries(), equalTo( 1L ) );
+        assertThat( total.getFailovers(), equalTo( 1L ) );
+        assertThat( total.getBytesDownloaded(), equalTo( 10000L ) );
+        assertThat( total.getThroughput(), equalTo( 20000L ) );
+        assertThat( total.getTimeToFirstByte().getCount(), equalTo( 3L ) );
+        assertThat( total.getPoolWait().getCount(), equalTo( 3L ) );
+
+        assertThat( underTest.getEndpointStatistics( "central" ), hasSize( 2 ) );
+        for ( RemoteEndpointStatistics endpoint : underTest.getEndpointStatistics( "central" ) )
+        {
+            if ( MIRROR.equals( endpoint.getUrl() ) )
+            {
+                assertThat( endpoint.getRequests(), equalTo( 1L ) );
+                assertThat( endpoint.getFailovers(), equalTo( 1L ) );
+                assertThat( endpoint.getThroughput(), equalTo( -1L ) );
+            }
+            else
+            {
+                assertThat( endpoint.getRequests(), equalTo( 2L ) );
+                assertThat( endpoint.getRetries(), equalTo( 1L ) );
+                assertThat( endpoint.getBytesDownloaded(), equalTo( 10000L ) );
+            }
+        }
+    }
+
+    @Test
+    public void removedRepositoryIsDropped()
+    {
+        underTest.recordResponse( "central", CENTRAL, Outcome.NOT_FOUND, 20, 0 );
+        assertThat( underTest.getRepositoryStatistics( "central" ).getNotFounds(), equalTo( 1L ) );
+
+        final Repository repository = mock( Repository.class );
+        when( repository.getId() ).thenReturn( "central" );
+        underTest.onEvent( new RepositoryRegistryEventRemove( mock( RepositoryRegistry.class ), repository ) );
+
+        assertThat( underTest.getRepositoryStatistics( "central" ), nullValue() );
+        assertThat( underTest.getEndpointStatistics( "central" ), hasSize( 0 ) );
+    }
+
+    @Test
+    public void reset()
+    {
+        underTest.recordResponse( "central", CENTRAL, Outcome.SUCCESS, 20, 0 );
+        underTest.reset( "central" );
+
+        assertThat( underTest.getRepositoryStatistics( "central" ).getRequests(), equalTo( 0L ) );
+        assertThat( underTest.getEndpointStatistics( "central" ), hasSize( 0 ) );
+    }
+}
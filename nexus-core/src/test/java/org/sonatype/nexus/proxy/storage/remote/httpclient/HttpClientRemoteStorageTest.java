@@ -16,6 +16,9 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import junit.framework.Assert;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
@@ -32,12 +35,18 @@ import org.sonatype.nexus.mime.MimeSupport;
 import org.sonatype.nexus.proxy.RemoteStorageException;
 import org.sonatype.nexus.proxy.RemoteStorageTransportOverloadedException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.attributes.Attributes;
+import org.sonatype.nexus.proxy.attributes.internal.DefaultAttributes;
+import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.repository.DefaultRemoteConnectionSettings;
 import org.sonatype.nexus.proxy.repository.DefaultRemoteProxySettings;
 import org.sonatype.nexus.proxy.repository.ProxyRepository;
+import org.sonatype.nexus.proxy.storage.remote.ConditionalRemoteRepositoryStorage;
 import org.sonatype.nexus.proxy.storage.remote.DefaultRemoteStorageContext;
 import org.sonatype.nexus.proxy.storage.remote.RemoteItemNotFoundException;
+import org.sonatype.nexus.proxy.storage.remote.RemoteItemNotModifiedException;
 import org.sonatype.nexus.proxy.storage.remote.RemoteStorageContext;
+import org.sonatype.nexus.proxy.storage.remote.RemoteStorageStatistics;
 import org.sonatype.nexus.proxy.storage.remote.http.QueryStringBuilder;
 import org.sonatype.nexus.proxy.utils.UserAgentBuilder;
 import org.sonatype.sisu.goodies.common.Time;
@@ -68,7 +77,8 @@ public class HttpClientRemoteStorageTest
     {
         final HttpClientRemoteStorage underTest =
             new HttpClientRemoteStorage( mock( UserAgentBuilder.class ), mock( ApplicationStatusSource.class ),
-                mock( MimeSupport.class ), mock( QueryStringBuilder.class ), mock( HttpClientManager.class ) );
+                mock( MimeSupport.class ), mock( QueryStringBuilder.class ), mock( HttpClientManager.class ),
+                mock( RemoteStorageStatistics.class ) );
 
         thrown.expect( RemoteItemNotFoundException.class );
         thrown.expectMessage( "The remoteURL we got to looks like is a collection" );
@@ -86,7 +96,8 @@ public class HttpClientRemoteStorageTest
     {
         final HttpClientRemoteStorage underTest =
             new HttpClientRemoteStorage( mock( UserAgentBuilder.class ), mock( ApplicationStatusSource.class ),
-                mock( MimeSupport.class ), mock( QueryStringBuilder.class ), mock( HttpClientManager.class ) );
+                mock( MimeSupport.class ), mock( QueryStringBuilder.class ), mock( HttpClientManager.class ),
+                mock( RemoteStorageStatistics.class ) );
 
         thrown.expect( RemoteItemNotFoundException.class );
         thrown.expectMessage( "The remoteURL we got to looks like is a collection" );
@@ -105,7 +116,8 @@ public class HttpClientRemoteStorageTest
     {
         final HttpClientRemoteStorage underTest =
             new HttpClientRemoteStorage( mock( UserAgentBuilder.class ), mock( ApplicationStatusSource.class ),
-                mock( MimeSupport.class ), mock( QueryStringBuilder.class ), mock( HttpClientManager.class ) );
+                mock( MimeSupport.class ), mock( QueryStringBuilder.class ), mock( HttpClientManager.class ),
+                mock( RemoteStorageStatistics.class ) );
 
         thrown.expect( RemoteItemNotFoundException.class );
         thrown.expectMessage( "The remoteURL we got to looks like is a collection" );
@@ -124,7 +136,8 @@ public class HttpClientRemoteStorageTest
     {
         final HttpClientRemoteStorage underTest =
             new HttpClientRemoteStorage( mock( UserAgentBuilder.class ), mock( ApplicationStatusSource.class ),
-                mock( MimeSupport.class ), mock( QueryStringBuilder.class ), mock( HttpClientManager.class ) )
+                mock( MimeSupport.class ), mock( QueryStringBuilder.class ), mock( HttpClientManager.class ),
+                mock( RemoteStorageStatistics.class ) )
             {
                 @Override
                 HttpResponse executeRequest( final ProxyRepository repository, final ResourceStoreRequest request,
@@ -146,6 +159,60 @@ public class HttpClientRemoteStorageTest
         underTest.retrieveItem( repository, new ResourceStoreRequest( "bar?param=x" ), "http://foo.com" );
     }
 
+    /**
+     * When retrieving an item conditionally, validators recorded in local item attributes should be sent, and
+     * "304 Not Modified" response should be reported as {@link RemoteItemNotModifiedException}.
+     */
+    @Test
+    public void retrieveItemIfModifiedSendsValidatorsAndHandlesNotModified()
+        throws Exception
+    {
+        final List<HttpUriRequest> requests = new ArrayList<HttpUriRequest>();
+        final HttpClientRemoteStorage underTest =
+            new HttpClientRemoteStorage( mock( UserAgentBuilder.class ), mock( ApplicationStatusSource.class ),
+                mock( MimeSupport.class ), mock( QueryStringBuilder.class ), mock( HttpClientManager.class ),
+                mock( RemoteStorageStatistics.class ) )
+            {
+                @Override
+                HttpResponse executeRequest( final ProxyRepository repository, final ResourceStoreRequest request,
+                                             final HttpUriRequest httpRequest )
+                    throws RemoteStorageException
+                {
+                    requests.add( httpRequest );
+                    final HttpResponse httpResponse = mock( HttpResponse.class );
+                    final StatusLine statusLine = mock( StatusLine.class );
+                    when( httpResponse.getStatusLine() ).thenReturn( statusLine );
+                    when( statusLine.getStatusCode() ).thenReturn( 304 );
+                    return httpResponse;
+                }
+            };
+
+        final ProxyRepository repository = mock( ProxyRepository.class );
+        when( repository.getId() ).thenReturn( "foo" );
+        final StorageItem localItem = mock( StorageItem.class );
+        final Attributes attributes = new DefaultAttributes();
+        attributes.put( ConditionalRemoteRepositoryStorage.REMOTE_ETAG_KEY, "\"abc\"" );
+        attributes.put( ConditionalRemoteRepositoryStorage.REMOTE_LAST_MODIFIED_KEY, "Mon, 01 Oct 2012 10:00:00 GMT" );
+        when( localItem.getRepositoryItemAttributes() ).thenReturn( attributes );
+
+        try
+        {
+            underTest.retrieveItemIfModified( repository, new ResourceStoreRequest( "bar" ), "http://foo.com",
+                localItem );
+            Assert.fail( "RemoteItemNotModifiedException expected!" );
+        }
+        catch ( RemoteItemNotModifiedException e )
+        {
+            // expected
+        }
+
+        Assert.assertEquals( 1, requests.size() );
+        Assert.assertEquals( "GET", requests.get( 0 ).getMethod() );
+        Assert.assertEquals( "\"abc\"", requests.get( 0 ).getFirstHeader( "If-None-Match" ).getValue() );
+        Assert.assertEquals( "Mon, 01 Oct 2012 10:00:00 GMT",
+            requests.get( 0 ).getFirstHeader( "If-Modified-Since" ).getValue() );
+    }
+
     /**
      * When pool is depleted, and underlying HttpClient4x cannot fulfil request due to
      * {@link ConnectionPoolTimeoutException}, the {@link HttpClientRemoteStorage} should throw a new exception,
@@ -181,7 +248,7 @@ public class HttpClientRemoteStorageTest
             final HttpClientRemoteStorage underTest =
                 new HttpClientRemoteStorage( mock( UserAgentBuilder.class ), mock( ApplicationStatusSource.class ),
                     mock( MimeSupport.class ), mock( QueryStringBuilder.class ), new HttpClientManagerImpl(
-                        hc4Provider, mock( UserAgentBuilder.class ) ) );
+                        hc4Provider, mock( UserAgentBuilder.class ) ), mock( RemoteStorageStatistics.class ) );
 
             // a mock proxy repository with some mocks to make RRS work
             final RemoteStorageContext proxyContext = new DefaultRemoteStorageContext( globalRemoteStorageContext );
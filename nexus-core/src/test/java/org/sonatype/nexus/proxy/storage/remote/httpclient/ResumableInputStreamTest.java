@@ -0,0 +1,144 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.remote.httpclient;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Test;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * {@link ResumableInputStream} UTs.
+ */
+public class ResumableInputStreamTest
+    extends TestSupport
+{
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes();
+
+    /**
+     * Stream of content from offset, that fails with given exception after "failAfter" bytes.
+     */
+    private static InputStream failing( final int offset, final int failAfter, final IOException failure )
+    {
+        return new InputStream()
+        {
+            private int position = offset;
+
+            @Override
+            public int read()
+                throws IOException
+            {
+                if ( position - offset >= failAfter )
+                {
+                    if ( failure != null )
+                    {
+                        throw failure;
+                    }
+                    return -1;
+                }
+                return position < CONTENT.length ? CONTENT[position++] : -1;
+            }
+        };
+    }
+
+    private static class TestResumableInputStream
+        extends ResumableInputStream
+    {
+        private final List<Long> offsets = new ArrayList<Long>();
+
+        private final boolean resumable;
+
+        TestResumableInputStream( final InputStream stream, final int maxResumes, final boolean resumable )
+        {
+            super( stream, CONTENT.length, maxResumes );
+            this.resumable = resumable;
+        }
+
+        @Override
+        protected InputStream resume( final long offset, final InputStream failed )
+        {
+            offsets.add( offset );
+            return resumable ? failing( (int) offset, 7, new IOException( "reset" ) ) : null;
+        }
+    }
+
+    @Test
+    public void brokenStreamIsResumed()
+        throws IOException
+    {
+        final TestResumableInputStream is =
+            new TestResumableInputStream( failing( 0, 5, new IOException( "reset" ) ), 3, true );
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtil.copy( is, out );
+
+        assertThat( out.toByteArray(), equalTo( CONTENT ) );
+        assertThat( is.offsets, contains( 5L, 12L, 19L ) );
+    }
+
+    @Test
+    public void prematureEndIsResumed()
+        throws IOException
+    {
+        final TestResumableInputStream is = new TestResumableInputStream( failing( 0, 5, null ), 3, true );
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtil.copy( is, out );
+
+        assertThat( out.toByteArray(), equalTo( CONTENT ) );
+        assertThat( is.offsets, contains( 5L, 12L, 19L ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void originalFailureRethrownIfNotResumable()
+        throws IOException
+    {
+        IOUtil.copy( new TestResumableInputStream( failing( 0, 5, new IOException( "reset" ) ), 3, false ),
+            new ByteArrayOutputStream() );
+    }
+
+    @Test( expected = IOException.class )
+    public void resumesAreLimited()
+        throws IOException
+    {
+        IOUtil.copy( new TestResumableInputStream( failing( 0, 5, new IOException( "reset" ) ), 1, true ),
+            new ByteArrayOutputStream() );
+    }
+
+    @Test
+    public void interruptionIsNotResumed()
+        throws IOException
+    {
+        final TestResumableInputStream is =
+            new TestResumableInputStream( failing( 0, 5, new InterruptedIOException() ), 3, true );
+        try
+        {
+            IOUtil.copy( is, new ByteArrayOutputStream() );
+        }
+        catch ( InterruptedIOException e )
+        {
+            // expected
+        }
+        assertThat( is.offsets.size(), equalTo( 0 ) );
+    }
+}
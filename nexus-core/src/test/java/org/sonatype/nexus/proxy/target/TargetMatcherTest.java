@@ -0,0 +1,98 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.target;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.sonatype.nexus.proxy.maven.maven1.Maven1ContentClass;
+import org.sonatype.nexus.proxy.maven.maven2.Maven2ContentClass;
+import org.sonatype.nexus.proxy.registry.ContentClass;
+
+/**
+ * Tests that {@link TargetMatcher} yields same results as {@link Target#isPathContained(ContentClass, String)}.
+ */
+public class TargetMatcherTest
+{
+    private final ContentClass maven1 = new Maven1ContentClass();
+
+    private final ContentClass maven2 = new Maven2ContentClass();
+
+    @Test
+    public void testLiteralPrefix()
+    {
+        assertThat( TargetMatcher.getLiteralPrefix( ".*" ), equalTo( "" ) );
+        assertThat( TargetMatcher.getLiteralPrefix( "/org/apache/.*" ), equalTo( "/org/apache/" ) );
+        assertThat( TargetMatcher.getLiteralPrefix( "/org\\.apache/.*" ), equalTo( "/org.apache/" ) );
+        assertThat( TargetMatcher.getLiteralPrefix( "/org/a?pache/.*" ), equalTo( "/org/" ) );
+        assertThat( TargetMatcher.getLiteralPrefix( "/org/\\w+/.*" ), equalTo( "/org/" ) );
+        assertThat( TargetMatcher.getLiteralPrefix( "/org/.*|/com/.*" ), equalTo( "" ) );
+        assertThat( TargetMatcher.getLiteralPrefix( "/org/(apache|codehaus)/.*" ), equalTo( "/org/" ) );
+
+        assertThat( TargetMatcher.isLiteral( "/org/apache/maven-metadata\\.xml" ), equalTo( true ) );
+        assertThat( TargetMatcher.isLiteral( "/org/apache/.*" ), equalTo( false ) );
+    }
+
+    @Test
+    public void testSameAsTarget()
+    {
+        final List<Target> targets = new ArrayList<Target>();
+        targets.add( new Target( "all", "all", maven2, Arrays.asList( ".*" ) ) );
+        targets.add( new Target( "apache", "apache", maven2, Arrays.asList( "/org/apache/.*", "/org/codehaus/.*" ) ) );
+        targets.add( new Target( "jars", "jars", maven2, Arrays.asList( "/org/apache/.*\\.jar", "(?i).*\\.JAR" ) ) );
+        targets.add( new Target( "alt", "alt", maven2, Arrays.asList( "/a/.*|/b/.*" ) ) );
+        targets.add( new Target( "literal", "literal", maven2, Arrays.asList( "/org/apache/maven-metadata\\.xml" ) ) );
+        targets.add( new Target( "optional", "optional", maven2, Arrays.asList( "/x\\.y?z.*" ) ) );
+        targets.add( new Target( "backref", "backref", maven2, Arrays.asList( "/(a)/.*\\1", "/(b)/.*" ) ) );
+        targets.add( new Target( "m1", "m1", maven1, Arrays.asList( "/org\\.apache/.*" ) ) );
+
+        final TargetMatcher matcher = new TargetMatcher( targets, 10, 60000L );
+
+        final String[] paths =
+            { "", "/", "/org/apache/maven/maven-core/2.0.9/maven-core-2.0.9.jar", "/org/apache/x.JAR",
+                "/org/apache/maven-metadata.xml", "/org/codehaus/foo", "/a/x", "/b/x", "/c/x", "/x.z", "/x.yz", "/xyz",
+                "/a/a", "/a/b", "/b/b", "/org.apache/x", "/org/apache/\n" };
+
+        // twice, to hit the cache too
+        for ( int i = 0; i < 2; i++ )
+        {
+            for ( String path : paths )
+            {
+                for ( ContentClass contentClass : new ContentClass[] { maven1, maven2 } )
+                {
+                    final Set<Target> expected = new HashSet<Target>();
+                    for ( Target target : targets )
+                    {
+                        if ( target.isPathContained( contentClass, path ) )
+                        {
+                            expected.add( target );
+                        }
+                    }
+
+                    assertThat( path, new HashSet<Target>( matcher.getTargets( contentClass, path ) ),
+                        equalTo( expected ) );
+                }
+            }
+        }
+
+        assertThat( matcher.getCacheStats().hitCount(), greaterThan( 0L ) );
+    }
+}
@@ -14,12 +14,21 @@ package org.sonatype.nexus.proxy.walker;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import junit.framework.Assert;
 import org.hamcrest.Matcher;
 import org.junit.Test;
@@ -50,12 +59,23 @@ public class WalkerTest
     public void setUp()
         throws Exception
     {
+        // parallel walks are disabled by default
+        System.setProperty( DefaultWalker.class.getName() + ".parallelism", "4" );
+
         super.setUp();
 
         walker = lookup( Walker.class );
         repositoryRegistry = this.lookup( RepositoryRegistry.class );
     }
 
+    public void tearDown()
+        throws Exception
+    {
+        super.tearDown();
+
+        System.clearProperty( DefaultWalker.class.getName() + ".parallelism" );
+    }
+
     @Override
     protected EnvironmentBuilder getEnvironmentBuilder()
         throws Exception
@@ -108,6 +128,41 @@ public class WalkerTest
         Assert.assertEquals( 0, wp.links );
     }
 
+    /**
+     * Tests that walk with parallel processors invokes same callbacks as the "sequential" walk does, and in proper
+     * order within subtrees.
+     */
+    @Test
+    public void testParallelWalk()
+        throws Exception
+    {
+        // fetch some content to have on walk on something
+        getRootRouter().retrieveItem(
+            new ResourceStoreRequest( "/groups/test/activemq/activemq-core/1.2/activemq-core-1.2.jar", false ) );
+        getRootRouter().retrieveItem(
+            new ResourceStoreRequest( "/groups/test/xstream/xstream/1.2.2/xstream-1.2.2.pom", false ) );
+        getRootRouter().retrieveItem( new ResourceStoreRequest( "/groups/test/rome/rome/0.9/rome-0.9.pom", false ) );
+        getRootRouter().retrieveItem( new ResourceStoreRequest( "/groups/test/repo3.txt", false ) );
+
+        final ParallelTestWalkerProcessor wp = new ParallelTestWalkerProcessor();
+
+        // this is a group
+        final WalkerContext wc =
+            new DefaultWalkerContext( getRepositoryRegistry().getRepository( "test" ), new ResourceStoreRequest(
+                RepositoryItemUid.PATH_ROOT, true ) );
+
+        wc.getProcessors().add( wp );
+
+        walker.walk( wc );
+
+        assertThat( "Should not be stopped!", wc.isStopped(), is( false ) );
+
+        Assert.assertEquals( 10, wp.collEnters.get() );
+        Assert.assertEquals( 10, wp.collExits.get() );
+        Assert.assertEquals( 4, wp.files.get() );
+        Assert.assertTrue( "Callbacks out of order: " + wp.errors, wp.errors.isEmpty() );
+    }
+
     /**
      * See NXCM-4516. We are invoking "walker" using a path that points to a non-collection item (a file).
      * 
@@ -224,6 +279,57 @@ public class WalkerTest
         assertSortedWalk( itemComparator, matcher );
     }
 
+    /**
+     * Tests that walk with lightweight processors presents same files (with same lengths, modification times and
+     * attributes, that are loaded when asked for) as a "full" walk does.
+     */
+    @Test
+    public void testLightweightWalk()
+        throws Exception
+    {
+        // fetch some content to have on walk on something
+        getRootRouter().retrieveItem(
+            new ResourceStoreRequest( "/groups/test/activemq/activemq-core/1.2/activemq-core-1.2.jar", false ) );
+        getRootRouter().retrieveItem(
+            new ResourceStoreRequest( "/groups/test/xstream/xstream/1.2.2/xstream-1.2.2.pom", false ) );
+        getRootRouter().retrieveItem( new ResourceStoreRequest( "/groups/test/rome/rome/0.9/rome-0.9.pom", false ) );
+
+        for ( String repoId : new String[] { "repo1", "repo2", "repo3" } )
+        {
+            final Repository repository = getRepositoryRegistry().getRepository( repoId );
+
+            final Map<String, String> full = Maps.newTreeMap();
+            walkRecording( repository, new RecordingWalkerProcessor( full ) );
+
+            final Map<String, String> lightweight = Maps.newTreeMap();
+            walkRecording( repository, new LightweightRecordingWalkerProcessor( lightweight ) );
+
+            assertThat( lightweight, equalTo( full ) );
+        }
+    }
+
+    private void walkRecording( final Repository repository, final WalkerProcessor processor )
+        throws WalkerException
+    {
+        final DefaultWalkerContext wc =
+            new DefaultWalkerContext( repository, new ResourceStoreRequest( RepositoryItemUid.PATH_ROOT, true ),
+                new DefaultStoreWalkerFilter()
+                {
+                    @Override
+                    public boolean shouldProcess( final WalkerContext ctx, final StorageItem item )
+                    {
+                        // full walk of Maven proxies presents remote checksums, that lightweight walk does not
+                        return super.shouldProcess( ctx, item ) && !item.getName().endsWith( ".sha1" )
+                            && !item.getName().endsWith( ".md5" );
+                    }
+                } );
+        wc.getProcessors().add( processor );
+
+        walker.walk( wc );
+
+        assertThat( "Should not be stopped!", wc.isStopped(), is( false ) );
+    }
+
     private void assertSortedWalk( final Comparator<StorageItem> itemComparator,
                                    final Matcher<Iterable<? extends String>> matcher )
         throws NoSuchRepositoryException
@@ -251,6 +357,90 @@ public class WalkerTest
         assertThat( seen, matcher );
     }
 
+    private static class ParallelTestWalkerProcessor
+        extends AbstractWalkerProcessor
+        implements ParallelWalkerProcessor
+    {
+        private final AtomicInteger collEnters = new AtomicInteger();
+
+        private final AtomicInteger collExits = new AtomicInteger();
+
+        private final AtomicInteger files = new AtomicInteger();
+
+        private final Set<String> entered = Sets.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+
+        private final Set<String> exited = Sets.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+
+        private final List<String> errors = Collections.synchronizedList( new ArrayList<String>() );
+
+        @Override
+        public void onCollectionEnter( final WalkerContext context, final StorageCollectionItem coll )
+        {
+            collEnters.incrementAndGet();
+            entered.add( coll.getPath() );
+        }
+
+        @Override
+        public void processItem( final WalkerContext context, final StorageItem item )
+        {
+            if ( item instanceof StorageFileItem )
+            {
+                files.incrementAndGet();
+            }
+            checkParentOpen( item );
+        }
+
+        @Override
+        public void onCollectionExit( final WalkerContext context, final StorageCollectionItem coll )
+        {
+            collExits.incrementAndGet();
+            if ( !entered.contains( coll.getPath() ) )
+            {
+                errors.add( "exit before enter: " + coll.getPath() );
+            }
+            checkParentOpen( coll );
+            exited.add( coll.getPath() );
+        }
+
+        private void checkParentOpen( final StorageItem item )
+        {
+            if ( !RepositoryItemUid.PATH_ROOT.equals( item.getPath() )
+                && ( !entered.contains( item.getParentPath() ) || exited.contains( item.getParentPath() ) ) )
+            {
+                errors.add( "parent not open: " + item.getPath() );
+            }
+        }
+    }
+
+    private static class RecordingWalkerProcessor
+        extends AbstractFileWalkerProcessor
+    {
+        private final Map<String, String> seen;
+
+        public RecordingWalkerProcessor( final Map<String, String> seen )
+        {
+            this.seen = seen;
+        }
+
+        @Override
+        protected void processFileItem( final WalkerContext context, final StorageFileItem item )
+            throws Exception
+        {
+            seen.put( item.getPath(), item.getLength() + "@" + item.getModified() + "#"
+                + item.getRepositoryItemAttributes().get( StorageFileItem.DIGEST_SHA1_KEY ) );
+        }
+    }
+
+    private static class LightweightRecordingWalkerProcessor
+        extends RecordingWalkerProcessor
+        implements LightweightWalkerProcessor
+    {
+        public LightweightRecordingWalkerProcessor( final Map<String, String> seen )
+        {
+            super( seen );
+        }
+    }
+
     private class TestWalkerProcessor
         extends AbstractWalkerProcessor
     {
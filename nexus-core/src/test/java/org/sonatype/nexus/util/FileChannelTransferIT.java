@@ -0,0 +1,264 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.MethodRule;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.carrotsearch.junitbenchmarks.BenchmarkRule;
+import com.carrotsearch.junitbenchmarks.annotation.AxisRange;
+import com.carrotsearch.junitbenchmarks.annotation.BenchmarkMethodChart;
+
+/**
+ * Benchmarks the throughput of {@link FileUtils#transfer(java.nio.channels.FileChannel, java.nio.channels.WritableByteChannel)}
+ * against stream copy with heap buffer (as done by FS peer for non-file content), for 1 MB, 100 MB and 1 GB files.
+ * The "file" methods mimic storing content in local storage, while the "stream" methods mimic serving content over
+ * REST, into an output stream. Throughput is file size divided by round time.
+ * 
+ * @since 2.4
+ */
+@BenchmarkMethodChart( )
+@AxisRange( min = 0 )
+public class FileChannelTransferIT
+    extends TestSupport
+{
+    private static final int MB = 1024 * 1024;
+
+    /**
+     * Same as default FS peer copy buffer size.
+     */
+    private static final int COPY_BUFFER_SIZE = 4096;
+
+    @Rule
+    public MethodRule benchmarkRun = new BenchmarkRule();
+
+    // fixture is shared, as benchmark rule invokes @Before methods concurrently
+
+    private static File directory;
+
+    private static File file1MB;
+
+    private static File file100MB;
+
+    private static File file1GB;
+
+    @BeforeClass
+    public static void prepare()
+        throws IOException
+    {
+        directory = org.codehaus.plexus.util.FileUtils.createTempFile( "transfer", "tmp", null );
+        directory.mkdirs();
+
+        file1MB = createFile( "1MB.bin", 1 );
+        file100MB = createFile( "100MB.bin", 100 );
+        file1GB = createFile( "1GB.bin", 1024 );
+    }
+
+    @AfterClass
+    public static void cleanup()
+        throws IOException
+    {
+        org.codehaus.plexus.util.FileUtils.deleteDirectory( directory );
+    }
+
+    // == store: file to file
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 50, warmupRounds = 10 )
+    public void copyFile1MB()
+        throws IOException
+    {
+        streamCopy( file1MB );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 50, warmupRounds = 10 )
+    public void transferFile1MB()
+        throws IOException
+    {
+        channelTransfer( file1MB );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 10, warmupRounds = 2 )
+    public void copyFile100MB()
+        throws IOException
+    {
+        streamCopy( file100MB );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 10, warmupRounds = 2 )
+    public void transferFile100MB()
+        throws IOException
+    {
+        channelTransfer( file100MB );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 3, warmupRounds = 1 )
+    public void copyFile1GB()
+        throws IOException
+    {
+        streamCopy( file1GB );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 3, warmupRounds = 1 )
+    public void transferFile1GB()
+        throws IOException
+    {
+        channelTransfer( file1GB );
+    }
+
+    // == serve: file to output stream
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 10, warmupRounds = 2 )
+    public void copyStream100MB()
+        throws IOException
+    {
+        final CountingNullOutputStream os = new CountingNullOutputStream();
+        final FileInputStream fis = new FileInputStream( file100MB );
+        try
+        {
+            IOUtil.copy( fis, os, COPY_BUFFER_SIZE );
+        }
+        finally
+        {
+            fis.close();
+        }
+        assertThat( os.getCount(), equalTo( file100MB.length() ) );
+    }
+
+    @Test
+    @BenchmarkOptions( benchmarkRounds = 10, warmupRounds = 2 )
+    public void transferStream100MB()
+        throws IOException
+    {
+        final CountingNullOutputStream os = new CountingNullOutputStream();
+        final FileInputStream fis = new FileInputStream( file100MB );
+        try
+        {
+            FileUtils.transfer( fis.getChannel(), Channels.newChannel( os ) );
+        }
+        finally
+        {
+            fis.close();
+        }
+        assertThat( os.getCount(), equalTo( file100MB.length() ) );
+    }
+
+    // ==
+
+    private static File createFile( final String name, final int sizeMb )
+        throws IOException
+    {
+        final File file = new File( directory, name );
+        final byte[] chunk = new byte[MB];
+        new Random( sizeMb ).nextBytes( chunk );
+        final FileOutputStream fos = new FileOutputStream( file );
+        try
+        {
+            for ( int i = 0; i < sizeMb; i++ )
+            {
+                fos.write( chunk );
+            }
+        }
+        finally
+        {
+            fos.close();
+        }
+        return file;
+    }
+
+    private File target()
+        throws IOException
+    {
+        return File.createTempFile( "target", ".bin", directory );
+    }
+
+    private void streamCopy( final File source )
+        throws IOException
+    {
+        final File target = target();
+        final FileInputStream fis = new FileInputStream( source );
+        try
+        {
+            final FileOutputStream fos = new FileOutputStream( target );
+            try
+            {
+                IOUtil.copy( fis, fos, COPY_BUFFER_SIZE );
+            }
+            finally
+            {
+                fos.close();
+            }
+        }
+        finally
+        {
+            fis.close();
+        }
+        assertThat( target.length(), equalTo( source.length() ) );
+        target.delete();
+    }
+
+    private void channelTransfer( final File source )
+        throws IOException
+    {
+        final File target = target();
+        FileUtils.copyFile( source, target );
+        assertThat( target.length(), equalTo( source.length() ) );
+        target.delete();
+    }
+
+    private static class CountingNullOutputStream
+        extends OutputStream
+    {
+        private long count;
+
+        @Override
+        public void write( final int b )
+        {
+            count++;
+        }
+
+        @Override
+        public void write( final byte[] b, final int off, final int len )
+        {
+            count += len;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+    }
+}
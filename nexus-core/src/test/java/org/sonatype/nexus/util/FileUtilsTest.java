@@ -13,13 +13,17 @@
 package org.sonatype.nexus.util;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.net.URL;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.Random;
 
+import org.codehaus.plexus.util.IOUtil;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -226,4 +230,59 @@ public class FileUtilsTest
             }
         }
     }
+
+    @Test
+    public void testCopyFile()
+        throws Exception
+    {
+        File root = org.codehaus.plexus.util.FileUtils.createTempFile( "dir", "tmp", null );
+        File source = new File( root, "source.bin" );
+        File destination = new File( root, "a/b/destination.bin" );
+
+        try
+        {
+            final byte[] content = new byte[256 * 1024 + 13];
+            new Random( 42 ).nextBytes( content );
+            root.mkdirs();
+            final FileOutputStream fos = new FileOutputStream( source );
+            try
+            {
+                fos.write( content );
+            }
+            finally
+            {
+                fos.close();
+            }
+
+            FileUtils.copyFile( source, destination );
+
+            Assert.assertTrue( destination.isFile() );
+            final FileInputStream fis = new FileInputStream( destination );
+            try
+            {
+                Assert.assertArrayEquals( content, IOUtil.toByteArray( fis ) );
+            }
+            finally
+            {
+                fis.close();
+            }
+
+            // overwrite with empty
+            org.codehaus.plexus.util.FileUtils.fileWrite( source.getAbsolutePath(), "" );
+            FileUtils.copyFile( source, destination );
+            Assert.assertEquals( 0, destination.length() );
+        }
+        finally
+        {
+            org.codehaus.plexus.util.FileUtils.forceDelete( root );
+        }
+    }
+
+    @Test( expected = FileNotFoundException.class )
+    public void testCopyFileMissingSource()
+        throws Exception
+    {
+        File root = org.codehaus.plexus.util.FileUtils.createTempFile( "dir", "tmp", null );
+        FileUtils.copyFile( new File( root, "missing" ), new File( root, "destination" ) );
+    }
 }
@@ -17,10 +17,12 @@ import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.nexus.log.LogManager;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.NexusInitializedEvent;
 import org.sonatype.plexus.appevents.Event;
 
 @Component( role = EventInspector.class, hint = "LogbackReconfigureEventInspector" )
+@InspectedEvents( NexusInitializedEvent.class )
 public class LogbackReconfigureEventInspector
     extends AbstractEventInspector
 {
@@ -18,12 +18,14 @@ import org.sonatype.nexus.configuration.ConfigurationChangeEvent;
 import org.sonatype.nexus.index.IndexerManager;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.plexus.appevents.Event;
 
 /**
  * @author Juven Xu
  */
 @Component( role = EventInspector.class, hint = "LuceneIndexerConfigurationChangeEventInspector" )
+@InspectedEvents( ConfigurationChangeEvent.class )
 public class IndexerConfigurationChangeEventInspector
     extends AbstractEventInspector
 {
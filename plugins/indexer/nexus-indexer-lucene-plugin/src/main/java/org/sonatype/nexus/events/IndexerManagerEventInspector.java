@@ -12,29 +12,39 @@
  */
 package org.sonatype.nexus.events;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.nexus.index.IndexerManager;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
-import org.sonatype.nexus.proxy.events.AsynchronousEventInspector;
+import org.sonatype.nexus.proxy.events.BatchingEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.RepositoryItemEvent;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventCache;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventDelete;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventStore;
+import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.nexus.util.SystemPropertiesHelper;
 import org.sonatype.plexus.appevents.Event;
 
 /**
- * Event inspector that maintains indexes.
+ * Event inspector that maintains indexes. Item events are processed in batches, and when queue of this inspector
+ * overflows, events of same item may be coalesced, as only the latest of them matters for index. Items of a batch are
+ * updated in index of their repository with one index commit.
  * 
  * @author cstamas
  */
 @Component( role = EventInspector.class, hint = "LuceneIndexerManagerEventInspector" )
+@InspectedEvents( { RepositoryItemEventStore.class, RepositoryItemEventCache.class, RepositoryItemEventDelete.class } )
 public class IndexerManagerEventInspector
     extends AbstractEventInspector
-    implements AsynchronousEventInspector
+    implements BatchingEventInspector
 {
     private final boolean enabled =
         SystemPropertiesHelper.getBoolean( "org.sonatype.nexus.events.IndexerManagerEventInspector.enabled", true );
@@ -62,6 +72,71 @@ public class IndexerManagerEventInspector
         }
     }
 
+    public void inspect( List<Event<?>> events )
+    {
+        if ( enabled )
+        {
+            // only the latest event of an item matters, keeping the order of latest events
+            final Map<Object, RepositoryItemEvent> latest = new LinkedHashMap<Object, RepositoryItemEvent>();
+            for ( Event<?> evt : events )
+            {
+                final RepositoryItemEvent ievt = (RepositoryItemEvent) evt;
+                final Object key = ievt.getItemUid().getKey();
+                latest.remove( key );
+                latest.put( key, ievt );
+            }
+
+            final Map<String, RepositoryBatch> batches = new LinkedHashMap<String, RepositoryBatch>();
+            for ( RepositoryItemEvent ievt : latest.values() )
+            {
+                final Repository repository = ievt.getRepository();
+
+                // should we sync at all
+                if ( repository != null && repository.isIndexable() )
+                {
+                    RepositoryBatch batch = batches.get( repository.getId() );
+                    if ( batch == null )
+                    {
+                        batch = new RepositoryBatch( repository );
+                        batches.put( repository.getId(), batch );
+                    }
+
+                    if ( ievt instanceof RepositoryItemEventCache || ievt instanceof RepositoryItemEventStore )
+                    {
+                        batch.added.add( ievt.getItem() );
+                    }
+                    else if ( ievt instanceof RepositoryItemEventDelete )
+                    {
+                        batch.removed.add( ievt.getItem() );
+                    }
+                }
+            }
+
+            for ( RepositoryBatch batch : batches.values() )
+            {
+                try
+                {
+                    getIndexerManager().updateItemsInIndex( batch.repository, batch.added, batch.removed );
+                }
+                catch ( Exception e ) // TODO be more specific
+                {
+                    getLogger().error( "Could not maintain index for repository {}!", batch.repository.getId(), e );
+                }
+            }
+        }
+    }
+
+    public Object getCoalescingKey( Event<?> evt )
+    {
+        if ( evt instanceof RepositoryItemEvent )
+        {
+            // latest of store/cache/delete of same item defines the state of index
+            return ( (RepositoryItemEvent) evt ).getItemUid().getKey();
+        }
+
+        return null;
+    }
+
     private void inspectForIndexerManager( Event<?> evt )
     {
         RepositoryItemEvent ievt = (RepositoryItemEvent) evt;
@@ -89,4 +164,21 @@ public class IndexerManagerEventInspector
         }
     }
 
+    /**
+     * Items of one repository to add to and remove from index.
+     */
+    private static class RepositoryBatch
+    {
+        final Repository repository;
+
+        final List<StorageItem> added = new ArrayList<StorageItem>();
+
+        final List<StorageItem> removed = new ArrayList<StorageItem>();
+
+        RepositoryBatch( final Repository repository )
+        {
+            this.repository = repository;
+        }
+    }
+
 }
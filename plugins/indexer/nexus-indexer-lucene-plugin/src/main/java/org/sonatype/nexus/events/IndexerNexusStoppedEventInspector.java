@@ -19,6 +19,7 @@ import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.nexus.index.IndexerManager;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
 import org.sonatype.plexus.appevents.Event;
 
@@ -28,6 +29,7 @@ import org.sonatype.plexus.appevents.Event;
  * @author bdemers
  */
 @Component( role = EventInspector.class, hint = "LuceneIndexerNexusStoppedEventInspector" )
+@InspectedEvents( NexusStoppedEvent.class )
 public class IndexerNexusStoppedEventInspector
     extends AbstractEventInspector
 {
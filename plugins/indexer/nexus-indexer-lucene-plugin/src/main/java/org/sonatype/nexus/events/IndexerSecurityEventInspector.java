@@ -0,0 +1,51 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.events;
+
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.component.annotations.Requirement;
+import org.sonatype.nexus.index.IndexerManager;
+import org.sonatype.nexus.proxy.events.AbstractEventInspector;
+import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
+import org.sonatype.plexus.appevents.Event;
+import org.sonatype.security.events.AuthorizationConfigurationChangedEvent;
+import org.sonatype.security.events.SecurityConfigurationChangedEvent;
+import org.sonatype.security.events.UserPrincipalsExpiredEvent;
+
+/**
+ * Drops cached search results when security configuration changes, as search results are filtered by permissions of
+ * the searching user.
+ * 
+ * @since 2.4
+ */
+@Component( role = EventInspector.class, hint = "LuceneIndexerSecurityEventInspector" )
+@InspectedEvents( { AuthorizationConfigurationChangedEvent.class, SecurityConfigurationChangedEvent.class,
+    UserPrincipalsExpiredEvent.class } )
+public class IndexerSecurityEventInspector
+    extends AbstractEventInspector
+{
+    @Requirement
+    private IndexerManager indexerManager;
+
+    public boolean accepts( final Event<?> evt )
+    {
+        return evt instanceof AuthorizationConfigurationChangedEvent || evt instanceof SecurityConfigurationChangedEvent
+            || evt instanceof UserPrincipalsExpiredEvent;
+    }
+
+    public void inspect( final Event<?> evt )
+    {
+        indexerManager.resetSearchResultCache();
+    }
+}
@@ -18,6 +18,7 @@ import org.sonatype.nexus.index.IndexerManager;
 import org.sonatype.nexus.proxy.NoSuchRepositoryException;
 import org.sonatype.nexus.proxy.events.AbstractEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.RepositoryConfigurationUpdatedEvent;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryEventAdd;
 import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
@@ -36,6 +37,7 @@ import org.sonatype.plexus.appevents.Event;
  * @author cstamas
  */
 @Component( role = EventInspector.class, hint = "IndexingRepositoryRegistryRepositoryEventInspector" )
+@InspectedEvents( { RepositoryRegistryRepositoryEvent.class, RepositoryConfigurationUpdatedEvent.class } )
 public class IndexingRepositoryRegistryRepositoryEventInspector
     extends AbstractEventInspector
 {
@@ -0,0 +1,74 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.IteratorResultSet;
+
+/**
+ * IteratorResultSet over results served from {@link SearchResultCache}. Does not hold any index lock.
+ *
+ * @since 2.4
+ */
+class CachedIteratorResultSet
+    implements IteratorResultSet
+{
+    private final Iterator<ArtifactInfo> results;
+
+    private final int totalProcessedArtifactInfoCount;
+
+    public CachedIteratorResultSet( List<ArtifactInfo> results, int totalProcessedArtifactInfoCount )
+    {
+        this.results = results.iterator();
+        this.totalProcessedArtifactInfoCount = totalProcessedArtifactInfoCount;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return results.hasNext();
+    }
+
+    @Override
+    public ArtifactInfo next()
+    {
+        return results.next();
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException( "Cached search results are read-only" );
+    }
+
+    @Override
+    public Iterator<ArtifactInfo> iterator()
+    {
+        return this;
+    }
+
+    @Override
+    public void close()
+    {
+        // nothing to release
+    }
+
+    @Override
+    public int getTotalProcessedArtifactInfoCount()
+    {
+        return totalProcessedArtifactInfoCount;
+    }
+}
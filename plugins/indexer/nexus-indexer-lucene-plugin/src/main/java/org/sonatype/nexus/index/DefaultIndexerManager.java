@@ -30,9 +30,11 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -62,6 +64,7 @@ import org.apache.maven.index.ArtifactInfoPostprocessor;
 import org.apache.maven.index.Field;
 import org.apache.maven.index.FlatSearchRequest;
 import org.apache.maven.index.FlatSearchResponse;
+import org.apache.maven.index.IndexerEngine;
 import org.apache.maven.index.IteratorResultSet;
 import org.apache.maven.index.IteratorSearchRequest;
 import org.apache.maven.index.IteratorSearchResponse;
@@ -91,6 +94,7 @@ import org.apache.maven.index.updater.IndexUpdateRequest;
 import org.apache.maven.index.updater.IndexUpdateResult;
 import org.apache.maven.index.updater.IndexUpdater;
 import org.apache.maven.index.updater.ResourceFetcher;
+import org.apache.shiro.subject.Subject;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
@@ -128,6 +132,7 @@ import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
 import org.sonatype.nexus.util.CompositeException;
 import org.sonatype.scheduling.TaskInterruptedException;
 import org.sonatype.scheduling.TaskUtil;
+import org.sonatype.security.SecuritySystem;
 
 import com.google.common.annotations.VisibleForTesting;
 
@@ -245,6 +250,12 @@ public class DefaultIndexerManager
     @Inject
     private NexusIndexer mavenIndexer;
 
+    @Inject
+    private IndexerEngine indexerEngine;
+
+    @Inject
+    private IndexUpdateStatistics indexUpdateStatistics;
+
     @Inject
     private IndexUpdater indexUpdater;
 
@@ -279,6 +290,9 @@ public class DefaultIndexerManager
     @Inject
     private Scanner scanner;
 
+    @Inject
+    private SecuritySystem securitySystem;
+
     /**
      * As of 3.6.1, Lucene provides three FSDirectory implementations, all with there pros and cons.
      * <ul>
@@ -302,6 +316,35 @@ public class DefaultIndexerManager
     @Named( "${nexus.indexer.locktimeout:-60}" )
     private int lockTimeoutSeconds;
 
+    /**
+     * Maximum count of searches having their results cached, see {@link SearchResultCache}. Zero disables search
+     * result caching.
+     */
+    @Inject
+    @Named( "${nexus.indexer.searchResultCacheSize:-1000}" )
+    private int searchResultCacheSize;
+
+    /**
+     * Searches returning more results than this are not cached.
+     */
+    @Inject
+    @Named( "${nexus.indexer.searchResultCacheMaxResults:-200}" )
+    private int searchResultCacheMaxResults;
+
+    /**
+     * Count of threads scanning repository local storage during reindex, see {@link PartitionedScan}.
+     */
+    @Inject
+    @Named( "${nexus.indexer.reindexThreads:-1}" )
+    private int reindexThreads;
+
+    /**
+     * Whether incremental reindex of hosted repositories skips artifacts that are unchanged since they were indexed.
+     */
+    @Inject
+    @Named( "${nexus.indexer.reindexSkipUnchanged:-true}" )
+    private boolean reindexSkipUnchanged;
+
     /**
      * Locks that protect access to repository index. Item-level add/remove and search operations must acquire read
      * lock. Index-level add/remove/reindex must acquire exclusive lock.
@@ -326,6 +369,16 @@ public class DefaultIndexerManager
      */
     private final ConcurrentMap<String, Thread> deleteThreads = new ConcurrentHashMap<String, Thread>();
 
+    /**
+     * Repository index "generations", incremented after each operation that (may have) modified the repository index.
+     * Used to invalidate cached search results.
+     * <p>
+     * Note that generations are only added to the map, never removed, same as locks above.
+     */
+    private final ConcurrentMap<String, AtomicLong> indexGenerations = new ConcurrentHashMap<String, AtomicLong>();
+
+    private volatile SearchResultCache searchResultCache;
+
     private File workingDirectory;
 
     private File tempDirectory;
@@ -426,6 +479,15 @@ public class DefaultIndexerManager
         {
             reindexLocks.clear();
         }
+
+        final SearchResultCache cache = searchResultCache;
+        if ( cache != null )
+        {
+            logger.info( "Search result cache statistics: {}", cache );
+            cache.clear();
+        }
+
+        indexUpdateStatistics.dispose();
     }
 
     public void resetConfiguration()
@@ -433,6 +495,18 @@ public class DefaultIndexerManager
         workingDirectory = null;
 
         tempDirectory = null;
+
+        // repository and target configuration affects search results too
+        resetSearchResultCache();
+    }
+
+    public void resetSearchResultCache()
+    {
+        final SearchResultCache cache = searchResultCache;
+        if ( cache != null )
+        {
+            cache.clear();
+        }
     }
 
     // ----------------------------------------------------------------------------
@@ -719,30 +793,38 @@ public class DefaultIndexerManager
     // ----------------------------------------------------------------------------
     public void addItemToIndex( final Repository repository, final StorageItem item )
         throws IOException
+    {
+        updateItemsInIndex( repository, Collections.singletonList( item ), Collections.<StorageItem> emptyList() );
+    }
+
+    public void removeItemFromIndex( final Repository repository, final StorageItem item )
+        throws IOException
+    {
+        updateItemsInIndex( repository, Collections.<StorageItem> emptyList(), Collections.singletonList( item ) );
+    }
+
+    public void updateItemsInIndex( final Repository repository, final Collection<StorageItem> added,
+                                    final Collection<StorageItem> removed )
+        throws IOException
     {
         if ( !INDEXABLE( repository ) || !INSERVICE( repository ) )
         {
             return;
         }
 
-        // is this hidden path?
-        if ( item.getRepositoryItemUid().getBooleanAttributeValue( IsHiddenAttribute.class ) )
+        final List<StorageItem> toAdd = new ArrayList<StorageItem>( added.size() );
+        for ( StorageItem item : added )
         {
-            return;
+            if ( isIndexableItem( repository, item ) )
+            {
+                toAdd.add( item );
+            }
         }
 
-        // never index generated items
-        if ( item instanceof StorageFileItem && ( (StorageFileItem) item ).isContentGenerated() )
-        {
-            return;
-        }
+        // index for proxy repos shouldn't change just because you deleted something locally
+        final Collection<StorageItem> toRemove = ISPROXY( repository ) ? Collections.<StorageItem> emptyList() : removed;
 
-        // by calculating GAV we check whether the request is against a repo artifact at all
-        // signatures and hashes are not considered for processing
-        // reason (NEXUS-814 related): the actual artifact and it's POM will (or already did)
-        // emitted events about modifying them
-        Gav gav = ( (MavenRepository) repository ).getGavCalculator().pathToGav( item.getRepositoryItemUid().getPath() );
-        if ( gav == null || gav.isSignature() || gav.isHash() )
+        if ( toAdd.isEmpty() && toRemove.isEmpty() )
         {
             return;
         }
@@ -757,11 +839,72 @@ public class DefaultIndexerManager
             public void run( IndexingContext context )
                 throws IOException
             {
-                addItemToIndex( repository, item, context );
+                final long started = System.currentTimeMillis();
+                int updated = 0;
+                try
+                {
+                    // documents are updated one by one, but made durable with one commit. Searches see the updates
+                    // before the commit, as the context uses a near-real-time reader
+                    for ( StorageItem item : toAdd )
+                    {
+                        indexUpdateStatistics.updating();
+                        updated++;
+                        addItemToIndex( repository, item, context );
+                    }
+                    for ( StorageItem item : toRemove )
+                    {
+                        indexUpdateStatistics.updating();
+                        updated++;
+                        removeItemFromIndex( repository, item, context );
+                    }
+
+                    final long committing = System.currentTimeMillis();
+                    context.commit();
+                    indexUpdateStatistics.committed( updated, committing - started, System.currentTimeMillis()
+                        - committing );
+                }
+                catch ( IOException e )
+                {
+                    indexUpdateStatistics.failed( updated );
+                    throw e;
+                }
+                catch ( RuntimeException e )
+                {
+                    indexUpdateStatistics.failed( updated );
+                    throw e;
+                }
             }
         } );
     }
 
+    /**
+     * Returns {@code true} if the item should be added to repository index.
+     */
+    private boolean isIndexableItem( final Repository repository, final StorageItem item )
+    {
+        // is this hidden path?
+        if ( item.getRepositoryItemUid().getBooleanAttributeValue( IsHiddenAttribute.class ) )
+        {
+            return false;
+        }
+
+        // never index generated items
+        if ( item instanceof StorageFileItem && ( (StorageFileItem) item ).isContentGenerated() )
+        {
+            return false;
+        }
+
+        // by calculating GAV we check whether the request is against a repo artifact at all
+        // signatures and hashes are not considered for processing
+        // reason (NEXUS-814 related): the actual artifact and it's POM will (or already did)
+        // emitted events about modifying them
+        Gav gav = ( (MavenRepository) repository ).getGavCalculator().pathToGav( item.getRepositoryItemUid().getPath() );
+        return gav != null && !gav.isSignature() && !gav.isHash();
+    }
+
+    /**
+     * Updates the item in index without committing the index, the caller must commit.
+     */
     private void addItemToIndex( Repository repository, StorageItem item, IndexingContext context )
         throws LocalStorageException, IOException
     {
@@ -813,7 +956,10 @@ public class DefaultIndexerManager
             }
 
             // and finally: index it
-            getNexusIndexer().addArtifactToIndex( ac, context );
+            if ( ac != null )
+            {
+                indexerEngine.update( context, ac );
+            }
         }
         finally
         {
@@ -821,32 +967,9 @@ public class DefaultIndexerManager
         }
     }
 
-    public void removeItemFromIndex( final Repository repository, final StorageItem item )
-        throws IOException
-    {
-        if ( !INDEXABLE( repository ) || !INSERVICE( repository ) )
-        {
-            return;
-        }
-
-        // index for proxy repos shouldn't change just because you deleted something locally
-        if ( ISPROXY( repository ) )
-        {
-            return;
-        }
-
-        // do the work
-        sharedSingle( repository, new Runnable()
-        {
-            @Override
-            public void run( IndexingContext context )
-                throws IOException
-            {
-                removeItemFromIndex( repository, item, context );
-            }
-        } );
-    }
-
+    /**
+     * Removes the item from index without committing the index, the caller must commit.
+     */
     private void removeItemFromIndex( Repository repository, StorageItem item, IndexingContext context )
         throws IOException
     {
@@ -904,7 +1027,7 @@ public class DefaultIndexerManager
 
             try
             {
-                getNexusIndexer().deleteArtifactFromIndex( ac, context );
+                indexerEngine.remove( context, ac );
             }
             finally
             {
@@ -1050,6 +1173,9 @@ public class DefaultIndexerManager
                 logger.debug( "Reindexing repository {} fromPath={} fullReindex={}", repository.getId(), fromPath,
                     fullReindex );
 
+                final File checkpointFile =
+                    new File( getWorkingDirectory(), getContextId( repository.getId() ) + ".reindex-checkpoint" );
+
                 Runnable runnable = new Runnable()
                 {
                     @Override
@@ -1069,8 +1195,17 @@ public class DefaultIndexerManager
                         {
                             final NexusScanningListener scanListener =
                                 new NexusScanningListener( context, contextIndexSearcher, fullReindex,
-                                    ISPROXY( repository ) );
-                            scanner.scan( new ScanningRequest( context, scanListener, fromPath ) );
+                                    ISPROXY( repository ), reindexSkipUnchanged );
+                            if ( fromPath == null || RepositoryItemUid.PATH_ROOT.equals( fromPath ) )
+                            {
+                                // full reindex goes into temporary context, is not resumable
+                                new PartitionedScan( scanner, context, scanListener, fullReindex ? null
+                                    : checkpointFile, reindexThreads ).scan();
+                            }
+                            else
+                            {
+                                scanner.scan( new ScanningRequest( context, scanListener, fromPath ) );
+                            }
                         }
                         finally
                         {
@@ -1082,6 +1217,11 @@ public class DefaultIndexerManager
                 {
                     // delete published stuff too, as we are breaking incremental downstream chain
                     deleteIndexItems( repository );
+                    // and any checkpoint left by aborted update, full reindex scans everything
+                    if ( checkpointFile.isFile() )
+                    {
+                        FileUtils.forceDelete( checkpointFile );
+                    }
                     // creates a temp ctx and finally replaces the "real" with temp
                     temporary( repository, runnable );
                 }
@@ -1779,7 +1919,8 @@ public class DefaultIndexerManager
         // req._setResultHitLimit( hitLimit );
         // }
 
-        return searchFlat( repositoryId, req );
+        return searchFlat( repositoryId, req,
+            searchResultCacheKey( "flat-term", bq, repositoryId, from, count, hitLimit, false, null ) );
     }
 
     @Deprecated
@@ -1818,7 +1959,8 @@ public class DefaultIndexerManager
         // req._setResultHitLimit( hitLimit );
         // }
 
-        return searchFlat( repositoryId, req );
+        return searchFlat( repositoryId, req,
+            searchResultCacheKey( "flat-class", q, repositoryId, from, count, hitLimit, false, null ) );
     }
 
     @Deprecated
@@ -1882,7 +2024,8 @@ public class DefaultIndexerManager
         // req._setResultHitLimit( hitLimit );
         // }
 
-        return searchFlat( repositoryId, req );
+        return searchFlat( repositoryId, req,
+            searchResultCacheKey( "flat-gav", bq, repositoryId, from, count, hitLimit, false, null ) );
     }
 
     @Deprecated
@@ -2012,7 +2155,7 @@ public class DefaultIndexerManager
     {
         IteratorSearchRequest req = createRequest( query, from, count, hitLimit, uniqueRGA, filters );
 
-        return searchIterator( repositoryId, req );
+        return searchIterator( repositoryId, req, null );
     }
 
     public IteratorSearchResponse searchArtifactIterator( String term, String repositoryId, Integer from,
@@ -2059,7 +2202,8 @@ public class DefaultIndexerManager
         req.getMatchHighlightRequests().add( new MatchHighlightRequest( MAVEN.GROUP_ID, q1, MatchHighlightMode.HTML ) );
         req.getMatchHighlightRequests().add( new MatchHighlightRequest( MAVEN.ARTIFACT_ID, q2, MatchHighlightMode.HTML ) );
 
-        return searchIterator( repositoryId, req );
+        return searchIterator( repositoryId, req,
+            searchResultCacheKey( "term", bq, repositoryId, from, count, hitLimit, uniqueRGA, filters ) );
     }
 
     public IteratorSearchResponse searchArtifactClassIterator( String term, String repositoryId, Integer from,
@@ -2078,7 +2222,8 @@ public class DefaultIndexerManager
 
         req.getMatchHighlightRequests().add( new MatchHighlightRequest( MAVEN.CLASSNAMES, q, MatchHighlightMode.HTML ) );
 
-        return searchIterator( repositoryId, req );
+        return searchIterator( repositoryId, req,
+            searchResultCacheKey( "class", q, repositoryId, from, count, hitLimit, false, filters ) );
     }
 
     public IteratorSearchResponse searchArtifactIterator( String gTerm, String aTerm, String vTerm, String pTerm,
@@ -2139,7 +2284,8 @@ public class DefaultIndexerManager
 
         IteratorSearchRequest req = createRequest( bq, from, count, hitLimit, uniqueRGA, filters );
 
-        return searchIterator( repositoryId, req );
+        return searchIterator( repositoryId, req,
+            searchResultCacheKey( "gav", bq, repositoryId, from, count, hitLimit, uniqueRGA, filters ) );
     }
 
     public IteratorSearchResponse searchArtifactSha1ChecksumIterator( String sha1Checksum, String repositoryId,
@@ -2163,13 +2309,34 @@ public class DefaultIndexerManager
 
         IteratorSearchRequest req = createRequest( bq, from, count, hitLimit, false, filters );
 
-        return searchIterator( repositoryId, req );
+        return searchIterator( repositoryId, req,
+            searchResultCacheKey( "sha1", bq, repositoryId, from, count, hitLimit, false, filters ) );
     }
 
-    private FlatSearchResponse searchFlat( String repositoryId, FlatSearchRequest req )
+    private FlatSearchResponse searchFlat( String repositoryId, FlatSearchRequest req, String cacheKey )
         throws NoSuchRepositoryException
     {
-        LockedIndexingContexts lockedContexts = lockSearchTargetIndexingContexts( repositoryId );
+        final long started = System.nanoTime();
+
+        final List<Repository> repositories = getSearchTargetRepositories( repositoryId );
+
+        final SearchResultCache cache = cacheKey != null ? searchResultCache : null;
+        final String fingerprint = cache != null ? getSearchResultFingerprint( repositories ) : null;
+
+        if ( cache != null )
+        {
+            final SearchResultCache.Entry entry = cache.get( cacheKey, fingerprint );
+            if ( entry != null )
+            {
+                final Set<ArtifactInfo> results =
+                    new TreeSet<ArtifactInfo>( ArtifactInfo.REPOSITORY_VERSION_COMPARATOR );
+                results.addAll( entry.getResults() );
+                cache.hit( System.nanoTime() - started );
+                return new FlatSearchResponse( entry.getQuery(), entry.getTotalHitsCount(), results );
+            }
+        }
+
+        LockedIndexingContexts lockedContexts = lockIndexingContexts( repositories, null );
 
         if ( lockedContexts == null )
         {
@@ -2184,6 +2351,13 @@ public class DefaultIndexerManager
 
             postprocessResults( result.getResults() );
 
+            if ( cache != null )
+            {
+                cache.put( cacheKey, fingerprint, result.getQuery(), result.getTotalHitsCount(), -1,
+                    new ArrayList<ArtifactInfo>( result.getResults() ) );
+                cache.miss( System.nanoTime() - started );
+            }
+
             return result;
         }
         catch ( BooleanQuery.TooManyClauses e )
@@ -2208,10 +2382,30 @@ public class DefaultIndexerManager
         }
     }
 
-    private IteratorSearchResponse searchIterator( String repositoryId, IteratorSearchRequest req )
+    private IteratorSearchResponse searchIterator( String repositoryId, IteratorSearchRequest req,
+                                                   final String cacheKey )
         throws NoSuchRepositoryException
     {
-        LockedIndexingContexts lockedContexts = lockSearchTargetIndexingContexts( repositoryId );
+        final long started = System.nanoTime();
+
+        final List<Repository> repositories = getSearchTargetRepositories( repositoryId );
+
+        final SearchResultCache cache = cacheKey != null ? searchResultCache : null;
+        final String fingerprint = cache != null ? getSearchResultFingerprint( repositories ) : null;
+
+        if ( cache != null )
+        {
+            final SearchResultCache.Entry entry = cache.get( cacheKey, fingerprint );
+            if ( entry != null )
+            {
+                final IteratorResultSet results =
+                    new CachedIteratorResultSet( entry.getResults(), entry.getTotalProcessedCount() );
+                cache.hit( System.nanoTime() - started );
+                return new IteratorSearchResponse( entry.getQuery(), entry.getTotalHitsCount(), results );
+            }
+        }
+
+        LockedIndexingContexts lockedContexts = lockIndexingContexts( repositories, null );
 
         if ( lockedContexts == null )
         {
@@ -2226,10 +2420,24 @@ public class DefaultIndexerManager
 
             IteratorSearchResponse result = mavenIndexer.searchIterator( req );
 
-            Query query = result.getQuery();
-            int totalHints = result.getTotalHitsCount();
+            final Query query = result.getQuery();
+            final int totalHints = result.getTotalHitsCount();
             IteratorResultSet results = new LockingIteratorResultSet( result.getResults(), lockedContexts.lock );
 
+            if ( cache != null )
+            {
+                // results are cached once (and if) the caller iterated over all of them
+                results = new RecordingIteratorResultSet( results, cache.getMaxResults() )
+                {
+                    @Override
+                    protected void completed( List<ArtifactInfo> recorded, int totalProcessedArtifactInfoCount )
+                    {
+                        cache.put( cacheKey, fingerprint, query, totalHints, totalProcessedArtifactInfoCount, recorded );
+                    }
+                };
+                cache.miss( System.nanoTime() - started );
+            }
+
             return new IteratorSearchResponse( query, totalHints, results );
         }
         catch ( BooleanQuery.TooManyClauses e )
@@ -2260,6 +2468,80 @@ public class DefaultIndexerManager
         }
     }
 
+    /**
+     * Returns the key of search in {@link SearchResultCache}, or {@code null} if the search results should not be
+     * cached. Searches with extra filters are not cached, as filters are opaque. As results are security filtered, the
+     * key contains the current subject's principal.
+     */
+    private String searchResultCacheKey( String kind, Query query, String repositoryId, Integer from, Integer count,
+                                         Integer hitLimit, boolean uniqueRGA, List<ArtifactInfoFilter> extraFilters )
+    {
+        if ( getSearchResultCache() == null || ( extraFilters != null && !extraFilters.isEmpty() ) )
+        {
+            return null;
+        }
+
+        final String principal;
+        if ( !securitySystem.isSecurityEnabled() )
+        {
+            principal = "*";
+        }
+        else
+        {
+            final Subject subject = securitySystem.getSubject();
+            principal = subject == null ? "" : String.valueOf( subject.getPrincipal() );
+        }
+
+        final StringBuilder sb = new StringBuilder( kind );
+        sb.append( '|' ).append( repositoryId ).append( '|' ).append( principal );
+        sb.append( '|' ).append( from ).append( '|' ).append( count ).append( '|' ).append( hitLimit );
+        sb.append( '|' ).append( uniqueRGA ).append( '|' ).append( query );
+        return sb.toString();
+    }
+
+    /**
+     * Returns the "fingerprint" of current state of search target repository indexes, made of their generations.
+     */
+    private String getSearchResultFingerprint( List<Repository> repositories )
+    {
+        final StringBuilder sb = new StringBuilder();
+        for ( Repository repository : repositories )
+        {
+            sb.append( repository.getId() ).append( ':' ).append( getIndexGeneration( repository ).get() ).append( ';' );
+        }
+        return sb.toString();
+    }
+
+    private SearchResultCache getSearchResultCache()
+    {
+        if ( searchResultCache == null && searchResultCacheSize > 0 )
+        {
+            synchronized ( this )
+            {
+                if ( searchResultCache == null )
+                {
+                    searchResultCache = new SearchResultCache( searchResultCacheSize, searchResultCacheMaxResults );
+                }
+            }
+        }
+        return searchResultCache;
+    }
+
+    private AtomicLong getIndexGeneration( Repository repository )
+    {
+        AtomicLong generation = indexGenerations.get( repository.getId() );
+        if ( generation == null )
+        {
+            final AtomicLong created = new AtomicLong();
+            generation = indexGenerations.putIfAbsent( repository.getId(), created );
+            if ( generation == null )
+            {
+                generation = created;
+            }
+        }
+        return generation;
+    }
+
     // ----------------------------------------------------------------------------
     // Query construction
     // ----------------------------------------------------------------------------
@@ -2466,6 +2748,8 @@ public class DefaultIndexerManager
             }
             finally
             {
+                // item add/remove happens under shared lock, searches may see the changes immediately
+                getIndexGeneration( repository ).incrementAndGet();
                 lock.unlock();
             }
         }
@@ -2579,6 +2863,7 @@ public class DefaultIndexerManager
             }
             finally
             {
+                getIndexGeneration( repository ).incrementAndGet();
                 lock.unlock();
             }
         }
@@ -2661,11 +2946,11 @@ public class DefaultIndexerManager
     }
 
     /**
-     * Resolves and acquires shared lock on the specified repositoryId. If repositoryId corresponds to a group
-     * repository, locks and returns all searchable members with corresponding indexing contexts. If repositoryId is
-     * null, locks and returns all searchable repositories with corresponding indexing contexts.
+     * Resolves the repositories to search for specified repositoryId. If repositoryId corresponds to a group
+     * repository, returns all members. If repositoryId is null, returns all searchable repositories. Returned list is
+     * sorted by repository id.
      */
-    private LockedIndexingContexts lockSearchTargetIndexingContexts( String repositoryId )
+    private List<Repository> getSearchTargetRepositories( String repositoryId )
         throws NoSuchRepositoryException
     {
         List<Repository> repositories = new ArrayList<Repository>();
@@ -2694,7 +2979,19 @@ public class DefaultIndexerManager
             }
         }
 
-        return lockIndexingContexts( repositories, null );
+        if ( repositories.size() > 1 )
+        {
+            Collections.sort( repositories, new Comparator<Repository>()
+            {
+                @Override
+                public int compare( Repository o1, Repository o2 )
+                {
+                    return o1.getId().compareTo( o2.getId() );
+                }
+            } );
+        }
+
+        return repositories;
     }
 
     /**
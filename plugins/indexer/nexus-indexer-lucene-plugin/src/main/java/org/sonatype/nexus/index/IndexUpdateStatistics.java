@@ -0,0 +1,184 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonatype.nexus.proxy.repository.LatencyHistogram;
+
+/**
+ * Keeps statistics of index updates made by item add/remove operations of {@link DefaultIndexerManager}: how many
+ * items are updated per index commit, and how long the updates and commits take. Exposed over JMX. The depth of the
+ * queue of item events waiting to be indexed is exposed by the statistics of "LuceneIndexerManagerEventInspector"
+ * event inspector.
+ *
+ * @since 2.4
+ */
+@Named
+@Singleton
+public class IndexUpdateStatistics
+    implements IndexUpdateStatisticsMBean
+{
+    private static final String JMX_DOMAIN = "org.sonatype.nexus.index";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final AtomicLong commits = new AtomicLong();
+
+    private final AtomicLong updatedItems = new AtomicLong();
+
+    private final AtomicLong uncommittedItems = new AtomicLong();
+
+    private final LatencyHistogram updateTime = new LatencyHistogram();
+
+    private final LatencyHistogram commitTime = new LatencyHistogram();
+
+    private ObjectName jmxName;
+
+    public IndexUpdateStatistics()
+    {
+        try
+        {
+            jmxName = ObjectName.getInstance( JMX_DOMAIN, "type", getClass().getSimpleName() );
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if ( server.isRegistered( jmxName ) )
+            {
+                server.unregisterMBean( jmxName );
+            }
+            server.registerMBean( new StandardMBean( this, IndexUpdateStatisticsMBean.class ), jmxName );
+        }
+        catch ( final Exception e )
+        {
+            jmxName = null;
+            logger.warn( "Problem registering MBean for index update statistics", e );
+        }
+    }
+
+    /**
+     * Unregisters the MBean, statistics are still kept.
+     */
+    public void dispose()
+    {
+        if ( jmxName != null )
+        {
+            try
+            {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if ( server.isRegistered( jmxName ) )
+                {
+                    server.unregisterMBean( jmxName );
+                }
+            }
+            catch ( final Exception e )
+            {
+                logger.warn( "Problem unregistering MBean {}", jmxName, e );
+            }
+            jmxName = null;
+        }
+    }
+
+    /**
+     * Records that an item is about to be updated in an index.
+     */
+    void updating()
+    {
+        uncommittedItems.incrementAndGet();
+    }
+
+    /**
+     * Records an index commit of given count of updated items.
+     */
+    void committed( final int items, final long updateMillis, final long commitMillis )
+    {
+        uncommittedItems.addAndGet( -items );
+        updatedItems.addAndGet( items );
+        commits.incrementAndGet();
+        updateTime.record( updateMillis );
+        commitTime.record( commitMillis );
+    }
+
+    /**
+     * Records that given count of updated items were not committed, due to failure.
+     */
+    void failed( final int items )
+    {
+        uncommittedItems.addAndGet( -items );
+    }
+
+    @Override
+    public long getCommits()
+    {
+        return commits.get();
+    }
+
+    @Override
+    public long getUpdatedItems()
+    {
+        return updatedItems.get();
+    }
+
+    @Override
+    public long getAverageItemsPerCommit()
+    {
+        final long c = commits.get();
+        return c == 0 ? 0 : updatedItems.get() / c;
+    }
+
+    @Override
+    public long getUncommittedItems()
+    {
+        return uncommittedItems.get();
+    }
+
+    @Override
+    public long getUpdateTime95thPercentile()
+    {
+        return updateTime.getPercentile( 95 );
+    }
+
+    @Override
+    public long getCommitTime50thPercentile()
+    {
+        return commitTime.getPercentile( 50 );
+    }
+
+    @Override
+    public long getCommitTime95thPercentile()
+    {
+        return commitTime.getPercentile( 95 );
+    }
+
+    @Override
+    public long getCommitTime99thPercentile()
+    {
+        return commitTime.getPercentile( 99 );
+    }
+
+    @Override
+    public void reset()
+    {
+        commits.set( 0 );
+        updatedItems.set( 0 );
+        updateTime.reset();
+        commitTime.reset();
+    }
+}
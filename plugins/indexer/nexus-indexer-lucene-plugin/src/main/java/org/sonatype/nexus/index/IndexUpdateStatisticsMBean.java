@@ -0,0 +1,51 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+/**
+ * JMX view of {@link IndexUpdateStatistics}. Times are in milliseconds.
+ *
+ * @since 2.4
+ */
+public interface IndexUpdateStatisticsMBean
+{
+    /**
+     * Returns the count of index commits done by item add/remove operations.
+     */
+    long getCommits();
+
+    /**
+     * Returns the count of items added to or removed from indexes.
+     */
+    long getUpdatedItems();
+
+    /**
+     * Returns the average count of items per index commit.
+     */
+    long getAverageItemsPerCommit();
+
+    /**
+     * Returns the count of items being updated in indexes but not yet committed.
+     */
+    long getUncommittedItems();
+
+    long getUpdateTime95thPercentile();
+
+    long getCommitTime50thPercentile();
+
+    long getCommitTime95thPercentile();
+
+    long getCommitTime99thPercentile();
+
+    void reset();
+}
@@ -55,6 +55,14 @@ public interface IndexerManager
      */
     void resetConfiguration();
 
+    /**
+     * Drops all cached search results, forcing subsequent searches to hit the index. To be invoked when something
+     * affecting search results but not the index itself changes, like security configuration.
+     * 
+     * @since 2.4
+     */
+    void resetSearchResultCache();
+
     // ----------------------------------------------------------------------------
     // Context management et al
     // ----------------------------------------------------------------------------
@@ -114,6 +122,19 @@ public interface IndexerManager
     void removeItemFromIndex( Repository repository, StorageItem item )
         throws IOException;
 
+    /**
+     * Adds and removes a batch of items to and from index of a repository, with one index commit. An item should be
+     * present in only one of the collections.
+     * 
+     * @param repository
+     * @param added items to add (or update) in index.
+     * @param removed items to remove from index.
+     * @throws IOException
+     * @since 2.4
+     */
+    void updateItemsInIndex( Repository repository, Collection<StorageItem> added, Collection<StorageItem> removed )
+        throws IOException;
+
     // ----------------------------------------------------------------------------
     // Reindexing related (will do local-scan, remote-download, merge, publish)
     // ----------------------------------------------------------------------------
@@ -12,13 +12,17 @@
  */
 package org.sonatype.nexus.index;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.time.DurationFormatUtils;
 import org.apache.lucene.document.Document;
@@ -47,6 +51,10 @@ import org.sonatype.scheduling.TaskUtil;
  * of fields like uinfos and group related ones. The "deletion" detection is done inversely as in default
  * scanner listener: instead gather all the "present" uinfo's into a (potentially huge) set of  strings,
  * index is read and processedUinfos is used to check what is present. Redundant optimize call removed also.
+ * <p>
+ * Artifact discovery is thread safe, so storage may be scanned in parallel (see {@link PartitionedScan}), as long as
+ * same artifact is not discovered by multiple threads. When updating an existing index, artifacts whose file size and
+ * last modification time equal to those recorded in index are not processed at all.
  *
  * @since 2.3
  */
@@ -64,20 +72,29 @@ public class NexusScanningListener
 
     private final boolean isProxy;
 
+    private final boolean skipUnchanged;
+
     // the UINFO set used to track processed artifacts (grows during scanning)
-    private final Set<String> processedUinfos = new HashSet<String>();
+    private final Set<String> processedUinfos =
+        Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
 
     // exceptions detected and gathered during scanning
-    private final List<Exception> exceptions = new ArrayList<Exception>();
+    private final List<Exception> exceptions = Collections.synchronizedList( new ArrayList<Exception>() );
+
+    // paths not scanned in this run, hence excluded from deletion detection
+    private final List<String> excludedPaths = new ArrayList<String>();
 
     // total count of artifacts discovered
-    private int discovered;
+    private final AtomicInteger discovered = new AtomicInteger();
 
     // total count of artifacts added to index
-    private int added;
+    private final AtomicInteger added = new AtomicInteger();
 
     // total count of artifacts updated on index
-    private int updated;
+    private final AtomicInteger updated = new AtomicInteger();
+
+    // total count of artifacts skipped as unchanged
+    private final AtomicInteger unchanged = new AtomicInteger();
 
     // timestamp in millis when scanning started
     private long scanningStarted;
@@ -85,15 +102,38 @@ public class NexusScanningListener
     public NexusScanningListener( final IndexingContext context, final IndexSearcher contextIndexSearcher,
         final boolean fullReindex, final boolean isProxy )
         throws IOException
+    {
+        this( context, contextIndexSearcher, fullReindex, isProxy, false );
+    }
+
+    /**
+     * @param skipUnchanged if {@code true}, when updating a hosted repository index, artifacts having same file size
+     *            and last modification time as recorded in index, and no other file of their directory changed since
+     *            they were indexed, are not processed.
+     * @since 2.4
+     */
+    public NexusScanningListener( final IndexingContext context, final IndexSearcher contextIndexSearcher,
+        final boolean fullReindex, final boolean isProxy, final boolean skipUnchanged )
+        throws IOException
     {
         this.logger = LoggerFactory.getLogger( getClass() );
         this.context = context;
         this.contextIndexSearcher = contextIndexSearcher;
         this.fullReindex = fullReindex;
         this.isProxy = isProxy;
-        this.discovered = 0;
-        this.added = 0;
-        this.updated = 0;
+        // proxy: cached files are enriched over what remote index has, hence never "unchanged"
+        this.skipUnchanged = skipUnchanged && !fullReindex && !isProxy;
+    }
+
+    /**
+     * Excludes the paths from deletion detection, as they are not scanned in this run.
+     *
+     * @since 2.4
+     */
+    public void setExcludedPaths( final Collection<String> paths )
+    {
+        excludedPaths.clear();
+        excludedPaths.addAll( paths );
     }
 
     @Override
@@ -136,14 +176,14 @@ public class NexusScanningListener
                 // maintains uniqueness
                 indexOp = update( ac );
             }
-            discovered++;
+            discovered.incrementAndGet();
             if ( IndexOp.ADDED == indexOp )
             {
-                added++;
+                added.incrementAndGet();
             }
             else if ( IndexOp.UPDATED == indexOp )
             {
-                updated++;
+                updated.incrementAndGet();
             }
             for ( Exception e : ac.getErrors() )
             {
@@ -178,7 +218,7 @@ public class NexusScanningListener
             result.addException( ex );
         }
 
-        result.setTotalFiles( discovered );
+        result.setTotalFiles( discovered.get() );
         result.setDeletedFiles( removed );
         result.getExceptions().addAll( exceptions );
 
@@ -195,10 +235,9 @@ public class NexusScanningListener
             }
         }
         logger.info(
-            "Scanning of repositoryID=\"{}\" finished: scanned={}, added={}, updated={}, removed={}, scanningDuration={}",
-            context.getRepositoryId(), discovered, added, updated, removed,
-            DurationFormatUtils.formatDurationHMS( System.currentTimeMillis() - scanningStarted )
-        );
+            "Scanning of repositoryID=\"{}\" finished: scanned={}, added={}, updated={}, unchanged={}, removed={}, scanningDuration={}",
+            new Object[] { context.getRepositoryId(), discovered.get(), added.get(), updated.get(), unchanged.get(),
+                removed, DurationFormatUtils.formatDurationHMS( System.currentTimeMillis() - scanningStarted ) } );
     }
 
     @Override
@@ -246,8 +285,8 @@ public class NexusScanningListener
 
                     // minimal ArtifactContext for removal
                     final ArtifactContext ac = new ArtifactContext( null, null, null, ai, ai.calculateGav() );
-                    if ( contextPath == null
-                        || context.getGavCalculator().gavToPath( ac.getGav() ).startsWith( contextPath ) )
+                    final String path = context.getGavCalculator().gavToPath( ac.getGav() );
+                    if ( ( contextPath == null || path.startsWith( contextPath ) ) && !isExcluded( path ) )
                     {
                         if ( IndexOp.DELETED == remove( ac ) )
                         {
@@ -260,11 +299,71 @@ public class NexusScanningListener
         return deleted;
     }
 
+    private boolean isExcluded( final String path )
+    {
+        for ( String excludedPath : excludedPaths )
+        {
+            if ( path.startsWith( excludedPath ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if the artifact file has same size and last modification time as recorded in the
+     * "info" field of the document (see MinimalArtifactInfoIndexCreator), and none of the files in artifact directory
+     * (POM, checksums, signatures, sources and javadoc, all contributing to the document) changed since document was
+     * created, hence document would not change. Files added to or removed from the directory are detected by the
+     * change of directory last modification time.
+     */
+    static boolean isUnchanged( final File artifact, final Document old )
+    {
+        final String info = old.get( ArtifactInfo.INFO );
+        final String indexed = old.get( ArtifactInfo.LAST_MODIFIED );
+        if ( artifact == null || info == null || indexed == null )
+        {
+            return false;
+        }
+        final String[] r = ArtifactInfo.FS_PATTERN.split( info );
+        if ( !( r.length > 2 && Long.toString( artifact.lastModified() ).equals( r[1] )
+            && Long.toString( artifact.length() ).equals( r[2] ) ) )
+        {
+            return false;
+        }
+
+        final long indexedAt;
+        try
+        {
+            indexedAt = Long.parseLong( indexed );
+        }
+        catch ( NumberFormatException e )
+        {
+            return false;
+        }
+        final File directory = artifact.getParentFile();
+        final File[] files = directory == null ? null : directory.listFiles();
+        if ( files == null || directory.lastModified() >= indexedAt )
+        {
+            return false;
+        }
+        for ( File file : files )
+        {
+            if ( file.lastModified() >= indexedAt )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     // == copied from
     // https://github.com/apache/maven-indexer/blob/maven-indexer-5.1.0/indexer-core/src/main/java/org/apache/maven/index/DefaultIndexerEngine.java
     // Changes made:
     // * none of the index/update/remove method does more that modifying index, timestamp is not set by either
     // * update does not maintains groups either (per invocation!), it happens once at scan finish
+    // * update does not create document for unchanged artifacts, if asked so
 
     public enum IndexOp
     {
@@ -291,10 +390,21 @@ public class NexusScanningListener
     {
         if ( ac != null && ac.getGav() != null )
         {
+            final String uinfo = ac.getArtifactInfo().getUinfo();
+            Document old = getOldDocument( uinfo );
+            if ( skipUnchanged && old != null && isUnchanged( ac.getArtifact(), old ) )
+            {
+                unchanged.incrementAndGet();
+                return IndexOp.NOOP;
+            }
             final Document d = ac.createDocument( context );
             if ( d != null )
             {
-                final Document old = getOldDocument( ac );
+                if ( !uinfo.equals( ac.getArtifactInfo().getUinfo() ) )
+                {
+                    // index creators might have changed the identity of artifact
+                    old = getOldDocument( ac.getArtifactInfo().getUinfo() );
+                }
                 if ( old == null )
                 {
                     context.getIndexWriter().addDocument( d );
@@ -369,12 +479,10 @@ public class NexusScanningListener
         return result;
     }
 
-    private Document getOldDocument( ArtifactContext ac )
+    private Document getOldDocument( final String uinfo )
         throws IOException
     {
-        final TopDocs result =
-            contextIndexSearcher.search(
-                new TermQuery( new Term( ArtifactInfo.UINFO, ac.getArtifactInfo().getUinfo() ) ), 2 );
+        final TopDocs result = contextIndexSearcher.search( new TermQuery( new Term( ArtifactInfo.UINFO, uinfo ) ), 2 );
 
         if ( result.totalHits == 1 )
         {
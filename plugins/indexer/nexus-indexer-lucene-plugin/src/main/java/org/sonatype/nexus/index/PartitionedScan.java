@@ -0,0 +1,357 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactScanningListener;
+import org.apache.maven.index.Scanner;
+import org.apache.maven.index.ScanningRequest;
+import org.apache.maven.index.ScanningResult;
+import org.apache.maven.index.context.IndexingContext;
+import org.codehaus.plexus.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonatype.nexus.threads.NexusThreadFactory;
+import org.sonatype.scheduling.TaskInterruptedException;
+import org.sonatype.scheduling.TaskUtil;
+
+/**
+ * Scan of whole repository local storage for reindex, partitioned by top level directories (first segment of
+ * groupIds). Partitions are scanned in parallel by given count of threads, and each scanned partition is committed
+ * to index and recorded in a checkpoint file, if one is given. If the scan is aborted (task canceled, Nexus stopped),
+ * next scan having same checkpoint file skips the partitions already scanned. The checkpoint file is deleted once the
+ * scan finishes. Deletion detection of {@link NexusScanningListener} is not performed on skipped partitions.
+ * <p>
+ * Artifacts of one groupId are always in one partition, hence the listener never sees same artifact from multiple
+ * threads.
+ *
+ * @since 2.4
+ */
+class PartitionedScan
+{
+    /**
+     * Time to wait for scanning threads to stop, once the scan is done or aborted.
+     */
+    private static final long TERMINATION_TIMEOUT_SECONDS = 60;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Scanner scanner;
+
+    private final IndexingContext context;
+
+    private final NexusScanningListener listener;
+
+    private final File checkpointFile;
+
+    private final int threads;
+
+    /**
+     * @param checkpointFile the file to record scanned partitions into, or {@code null} if scan is not resumable.
+     * @param threads count of threads to scan with, when 1, calling thread does the scan.
+     */
+    PartitionedScan( final Scanner scanner, final IndexingContext context, final NexusScanningListener listener,
+                     final File checkpointFile, final int threads )
+    {
+        this.scanner = scanner;
+        this.context = context;
+        this.listener = listener;
+        this.checkpointFile = checkpointFile;
+        this.threads = Math.max( 1, threads );
+    }
+
+    ScanningResult scan()
+        throws IOException
+    {
+        final ScanningRequest request = new ScanningRequest( context, listener, null );
+        final ScanningResult result = new ScanningResult( request );
+
+        final Set<String> scanned = readCheckpoint();
+        final List<String> partitions = new ArrayList<String>();
+        for ( String partition : listPartitions() )
+        {
+            if ( !scanned.contains( partition ) )
+            {
+                partitions.add( partition );
+            }
+        }
+
+        if ( !scanned.isEmpty() )
+        {
+            logger.info( "Resuming scan of repositoryID=\"{}\", {} partitions already scanned, {} to go.",
+                new Object[] { context.getRepositoryId(), scanned.size(), partitions.size() } );
+            final List<String> excluded = new ArrayList<String>( scanned.size() );
+            for ( String partition : scanned )
+            {
+                excluded.add( "/" + partition + "/" );
+            }
+            listener.setExcludedPaths( excluded );
+        }
+
+        listener.scanningStarted( context );
+
+        if ( threads == 1 )
+        {
+            for ( String partition : partitions )
+            {
+                TaskUtil.checkInterruption();
+                scanPartition( partition, result );
+            }
+        }
+        else
+        {
+            scanInParallel( partitions, result );
+        }
+
+        listener.scanningFinished( context, result );
+
+        // scan completed, failed artifacts (if any) are reported in result and are not retried on next scan
+        if ( checkpointFile != null && checkpointFile.isFile() )
+        {
+            FileUtils.forceDelete( checkpointFile );
+        }
+
+        return result;
+    }
+
+    // ==
+
+    private void scanInParallel( final List<String> partitions, final ScanningResult result )
+        throws IOException
+    {
+        final ExecutorService executor =
+            Executors.newFixedThreadPool( threads, new NexusThreadFactory( "nxreindex", "Reindex "
+                + context.getRepositoryId() ) );
+        try
+        {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>( partitions.size() );
+            for ( final String partition : partitions )
+            {
+                futures.add( executor.submit( new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                        throws Exception
+                    {
+                        scanPartition( partition, result );
+                        return null;
+                    }
+                } ) );
+            }
+            executor.shutdown();
+
+            for ( Future<Void> future : futures )
+            {
+                while ( true )
+                {
+                    // the calling thread is the one being canceled or interrupted
+                    TaskUtil.checkInterruption();
+                    try
+                    {
+                        future.get( 1, TimeUnit.SECONDS );
+                        break;
+                    }
+                    catch ( TimeoutException e )
+                    {
+                        // check interruption and wait again
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        throw new TaskInterruptedException( "Scan of " + context.getRepositoryId()
+                            + " interrupted", false );
+                    }
+                    catch ( ExecutionException e )
+                    {
+                        if ( e.getCause() instanceof RuntimeException )
+                        {
+                            // including TaskInterruptedException
+                            throw (RuntimeException) e.getCause();
+                        }
+                        else if ( e.getCause() instanceof Error )
+                        {
+                            throw (Error) e.getCause();
+                        }
+                        synchronized ( result )
+                        {
+                            result.addException( (Exception) e.getCause() );
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            awaitTermination( executor );
+        }
+    }
+
+    /**
+     * Waits (bounded) for scanning threads to stop, so that none of them touches the context once the scan is left.
+     * Interruption of calling thread does not cut the wait short, but is preserved.
+     */
+    private void awaitTermination( final ExecutorService executor )
+    {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( TERMINATION_TIMEOUT_SECONDS );
+        boolean interrupted = false;
+        try
+        {
+            while ( true )
+            {
+                try
+                {
+                    if ( !executor.awaitTermination( deadline - System.nanoTime(), TimeUnit.NANOSECONDS ) )
+                    {
+                        logger.warn( "Scan threads of repositoryID="{}" did not stop within {} seconds.",
+                            context.getRepositoryId(), TERMINATION_TIMEOUT_SECONDS );
+                    }
+                    return;
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        finally
+        {
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void scanPartition( final String partition, final ScanningResult result )
+        throws IOException
+    {
+        final ScanningResult partitionResult =
+            scanner.scan( new ScanningRequest( context, new PartitionListener( listener ), "/" + partition ) );
+
+        synchronized ( result )
+        {
+            for ( Exception e : partitionResult.getExceptions() )
+            {
+                result.addException( e );
+            }
+        }
+
+        // make the partition durable before recording it as scanned
+        if ( checkpointFile != null )
+        {
+            context.commit();
+            writeCheckpoint( partition );
+        }
+    }
+
+    private List<String> listPartitions()
+    {
+        final String[] names = context.getRepository().list();
+        if ( names == null )
+        {
+            return Collections.emptyList();
+        }
+        Arrays.sort( names );
+
+        final List<String> result = new ArrayList<String>( names.length );
+        for ( String name : names )
+        {
+            // hidden directories (like .index, .meta, .nexus) have no artifacts
+            if ( !name.startsWith( "." ) && new File( context.getRepository(), name ).isDirectory() )
+            {
+                result.add( name );
+            }
+        }
+        return result;
+    }
+
+    private Set<String> readCheckpoint()
+        throws IOException
+    {
+        final Set<String> result = new LinkedHashSet<String>();
+        if ( checkpointFile != null && checkpointFile.isFile() )
+        {
+            for ( String line : FileUtils.fileRead( checkpointFile, "UTF-8" ).split( "\n" ) )
+            {
+                if ( line.trim().length() > 0 )
+                {
+                    result.add( line.trim() );
+                }
+            }
+        }
+        return result;
+    }
+
+    private synchronized void writeCheckpoint( final String partition )
+        throws IOException
+    {
+        FileUtils.fileAppend( checkpointFile.getAbsolutePath(), "UTF-8", partition + "\n" );
+    }
+
+    // ==
+
+    /**
+     * Delegates artifacts to the shared listener, scan start and finish is handled by {@link PartitionedScan}.
+     */
+    private static class PartitionListener
+        implements ArtifactScanningListener
+    {
+        private final ArtifactScanningListener delegate;
+
+        PartitionListener( final ArtifactScanningListener delegate )
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void scanningStarted( final IndexingContext ctx )
+        {
+            // nothing
+        }
+
+        @Override
+        public void artifactDiscovered( final ArtifactContext ac )
+        {
+            delegate.artifactDiscovered( ac );
+        }
+
+        @Override
+        public void scanningFinished( final IndexingContext ctx, final ScanningResult result )
+        {
+            // nothing
+        }
+
+        @Override
+        public void artifactError( final ArtifactContext ac, final Exception e )
+        {
+            delegate.artifactError( ac, e );
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.IteratorResultSet;
+
+/**
+ * IteratorResultSet wrapper that records returned results, and hands them over to {@link #completed(List, int)} when
+ * closed, but only if the wrapped result set was fully iterated and it did not return more than given maximum count of
+ * results.
+ *
+ * @since 2.4
+ */
+abstract class RecordingIteratorResultSet
+    implements IteratorResultSet
+{
+    private final IteratorResultSet result;
+
+    private final int maxResults;
+
+    private List<ArtifactInfo> recorded;
+
+    private boolean closed;
+
+    public RecordingIteratorResultSet( IteratorResultSet result, int maxResults )
+    {
+        this.result = result;
+        this.maxResults = maxResults;
+        this.recorded = new ArrayList<ArtifactInfo>();
+    }
+
+    /**
+     * Invoked on close with all the results returned by wrapped result set.
+     */
+    protected abstract void completed( List<ArtifactInfo> results, int totalProcessedArtifactInfoCount );
+
+    @Override
+    public boolean hasNext()
+    {
+        return result.hasNext();
+    }
+
+    @Override
+    public ArtifactInfo next()
+    {
+        final ArtifactInfo ai = result.next();
+        if ( recorded != null )
+        {
+            if ( recorded.size() < maxResults )
+            {
+                recorded.add( ai );
+            }
+            else
+            {
+                recorded = null;
+            }
+        }
+        return ai;
+    }
+
+    @Override
+    public void remove()
+    {
+        recorded = null;
+        result.remove();
+    }
+
+    @Override
+    public Iterator<ArtifactInfo> iterator()
+    {
+        return this;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( !closed )
+        {
+            closed = true;
+            final boolean exhausted = recorded != null && !result.hasNext();
+            final int totalProcessed = result.getTotalProcessedArtifactInfoCount();
+            result.close();
+            if ( exhausted )
+            {
+                completed( recorded, totalProcessed );
+            }
+            recorded = null;
+        }
+    }
+
+    @Override
+    public int getTotalProcessedArtifactInfoCount()
+    {
+        return result.getTotalProcessedArtifactInfoCount();
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.search.Query;
+import org.apache.maven.index.ArtifactInfo;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Bounded (LRU) in-memory cache of (security filtered and postprocessed) index search results, keyed by normalized
+ * query, search target, paging and subject. Each entry carries a "fingerprint" made of the generations of the
+ * indexing contexts it was searched against, and is served only if the fingerprint of current generations matches
+ * it. Keeps hit/miss counts and the time spent serving hits and misses, to make the two comparable.
+ *
+ * @since 2.4
+ */
+class SearchResultCache
+{
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final int maxResults;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong hitNanos = new AtomicLong();
+
+    private final AtomicLong missNanos = new AtomicLong();
+
+    SearchResultCache( final int maxEntries, final int maxResults )
+    {
+        Preconditions.checkArgument( maxEntries > 0, "Cache size must be greater than 0" );
+
+        this.maxResults = maxResults;
+        this.entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, Entry> eldest )
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached entry for key if it was searched against contexts having same fingerprint, {@code null}
+     * otherwise. Stale entries are removed. Does not count hits nor misses, see {@link #hit(long)} and
+     * {@link #miss(long)}.
+     */
+    Entry get( final String key, final String fingerprint )
+    {
+        synchronized ( entries )
+        {
+            final Entry entry = entries.get( key );
+
+            if ( entry != null )
+            {
+                if ( entry.getFingerprint().equals( fingerprint ) )
+                {
+                    return entry;
+                }
+
+                entries.remove( key );
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Caches the results, unless there are more of them than configured maximum. Returns {@code true} if cached.
+     */
+    boolean put( final String key, final String fingerprint, final Query query, final int totalHitsCount,
+                 final int totalProcessedCount, final List<ArtifactInfo> results )
+    {
+        if ( results.size() > maxResults )
+        {
+            return false;
+        }
+
+        final Entry entry = new Entry( fingerprint, query, totalHitsCount, totalProcessedCount, results );
+
+        synchronized ( entries )
+        {
+            entries.put( key, entry );
+        }
+
+        return true;
+    }
+
+    int getMaxResults()
+    {
+        return maxResults;
+    }
+
+    void clear()
+    {
+        synchronized ( entries )
+        {
+            entries.clear();
+        }
+    }
+
+    int size()
+    {
+        synchronized ( entries )
+        {
+            return entries.size();
+        }
+    }
+
+    void hit( final long nanos )
+    {
+        hits.incrementAndGet();
+        hitNanos.addAndGet( nanos );
+    }
+
+    void miss( final long nanos )
+    {
+        misses.incrementAndGet();
+        missNanos.addAndGet( nanos );
+    }
+
+    long getHits()
+    {
+        return hits.get();
+    }
+
+    long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Returns the ratio of hits to all lookups, or -1 if there were no lookups yet.
+     */
+    double getHitRatio()
+    {
+        final long h = hits.get();
+        final long all = h + misses.get();
+        return all == 0 ? -1 : (double) h / all;
+    }
+
+    /**
+     * Returns the average time in microseconds spent serving a hit, or -1 if no hits yet.
+     */
+    long getAverageHitMicros()
+    {
+        final long h = hits.get();
+        return h == 0 ? -1 : hitNanos.get() / h / 1000;
+    }
+
+    /**
+     * Returns the average time in microseconds spent serving a miss (searching the index), or -1 if no misses yet.
+     */
+    long getAverageMissMicros()
+    {
+        final long m = misses.get();
+        return m == 0 ? -1 : missNanos.get() / m / 1000;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SearchResultCache(size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ", hitRatio="
+            + getHitRatio() + ", avgHitMicros=" + getAverageHitMicros() + ", avgMissMicros=" + getAverageMissMicros()
+            + ")";
+    }
+
+    // ==
+
+    /**
+     * Cached results of a search. Immutable.
+     */
+    static class Entry
+    {
+        private final String fingerprint;
+
+        private final Query query;
+
+        private final int totalHitsCount;
+
+        private final int totalProcessedCount;
+
+        private final List<ArtifactInfo> results;
+
+        Entry( final String fingerprint, final Query query, final int totalHitsCount, final int totalProcessedCount,
+               final List<ArtifactInfo> results )
+        {
+            this.fingerprint = Preconditions.checkNotNull( fingerprint );
+            this.query = query;
+            this.totalHitsCount = totalHitsCount;
+            this.totalProcessedCount = totalProcessedCount;
+            this.results = Collections.unmodifiableList( results );
+        }
+
+        String getFingerprint()
+        {
+            return fingerprint;
+        }
+
+        Query getQuery()
+        {
+            return query;
+        }
+
+        int getTotalHitsCount()
+        {
+            return totalHitsCount;
+        }
+
+        int getTotalProcessedCount()
+        {
+            return totalProcessedCount;
+        }
+
+        List<ArtifactInfo> getResults()
+        {
+            return results;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.events;
+
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.nexus.index.IndexerManager;
+import org.sonatype.nexus.proxy.RequestContext;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventDeleteItem;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventStoreCreate;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.plexus.appevents.Event;
+
+/**
+ * {@link IndexerManagerEventInspector} UTs.
+ */
+public class IndexerManagerEventInspectorTest
+{
+    private final IndexerManager indexerManager = mock( IndexerManager.class );
+
+    private final IndexerManagerEventInspector inspector = new IndexerManagerEventInspector()
+    {
+        @Override
+        protected IndexerManager getIndexerManager()
+        {
+            return indexerManager;
+        }
+    };
+
+    private static Repository repository( final String id )
+    {
+        final Repository repository = mock( Repository.class );
+        when( repository.getId() ).thenReturn( id );
+        when( repository.isIndexable() ).thenReturn( true );
+        return repository;
+    }
+
+    private static StorageItem item( final String key )
+    {
+        final RepositoryItemUid uid = mock( RepositoryItemUid.class );
+        when( uid.getKey() ).thenReturn( key );
+        final StorageItem item = mock( StorageItem.class );
+        when( item.getRepositoryItemUid() ).thenReturn( uid );
+        when( item.getItemContext() ).thenReturn( new RequestContext() );
+        return item;
+    }
+
+    @Test
+    public void batchIsUpdatedPerRepository()
+        throws Exception
+    {
+        final Repository repo1 = repository( "repo1" );
+        final Repository repo2 = repository( "repo2" );
+        final StorageItem a = item( "repo1:/a" );
+        final StorageItem b = item( "repo1:/b" );
+        final StorageItem c = item( "repo2:/c" );
+
+        final List<Event<?>> events =
+            Arrays.<Event<?>> asList( new RepositoryItemEventStoreCreate( repo1, a ),
+                new RepositoryItemEventStoreCreate( repo2, c ), new RepositoryItemEventDeleteItem( repo1, b ) );
+
+        inspector.inspect( events );
+
+        verify( indexerManager ).updateItemsInIndex( repo1, Collections.singletonList( a ),
+            Collections.singletonList( b ) );
+        verify( indexerManager ).updateItemsInIndex( repo2, Collections.singletonList( c ),
+            Collections.<StorageItem> emptyList() );
+        verify( indexerManager, never() ).addItemToIndex( eq( repo1 ), eq( a ) );
+    }
+
+    @Test
+    public void onlyLatestEventOfItemIsApplied()
+        throws Exception
+    {
+        final Repository repo1 = repository( "repo1" );
+        final StorageItem a = item( "repo1:/a" );
+
+        final List<Event<?>> events =
+            Arrays.<Event<?>> asList( new RepositoryItemEventStoreCreate( repo1, a ),
+                new RepositoryItemEventDeleteItem( repo1, a ) );
+
+        inspector.inspect( events );
+
+        verify( indexerManager, times( 1 ) ).updateItemsInIndex( eq( repo1 ),
+            anyCollectionOf( StorageItem.class ), anyCollectionOf( StorageItem.class ) );
+        verify( indexerManager ).updateItemsInIndex( repo1, Collections.<StorageItem> emptyList(),
+            Collections.singletonList( a ) );
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.maven.index.ArtifactInfo;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link NexusScanningListener} UTs.
+ */
+public class NexusScanningListenerTest
+{
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    // aligned to seconds, as some filesystems do not keep milliseconds
+    private final long created = ( System.currentTimeMillis() / 1000 - 100 ) * 1000;
+
+    private final long indexed = created + 50000;
+
+    private File directory;
+
+    private File jar;
+
+    private File pom;
+
+    private Document document;
+
+    @Before
+    public void prepare()
+        throws IOException
+    {
+        directory = tmp.newFolder( "1.0" );
+        jar = new File( directory, "test-1.0.jar" );
+        FileUtils.fileWrite( jar.getAbsolutePath(), "jar" );
+        jar.setLastModified( created );
+        pom = new File( directory, "test-1.0.pom" );
+        FileUtils.fileWrite( pom.getAbsolutePath(), "<project/>" );
+        pom.setLastModified( created );
+        directory.setLastModified( created );
+
+        document = new Document();
+        document.add( new Field( ArtifactInfo.INFO, "jar" + ArtifactInfo.FS + jar.lastModified() + ArtifactInfo.FS
+            + jar.length() + ArtifactInfo.FS + "0" + ArtifactInfo.FS + "0" + ArtifactInfo.FS + "0" + ArtifactInfo.FS
+            + "jar", Field.Store.YES, Field.Index.NO ) );
+        document.add( new Field( ArtifactInfo.LAST_MODIFIED, Long.toString( indexed ), Field.Store.YES,
+            Field.Index.NO ) );
+    }
+
+    @Test
+    public void unchangedArtifact()
+    {
+        assertThat( NexusScanningListener.isUnchanged( jar, document ), equalTo( true ) );
+    }
+
+    @Test
+    public void changedArtifact()
+        throws IOException
+    {
+        FileUtils.fileWrite( jar.getAbsolutePath(), "jar changed" );
+        jar.setLastModified( created );
+        directory.setLastModified( created );
+
+        assertThat( NexusScanningListener.isUnchanged( jar, document ), equalTo( false ) );
+    }
+
+    @Test
+    public void changedPom()
+    {
+        pom.setLastModified( indexed + 10000 );
+
+        assertThat( NexusScanningListener.isUnchanged( jar, document ), equalTo( false ) );
+    }
+
+    @Test
+    public void addedSibling()
+        throws IOException
+    {
+        final File sources = new File( directory, "test-1.0-sources.jar" );
+        FileUtils.fileWrite( sources.getAbsolutePath(), "sources" );
+        sources.setLastModified( created );
+        directory.setLastModified( indexed + 10000 );
+
+        assertThat( NexusScanningListener.isUnchanged( jar, document ), equalTo( false ) );
+    }
+}
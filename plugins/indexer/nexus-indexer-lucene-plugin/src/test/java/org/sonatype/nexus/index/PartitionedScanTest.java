@@ -0,0 +1,183 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.maven.index.Scanner;
+import org.apache.maven.index.ScanningRequest;
+import org.apache.maven.index.ScanningResult;
+import org.apache.maven.index.context.IndexingContext;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * {@link PartitionedScan} UTs.
+ */
+public class PartitionedScanTest
+{
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final List<String> scannedPaths = Collections.synchronizedList( new ArrayList<String>() );
+
+    private Scanner scanner;
+
+    private IndexingContext context;
+
+    private NexusScanningListener listener;
+
+    private File checkpointFile;
+
+    @Before
+    public void prepare()
+        throws IOException
+    {
+        final File repository = tmp.newFolder( "repository" );
+        new File( repository, "com" ).mkdirs();
+        new File( repository, "org" ).mkdirs();
+        new File( repository, "net" ).mkdirs();
+        new File( repository, ".index" ).mkdirs();
+        FileUtils.fileWrite( new File( repository, "archetype-catalog.xml" ).getAbsolutePath(), "<catalog/>" );
+
+        checkpointFile = new File( tmp.getRoot(), "repository.reindex-checkpoint" );
+
+        context = mock( IndexingContext.class );
+        when( context.getRepository() ).thenReturn( repository );
+        when( context.getRepositoryId() ).thenReturn( "repository" );
+
+        listener = mock( NexusScanningListener.class );
+
+        scanner = mock( Scanner.class );
+        when( scanner.scan( any( ScanningRequest.class ) ) ).thenAnswer( new Answer<ScanningResult>()
+        {
+            @Override
+            public ScanningResult answer( final InvocationOnMock invocation )
+            {
+                final ScanningRequest request = (ScanningRequest) invocation.getArguments()[0];
+                scannedPaths.add( request.getStartingPath() );
+                return new ScanningResult( request );
+            }
+        } );
+    }
+
+    @Test
+    public void topLevelDirectoriesAreScanned()
+        throws IOException
+    {
+        new PartitionedScan( scanner, context, listener, checkpointFile, 1 ).scan();
+
+        assertThat( scannedPaths, equalTo( Arrays.asList( "/com", "/net", "/org" ) ) );
+        verify( listener ).scanningStarted( context );
+        verify( listener ).scanningFinished( any( IndexingContext.class ), any( ScanningResult.class ) );
+        verify( listener, never() ).setExcludedPaths( anyCollectionOf( String.class ) );
+        verify( context, times( 3 ) ).commit();
+        assertThat( checkpointFile.exists(), equalTo( false ) );
+    }
+
+    @Test
+    public void topLevelDirectoriesAreScannedInParallel()
+        throws IOException
+    {
+        new PartitionedScan( scanner, context, listener, checkpointFile, 2 ).scan();
+
+        assertThat( scannedPaths, containsInAnyOrder( "/com", "/net", "/org" ) );
+        verify( listener ).scanningStarted( context );
+        verify( listener ).scanningFinished( any( IndexingContext.class ), any( ScanningResult.class ) );
+    }
+
+    @Test
+    public void failedScanWaitsForScanningThreads()
+        throws IOException
+    {
+        final AtomicBoolean slowPartitionDone = new AtomicBoolean( false );
+        when( scanner.scan( any( ScanningRequest.class ) ) ).thenAnswer( new Answer<ScanningResult>()
+        {
+            @Override
+            public ScanningResult answer( final InvocationOnMock invocation )
+            {
+                final ScanningRequest request = (ScanningRequest) invocation.getArguments()[0];
+                if ( "/com".equals( request.getStartingPath() ) )
+                {
+                    throw new IllegalStateException( "failed" );
+                }
+                // not interruptible, as scanning of a single file is not
+                final long deadline = System.currentTimeMillis() + 300;
+                while ( System.currentTimeMillis() < deadline )
+                {
+                    Thread.yield();
+                }
+                slowPartitionDone.set( true );
+                return new ScanningResult( request );
+            }
+        } );
+
+        try
+        {
+            new PartitionedScan( scanner, context, listener, checkpointFile, 3 ).scan();
+            fail( "Scan should fail" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // expected
+        }
+
+        assertThat( slowPartitionDone.get(), equalTo( true ) );
+    }
+
+    @Test
+    public void checkpointedPartitionsAreSkipped()
+        throws IOException
+    {
+        FileUtils.fileWrite( checkpointFile.getAbsolutePath(), "UTF-8", "com\nnet\n" );
+
+        new PartitionedScan( scanner, context, listener, checkpointFile, 1 ).scan();
+
+        assertThat( scannedPaths, equalTo( Arrays.asList( "/org" ) ) );
+        verify( listener ).setExcludedPaths( Arrays.asList( "/com/", "/net/" ) );
+        assertThat( checkpointFile.exists(), equalTo( false ) );
+    }
+
+    @Test
+    public void notResumableScanIgnoresCheckpoint()
+        throws IOException
+    {
+        new PartitionedScan( scanner, context, listener, null, 1 ).scan();
+
+        assertThat( scannedPaths, equalTo( Arrays.asList( "/com", "/net", "/org" ) ) );
+        verify( context, never() ).commit();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.index.ArtifactInfo;
+import org.junit.Test;
+
+/**
+ * {@link SearchResultCache} and {@link RecordingIteratorResultSet} UTs.
+ */
+public class SearchResultCacheTest
+{
+    private static ArtifactInfo ai( final String artifactId )
+    {
+        return new ArtifactInfo( "repo1", "g", artifactId, "1.0", null );
+    }
+
+    private static final List<ArtifactInfo> RESULTS = Arrays.asList( ai( "a" ), ai( "b" ) );
+
+    @Test
+    public void staleFingerprintIsMiss()
+    {
+        final SearchResultCache cache = new SearchResultCache( 10, 10 );
+        cache.put( "key", "repo1:1;repo2:2;", null, 2, 2, RESULTS );
+
+        assertThat( cache.get( "key", "repo1:1;repo2:2;" ), notNullValue() );
+        assertThat( cache.get( "key", "repo1:1;repo2:3;" ), nullValue() );
+        // stale entry was dropped
+        assertThat( cache.get( "key", "repo1:1;repo2:2;" ), nullValue() );
+        assertThat( cache.size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void sizeIsBounded()
+    {
+        final SearchResultCache cache = new SearchResultCache( 2, 10 );
+        cache.put( "a", "f", null, 2, 2, RESULTS );
+        cache.put( "b", "f", null, 2, 2, RESULTS );
+        // touch a, so b is eldest
+        cache.get( "a", "f" );
+        cache.put( "c", "f", null, 2, 2, RESULTS );
+
+        assertThat( cache.size(), equalTo( 2 ) );
+        assertThat( cache.get( "a", "f" ), notNullValue() );
+        assertThat( cache.get( "b", "f" ), nullValue() );
+    }
+
+    @Test
+    public void tooManyResultsAreNotCached()
+    {
+        final SearchResultCache cache = new SearchResultCache( 10, 1 );
+
+        assertThat( cache.put( "key", "f", null, 2, 2, RESULTS ), equalTo( false ) );
+        assertThat( cache.get( "key", "f" ), nullValue() );
+    }
+
+    @Test
+    public void statistics()
+    {
+        final SearchResultCache cache = new SearchResultCache( 10, 10 );
+        assertThat( cache.getHitRatio(), equalTo( -1d ) );
+
+        cache.hit( 1000L );
+        cache.hit( 3000L );
+        cache.miss( 100000L );
+        cache.miss( 300000L );
+
+        assertThat( cache.getHits(), equalTo( 2L ) );
+        assertThat( cache.getMisses(), equalTo( 2L ) );
+        assertThat( cache.getHitRatio(), equalTo( 0.5d ) );
+        assertThat( cache.getAverageHitMicros(), equalTo( 2L ) );
+        assertThat( cache.getAverageMissMicros(), equalTo( 200L ) );
+    }
+
+    @Test
+    public void fullyIteratedResultsAreRecorded()
+        throws IOException
+    {
+        final SearchResultCache cache = new SearchResultCache( 10, 10 );
+        final RecordingIteratorResultSet results = recording( cache, 10 );
+
+        while ( results.hasNext() )
+        {
+            results.next();
+        }
+        results.close();
+
+        final SearchResultCache.Entry entry = cache.get( "key", "f" );
+        assertThat( entry, notNullValue() );
+        assertThat( entry.getResults(), contains( RESULTS.get( 0 ), RESULTS.get( 1 ) ) );
+        assertThat( entry.getTotalProcessedCount(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void partiallyIteratedResultsAreNotRecorded()
+        throws IOException
+    {
+        final SearchResultCache cache = new SearchResultCache( 10, 10 );
+        final RecordingIteratorResultSet results = recording( cache, 10 );
+
+        results.next();
+        results.close();
+
+        assertThat( cache.get( "key", "f" ), nullValue() );
+    }
+
+    @Test
+    public void tooManyResultsAreNotRecorded()
+        throws IOException
+    {
+        final SearchResultCache cache = new SearchResultCache( 10, 10 );
+        final RecordingIteratorResultSet results = recording( cache, 1 );
+
+        results.next();
+        results.next();
+        results.close();
+
+        assertThat( cache.get( "key", "f" ), nullValue() );
+    }
+
+    private static RecordingIteratorResultSet recording( final SearchResultCache cache, final int maxResults )
+    {
+        return new RecordingIteratorResultSet( new CachedIteratorResultSet( RESULTS, RESULTS.size() ), maxResults )
+        {
+            @Override
+            protected void completed( final List<ArtifactInfo> results, final int totalProcessedArtifactInfoCount )
+            {
+                cache.put( "key", "f", null, results.size(), totalProcessedArtifactInfoCount, results );
+            }
+        };
+    }
+}
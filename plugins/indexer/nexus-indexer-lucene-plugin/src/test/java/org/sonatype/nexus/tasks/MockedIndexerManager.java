@@ -53,6 +53,12 @@ public class MockedIndexerManager
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void resetSearchResultCache()
+    {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void addRepositoryIndexContext( String repositoryId )
         throws IOException, NoSuchRepositoryException
@@ -91,6 +97,14 @@ public class MockedIndexerManager
 
     }
 
+    @Override
+    public void updateItemsInIndex( Repository repository, Collection<StorageItem> added,
+                                    Collection<StorageItem> removed )
+        throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void reindexAllRepositories( String path, boolean fullReindex )
         throws IOException
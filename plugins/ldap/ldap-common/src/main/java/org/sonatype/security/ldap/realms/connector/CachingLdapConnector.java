@@ -0,0 +1,385 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.security.ldap.realms.connector;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.shiro.realm.ldap.LdapContextFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonatype.security.ldap.dao.LdapDAOException;
+import org.sonatype.security.ldap.dao.LdapUser;
+import org.sonatype.security.ldap.dao.NoLdapUserRolesFoundException;
+import org.sonatype.security.ldap.dao.NoSuchLdapGroupException;
+import org.sonatype.security.ldap.dao.NoSuchLdapUserException;
+
+/**
+ * {@link LdapConnector} caching the results of user lookups (user DN, attributes and group membership) and user role
+ * lookups of another connector, as these are performed on every authentication and authorization. The cache is
+ * bounded (LRU) and entries expire after configured time. "Not found" results are cached too, but for shorter time.
+ * Entries being used when close to expiration are refreshed in background (if executor given), so frequently used
+ * entries do not expire and callers do not wait for LDAP server. Failures talking to LDAP server are not cached.
+ * Listing and searching methods are not cached.
+ * <p>
+ * Cached {@link LdapUser} instances are shared, callers must not modify them. Their passwords might be stale, so
+ * passwords must be checked against users looked up by the {@link #getDelegate() delegate}.
+ * 
+ * @since 2.4
+ */
+public class CachingLdapConnector
+    implements LdapConnector
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final LdapConnector delegate;
+
+    private final long ttl;
+
+    private final long negativeTtl;
+
+    private final long refreshAfter;
+
+    private final Executor refreshExecutor;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong refreshes = new AtomicLong();
+
+    /**
+     * Guarded by entries, incremented on each invalidation, to not cache results looked up before it.
+     */
+    private long generation;
+
+    /**
+     * @param delegate the connector to cache results of.
+     * @param maxEntries maximum count of cached results.
+     * @param ttl time in milliseconds results are cached for.
+     * @param negativeTtl time in milliseconds "not found" results are cached for.
+     * @param refreshAfter age in milliseconds of results after which they are refreshed in background when used.
+     * @param refreshExecutor the executor to refresh results with, or {@code null} to not refresh ahead.
+     */
+    public CachingLdapConnector( final LdapConnector delegate, final int maxEntries, final long ttl,
+                                 final long negativeTtl, final long refreshAfter, final Executor refreshExecutor )
+    {
+        if ( delegate == null || maxEntries <= 0 )
+        {
+            throw new IllegalArgumentException( "Delegate needed and cache size must be greater than 0" );
+        }
+        this.delegate = delegate;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.refreshAfter = refreshAfter;
+        this.refreshExecutor = refreshExecutor;
+        this.entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, Entry> eldest )
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the connector this one caches the results of, to perform lookups that must not be served from cache.
+     */
+    public LdapConnector getDelegate()
+    {
+        return delegate;
+    }
+
+    public String getIdentifier()
+    {
+        return delegate.getIdentifier();
+    }
+
+    public LdapUser getUser( final String username )
+        throws NoSuchLdapUserException, LdapDAOException
+    {
+        try
+        {
+            return (LdapUser) get( "user:" + username, new Lookup()
+            {
+                public Object lookup()
+                    throws LdapDAOException, NoSuchLdapUserException
+                {
+                    return delegate.getUser( username );
+                }
+            } );
+        }
+        catch ( NotFound e )
+        {
+            throw new NoSuchLdapUserException( username );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public Set<String> getUserRoles( final String userId )
+        throws LdapDAOException, NoLdapUserRolesFoundException
+    {
+        try
+        {
+            return (Set<String>) get( "roles:" + userId, new Lookup()
+            {
+                public Object lookup()
+                    throws LdapDAOException, NoLdapUserRolesFoundException
+                {
+                    return Collections.unmodifiableSet( delegate.getUserRoles( userId ) );
+                }
+            } );
+        }
+        catch ( NotFound e )
+        {
+            throw new NoLdapUserRolesFoundException( userId );
+        }
+    }
+
+    public SortedSet<LdapUser> getAllUsers()
+        throws LdapDAOException
+    {
+        return delegate.getAllUsers();
+    }
+
+    public SortedSet<LdapUser> getUsers( final int userCount )
+        throws LdapDAOException
+    {
+        return delegate.getUsers( userCount );
+    }
+
+    public SortedSet<LdapUser> searchUsers( final String username )
+        throws LdapDAOException
+    {
+        return delegate.searchUsers( username );
+    }
+
+    public SortedSet<String> getAllGroups()
+        throws LdapDAOException
+    {
+        return delegate.getAllGroups();
+    }
+
+    public String getGroupName( final String groupId )
+        throws LdapDAOException, NoSuchLdapGroupException
+    {
+        return delegate.getGroupName( groupId );
+    }
+
+    public LdapContextFactory getLdapContextFactory()
+        throws LdapDAOException
+    {
+        return delegate.getLdapContextFactory();
+    }
+
+    /**
+     * Drops all cached results.
+     */
+    public void invalidate()
+    {
+        synchronized ( entries )
+        {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    public int getSize()
+    {
+        synchronized ( entries )
+        {
+            return entries.size();
+        }
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getRefreshes()
+    {
+        return refreshes.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CachingLdapConnector(size=" + getSize() + ", hits=" + getHits() + ", misses=" + getMisses()
+            + ", refreshes=" + getRefreshes() + ")";
+    }
+
+    // ==
+
+    private Object get( final String key, final Lookup lookup )
+        throws LdapDAOException, NotFound
+    {
+        final long now = System.currentTimeMillis();
+        final Entry entry;
+        final long lookupGeneration;
+
+        synchronized ( entries )
+        {
+            entry = entries.get( key );
+            lookupGeneration = generation;
+            if ( entry != null && now - entry.loaded > ( entry.value == null ? negativeTtl : ttl ) )
+            {
+                entries.remove( key );
+            }
+        }
+
+        if ( entry != null && now - entry.loaded <= ( entry.value == null ? negativeTtl : ttl ) )
+        {
+            hits.incrementAndGet();
+            if ( entry.value != null && refreshExecutor != null && now - entry.loaded > refreshAfter
+                && entry.refreshing.compareAndSet( false, true ) )
+            {
+                refresh( key, lookup, entry, lookupGeneration );
+            }
+            if ( entry.value == null )
+            {
+                throw NotFound.INSTANCE;
+            }
+            return entry.value;
+        }
+
+        misses.incrementAndGet();
+        return load( key, lookup, lookupGeneration );
+    }
+
+    private Object load( final String key, final Lookup lookup, final long lookupGeneration )
+        throws LdapDAOException, NotFound
+    {
+        Object value;
+        try
+        {
+            value = lookup.lookup();
+        }
+        catch ( NoSuchLdapUserException e )
+        {
+            value = null;
+        }
+        catch ( NoLdapUserRolesFoundException e )
+        {
+            value = null;
+        }
+
+        synchronized ( entries )
+        {
+            // do not cache if invalidated meanwhile, the result might be stale
+            if ( lookupGeneration == generation )
+            {
+                entries.put( key, new Entry( value, System.currentTimeMillis() ) );
+            }
+        }
+
+        if ( value == null )
+        {
+            throw NotFound.INSTANCE;
+        }
+        return value;
+    }
+
+    private void refresh( final String key, final Lookup lookup, final Entry entry, final long lookupGeneration )
+    {
+        try
+        {
+            refreshExecutor.execute( new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        refreshes.incrementAndGet();
+                        load( key, lookup, lookupGeneration );
+                    }
+                    catch ( NotFound e )
+                    {
+                        // cached as "not found"
+                    }
+                    catch ( Exception e )
+                    {
+                        // keep serving the cached entry until it expires
+                        logger.debug( "Failed to refresh cached LDAP lookup " + key, e );
+                        entry.refreshing.set( false );
+                    }
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            entry.refreshing.set( false );
+        }
+    }
+
+    // ==
+
+    private interface Lookup
+    {
+        Object lookup()
+            throws LdapDAOException, NoSuchLdapUserException, NoLdapUserRolesFoundException;
+    }
+
+    /**
+     * Cached result, {@code null} value means "not found".
+     */
+    private static class Entry
+    {
+        private final Object value;
+
+        private final long loaded;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean( false );
+
+        private Entry( final Object value, final long loaded )
+        {
+            this.value = value;
+            this.loaded = loaded;
+        }
+    }
+
+    /**
+     * Signals cached or looked up "not found" result, translated to proper exception by callers.
+     */
+    private static class NotFound
+        extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        private static final NotFound INSTANCE = new NotFound();
+
+        @Override
+        public synchronized Throwable fillInStackTrace()
+        {
+            // shared instance, used for flow control only
+            return this;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.security.ldap.realms;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+import org.sonatype.security.ldap.LdapTestSupport;
+import org.sonatype.security.ldap.dao.LdapGroupDAO;
+import org.sonatype.security.ldap.dao.LdapUser;
+import org.sonatype.security.ldap.dao.LdapUserDAO;
+import org.sonatype.security.ldap.dao.NoSuchLdapUserException;
+import org.sonatype.security.ldap.realms.connector.CachingLdapConnector;
+import org.sonatype.security.ldap.realms.connector.DefaultLdapConnector;
+import org.sonatype.security.ldap.realms.connector.LdapConnector;
+
+/**
+ * {@link CachingLdapConnector} ITs against embedded LDAP server.
+ */
+public class CachingLdapConnectorIT
+    extends LdapTestSupport
+{
+    private static final Executor SAME_THREAD = new Executor()
+    {
+        public void execute( final Runnable command )
+        {
+            command.run();
+        }
+    };
+
+    private LdapConnector createConnector()
+        throws Exception
+    {
+        final SimpleLdapManager ldapManager = (SimpleLdapManager) lookup( LdapManager.class );
+        return new DefaultLdapConnector( "test", lookup( LdapUserDAO.class ), lookup( LdapGroupDAO.class ),
+            ldapManager.getLdapContextFactory(), ldapManager.getLdapAuthConfiguration() );
+    }
+
+    @Test
+    public void userLookupsAreCached()
+        throws Exception
+    {
+        final CachingLdapConnector connector =
+            new CachingLdapConnector( createConnector(), 10, 60000L, 10000L, 60000L, null );
+
+        final LdapUser user = connector.getUser( "cstamas" );
+        assertThat( user.getUsername(), equalTo( "cstamas" ) );
+        assertThat( connector.getUser( "cstamas" ), sameInstance( user ) );
+        assertThat( connector.getUserRoles( "cstamas" ), equalTo( connector.getUserRoles( "cstamas" ) ) );
+
+        assertThat( connector.getMisses(), equalTo( 2L ) );
+        assertThat( connector.getHits(), equalTo( 2L ) );
+
+        connector.invalidate();
+        assertThat( connector.getUser( "cstamas" ), not( sameInstance( user ) ) );
+        assertThat( connector.getMisses(), equalTo( 3L ) );
+    }
+
+    @Test
+    public void delegateLookupsAreNotCached()
+        throws Exception
+    {
+        final CachingLdapConnector connector =
+            new CachingLdapConnector( createConnector(), 10, 60000L, 10000L, 60000L, null );
+
+        final LdapUser user = connector.getUser( "cstamas" );
+        assertThat( connector.getDelegate().getUser( "cstamas" ), not( sameInstance( user ) ) );
+        assertThat( connector.getDelegate().getUser( "cstamas" ), not( sameInstance( connector.getDelegate().getUser(
+            "cstamas" ) ) ) );
+        assertThat( connector.getUser( "cstamas" ), sameInstance( user ) );
+    }
+
+    @Test
+    public void missingUsersAreCached()
+        throws Exception
+    {
+        final CachingLdapConnector connector =
+            new CachingLdapConnector( createConnector(), 10, 60000L, 10000L, 60000L, null );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            try
+            {
+                connector.getUser( "nosuchuser" );
+                fail( "User should not be found" );
+            }
+            catch ( NoSuchLdapUserException e )
+            {
+                assertThat( e.getUsername(), equalTo( "nosuchuser" ) );
+            }
+        }
+
+        assertThat( connector.getMisses(), equalTo( 1L ) );
+        assertThat( connector.getHits(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void usedEntriesAreRefreshedAhead()
+        throws Exception
+    {
+        // refresh anything older than 0 millis
+        final CachingLdapConnector connector =
+            new CachingLdapConnector( createConnector(), 10, 60000L, 10000L, -1L, SAME_THREAD );
+
+        final LdapUser user = connector.getUser( "cstamas" );
+        // served from cache, but refreshed meanwhile
+        assertThat( connector.getUser( "cstamas" ), sameInstance( user ) );
+        assertThat( connector.getRefreshes(), equalTo( 1L ) );
+        assertThat( connector.getUser( "cstamas" ), not( sameInstance( user ) ) );
+        assertThat( connector.getMisses(), equalTo( 1L ) );
+    }
+}
@@ -17,6 +17,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
@@ -27,6 +29,9 @@ import org.codehaus.plexus.util.StringUtils;
 import org.apache.shiro.realm.ldap.LdapContextFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonatype.nexus.proxy.access.AuthorizationDecisionCache;
+import org.sonatype.nexus.threads.NexusThreadFactory;
+import org.sonatype.nexus.util.SystemPropertiesHelper;
 import org.sonatype.security.authentication.AuthenticationException;
 import org.sonatype.security.ldap.LdapAuthenticator;
 import org.sonatype.security.ldap.dao.LdapAuthConfiguration;
@@ -39,6 +44,7 @@ import org.sonatype.security.ldap.dao.NoSuchLdapGroupException;
 import org.sonatype.security.ldap.dao.NoSuchLdapUserException;
 import org.sonatype.security.ldap.realms.DefaultLdapContextFactory;
 import org.sonatype.security.ldap.realms.LdapManager;
+import org.sonatype.security.ldap.realms.connector.CachingLdapConnector;
 import org.sonatype.security.ldap.realms.connector.DefaultLdapConnector;
 import org.sonatype.security.ldap.realms.connector.LdapConnector;
 import org.sonatype.security.ldap.realms.persist.LdapClearCacheEvent;
@@ -54,6 +60,39 @@ public class DefaultLdapManager
     implements LdapManager, Initializable, Disposable
 {
 
+    /**
+     * Maximum count of cached user and role lookups, 0 disables caching. Default is 1000.
+     * 
+     * @since 2.4
+     */
+    private static final int CACHE_SIZE =
+        SystemPropertiesHelper.getInteger( DefaultLdapManager.class.getName() + ".cacheSize", 1000 );
+
+    /**
+     * Time in milliseconds user and role lookups are cached for. Default is 60 seconds.
+     * 
+     * @since 2.4
+     */
+    private static final long CACHE_TTL =
+        SystemPropertiesHelper.getLong( DefaultLdapManager.class.getName() + ".cacheTtl", 60000L );
+
+    /**
+     * Time in milliseconds "user not found" and "no roles found" lookups are cached for. Default is 10 seconds.
+     * 
+     * @since 2.4
+     */
+    private static final long CACHE_NEGATIVE_TTL =
+        SystemPropertiesHelper.getLong( DefaultLdapManager.class.getName() + ".cacheNegativeTtl", 10000L );
+
+    /**
+     * Age in milliseconds of cached lookups after which they are refreshed in background when used, 0 disables
+     * refreshing. Default is 3/4 of cache TTL.
+     * 
+     * @since 2.4
+     */
+    private static final long CACHE_REFRESH_AFTER =
+        SystemPropertiesHelper.getLong( DefaultLdapManager.class.getName() + ".cacheRefreshAfter", CACHE_TTL * 3 / 4 );
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
     @Requirement
@@ -71,7 +110,19 @@ public class DefaultLdapManager
     @Requirement
     private EventBus eventBus;
 
-    private LdapConnector ldapConnector;
+    @Requirement
+    private AuthorizationDecisionCache authorizationDecisionCache;
+
+    private volatile LdapConnector ldapConnector;
+
+    private volatile LdapContextFactory ldapContextFactory;
+
+    /**
+     * The connection info key the {@link #ldapContextFactory} was created with.
+     */
+    private volatile String ldapContextFactoryKey;
+
+    private ExecutorService cacheRefreshExecutor;
 
     public SortedSet<String> getAllGroups()
         throws LdapDAOException
@@ -121,16 +172,39 @@ public class DefaultLdapManager
     private LdapConnector getLdapConnector()
         throws LdapDAOException
     {
-        if ( this.ldapConnector == null )
+        LdapConnector connector = this.ldapConnector;
+        if ( connector == null )
         {
-            this.ldapConnector = new DefaultLdapConnector(
+            connector = new DefaultLdapConnector(
                 "default",
                 this.ldapUserManager,
                 this.ldapGroupManager,
                 this.getLdapContextFactory(),
                 this.getLdapAuthConfiguration() );
+            if ( CACHE_SIZE > 0 )
+            {
+                connector =
+                    new CachingLdapConnector( connector, CACHE_SIZE, CACHE_TTL, CACHE_NEGATIVE_TTL,
+                        CACHE_REFRESH_AFTER, CACHE_REFRESH_AFTER > 0 ? this.cacheRefreshExecutor : null );
+            }
+            this.ldapConnector = connector;
         }
-        return this.ldapConnector;
+        return connector;
+    }
+
+    /**
+     * Returns the connector not caching lookups, for users whose password stored in LDAP is about to be checked, as a
+     * cached one might be stale.
+     */
+    private LdapConnector getUncachedLdapConnector()
+        throws LdapDAOException
+    {
+        final LdapConnector connector = this.getLdapConnector();
+        if ( connector instanceof CachingLdapConnector )
+        {
+            return ( (CachingLdapConnector) connector ).getDelegate();
+        }
+        return connector;
     }
 
     protected LdapConfiguration getLdapConfiguration()
@@ -143,17 +217,38 @@ public class DefaultLdapManager
         return this.getLdapConfiguration().getLdapAuthConfiguration();
     }
 
+    /**
+     * Returns the context factory for current connection info. The factory is reused until the connection info
+     * changes or LDAP caches are cleared, so the system contexts it creates share the JNDI connection pool.
+     */
     protected LdapContextFactory getLdapContextFactory()
         throws LdapDAOException
     {
-        DefaultLdapContextFactory defaultLdapContextFactory = new DefaultLdapContextFactory();
-
         if ( this.getLdapConfiguration() == null || this.getLdapConfiguration().readConnectionInfo() == null )
         {
             throw new LdapDAOException( "Ldap connection is not configured." );
         }
 
-        CConnectionInfo connInfo = this.getLdapConfiguration().readConnectionInfo();
+        final CConnectionInfo connInfo = this.getLdapConfiguration().readConnectionInfo();
+        final String key =
+            connInfo.getProtocol() + "|" + connInfo.getHost() + "|" + connInfo.getPort() + "|"
+                + connInfo.getSearchBase() + "|" + connInfo.getAuthScheme() + "|" + connInfo.getRealm() + "|"
+                + connInfo.getSystemUsername() + "|" + connInfo.getSystemPassword();
+
+        LdapContextFactory factory = this.ldapContextFactory;
+        if ( factory == null || !key.equals( this.ldapContextFactoryKey ) )
+        {
+            factory = createLdapContextFactory( connInfo );
+            this.ldapContextFactory = factory;
+            this.ldapContextFactoryKey = key;
+        }
+        return factory;
+    }
+
+    private LdapContextFactory createLdapContextFactory( final CConnectionInfo connInfo )
+        throws LdapDAOException
+    {
+        DefaultLdapContextFactory defaultLdapContextFactory = new DefaultLdapContextFactory();
 
         String url;
         try
@@ -190,29 +285,33 @@ public class DefaultLdapManager
     {
         try
         {
-            LdapUser ldapUser = this.getUser( userId );
-
             String authScheme = this.getLdapConfiguration().readConnectionInfo().getAuthScheme();
 
             if ( StringUtils.isEmpty( this
                 .getLdapConfiguration().readUserAndGroupConfiguration().getUserPasswordAttribute() ) )
             {
-                // auth with bind
+                // auth with bind, LDAP server checks the password, user DN may come from cache
+                LdapUser ldapUser = this.getUser( userId );
 
                 this.ldapAuthenticator.authenticateUserWithBind(
                     ldapUser,
                     password,
                     this.getLdapContextFactory(),
                     authScheme );
+
+                // everything was successful
+                return ldapUser;
             }
             else
             {
-                // auth by checking password,
+                // auth by checking password, user and it's password must not come from cache
+                LdapUser ldapUser = this.getUncachedLdapConnector().getUser( userId );
+
                 this.ldapAuthenticator.authenticateUserWithPassword( ldapUser, password );
-            }
 
-            // everything was successful
-            return ldapUser;
+                // everything was successful
+                return ldapUser;
+            }
         }
         catch ( Exception e )
         {
@@ -228,19 +327,30 @@ public class DefaultLdapManager
     @Subscribe
     public void onEvent( final LdapClearCacheEvent evt )
     {
-        // clear the connectors
+        // clear the connectors (and with them the cached lookups) and the context factory
         this.ldapConnector = null;
+        this.ldapContextFactory = null;
+        // and the content authorization decisions, that were based on roles mapped from LDAP
+        this.authorizationDecisionCache.invalidate();
     }
 
     public void initialize()
         throws InitializationException
     {
+        this.cacheRefreshExecutor =
+            Executors.newFixedThreadPool( 2, new NexusThreadFactory( "ldap", "LDAP cache refresh",
+                Thread.NORM_PRIORITY, true ) );
         this.eventBus.register( this );
     }
 
     public void dispose()
     {
         this.eventBus.unregister( this );
+        this.cacheRefreshExecutor.shutdownNow();
+        if ( this.ldapConnector != null )
+        {
+            this.logger.debug( "LDAP connector disposed: {}", this.ldapConnector );
+        }
     }
 
 }
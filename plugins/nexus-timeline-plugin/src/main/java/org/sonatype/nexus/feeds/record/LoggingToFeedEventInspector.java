@@ -19,6 +19,7 @@ import org.sonatype.nexus.logging.LoggingEvent;
 import org.sonatype.nexus.logging.LoggingEvent.Level;
 import org.sonatype.nexus.proxy.events.AsynchronousEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.plexus.appevents.Event;
 
 /**
@@ -28,6 +29,7 @@ import org.sonatype.plexus.appevents.Event;
  * @author adreghiciu@gmail.com
  */
 @Component( role = EventInspector.class, hint = "LoggingToFeedEventInspector" )
+@InspectedEvents( LoggingEvent.class )
 public class LoggingToFeedEventInspector
     extends AbstractFeedRecorderEventInspector
     implements AsynchronousEventInspector
@@ -24,9 +24,11 @@ import org.sonatype.nexus.feeds.FeedRecorder;
 import org.sonatype.nexus.proxy.access.AccessManager;
 import org.sonatype.nexus.proxy.events.AsynchronousEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.plexus.appevents.Event;
 
 @Component( role = EventInspector.class, hint = "NexusAuthorizationEventInspector" )
+@InspectedEvents( NexusAuthorizationEvent.class )
 public class NexusAuthorizationEventInspector
     extends AbstractFeedRecorderEventInspector
     implements AsynchronousEventInspector
@@ -17,6 +17,7 @@ import org.sonatype.nexus.feeds.FeedRecorder;
 import org.sonatype.nexus.feeds.record.AbstractFeedRecorderEventInspector;
 import org.sonatype.nexus.proxy.events.AsynchronousEventInspector;
 import org.sonatype.nexus.proxy.events.EventInspector;
+import org.sonatype.nexus.proxy.events.InspectedEvents;
 import org.sonatype.nexus.proxy.events.RepositoryEventLocalStatusChanged;
 import org.sonatype.nexus.proxy.repository.LocalStatus;
 import org.sonatype.plexus.appevents.Event;
@@ -25,6 +26,7 @@ import org.sonatype.plexus.appevents.Event;
  * @author Juven Xu
  */
 @Component( role = EventInspector.class, hint = "RepositoryEventLocalStatusChanged" )
+@InspectedEvents( RepositoryEventLocalStatusChanged.class )
 public class RepositoryEventLocalStatusChangedInspector
     extends AbstractFeedRecorderEventInspector
     implements AsynchronousEventInspector
@@ -102,8 +102,10 @@ public class XStreamConfiguratorLightweight
         xstream.processAnnotations( RepositoryResourceResponse.class );
         xstream.processAnnotations( RepositoryStatusResourceResponse.class );
         xstream.processAnnotations( RepositoryMetaResourceResponse.class );
+        xstream.processAnnotations( RepositoryRemoteStatisticsResourceResponse.class );
         xstream.processAnnotations( RepositoryGroupListResourceResponse.class );
         xstream.processAnnotations( RepositoryGroupResourceResponse.class );
+        xstream.processAnnotations( RepositoryGroupMemberStatisticsResourceResponse.class );
         xstream.processAnnotations( RepositoryRouteListResourceResponse.class );
         xstream.processAnnotations( RepositoryRouteResourceResponse.class );
         xstream.processAnnotations( ScheduledServiceListResourceResponse.class );
@@ -154,6 +156,15 @@ public class XStreamConfiguratorLightweight
             RepositoryGroupMemberRepository.class, "repo-group-member" ) );
         xstream.registerLocalConverter( RepositoryGroupListResourceResponse.class, "data", new AliasingListConverter(
             RepositoryGroupListResource.class, "repo-group-list-item" ) );
+        xstream.registerLocalConverter( RepositoryGroupMemberStatisticsResourceResponse.class, "data",
+            new AliasingListConverter( RepositoryGroupMemberStatisticsResource.class,
+                "repo-group-member-statistics-item" ) );
+        xstream.registerLocalConverter( RepositoryGroupMemberStatisticsResource.class, "latencyBuckets",
+            new AliasingListConverter( LatencyBucketResource.class, "latency-bucket" ) );
+        xstream.registerLocalConverter( RepositoryRemoteStatisticsResource.class, "endpoints",
+            new AliasingListConverter( RemoteEndpointStatisticsResource.class, "remote-endpoint-statistics" ) );
+        xstream.registerLocalConverter( RemoteEndpointStatisticsResource.class, "timeToFirstByteBuckets",
+            new AliasingListConverter( LatencyBucketResource.class, "latency-bucket" ) );
 
         xstream.registerLocalConverter( RepositoryRouteListResourceResponse.class, "data", new AliasingListConverter(
             RepositoryRouteListResource.class, "repo-routes-list-item" ) );
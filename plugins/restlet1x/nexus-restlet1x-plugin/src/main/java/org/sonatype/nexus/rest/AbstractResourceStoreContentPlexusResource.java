@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.rest;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
@@ -34,6 +35,7 @@ import org.codehaus.plexus.util.StringUtils;
 import org.restlet.Context;
 import org.restlet.data.ChallengeRequest;
 import org.restlet.data.ChallengeScheme;
+import org.restlet.data.Form;
 import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Parameter;
@@ -45,6 +47,7 @@ import org.restlet.data.Tag;
 import org.restlet.resource.Representation;
 import org.restlet.resource.ResourceException;
 import org.restlet.resource.Variant;
+import org.restlet.util.DateUtils;
 import org.restlet.util.Series;
 import org.sonatype.nexus.proxy.AccessDeniedException;
 import org.sonatype.nexus.proxy.IllegalOperationException;
@@ -108,6 +111,9 @@ public abstract class AbstractResourceStoreContentPlexusResource
     @Requirement( role = ArtifactViewProvider.class )
     public Map<String, ArtifactViewProvider> viewProviders;
 
+    @Requirement
+    private ContentFastPathStatistics fastPathStatistics;
+
     public AbstractResourceStoreContentPlexusResource()
     {
         super();
@@ -119,11 +125,13 @@ public abstract class AbstractResourceStoreContentPlexusResource
 
     @VisibleForTesting
     AbstractResourceStoreContentPlexusResource( final SecuritySystem securitySystem,
-                                                final Map<String, ArtifactViewProvider> viewProviders )
+                                                final Map<String, ArtifactViewProvider> viewProviders,
+                                                final ContentFastPathStatistics fastPathStatistics )
     {
         this();
         this.securitySystem = securitySystem;
         this.viewProviders = viewProviders;
+        this.fastPathStatistics = fastPathStatistics;
     }
 
     @Override
@@ -391,7 +399,7 @@ public abstract class AbstractResourceStoreContentPlexusResource
 
         if ( item instanceof StorageFileItem )
         {
-            return renderStorageFileItem( req, (StorageFileItem) item );
+            return renderStorageFileItem( req, res, (StorageFileItem) item );
         }
         else if ( item instanceof StorageLinkItem )
         {
@@ -499,42 +507,148 @@ public abstract class AbstractResourceStoreContentPlexusResource
         }
     }
 
+    /**
+     * Renders a file item. Conditional GETs (If-None-Match and If-Modified-Since) and HEAD requests are answered
+     * using item attributes only (stored SHA1 as strong ETag and modification timestamp), hence the content of the
+     * item is never opened for them.
+     */
     @VisibleForTesting
     Representation renderStorageFileItem( final Request req, final StorageFileItem file )
         throws ResourceException
     {
-        if ( req.getConditions().getModifiedSince() != null )
+        return renderStorageFileItem( req, null, file );
+    }
+
+    /**
+     * Renders a file item, honoring the "Range" request header (if response is given) for items backed by plain
+     * files, responding with "206 Partial Content" or "416 Requested Range Not Satisfiable".
+     */
+    @VisibleForTesting
+    Representation renderStorageFileItem( final Request req, final Response res, final StorageFileItem file )
+        throws ResourceException
+    {
+        final String etag = StorageFileItemRepresentation.getETag( file );
+
+        final List<Tag> noneMatch = req.getConditions().getNoneMatch();
+
+        if ( etag != null && noneMatch != null && !noneMatch.isEmpty() )
         {
-            // this is a conditional GET
-            if ( file.getModified() > req.getConditions().getModifiedSince().getTime() )
+            // this is a conditional get using ETag, it takes precedence over If-Modified-Since (RFC 2616 14.26)
+            if ( isETagMatching( etag, file, noneMatch ) )
             {
-                return new StorageFileItemRepresentation( file );
+                fastPathStatistics.recordNotModifiedByETag();
+
+                throw new ResourceException( Status.REDIRECTION_NOT_MODIFIED, "Resource is not modified." );
             }
-            else
+        }
+        else if ( req.getConditions().getModifiedSince() != null )
+        {
+            // this is a conditional GET, HTTP dates are of one second precision
+            if ( file.getModified() / 1000 <= req.getConditions().getModifiedSince().getTime() / 1000 )
             {
+                fastPathStatistics.recordNotModifiedByDate();
+
                 throw new ResourceException( Status.REDIRECTION_NOT_MODIFIED, "Resource is not modified." );
             }
         }
-        else if ( req.getConditions().getNoneMatch() != null && req.getConditions().getNoneMatch().size() > 0
-            && file.getRepositoryItemAttributes().containsKey( DigestCalculatingInspector.DIGEST_SHA1_KEY ) )
+
+        if ( Method.HEAD.equals( req.getMethod() ) )
         {
-            Tag tag = req.getConditions().getNoneMatch().get( 0 );
+            fastPathStatistics.recordHead();
 
-            // this is a conditional get using ETag
-            if ( !file.getRepositoryItemAttributes().get( DigestCalculatingInspector.DIGEST_SHA1_KEY ).equals(
-                tag.getName() ) )
-            {
-                return new StorageFileItemRepresentation( file );
-            }
-            else
+            return new StorageFileItemRepresentation( file, true );
+        }
+
+        if ( res != null && Method.GET.equals( req.getMethod() ) )
+        {
+            final Representation ranged = renderRanges( req, res, file, etag );
+
+            if ( ranged != null )
             {
-                throw new ResourceException( Status.REDIRECTION_NOT_MODIFIED, "Resource is not modified." );
+                return ranged;
             }
         }
-        else
+
+        return new StorageFileItemRepresentation( file );
+    }
+
+    /**
+     * Returns the representation of requested byte ranges of the file item, or {@code null} if the whole item
+     * should be sent: there is no (valid) "Range" header, the "If-Range" validator does not match, or the item is not
+     * backed by a plain file.
+     */
+    private Representation renderRanges( final Request req, final Response res, final StorageFileItem file,
+                                         final String etag )
+        throws ResourceException
+    {
+        final Form headers = (Form) req.getAttributes().get( "org.restlet.http.headers" );
+
+        if ( headers == null || headers.getFirstValue( "Range", true ) == null )
         {
-            return new StorageFileItemRepresentation( file );
+            return null;
+        }
+
+        final String ifRange = headers.getFirstValue( "If-Range", true );
+
+        if ( ifRange != null && !isIfRangeMatching( ifRange.trim(), file, etag ) )
+        {
+            return null;
+        }
+
+        final File content = StorageFileItemRepresentation.getContentFile( file );
+
+        if ( content == null )
+        {
+            return null;
+        }
+
+        final List<ByteRange> ranges = ByteRange.parse( headers.getFirstValue( "Range", true ), file.getLength() );
+
+        if ( ranges == null )
+        {
+            return null;
+        }
+        else if ( ranges.isEmpty() )
+        {
+            addHttpResponseHeader( res, "Content-Range", "bytes */" + file.getLength() );
+
+            throw new ResourceException( Status.CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE, "Requested range "
+                + headers.getFirstValue( "Range", true ) + " is not satisfiable." );
         }
+
+        res.setStatus( Status.SUCCESS_PARTIAL_CONTENT );
+
+        return new RangedStorageFileItemRepresentation( file, content, ranges );
+    }
+
+    private boolean isIfRangeMatching( final String ifRange, final StorageFileItem file, final String etag )
+    {
+        if ( ifRange.startsWith( "\"" ) || ifRange.startsWith( "W/" ) )
+        {
+            // entity tag, only strong comparison allowed
+            return etag != null && ifRange.equals( "\"" + etag + "\"" );
+        }
+
+        final Date date = DateUtils.parse( ifRange, DateUtils.FORMAT_RFC_1123 );
+
+        // HTTP dates are of one second precision
+        return date != null && date.getTime() / 1000 == file.getModified() / 1000;
+    }
+
+    private boolean isETagMatching( final String etag, final StorageFileItem file, final List<Tag> noneMatch )
+    {
+        final String sha1 = file.getRepositoryItemAttributes().get( DigestCalculatingInspector.DIGEST_SHA1_KEY );
+
+        for ( Tag tag : noneMatch )
+        {
+            // accept the raw SHA1 too, as that was what was compared against before
+            if ( "*".equals( tag.getName() ) || etag.equals( tag.getName() ) || sha1.equals( tag.getName() ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     private String getResourceUri( Request req, ContentListResource resource, StorageItem child )
@@ -0,0 +1,184 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A satisfiable HTTP byte range (RFC 2616 14.35.1) of an entity with known length, with inclusive start and end
+ * positions.
+ *
+ * @since 2.4
+ */
+public class ByteRange
+{
+    /**
+     * Requests with more ranges than this (after coalescing) are served as a whole.
+     */
+    public static final int MAX_RANGES = 32;
+
+    private final long start;
+
+    private final long end;
+
+    public ByteRange( final long start, final long end )
+    {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getStart()
+    {
+        return start;
+    }
+
+    public long getEnd()
+    {
+        return end;
+    }
+
+    public long getLength()
+    {
+        return end - start + 1;
+    }
+
+    /**
+     * Returns the value of "Content-Range" header for this range.
+     */
+    public String toContentRange( final long entityLength )
+    {
+        return "bytes " + start + "-" + end + "/" + entityLength;
+    }
+
+    @Override
+    public String toString()
+    {
+        return start + "-" + end;
+    }
+
+    // ==
+
+    /**
+     * Parses the value of "Range" header against an entity of given length. Returns {@code null} if the header
+     * should be ignored (it is not a syntactically valid byte ranges specifier or has too many ranges), and empty
+     * list if none of the ranges are satisfiable. Otherwise, the returned ranges are sorted and coalesced.
+     */
+    public static List<ByteRange> parse( final String header, final long entityLength )
+    {
+        if ( header == null )
+        {
+            return null;
+        }
+
+        final String value = header.trim();
+        if ( !value.regionMatches( true, 0, "bytes=", 0, 6 ) )
+        {
+            return null;
+        }
+
+        final List<ByteRange> ranges = new ArrayList<ByteRange>();
+
+        for ( String spec : value.substring( 6 ).split( "," ) )
+        {
+            spec = spec.trim();
+            final int dash = spec.indexOf( '-' );
+            if ( dash < 0 )
+            {
+                return null;
+            }
+
+            try
+            {
+                if ( dash == 0 )
+                {
+                    // suffix-byte-range-spec: last N bytes
+                    final long suffix = Long.parseLong( spec.substring( 1 ) );
+                    if ( suffix < 0 )
+                    {
+                        return null;
+                    }
+                    if ( suffix > 0 && entityLength > 0 )
+                    {
+                        ranges.add( new ByteRange( Math.max( 0, entityLength - suffix ), entityLength - 1 ) );
+                    }
+                }
+                else
+                {
+                    final long first = Long.parseLong( spec.substring( 0, dash ) );
+                    final String lastStr = spec.substring( dash + 1 );
+                    final long last = lastStr.length() == 0 ? Long.MAX_VALUE : Long.parseLong( lastStr );
+                    if ( first < 0 || last < first )
+                    {
+                        return null;
+                    }
+                    if ( first < entityLength )
+                    {
+                        ranges.add( new ByteRange( first, Math.min( last, entityLength - 1 ) ) );
+                    }
+                }
+            }
+            catch ( NumberFormatException e )
+            {
+                return null;
+            }
+        }
+
+        final List<ByteRange> result = coalesce( ranges );
+
+        if ( result.size() > MAX_RANGES )
+        {
+            return null;
+        }
+
+        return result;
+    }
+
+    private static List<ByteRange> coalesce( final List<ByteRange> ranges )
+    {
+        if ( ranges.size() < 2 )
+        {
+            return ranges;
+        }
+
+        Collections.sort( ranges, new Comparator<ByteRange>()
+        {
+            @Override
+            public int compare( final ByteRange o1, final ByteRange o2 )
+            {
+                return o1.start < o2.start ? -1 : ( o1.start == o2.start ? 0 : 1 );
+            }
+        } );
+
+        final List<ByteRange> result = new ArrayList<ByteRange>( ranges.size() );
+        ByteRange current = ranges.get( 0 );
+        for ( int i = 1; i < ranges.size(); i++ )
+        {
+            final ByteRange next = ranges.get( i );
+            if ( next.start <= current.end + 1 )
+            {
+                current = new ByteRange( current.start, Math.max( current.end, next.end ) );
+            }
+            else
+            {
+                result.add( current );
+                current = next;
+            }
+        }
+        result.add( current );
+
+        return result;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.rest;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the content requests answered from item attributes alone, without touching item content: HEAD requests and
+ * conditional GET requests answered with "304 Not Modified". Exposed over JMX.
+ * 
+ * @since 2.4
+ */
+@Component( role = ContentFastPathStatistics.class )
+public class ContentFastPathStatistics
+    implements Disposable
+{
+    private static final String JMX_DOMAIN = "org.sonatype.nexus.rest";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final AtomicLong headCount = new AtomicLong();
+
+    private final AtomicLong notModifiedByETagCount = new AtomicLong();
+
+    private final AtomicLong notModifiedByDateCount = new AtomicLong();
+
+    private ObjectName jmxName;
+
+    public ContentFastPathStatistics()
+    {
+        try
+        {
+            jmxName = ObjectName.getInstance( JMX_DOMAIN, "name", getClass().getSimpleName() );
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if ( server.isRegistered( jmxName ) )
+            {
+                logger.debug( "MBean already registered; replacing: {}", jmxName );
+                server.unregisterMBean( jmxName );
+            }
+            server.registerMBean( new DefaultContentFastPathStatisticsMBean( this ), jmxName );
+        }
+        catch ( Exception e )
+        {
+            jmxName = null;
+            logger.warn( "Problem registering MBean for: " + getClass().getName(), e );
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        if ( null != jmxName )
+        {
+            try
+            {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if ( server.isRegistered( jmxName ) )
+                {
+                    server.unregisterMBean( jmxName );
+                }
+            }
+            catch ( final Exception e )
+            {
+                logger.warn( "Problem unregistering MBean for: " + getClass().getName(), e );
+            }
+        }
+    }
+
+    public void recordHead()
+    {
+        headCount.incrementAndGet();
+    }
+
+    public void recordNotModifiedByETag()
+    {
+        notModifiedByETagCount.incrementAndGet();
+    }
+
+    public void recordNotModifiedByDate()
+    {
+        notModifiedByDateCount.incrementAndGet();
+    }
+
+    public long getHeadCount()
+    {
+        return headCount.get();
+    }
+
+    public long getNotModifiedByETagCount()
+    {
+        return notModifiedByETagCount.get();
+    }
+
+    public long getNotModifiedByDateCount()
+    {
+        return notModifiedByDateCount.get();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.rest;
+
+/**
+ * JMX interface for monitoring {@link ContentFastPathStatistics}.
+ * 
+ * @since 2.4
+ */
+public interface ContentFastPathStatisticsMBean
+{
+    /**
+     * Returns the count of HEAD requests of files answered without touching their content.
+     * 
+     * @return the count of HEAD requests.
+     */
+    long getHeadCount();
+
+    /**
+     * Returns the count of conditional requests answered with "304 Not Modified" by matching ETag (If-None-Match).
+     * 
+     * @return the count of not modified responses by ETag.
+     */
+    long getNotModifiedByETagCount();
+
+    /**
+     * Returns the count of conditional requests answered with "304 Not Modified" by modification date
+     * (If-Modified-Since).
+     * 
+     * @return the count of not modified responses by date.
+     */
+    long getNotModifiedByDateCount();
+}
@@ -52,6 +52,11 @@ public class ProtectedRepositoryRegistry
         return this.defaultRepositoryRegistry.getGroupsOfRepository( repository );
     }
 
+    public List<Repository> getTransitiveMemberRepositories( String groupId )
+    {
+        return this.filterRepositoriesList( this.defaultRepositoryRegistry.getTransitiveMemberRepositories( groupId ) );
+    }
+
     public List<Repository> getRepositories()
     {
         return this.filterRepositoriesList( this.defaultRepositoryRegistry.getRepositories() );
@@ -0,0 +1,186 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.rest;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonatype.plexus.rest.resource.AbstractPlexusResource.addHttpResponseHeader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.UUID;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.restlet.data.MediaType;
+import org.restlet.data.Response;
+import org.sonatype.nexus.proxy.access.Action;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.util.FileUtils;
+
+/**
+ * Representation of one or more byte ranges of a file item backed by a plain file, sent with "206 Partial Content"
+ * response. Single range is sent as is, with "Content-Range" header, while multiple ranges are sent as
+ * "multipart/byteranges" entity (RFC 2616 19.2). Content is sent using positional reads of the file.
+ *
+ * @since 2.4
+ */
+public class RangedStorageFileItemRepresentation
+    extends StorageFileItemRepresentation
+{
+    private static final String CRLF = "\r\n";
+
+    private final File file;
+
+    private final List<ByteRange> ranges;
+
+    private final String boundary;
+
+    private final String partMediaType;
+
+    public RangedStorageFileItemRepresentation( final StorageFileItem item, final File file,
+                                                final List<ByteRange> ranges )
+    {
+        super( item );
+
+        checkArgument( ranges != null && !ranges.isEmpty(), "At least one range needed!" );
+
+        this.file = file;
+        this.ranges = ranges;
+        this.partMediaType = getMediaType() == null ? null : getMediaType().getName();
+
+        if ( ranges.size() == 1 )
+        {
+            this.boundary = null;
+            setSize( ranges.get( 0 ).getLength() );
+        }
+        else
+        {
+            this.boundary = UUID.randomUUID().toString().replace( "-", "" );
+            setMediaType( new MediaType( "multipart/byteranges; boundary=" + boundary ) );
+
+            long size = getClosingBoundary().length();
+            for ( int i = 0; i < ranges.size(); i++ )
+            {
+                size += getPartHeader( i ).length() + ranges.get( i ).getLength();
+            }
+            setSize( size );
+        }
+    }
+
+    public List<ByteRange> getRanges()
+    {
+        return ranges;
+    }
+
+    @Override
+    public void write( final OutputStream outputStream )
+        throws IOException
+    {
+        // do not close it, it would close the output stream
+        write( Channels.newChannel( outputStream ) );
+    }
+
+    @Override
+    public void write( final WritableByteChannel writableChannel )
+        throws IOException
+    {
+        final RepositoryItemUidLock lock = getStorageItem().getRepositoryItemUid().getLock();
+
+        lock.lock( Action.read );
+
+        try
+        {
+            final FileInputStream fis = new FileInputStream( file );
+
+            try
+            {
+                if ( boundary == null )
+                {
+                    final ByteRange range = ranges.get( 0 );
+                    FileUtils.transfer( fis.getChannel(), range.getStart(), range.getLength(), writableChannel );
+                }
+                else
+                {
+                    for ( int i = 0; i < ranges.size(); i++ )
+                    {
+                        final ByteRange range = ranges.get( i );
+                        writeAscii( getPartHeader( i ), writableChannel );
+                        FileUtils.transfer( fis.getChannel(), range.getStart(), range.getLength(), writableChannel );
+                    }
+                    writeAscii( getClosingBoundary(), writableChannel );
+                }
+            }
+            finally
+            {
+                IOUtil.close( fis );
+            }
+        }
+        catch ( IOException e )
+        {
+            handleWriteException( e );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void customize( final Response response )
+    {
+        super.customize( response );
+
+        if ( boundary == null )
+        {
+            addHttpResponseHeader( response, "Content-Range",
+                ranges.get( 0 ).toContentRange( getStorageItem().getLength() ) );
+        }
+    }
+
+    // ==
+
+    private String getPartHeader( final int index )
+    {
+        final StringBuilder sb = new StringBuilder();
+        // the CRLF preceding the boundary belongs to the boundary
+        sb.append( CRLF ).append( "--" ).append( boundary ).append( CRLF );
+        if ( partMediaType != null )
+        {
+            sb.append( "Content-Type: " ).append( partMediaType ).append( CRLF );
+        }
+        sb.append( "Content-Range: " ).append( ranges.get( index ).toContentRange( getStorageItem().getLength() ) );
+        sb.append( CRLF ).append( CRLF );
+        return sb.toString();
+    }
+
+    private String getClosingBoundary()
+    {
+        return CRLF + "--" + boundary + "--" + CRLF;
+    }
+
+    private static void writeAscii( final String str, final WritableByteChannel channel )
+        throws IOException
+    {
+        final ByteBuffer buffer = ByteBuffer.wrap( str.getBytes( "US-ASCII" ) );
+        while ( buffer.hasRemaining() )
+        {
+            channel.write( buffer );
+        }
+    }
+}
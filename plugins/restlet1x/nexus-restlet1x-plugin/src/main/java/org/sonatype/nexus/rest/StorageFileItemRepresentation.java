@@ -14,36 +14,59 @@ package org.sonatype.nexus.rest;
 
 import static org.sonatype.plexus.rest.resource.AbstractPlexusResource.addHttpResponseHeader;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.codehaus.plexus.util.IOUtil;
 import org.restlet.data.MediaType;
 import org.restlet.data.Response;
 import org.restlet.data.Tag;
+import org.sonatype.nexus.proxy.access.Action;
 import org.sonatype.nexus.proxy.attributes.inspectors.DigestCalculatingInspector;
+import org.sonatype.nexus.proxy.item.ContentLocator;
+import org.sonatype.nexus.proxy.item.FileContentLocator;
+import org.sonatype.nexus.proxy.item.ReadLockingContentLocator;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.util.FileUtils;
 import org.sonatype.plexus.rest.resource.RestletResponseCustomizer;
 
 public class StorageFileItemRepresentation
     extends StorageItemRepresentation
     implements RestletResponseCustomizer
 {
+    private final boolean metadataOnly;
+
     public StorageFileItemRepresentation( StorageFileItem file )
+    {
+        this( file, false );
+    }
+
+    /**
+     * Creates representation of file item. Metadata only representation (ie. for HEAD requests) carries all the
+     * entity headers, but never touches the content of file item.
+     * 
+     * @since 2.4
+     */
+    public StorageFileItemRepresentation( StorageFileItem file, boolean metadataOnly )
     {
         super( MediaType.valueOf( file.getMimeType() ), file );
 
+        this.metadataOnly = metadataOnly;
+
         setSize( file.getLength() );
 
-        if ( file.getRepositoryItemAttributes().containsKey( DigestCalculatingInspector.DIGEST_SHA1_KEY ) )
+        final String tag = getETag( file );
+
+        if ( tag != null )
         {
-            // Shield SHA1
-            // {SHA1{xxxx}}
-            final String tag =
-                String.format( "{SHA1{%s}}",
-                    file.getRepositoryItemAttributes().get( DigestCalculatingInspector.DIGEST_SHA1_KEY ) );
             setTag( new Tag( tag, false ) );
         }
 
@@ -58,6 +81,30 @@ public class StorageFileItemRepresentation
         }
     }
 
+    /**
+     * Returns the (strong) ETag of file item, based on its stored SHA1 digest, or {@code null} if it has none.
+     * 
+     * @since 2.4
+     */
+    public static String getETag( final StorageFileItem file )
+    {
+        final String sha1 = file.getRepositoryItemAttributes().get( DigestCalculatingInspector.DIGEST_SHA1_KEY );
+
+        if ( sha1 == null )
+        {
+            return null;
+        }
+
+        // Shield SHA1
+        // {SHA1{xxxx}}
+        return String.format( "{SHA1{%s}}", sha1 );
+    }
+
+    public boolean isMetadataOnly()
+    {
+        return metadataOnly;
+    }
+
     protected StorageFileItem getStorageItem()
     {
         return (StorageFileItem) super.getStorageItem();
@@ -65,13 +112,28 @@ public class StorageFileItemRepresentation
 
     public boolean isTransient()
     {
-        return !getStorageItem().isReusableStream();
+        return !metadataOnly && !getStorageItem().isReusableStream();
     }
 
     @Override
     public void write( OutputStream outputStream )
         throws IOException
     {
+        if ( metadataOnly )
+        {
+            return;
+        }
+
+        final File file = getFile();
+
+        if ( file != null )
+        {
+            // do not close it, it would close the output stream
+            write( file, Channels.newChannel( outputStream ) );
+
+            return;
+        }
+
         InputStream is = null;
 
         try
@@ -82,23 +144,116 @@ public class StorageFileItemRepresentation
         }
         catch ( IOException e )
         {
-            if ( "EofException".equals( e.getClass().getSimpleName() ) )
-            {
-                // This is for Jetty's org.eclipse.jetty.io.EofException
-                // https://issues.sonatype.org/browse/NEXUS-217
-            }
-            else if ( e instanceof SocketException )
+            handleWriteException( e );
+        }
+        finally
+        {
+            IOUtil.close( is );
+        }
+    }
+
+    @Override
+    public void write( WritableByteChannel writableChannel )
+        throws IOException
+    {
+        if ( metadataOnly )
+        {
+            return;
+        }
+
+        final File file = getFile();
+
+        if ( file != null )
+        {
+            write( file, writableChannel );
+        }
+        else
+        {
+            super.write( writableChannel );
+        }
+    }
+
+    // ==
+
+    /**
+     * Returns the file backing the content of the item, if it is a plain (reusable) file, or {@code null}.
+     */
+    protected File getFile()
+    {
+        return getContentFile( getStorageItem() );
+    }
+
+    /**
+     * Returns the file backing the content of the file item, if it is a plain (reusable) file, or {@code null}.
+     * 
+     * @since 2.4
+     */
+    static File getContentFile( final StorageFileItem item )
+    {
+        ContentLocator content = item.getContentLocator();
+
+        if ( content instanceof ReadLockingContentLocator )
+        {
+            content = ( (ReadLockingContentLocator) content ).getWrappedLocator();
+        }
+
+        if ( content instanceof FileContentLocator && content.isReusable() )
+        {
+            return ( (FileContentLocator) content ).getFile();
+        }
+
+        return null;
+    }
+
+    /**
+     * Transfers the file to the channel using {@link FileChannel#transferTo(long, long, WritableByteChannel)}, while
+     * holding the read lock of item, just as {@link ReadLockingContentLocator} would do.
+     */
+    protected void write( final File file, final WritableByteChannel writableChannel )
+        throws IOException
+    {
+        final RepositoryItemUidLock lock = getStorageItem().getRepositoryItemUid().getLock();
+
+        lock.lock( Action.read );
+
+        try
+        {
+            final FileInputStream fis = new FileInputStream( file );
+
+            try
             {
-                // https://issues.sonatype.org/browse/NEXUS-217
+                FileUtils.transfer( fis.getChannel(), writableChannel );
             }
-            else
+            finally
             {
-                throw e;
+                IOUtil.close( fis );
             }
         }
+        catch ( IOException e )
+        {
+            handleWriteException( e );
+        }
         finally
         {
-            IOUtil.close( is );
+            lock.unlock();
+        }
+    }
+
+    protected void handleWriteException( final IOException e )
+        throws IOException
+    {
+        if ( "EofException".equals( e.getClass().getSimpleName() ) )
+        {
+            // This is for Jetty's org.eclipse.jetty.io.EofException
+            // https://issues.sonatype.org/browse/NEXUS-217
+        }
+        else if ( e instanceof SocketException )
+        {
+            // https://issues.sonatype.org/browse/NEXUS-217
+        }
+        else
+        {
+            throw e;
         }
     }
 
@@ -112,6 +267,12 @@ public class StorageFileItemRepresentation
     public void customize( final Response response )
     {
         addHttpResponseHeader( response, "X-Content-Type-Options", "nosniff" );
+
+        if ( getFile() != null )
+        {
+            // plain files are capable of serving byte ranges
+            addHttpResponseHeader( response, "Accept-Ranges", "bytes" );
+        }
     }
 
 }
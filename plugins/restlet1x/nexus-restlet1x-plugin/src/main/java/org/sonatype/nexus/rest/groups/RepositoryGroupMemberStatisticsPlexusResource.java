@@ -0,0 +1,186 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.rest.groups;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+
+import org.codehaus.enunciate.contract.jaxrs.ResourceMethodSignature;
+import org.codehaus.plexus.component.annotations.Component;
+import org.restlet.Context;
+import org.restlet.data.Request;
+import org.restlet.data.Response;
+import org.restlet.data.Status;
+import org.restlet.resource.ResourceException;
+import org.restlet.resource.Variant;
+import org.sonatype.nexus.proxy.NoSuchRepositoryException;
+import org.sonatype.nexus.proxy.repository.AbstractGroupRepository;
+import org.sonatype.nexus.proxy.repository.GroupMemberStatistics;
+import org.sonatype.nexus.proxy.repository.GroupMemberStatistics.MemberStatistics;
+import org.sonatype.nexus.proxy.repository.GroupRepository;
+import org.sonatype.nexus.proxy.repository.LatencyHistogram;
+import org.sonatype.nexus.rest.NoSuchRepositoryAccessException;
+import org.sonatype.nexus.rest.model.LatencyBucketResource;
+import org.sonatype.nexus.rest.model.RepositoryGroupMemberStatisticsResource;
+import org.sonatype.nexus.rest.model.RepositoryGroupMemberStatisticsResourceResponse;
+import org.sonatype.plexus.rest.resource.PathProtectionDescriptor;
+import org.sonatype.plexus.rest.resource.PlexusResource;
+
+/**
+ * Resource exposing statistics of item retrievals a repository group performed against it's members: hit, miss and
+ * failure counts, hedged requests and latency histograms.
+ *
+ * @since 2.4
+ */
+@Component( role = PlexusResource.class, hint = "RepositoryGroupMemberStatisticsPlexusResource" )
+@Path( RepositoryGroupMemberStatisticsPlexusResource.RESOURCE_URI )
+@Produces( { "application/xml", "application/json" } )
+public class RepositoryGroupMemberStatisticsPlexusResource
+    extends AbstractRepositoryGroupPlexusResource
+{
+    public static final String RESOURCE_URI = "/repo_groups/{" + GROUP_ID_KEY + "}/statistics";
+
+    @Override
+    public Object getPayloadInstance()
+    {
+        return null;
+    }
+
+    @Override
+    public String getResourceUri()
+    {
+        return RESOURCE_URI;
+    }
+
+    @Override
+    public PathProtectionDescriptor getResourceProtection()
+    {
+        return new PathProtectionDescriptor( "/repo_groups/*/statistics", "authcBasic,perms[nexus:repogroups]" );
+    }
+
+    /**
+     * Get the statistics of members of an existing repository group, in group order.
+     * 
+     * @param groupId The group id to retrieve member statistics for.
+     */
+    @Override
+    @GET
+    @ResourceMethodSignature( pathParams = { @PathParam( RepositoryGroupMemberStatisticsPlexusResource.GROUP_ID_KEY ) },
+                              output = RepositoryGroupMemberStatisticsResourceResponse.class )
+    public Object get( Context context, Request request, Response response, Variant variant )
+        throws ResourceException
+    {
+        final String groupId = request.getAttributes().get( GROUP_ID_KEY ).toString();
+
+        final RepositoryGroupMemberStatisticsResourceResponse result =
+            new RepositoryGroupMemberStatisticsResourceResponse();
+
+        try
+        {
+            final GroupRepository group =
+                getRepositoryRegistry().getRepositoryWithFacet( groupId, GroupRepository.class );
+
+            if ( !( group instanceof AbstractGroupRepository ) )
+            {
+                throw new ResourceException( Status.CLIENT_ERROR_NOT_FOUND,
+                    "Repository Group does not record member statistics" );
+            }
+
+            final GroupMemberStatistics statistics = ( (AbstractGroupRepository) group ).getMemberStatistics();
+
+            for ( String memberId : group.getMemberRepositoryIds() )
+            {
+                final RepositoryGroupMemberStatisticsResource resource = new RepositoryGroupMemberStatisticsResource();
+
+                resource.setId( memberId );
+
+                try
+                {
+                    // NOTE: we must hit the registry each time to have access checked
+                    resource.setName( getRepositoryRegistry().getRepository( memberId ).getName() );
+                }
+                catch ( NoSuchRepositoryAccessException e )
+                {
+                    // handled below
+                    throw e;
+                }
+                catch ( NoSuchRepositoryException e )
+                {
+                    getLogger().debug( "Found missing repo id: " + memberId + " contained in group" );
+                }
+
+                resource.setResourceURI( createRepositoryReference( request, memberId ).toString() );
+
+                fillStatistics( resource, statistics.getMemberStatistics( memberId ) );
+
+                result.addData( resource );
+            }
+        }
+        catch ( NoSuchRepositoryAccessException e )
+        {
+            // access denied 403
+            getLogger().debug( "Blocking access to repository group statistics, based on permissions." );
+
+            throw new ResourceException( Status.CLIENT_ERROR_FORBIDDEN, "Access Denied to Repository Group" );
+        }
+        catch ( NoSuchRepositoryException e )
+        {
+            throw new ResourceException( Status.CLIENT_ERROR_NOT_FOUND, "Repository Group Not Found" );
+        }
+
+        return result;
+    }
+
+    // ==
+
+    private void fillStatistics( final RepositoryGroupMemberStatisticsResource resource,
+                                 final MemberStatistics statistics )
+    {
+        resource.setHits( statistics.getHits() );
+        resource.setMisses( statistics.getMisses() );
+        resource.setFailures( statistics.getFailures() );
+        resource.setHedges( statistics.getHedges() );
+        resource.setDiscards( statistics.getDiscards() );
+
+        final LatencyHistogram latency = statistics.getLatency();
+        final long[] bounds = latency.getBucketBounds();
+        final long[] counts = latency.getBucketCounts();
+
+        resource.setLatencyPercentile50( getPercentile( latency, bounds, 50 ) );
+        resource.setLatencyPercentile95( getPercentile( latency, bounds, 95 ) );
+        resource.setLatencyPercentile99( getPercentile( latency, bounds, 99 ) );
+
+        // just to trigger list creation, and not stay null coz of XStream serialization
+        resource.getLatencyBuckets();
+
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            final LatencyBucketResource bucket = new LatencyBucketResource();
+            bucket.setUpperBoundMillis( i < bounds.length ? bounds[i] : -1 );
+            bucket.setCount( counts[i] );
+
+            resource.addLatencyBucket( bucket );
+        }
+    }
+
+    /**
+     * Percentile falling into the unbounded bucket is reported as the last bucket bound, to not expose Long.MAX_VALUE
+     * to REST clients.
+     */
+    private long getPercentile( final LatencyHistogram latency, final long[] bounds, final double percentile )
+    {
+        return Math.min( latency.getPercentile( percentile ), bounds[bounds.length - 1] );
+    }
+}
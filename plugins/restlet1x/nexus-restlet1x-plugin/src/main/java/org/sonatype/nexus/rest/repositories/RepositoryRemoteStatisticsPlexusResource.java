@@ -0,0 +1,181 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.rest.repositories;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+
+import org.codehaus.enunciate.contract.jaxrs.ResourceMethodSignature;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.component.annotations.Requirement;
+import org.restlet.Context;
+import org.restlet.data.Request;
+import org.restlet.data.Response;
+import org.restlet.data.Status;
+import org.restlet.resource.ResourceException;
+import org.restlet.resource.Variant;
+import org.sonatype.nexus.proxy.NoSuchRepositoryException;
+import org.sonatype.nexus.proxy.repository.LatencyHistogram;
+import org.sonatype.nexus.proxy.repository.ProxyRepository;
+import org.sonatype.nexus.proxy.storage.remote.RemoteEndpointStatistics;
+import org.sonatype.nexus.proxy.storage.remote.RemoteStorageStatistics;
+import org.sonatype.nexus.rest.NoSuchRepositoryAccessException;
+import org.sonatype.nexus.rest.model.LatencyBucketResource;
+import org.sonatype.nexus.rest.model.RemoteEndpointStatisticsResource;
+import org.sonatype.nexus.rest.model.RepositoryRemoteStatisticsResource;
+import org.sonatype.nexus.rest.model.RepositoryRemoteStatisticsResourceResponse;
+import org.sonatype.plexus.rest.resource.PathProtectionDescriptor;
+import org.sonatype.plexus.rest.resource.PlexusResource;
+
+/**
+ * Resource exposing statistics of remote retrievals of a proxy repository, in total and per remote endpoint
+ * (repository remote URL and mirrors): outcomes, retries, mirror failovers, time to first byte, connection pool wait
+ * and download throughput.
+ *
+ * @since 2.4
+ */
+@Component( role = PlexusResource.class, hint = "RepositoryRemoteStatisticsPlexusResource" )
+@Path( RepositoryRemoteStatisticsPlexusResource.RESOURCE_URI )
+@Produces( { "application/xml", "application/json" } )
+public class RepositoryRemoteStatisticsPlexusResource
+    extends AbstractRepositoryPlexusResource
+{
+    public static final String RESOURCE_URI = "/repositories/{" + REPOSITORY_ID_KEY + "}/remoteStatistics";
+
+    @Requirement
+    private RemoteStorageStatistics remoteStorageStatistics;
+
+    @Override
+    public Object getPayloadInstance()
+    {
+        return null;
+    }
+
+    @Override
+    public String getResourceUri()
+    {
+        return RESOURCE_URI;
+    }
+
+    @Override
+    public PathProtectionDescriptor getResourceProtection()
+    {
+        return new PathProtectionDescriptor( "/repositories/*/remoteStatistics", "authcBasic,perms[nexus:repometa]" );
+    }
+
+    /**
+     * Get the remote retrieval statistics of an existing proxy repository.
+     * 
+     * @param repositoryId The proxy repository to retrieve the remote statistics for.
+     */
+    @Override
+    @GET
+    @ResourceMethodSignature( pathParams = { @PathParam( AbstractRepositoryPlexusResource.REPOSITORY_ID_KEY ) },
+                              output = RepositoryRemoteStatisticsResourceResponse.class )
+    public Object get( Context context, Request request, Response response, Variant variant )
+        throws ResourceException
+    {
+        final String repoId = getRepositoryId( request );
+        try
+        {
+            // check existence, type and access
+            getRepositoryRegistry().getRepositoryWithFacet( repoId, ProxyRepository.class );
+
+            final RepositoryRemoteStatisticsResource resource = new RepositoryRemoteStatisticsResource();
+
+            resource.setId( repoId );
+
+            final RemoteEndpointStatistics total = remoteStorageStatistics.getRepositoryStatistics( repoId );
+
+            resource.setTotal( toResource( total != null ? total : new RemoteEndpointStatistics( null ) ) );
+
+            // just to trigger list creation, and not stay null coz of XStream serialization
+            resource.getEndpoints();
+
+            for ( RemoteEndpointStatistics endpoint : remoteStorageStatistics.getEndpointStatistics( repoId ) )
+            {
+                resource.addEndpoint( toResource( endpoint ) );
+            }
+
+            final RepositoryRemoteStatisticsResourceResponse result = new RepositoryRemoteStatisticsResourceResponse();
+
+            result.setData( resource );
+
+            return result;
+        }
+        catch ( NoSuchRepositoryAccessException e )
+        {
+            getLogger().warn( "Repository access denied, id=" + repoId );
+
+            throw new ResourceException( Status.CLIENT_ERROR_FORBIDDEN, "Access Denied to Repository" );
+        }
+        catch ( NoSuchRepositoryException e )
+        {
+            throw new ResourceException( Status.CLIENT_ERROR_NOT_FOUND, "Proxy Repository Not Found" );
+        }
+    }
+
+    // ==
+
+    private RemoteEndpointStatisticsResource toResource( final RemoteEndpointStatistics statistics )
+    {
+        final RemoteEndpointStatisticsResource resource = new RemoteEndpointStatisticsResource();
+
+        resource.setUrl( statistics.getUrl() );
+        resource.setRequests( statistics.getRequests() );
+        resource.setSuccesses( statistics.getSuccesses() );
+        resource.setNotFounds( statistics.getNotFounds() );
+        resource.setNotModifieds( statistics.getNotModifieds() );
+        resource.setFailures( statistics.getFailures() );
+        resource.setRetries( statistics.getRetries() );
+        resource.setFailovers( statistics.getFailovers() );
+        resource.setBytesDownloaded( statistics.getBytesDownloaded() );
+        resource.setThroughput( statistics.getThroughput() );
+
+        final LatencyHistogram timeToFirstByte = statistics.getTimeToFirstByte();
+        final long[] bounds = timeToFirstByte.getBucketBounds();
+        final long[] counts = timeToFirstByte.getBucketCounts();
+
+        resource.setTimeToFirstBytePercentile50( getPercentile( timeToFirstByte, 50 ) );
+        resource.setTimeToFirstBytePercentile95( getPercentile( timeToFirstByte, 95 ) );
+        resource.setTimeToFirstBytePercentile99( getPercentile( timeToFirstByte, 99 ) );
+        resource.setPoolWaitPercentile95( getPercentile( statistics.getPoolWait(), 95 ) );
+        resource.setDownloadTimePercentile95( getPercentile( statistics.getDownloadTime(), 95 ) );
+
+        // just to trigger list creation, and not stay null coz of XStream serialization
+        resource.getTimeToFirstByteBuckets();
+
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            final LatencyBucketResource bucket = new LatencyBucketResource();
+            bucket.setUpperBoundMillis( i < bounds.length ? bounds[i] : -1 );
+            bucket.setCount( counts[i] );
+
+            resource.addTimeToFirstByteBucket( bucket );
+        }
+
+        return resource;
+    }
+
+    /**
+     * Percentile falling into the unbounded bucket is reported as the last bucket bound, to not expose Long.MAX_VALUE
+     * to REST clients.
+     */
+    private long getPercentile( final LatencyHistogram histogram, final double percentile )
+    {
+        final long[] bounds = histogram.getBucketBounds();
+        return Math.min( histogram.getPercentile( percentile ), bounds[bounds.length - 1] );
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2012 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.rest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+/**
+ * Tests for {@link ByteRange}.
+ */
+public class ByteRangeTest
+    extends TestSupport
+{
+    @Test
+    public void singleRanges()
+    {
+        assertRanges( ByteRange.parse( "bytes=0-99", 1000 ), "0-99" );
+        assertRanges( ByteRange.parse( "bytes=500-", 1000 ), "500-999" );
+        assertRanges( ByteRange.parse( "bytes=-100", 1000 ), "900-999" );
+        assertRanges( ByteRange.parse( "bytes=900-5000", 1000 ), "900-999" );
+        assertRanges( ByteRange.parse( "bytes=-5000", 1000 ), "0-999" );
+    }
+
+    @Test
+    public void multipleRangesAreSortedAndCoalesced()
+    {
+        assertRanges( ByteRange.parse( "bytes=500-599, 0-99", 1000 ), "0-99", "500-599" );
+        assertRanges( ByteRange.parse( "bytes=0-99,100-199,150-300", 1000 ), "0-300" );
+        assertRanges( ByteRange.parse( "bytes=0-99,5000-6000", 1000 ), "0-99" );
+    }
+
+    @Test
+    public void unsatisfiableRanges()
+    {
+        assertThat( ByteRange.parse( "bytes=1000-", 1000 ), hasSize( 0 ) );
+        assertThat( ByteRange.parse( "bytes=-0", 1000 ), hasSize( 0 ) );
+        assertThat( ByteRange.parse( "bytes=0-10", 0 ), hasSize( 0 ) );
+    }
+
+    @Test
+    public void invalidRangesAreIgnored()
+    {
+        assertThat( ByteRange.parse( null, 1000 ), nullValue() );
+        assertThat( ByteRange.parse( "items=0-10", 1000 ), nullValue() );
+        assertThat( ByteRange.parse( "bytes=10-0", 1000 ), nullValue() );
+        assertThat( ByteRange.parse( "bytes=a-b", 1000 ), nullValue() );
+        assertThat( ByteRange.parse( "bytes=10", 1000 ), nullValue() );
+
+        final StringBuilder tooMany = new StringBuilder( "bytes=" );
+        for ( int i = 0; i <= ByteRange.MAX_RANGES; i++ )
+        {
+            tooMany.append( i * 10 ).append( '-' ).append( i * 10 + 1 ).append( ',' );
+        }
+        assertThat( ByteRange.parse( tooMany.toString(), 1000 ), nullValue() );
+    }
+
+    private void assertRanges( final List<ByteRange> ranges, final String... expected )
+    {
+        assertThat( ranges, hasSize( expected.length ) );
+        for ( int i = 0; i < expected.length; i++ )
+        {
+            assertThat( ranges.get( i ).toString(), equalTo( expected[i] ) );
+        }
+    }
+}
@@ -12,14 +12,28 @@
  */
 package org.sonatype.nexus.rest;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Map;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.Maps;
+import com.google.common.io.Files;
 import com.noelios.restlet.http.HttpResponse;
 import com.noelios.restlet.http.HttpServerCall;
 import org.junit.Before;
@@ -28,8 +42,12 @@ import org.mockito.Mock;
 import org.restlet.Context;
 import org.restlet.data.Conditions;
 import org.restlet.data.Form;
+import org.restlet.data.Method;
 import org.restlet.data.Reference;
 import org.restlet.data.Request;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.resource.Representation;
 import org.restlet.resource.ResourceException;
 import org.restlet.resource.Variant;
 import org.restlet.util.Series;
@@ -43,7 +61,10 @@ import org.sonatype.nexus.proxy.NoSuchResourceStoreException;
 import org.sonatype.nexus.proxy.RequestContext;
 import org.sonatype.nexus.proxy.ResourceStore;
 import org.sonatype.nexus.proxy.attributes.Attributes;
+import org.sonatype.nexus.proxy.attributes.inspectors.DigestCalculatingInspector;
+import org.sonatype.nexus.proxy.item.FileContentLocator;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
 import org.sonatype.nexus.proxy.item.StorageCollectionItem;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageLinkItem;
@@ -66,6 +87,9 @@ public class ResourceStoreContentPlexusResourceTest
     @Mock
     private SecuritySystem security;
 
+    @Mock
+    private ContentFastPathStatistics fastPathStatistics;
+
     @Mock
     private Nexus nexus;
 
@@ -112,7 +136,7 @@ public class ResourceStoreContentPlexusResourceTest
     public void setup()
     {
 
-        underTest = new AbstractResourceStoreContentPlexusResource( security, views )
+        underTest = new AbstractResourceStoreContentPlexusResource( security, views, fastPathStatistics )
         {
             @Override
             protected ResourceStore getResourceStore( final Request request )
@@ -214,4 +238,120 @@ public class ResourceStoreContentPlexusResourceTest
         verifyZeroInteractions( headers );
     }
 
+    @Test
+    public void conditionalGetWithMatchingETagIsNotModified()
+        throws Exception
+    {
+        when( attributes.get( DigestCalculatingInspector.DIGEST_SHA1_KEY ) ).thenReturn( "1234" );
+        final Conditions conditions = new Conditions();
+        conditions.setNoneMatch( Collections.singletonList( new Tag( "{SHA1{1234}}", false ) ) );
+        when( request.getConditions() ).thenReturn( conditions );
+
+        assertNotModified();
+        verify( fileItem, never() ).getContentLocator();
+    }
+
+    @Test
+    public void conditionalGetWithNonMatchingETagIsServed()
+        throws Exception
+    {
+        when( attributes.get( DigestCalculatingInspector.DIGEST_SHA1_KEY ) ).thenReturn( "1234" );
+        final Conditions conditions = new Conditions();
+        conditions.setNoneMatch( Collections.singletonList( new Tag( "{SHA1{5678}}", false ) ) );
+        when( request.getConditions() ).thenReturn( conditions );
+
+        final Representation representation = underTest.renderStorageFileItem( request, fileItem );
+
+        assertThat( representation.getTag().getName(), equalTo( "{SHA1{1234}}" ) );
+    }
+
+    @Test
+    public void conditionalGetWithSameSecondModifiedSinceIsNotModified()
+        throws Exception
+    {
+        // HTTP dates have no millisecond part
+        when( fileItem.getModified() ).thenReturn( 1350000000123L );
+        final Conditions conditions = new Conditions();
+        conditions.setModifiedSince( new Date( 1350000000000L ) );
+        when( request.getConditions() ).thenReturn( conditions );
+
+        assertNotModified();
+        verify( fileItem, never() ).getContentLocator();
+    }
+
+    @Test
+    public void headRequestDoesNotTouchContent()
+        throws Exception
+    {
+        when( request.getMethod() ).thenReturn( Method.HEAD );
+        when( fileItem.getLength() ).thenReturn( 10L );
+
+        final Representation representation = underTest.renderStorageFileItem( request, fileItem );
+
+        assertThat( representation, instanceOf( StorageFileItemRepresentation.class ) );
+        assertThat( ( (StorageFileItemRepresentation) representation ).isMetadataOnly(), is( true ) );
+        assertThat( representation.getSize(), equalTo( 10L ) );
+        representation.write( new ByteArrayOutputStream() );
+        verify( fileItem, never() ).getContentLocator();
+        verify( fileItem, never() ).getInputStream();
+        verify( fastPathStatistics ).recordHead();
+    }
+
+    @Test
+    public void rangeRequestOnPlainFileIsPartial()
+        throws Exception
+    {
+        final File content = new File( util.createTempDir(), "content.txt" );
+        Files.write( "0123456789", content, Charsets.US_ASCII );
+        when( fileItem.getContentLocator() ).thenReturn( new FileContentLocator( content, "text/plain" ) );
+        when( fileItem.getLength() ).thenReturn( 10L );
+        when( fileItem.getMimeType() ).thenReturn( "text/plain" );
+        when( itemUid.getLock() ).thenReturn( mock( RepositoryItemUidLock.class ) );
+        when( request.getMethod() ).thenReturn( Method.GET );
+        final Form requestHeaders = new Form();
+        requestHeaders.add( "Range", "bytes=2-4" );
+        when( request.getAttributes() ).thenReturn( Collections.<String, Object> singletonMap(
+            "org.restlet.http.headers", requestHeaders ) );
+
+        final Representation representation = underTest.renderStorageFileItem( request, response, fileItem );
+
+        verify( response ).setStatus( Status.SUCCESS_PARTIAL_CONTENT );
+        assertThat( representation.getSize(), equalTo( 3L ) );
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        representation.write( out );
+        assertThat( out.toString( "US-ASCII" ), equalTo( "234" ) );
+    }
+
+    @Test
+    public void rangeRequestWithNonMatchingIfRangeIsServedWhole()
+        throws Exception
+    {
+        when( attributes.get( DigestCalculatingInspector.DIGEST_SHA1_KEY ) ).thenReturn( "1234" );
+        when( request.getMethod() ).thenReturn( Method.GET );
+        final Form requestHeaders = new Form();
+        requestHeaders.add( "Range", "bytes=2-4" );
+        requestHeaders.add( "If-Range", "\"{SHA1{5678}}\"" );
+        when( request.getAttributes() ).thenReturn( Collections.<String, Object> singletonMap(
+            "org.restlet.http.headers", requestHeaders ) );
+
+        final Representation representation = underTest.renderStorageFileItem( request, response, fileItem );
+
+        assertThat( representation, not( instanceOf( RangedStorageFileItemRepresentation.class ) ) );
+        verify( response, never() ).setStatus( Status.SUCCESS_PARTIAL_CONTENT );
+    }
+
+    private void assertNotModified()
+        throws Exception
+    {
+        try
+        {
+            underTest.renderStorageFileItem( request, fileItem );
+            fail( "Expected 304" );
+        }
+        catch ( ResourceException e )
+        {
+            assertThat( e.getStatus(), equalTo( Status.REDIRECTION_NOT_MODIFIED ) );
+        }
+    }
+
 }